@@ -1,5 +1,6 @@
 import { useState } from "react";
 import './index.css';
+import { RoundCharts } from "./SeriesChart";
 
 export default function SimulationViewer() {
 
@@ -8,49 +9,52 @@ export default function SimulationViewer() {
     const [loading, setLoading] = useState(false);
     const [error, setError] = useState("");
     const [inputValue, setInputValue] = useState(1);
+    // Fino a convergenza: il numero di round diventa un massimo, il backend decide quando fermarsi
+    const [converge, setConverge] = useState(false);
+    const [summary, setSummary] = useState(null);
+
+    const maxRounds = converge ? 100 : 20;
+    const clampRounds = (value) => Math.min(maxRounds, Math.max(1, Number(value) || 1));
+
+    async function fetchJson(path, maxAttempts = 5) {
+        for (let attempts = 0; attempts < maxAttempts; attempts++) {
+            try {
+                const res = await fetch(path);
+                if (res.ok) return await res.json();
+            } catch (err) {
+                if (attempts === maxAttempts - 1) {
+                    throw new Error(`Errore caricando ${path}: ${err.message}`);
+                }
+            }
+            await new Promise(resolve => setTimeout(resolve, 500));
+        }
+        throw new Error(`File ${path} non trovato dopo ${maxAttempts} tentativi`);
+    }
 
     async function runSimulation() {
         setLoading(true);
         setError("");
         setRounds([]);
+        setSummary(null);
 
-        const finalRoundCount = Math.min(20, Math.max(1, Number(inputValue) || 1));
-        // Rimuovi la riga qui sotto:
-        // setRoundCount(finalRoundCount);
+        const finalRoundCount = clampRounds(inputValue);
 
         try {
             const start = await fetch(
-                `http://localhost:8080/simulate?mode=${mode}&rounds=${finalRoundCount}`,
+                `http://localhost:8080/simulate?mode=${mode}&rounds=${finalRoundCount}&converge=${converge}&png=false`,
                 { method: "GET" }
             );
             if (!start.ok) throw new Error("Impossibile avviare la simulazione");
 
             await new Promise(resolve => setTimeout(resolve, 1000));
 
+            // Il riepilogo dice quanti round sono stati fatti davvero e perché ci si è fermati
+            const roundsSummary = await fetchJson(`/output/rounds_summary.json`);
+            setSummary(roundsSummary);
+
             const loaded = [];
-            for (let i = 1; i <= finalRoundCount; i++) {
-                let attempts = 0;
-                const maxAttempts = 5;
-
-                while (attempts < maxAttempts) {
-                    try {
-                        const res = await fetch(`/output/round_${i}_results.json`);
-                        if (res.ok) {
-                            const data = await res.json();
-                            loaded.push(data);
-                            break;
-                        } else if (attempts === maxAttempts - 1) {
-                            throw new Error(`File round_${i}_results.json non trovato dopo ${maxAttempts} tentativi`);
-                        }
-                    } catch (err) {
-                        if (attempts === maxAttempts - 1) {
-                            throw new Error(`Errore caricando round_${i}_results.json: ${err.message}`);
-                        }
-                    }
-
-                    attempts++;
-                    await new Promise(resolve => setTimeout(resolve, 500));
-                }
+            for (let i = 1; i <= roundsSummary.rounds; i++) {
+                loaded.push(await fetchJson(`/output/round_${i}_results.json`));
             }
             setRounds(loaded);
         } catch (err) {
@@ -61,23 +65,11 @@ export default function SimulationViewer() {
     }
 
     const handleInputChange = (e) => {
-        const value = e.target.value;
-        setInputValue(value);
-
-        const numValue = Number(value);
-        if (!isNaN(numValue) && numValue >= 1 && numValue <= 20) {
-            // Rimuovi la riga qui sotto:
-            // setRoundCount(numValue);
-        }
+        setInputValue(e.target.value);
     };
 
     const handleInputBlur = () => {
-        let value = Number(inputValue);
-        if (isNaN(value)) value = 1;
-        value = Math.min(20, Math.max(1, value));
-        // Rimuovi le due righe qui sotto:
-        // setRoundCount(value);
-        setInputValue(value);
+        setInputValue(clampRounds(inputValue));
     };
 
     return (
@@ -97,13 +89,22 @@ export default function SimulationViewer() {
                 <input
                     type="number"
                     min="1"
-                    max="20"
+                    max={maxRounds}
                     value={inputValue}
                     onChange={handleInputChange}
                     onBlur={handleInputBlur}
                     className="border p-1 w-24"
                 />
 
+                <label className="flex items-center gap-1">
+                    <input
+                        type="checkbox"
+                        checked={converge}
+                        onChange={e => setConverge(e.target.checked)}
+                    />
+                    Fino a convergenza (max round)
+                </label>
+
                 <button
                     onClick={runSimulation}
                     disabled={loading}
@@ -121,7 +122,24 @@ export default function SimulationViewer() {
 
             {loading && (
                 <div className="p-4 bg-blue-100 border border-blue-400 text-blue-700 rounded">
-                    Eseguendo simulazione con {Math.min(20, Math.max(1, Number(inputValue) || 1))} round in modalità {mode}...
+                    Eseguendo simulazione con {converge ? "al massimo " : ""}{clampRounds(inputValue)} round in modalità {mode}...
+                </div>
+            )}
+
+            {summary && (
+                <div className="p-4 bg-gray-100 border border-gray-300 rounded">
+                    <p className="font-semibold">
+                        {summary.rounds} round – {summary.stopReason === "CONVERGED" ? "convergenza raggiunta" : "numero massimo di round"}
+                    </p>
+                    <p className="text-sm">{summary.detail}</p>
+                    {Object.keys(summary.halfWidths || {}).length > 0 && (
+                        <p className="text-sm mt-1">
+                            Dal round {summary.stableFrom}:{" "}
+                            {Object.entries(summary.halfWidths).map(([metric, hw]) =>
+                                `${metric} ${summary.means[metric].toFixed(4)} ± ${hw.toFixed(4)}`
+                            ).join(", ")}
+                        </p>
+                    )}
                 </div>
             )}
 
@@ -164,55 +182,8 @@ export default function SimulationViewer() {
                             </div>
 
                             <h4 className="mt-4 font-semibold">Grafici</h4>
-                            <div className="grid grid-cols-1 md:grid-cols-3 gap-6 mt-4">
-                                <div className="bg-white p-2 rounded shadow">
-                                    <h5 className="text-sm font-medium mb-2">CDF Empirica</h5>
-                                    <img
-                                        src={`/output/${r.images.cdf}`}
-                                        alt="CDF"
-                                        className="w-full h-auto max-h-96 object-contain border"
-                                        onError={(e) => {
-                                            e.target.style.display = 'none';
-                                            e.target.nextSibling.style.display = 'block';
-                                        }}
-                                    />
-                                    <div style={{display: 'none'}} className="text-red-500 text-sm">
-                                        Immagine non disponibile
-                                    </div>
-                                </div>
-
-                                <div className="bg-white p-2 rounded shadow">
-                                    <h5 className="text-sm font-medium mb-2">Istogramma Inter-arrivi</h5>
-                                    <img
-                                        src={`/output/${r.images.hist}`}
-                                        alt="Istogramma inter-arrivi"
-                                        className="w-full h-auto max-h-96 object-contain border"
-                                        onError={(e) => {
-                                            e.target.style.display = 'none';
-                                            e.target.nextSibling.style.display = 'block';
-                                        }}
-                                    />
-                                    <div style={{display: 'none'}} className="text-red-500 text-sm">
-                                        Immagine non disponibile
-                                    </div>
-                                </div>
-
-                                <div className="bg-white p-2 rounded shadow">
-                                    <h5 className="text-sm font-medium mb-2">BPH Fit</h5>
-                                    <img
-                                        src={`/output/${r.images.fit}`}
-                                        alt="BPH Fit"
-                                        className="w-full h-auto max-h-96 object-contain border"
-                                        onError={(e) => {
-                                            e.target.style.display = 'none';
-                                            e.target.nextSibling.style.display = 'block';
-                                        }}
-                                    />
-                                    <div style={{display: 'none'}} className="text-red-500 text-sm">
-                                        Immagine non disponibile
-                                    </div>
-                                </div>
-                            </div>
+                            {/* Grafici disegnati qui dalle serie ridotte: il backend non genera più i PNG */}
+                            <RoundCharts round={r.round} />
                         </details>
                     ))}
                 </div>
@@ -0,0 +1,90 @@
+import { useEffect, useState } from "react";
+
+// Punti per serie chiesti al backend: bastano per un grafico largo qualche centinaio di pixel
+const CHART_POINTS = 300;
+const WIDTH = 400;
+const HEIGHT = 300;
+const PAD = 40;
+const COLORS = ["#2563eb", "#dc2626"];
+
+// Grafico SVG di una o più serie {name, style: "step" | "points" | "line", x, y}
+export function SeriesChart({ series, xLabel, yLabel }) {
+    const visible = series.filter(s => s && s.x.length > 0);
+    if (visible.length === 0) {
+        return <div className="text-red-500 text-sm">Dati non disponibili</div>;
+    }
+
+    const xs = visible.flatMap(s => s.x);
+    const ys = visible.flatMap(s => s.y);
+    const minX = Math.min(...xs), maxX = Math.max(...xs);
+    const maxY = Math.max(...ys, 0) || 1;
+    const sx = x => PAD + (maxX > minX ? (x - minX) / (maxX - minX) : 0.5) * (WIDTH - 2 * PAD);
+    const sy = y => HEIGHT - PAD - (y / maxY) * (HEIGHT - 2 * PAD);
+
+    const path = s => s.x.map((x, i) => {
+        if (i === 0) return `M${sx(x)},${sy(s.y[0])}`;
+        // a gradini: orizzontale fino al nuovo x, poi il salto
+        return s.style === "step"
+            ? `H${sx(x)}V${sy(s.y[i])}`
+            : `L${sx(x)},${sy(s.y[i])}`;
+    }).join("");
+
+    return (
+        <svg viewBox={`0 0 ${WIDTH} ${HEIGHT}`} className="w-full h-auto border">
+            <line x1={PAD} y1={HEIGHT - PAD} x2={WIDTH - PAD} y2={HEIGHT - PAD} stroke="#9ca3af" />
+            <line x1={PAD} y1={PAD} x2={PAD} y2={HEIGHT - PAD} stroke="#9ca3af" />
+            <text x={PAD} y={HEIGHT - PAD + 14} fontSize="10">{minX.toFixed(2)}</text>
+            <text x={WIDTH - PAD} y={HEIGHT - PAD + 14} fontSize="10" textAnchor="end">{maxX.toFixed(2)}</text>
+            <text x={PAD - 4} y={PAD} fontSize="10" textAnchor="end">{maxY.toFixed(2)}</text>
+            <text x={WIDTH / 2} y={HEIGHT - 6} fontSize="11" textAnchor="middle">{xLabel}</text>
+            <text x={12} y={HEIGHT / 2} fontSize="11" textAnchor="middle"
+                  transform={`rotate(-90 12 ${HEIGHT / 2})`}>{yLabel}</text>
+            {visible.map((s, k) => s.style === "points"
+                ? s.x.map((x, i) => (
+                    <circle key={`${k}-${i}`} cx={sx(x)} cy={sy(s.y[i])} r="2.5" fill={COLORS[k % COLORS.length]} />
+                ))
+                : <path key={k} d={path(s)} fill="none" stroke={COLORS[k % COLORS.length]} strokeWidth="1.5" />
+            )}
+            {visible.length > 1 && visible.map((s, k) => (
+                <text key={`legend-${k}`} x={WIDTH - PAD} y={PAD + 12 * k} fontSize="10" textAnchor="end"
+                      fill={COLORS[k % COLORS.length]}>{s.name}</text>
+            ))}
+        </svg>
+    );
+}
+
+// I tre grafici di un round, dalle serie ridotte dal backend (/charts/{round})
+export function RoundCharts({ round }) {
+    const [charts, setCharts] = useState(null);
+    const [error, setError] = useState("");
+
+    useEffect(() => {
+        fetch(`/charts/${round}?points=${CHART_POINTS}`)
+            .then(res => {
+                if (!res.ok) throw new Error(`Serie del round ${round} non disponibili`);
+                return res.json();
+            })
+            .then(setCharts)
+            .catch(err => setError(err.message));
+    }, [round]);
+
+    if (error) return <div className="text-red-500 text-sm">{error}</div>;
+    if (!charts) return <div className="text-sm">Caricamento grafici...</div>;
+
+    return (
+        <div className="grid grid-cols-1 md:grid-cols-3 gap-6 mt-4">
+            <div className="bg-white p-2 rounded shadow">
+                <h5 className="text-sm font-medium mb-2">CDF Empirica</h5>
+                <SeriesChart series={[charts.cdf]} xLabel="Inter-arrivo" yLabel="CDF" />
+            </div>
+            <div className="bg-white p-2 rounded shadow">
+                <h5 className="text-sm font-medium mb-2">Istogramma Inter-arrivi</h5>
+                <SeriesChart series={[charts.histogram]} xLabel="Inter-arrivo normalizzato" yLabel="Frequenza" />
+            </div>
+            <div className="bg-white p-2 rounded shadow">
+                <h5 className="text-sm font-medium mb-2">BPH Fit</h5>
+                <SeriesChart series={[charts.pdf, charts.fit]} xLabel="x (normalizzato)" yLabel="f(x)" />
+            </div>
+        </div>
+    );
+}
@@ -1,9 +1,5 @@
-
 package myPackage;
 
-import lombok.Getter;
-import lombok.Setter;
-import org.oristool.analyzer.Succession;
 import org.oristool.simulator.Sequencer;
 import org.oristool.simulator.rewards.DiscreteRewardTime;
 import org.oristool.simulator.rewards.Reward;
@@ -12,22 +8,21 @@ import org.oristool.simulator.rewards.RewardObserver;
 import java.util.ArrayList;
 import java.util.List;
 
+/**
+ * Tasso di abbandono = abbandoni / arrivi riusciti.
+ * Vista in sola lettura sui contatori della {@link FusedRewardPipeline}.
+ */
 public class AbandonRateReward implements Reward {
-    private final Sequencer sequencer;
-    private int abandonCount = 0;
-    @Setter
-    @Getter
-    private int arrivalCount = 0;
+    private final FusedRewardPipeline pipeline;
     private final List<RewardObserver> observers = new ArrayList<>(); // Lista per gestire gli observer
 
-    public AbandonRateReward(Sequencer sequencer) {
-        this.sequencer = sequencer;
-        this.sequencer.addCurrentRunObserver(this);
+    public AbandonRateReward(FusedRewardPipeline pipeline) {
+        this.pipeline = pipeline;
     }
 
     @Override
     public Sequencer getSequencer() {
-        return sequencer;
+        return pipeline.getSequencer();
     }
 
     @Override
@@ -37,27 +32,21 @@ public class AbandonRateReward implements Reward {
 
     @Override
     public void update(Sequencer.SequencerEvent event) {
-        if (event == Sequencer.SequencerEvent.FIRING_EXECUTED) {
-            Succession lastSuccession = sequencer.getLastSuccession();
-
-            if (lastSuccession != null) {
-                String eventName = lastSuccession.getEvent().getName();
-
-                if (eventName.startsWith("arrival")) {
-                    arrivalCount++;
-                }
+        // vista: i contatori sono aggiornati dalla pipeline
+    }
 
-                if ("abandon".equals(eventName)) {
-                    abandonCount++;
-                }
-            }
-        }
+    public long getArrivalCount() {
+        return pipeline.count(TransitionCategory.ARRIVAL);
     }
 
+    public long getAbandonCount() {
+        return pipeline.count(TransitionCategory.ABANDON);
+    }
 
     @Override
     public Object evaluate() {
-        double result = arrivalCount > 0 ? abandonCount / (double) arrivalCount : 0.0;
+        long arrivalCount = getArrivalCount();
+        double result = arrivalCount > 0 ? getAbandonCount() / (double) arrivalCount : 0.0;
         notifyObservers();
         return result;
     }
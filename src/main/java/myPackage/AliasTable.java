@@ -0,0 +1,64 @@
+package myPackage;
+
+/**
+ * Tabella di alias (metodo di Vose) per estrarre un indice da una distribuzione discreta in
+ * O(1): una colonna scelta a caso, poi la colonna stessa o il suo alias. Costruzione in O(n).
+ */
+public final class AliasTable {
+    private final double[] probability;
+    private final int[] alias;
+
+    public AliasTable(double[] weights) {
+        int n = weights.length;
+        double sum = 0.0;
+        for (double w : weights) {
+            if (w < 0 || Double.isNaN(w)) throw new IllegalArgumentException("Peso negativo nella tabella di alias");
+            sum += w;
+        }
+        if (n == 0 || !(sum > 0)) {
+            throw new IllegalArgumentException("Pesi della tabella di alias non validi");
+        }
+        probability = new double[n];
+        alias = new int[n];
+
+        double[] scaled = new double[n];
+        int[] small = new int[n];
+        int[] large = new int[n];
+        int smallCount = 0, largeCount = 0;
+        for (int i = 0; i < n; i++) {
+            scaled[i] = weights[i] * n / sum;
+            if (scaled[i] < 1.0) small[smallCount++] = i; else large[largeCount++] = i;
+        }
+        while (smallCount > 0 && largeCount > 0) {
+            int s = small[--smallCount];
+            int l = large[--largeCount];
+            probability[s] = scaled[s];
+            alias[s] = l;
+            scaled[l] = scaled[l] + scaled[s] - 1.0;
+            if (scaled[l] < 1.0) small[smallCount++] = l; else large[largeCount++] = l;
+        }
+        // residui numerici: colonne piene
+        while (largeCount > 0) {
+            int l = large[--largeCount];
+            probability[l] = 1.0;
+            alias[l] = l;
+        }
+        while (smallCount > 0) {
+            int s = small[--smallCount];
+            probability[s] = 1.0;
+            alias[s] = s;
+        }
+    }
+
+    public int size() {
+        return probability.length;
+    }
+
+    /** Indice estratto con una sola uniforme u in [0, 1]: parte intera = colonna, parte frazionaria = moneta. */
+    public int sample(double u) {
+        int n = probability.length;
+        double x = Math.min(u, Math.nextDown(1.0)) * n;
+        int column = (int) x;
+        return x - column < probability[column] ? column : alias[column];
+    }
+}
@@ -0,0 +1,101 @@
+package myPackage;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Stima dei pesi della modalità dinamica fuori dal thread di simulazione.
+ *
+ * Il collector pubblica gli inter-arrivi in una {@link SpscRingBuffer}; un thread daemon li
+ * passa al {@link DynamicCDFSampler} nello stesso ordine e, ogni volta che il sampler lo chiede,
+ * ricalcola i pesi e li pubblica come lista immutabile in un {@link AtomicReference}. I pesi
+ * finali sono quindi gli stessi della versione sincrona, a meno di inter-arrivi scartati
+ * perché la coda era piena ({@link #dropped()}).
+ */
+public class AsyncWeightEstimator implements AutoCloseable {
+    private static final long IDLE_PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(200);
+
+    private final DynamicCDFSampler sampler;
+    private final SpscRingBuffer queue;
+    private final AtomicReference<List<BigDecimal>> weights;
+    private final AtomicLong updates = new AtomicLong();
+    private final Thread worker;
+    private long dropped;
+    private volatile boolean closed;
+    private volatile RuntimeException failure;
+
+    public AsyncWeightEstimator(DynamicCDFSampler sampler, List<BigDecimal> initialWeights, int capacity) {
+        this.sampler = sampler;
+        this.queue = new SpscRingBuffer(capacity);
+        this.weights = new AtomicReference<>(List.copyOf(initialWeights));
+        this.worker = new Thread(this::run, "stima-pesi");
+        this.worker.setDaemon(true);
+        this.worker.start();
+    }
+
+    public AsyncWeightEstimator(DynamicCDFSampler sampler, List<BigDecimal> initialWeights) {
+        this(sampler, initialWeights, 1 << 16);
+    }
+
+    /** Dal thread di simulazione: non si blocca mai. */
+    public void publish(double interArrival) {
+        if (!queue.offer(interArrival)) dropped++;
+    }
+
+    /** Ultimi pesi pubblicati (lista immutabile). */
+    public List<BigDecimal> latestWeights() {
+        return weights.get();
+    }
+
+    public long updates() {
+        return updates.get();
+    }
+
+    /** Inter-arrivi persi perché il thread di stima era rimasto indietro di un'intera coda. */
+    public long dropped() {
+        return dropped;
+    }
+
+    private void run() {
+        try {
+            while (true) {
+                // letto prima di svuotare: se era già chiusa, dopo questo drain non arriva più niente
+                boolean last = closed;
+                int drained = queue.drain(this::consume);
+                if (last) break;
+                if (drained == 0) LockSupport.parkNanos(this, IDLE_PARK_NANOS);
+            }
+        } catch (RuntimeException e) {
+            failure = e;
+        }
+    }
+
+    private void consume(double interArrival) {
+        sampler.addInterArrivalTime(BigDecimal.valueOf(interArrival));
+        if (sampler.shouldUpdateWeights()) {
+            List<BigDecimal> updated = sampler.updateWeights(new ArrayList<>(weights.get()));
+            weights.set(List.copyOf(updated));
+            updates.incrementAndGet();
+        }
+    }
+
+    /** Smaltisce gli inter-arrivi ancora in coda e ferma il thread; poi {@link #latestWeights()} è definitivo. */
+    @Override
+    public void close() {
+        closed = true;
+        LockSupport.unpark(worker);
+        try {
+            worker.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (failure != null) {
+            throw new IllegalStateException("Stima asincrona dei pesi fallita", failure);
+        }
+    }
+}
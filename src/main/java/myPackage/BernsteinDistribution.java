@@ -0,0 +1,74 @@
+package myPackage;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+/**
+ * Densità BPH (Bernstein) su [0, 1] data dai pesi: miscela di Beta(i+1, n-i), i = 0..n-1,
+ * con n = numero di pesi. I pesi vengono normalizzati a somma 1.
+ *
+ * La CDF usa l'identità I_x(i+1, n-i) = P(Bin(n, x) ≥ i+1), quindi costa O(n) per punto.
+ */
+public final class BernsteinDistribution {
+    private final double[] weights;
+
+    public BernsteinDistribution(double[] weights) {
+        double sum = 0.0;
+        for (double w : weights) sum += w;
+        if (weights.length == 0 || !(sum > 0)) {
+            throw new IllegalArgumentException("Pesi BPH non validi");
+        }
+        this.weights = new double[weights.length];
+        for (int i = 0; i < weights.length; i++) {
+            this.weights[i] = weights[i] / sum;
+        }
+    }
+
+    public static BernsteinDistribution of(List<BigDecimal> weights) {
+        return new BernsteinDistribution(weights.stream().mapToDouble(BigDecimal::doubleValue).toArray());
+    }
+
+    public int order() {
+        return weights.length;
+    }
+
+    /** Densità: n · Σ w_i C(n-1, i) x^i (1-x)^(n-1-i). */
+    public double pdf(double x) {
+        if (x < 0 || x > 1) return 0.0;
+        int n = weights.length;
+        double[] basis = binomialPmf(n - 1, x);
+        double sum = 0.0;
+        for (int i = 0; i < n; i++) {
+            sum += weights[i] * basis[i];
+        }
+        return n * sum;
+    }
+
+    public double cdf(double x) {
+        if (x <= 0) return 0.0;
+        if (x >= 1) return 1.0;
+        int n = weights.length;
+        double[] pmf = binomialPmf(n, x);
+        // tail[k] = P(Bin(n, x) ≥ k)
+        double tail = 0.0;
+        double result = 0.0;
+        for (int k = n; k >= 1; k--) {
+            tail += pmf[k];
+            result += weights[k - 1] * tail;
+        }
+        return Math.min(1.0, result);
+    }
+
+    /** P(Bin(m, x) = k) per k = 0..m, con la ricorrenza sul rapporto tra termini consecutivi. */
+    private static double[] binomialPmf(int m, double x) {
+        double[] pmf = new double[m + 1];
+        if (x == 0) { pmf[0] = 1; return pmf; }
+        if (x == 1) { pmf[m] = 1; return pmf; }
+        pmf[0] = Math.pow(1 - x, m);
+        double ratio = x / (1 - x);
+        for (int k = 1; k <= m; k++) {
+            pmf[k] = pmf[k - 1] * ratio * (m - k + 1) / k;
+        }
+        return pmf;
+    }
+}
@@ -1,38 +1,29 @@
-
 package myPackage;
 
-import lombok.Getter;
-import org.oristool.analyzer.Succession;
 import org.oristool.simulator.Sequencer;
 import org.oristool.simulator.rewards.DiscreteRewardTime;
 import org.oristool.simulator.rewards.Reward;
 import org.oristool.simulator.rewards.RewardObserver;
 import org.oristool.simulator.rewards.RewardTime;
 
-import java.math.BigDecimal;
 import java.util.ArrayList;
 import java.util.List;
 
+/**
+ * Probabilità di blocco = bloccati / (arrivi riusciti + bloccati).
+ * Vista in sola lettura sui contatori della {@link FusedRewardPipeline}.
+ */
 public class BlockProbabilityReward implements Reward {
-    private final Sequencer sequencer;
-
-    private int arrivalCount = 0;   // arrivi riusciti
-
-    @Getter
-    private int blockCount   = 0;   // arrivi bloccati
-
-    private final List<BigDecimal> arrivalTimes = new ArrayList<>();
+    private final FusedRewardPipeline pipeline;
     private final List<RewardObserver> observers = new ArrayList<>();
 
-    public BlockProbabilityReward(Sequencer sequencer) {
-        this.sequencer = sequencer;
-        // Osserviamo anche l’inizio di ogni run per resettare i contatori
-        this.sequencer.addCurrentRunObserver(this);
+    public BlockProbabilityReward(FusedRewardPipeline pipeline) {
+        this.pipeline = pipeline;
     }
 
     @Override
     public Sequencer getSequencer() {
-        return sequencer;
+        return pipeline.getSequencer();
     }
 
     @Override
@@ -42,35 +33,17 @@ public class BlockProbabilityReward implements Reward {
 
     @Override
     public void update(Sequencer.SequencerEvent event) {
-        if (event == Sequencer.SequencerEvent.RUN_START) {
-            arrivalCount = 0;
-            blockCount   = 0;
-            arrivalTimes.clear();
-            return;
-        }
-
-        if (event == Sequencer.SequencerEvent.FIRING_EXECUTED) {
-            Succession last = sequencer.getLastSuccession();
-            if (last == null) return;
-
-            String name = last.getEvent().getName();
-            if (name.startsWith("arrival")) {
-                arrivalCount++;
-                arrivalTimes.add(sequencer.getCurrentRunElapsedTime());
-            }
-            else if (name.startsWith("blocked")) {
-                blockCount++;
-            }
+        // vista: i contatori sono aggiornati dalla pipeline
+    }
 
-            if (name.startsWith("blocked")) {
-                notifyObservers();
-            }
-        }
+    public long getBlockCount() {
+        return pipeline.count(TransitionCategory.BLOCKED);
     }
 
     @Override
     public Object evaluate() {
-        int totalAttempts = arrivalCount + blockCount;
+        long blockCount = getBlockCount();
+        long totalAttempts = pipeline.count(TransitionCategory.ARRIVAL) + blockCount;
         return totalAttempts > 0
                 ? (double) blockCount / totalAttempts
                 : 0.0;
@@ -86,15 +59,4 @@ public class BlockProbabilityReward implements Reward {
         observers.remove(observer);
     }
 
-    private void notifyObservers() {
-        for (RewardObserver o : observers) {
-            o.update(RewardEvent.RUN_END);
-        }
-    }
-
-
-    public List<BigDecimal> getArrivalTimes() {
-        return new ArrayList<>(arrivalTimes);
-    }
-
 }
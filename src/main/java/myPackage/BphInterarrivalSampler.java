@@ -0,0 +1,78 @@
+package myPackage;
+
+import org.oristool.simulator.samplers.Sampler;
+
+import java.math.BigDecimal;
+
+/**
+ * Campionatore diretto degli inter-arrivi dalla distribuzione BPH stimata: la componente
+ * Beta(i+1, n-i) è scelta con una {@link AliasTable} sui pesi, poi il campione Beta è
+ * riportato sulla scala osservata, {@code min + (max - min)·x}.
+ *
+ * Con parametri interi Beta(a, b) = G_a / (G_a + G_b), con G_k = -ln(U_1···U_k) somma di k
+ * esponenziali: servono n+1 uniformi per campione e nessuna inversione numerica. Le coppie
+ * (a, b) sono precalcolate per ogni componente.
+ *
+ * Installato come {@link org.oristool.simulator.stpn.SamplerFeature} sulla transizione
+ * "arrival" della rete ad arrivo diretto di {@link SimulationSetup}: un arrivo = un firing.
+ */
+public class BphInterarrivalSampler implements Sampler {
+    private AliasTable components;
+    private final int[] shapeA;
+    private final int[] shapeB;
+    private final double offset;
+    private final double scale;
+    private final RandomStreams.Stream stream;
+
+    /**
+     * @param weights pesi BPH (non serve che sommino a 1)
+     * @param min     inter-arrivo minimo osservato (x = 0)
+     * @param max     inter-arrivo massimo osservato (x = 1)
+     */
+    public BphInterarrivalSampler(double[] weights, double min, double max, RandomStreams.Stream stream) {
+        if (!(max > min) || min < 0) {
+            throw new IllegalArgumentException("Intervallo degli inter-arrivi non valido: [" + min + ", " + max + "]");
+        }
+        int n = weights.length;
+        this.components = new AliasTable(weights);
+        this.shapeA = new int[n];
+        this.shapeB = new int[n];
+        for (int i = 0; i < n; i++) {
+            shapeA[i] = i + 1;
+            shapeB[i] = n - i;
+        }
+        this.offset = min;
+        this.scale = max - min;
+        this.stream = stream;
+    }
+
+    /** Nuovi pesi (stesso ordine) dal campione successivo: la rete ad arrivo diretto li usa durante il run. */
+    public void setWeights(double[] weights) {
+        if (weights.length != shapeA.length) {
+            throw new IllegalArgumentException("Servono " + shapeA.length + " pesi, ricevuti " + weights.length);
+        }
+        this.components = new AliasTable(weights);
+    }
+
+    public double nextInterarrival() {
+        int i = components.sample(stream.nextUniform());
+        double a = gamma(shapeA[i]);
+        double b = gamma(shapeB[i]);
+        double total = a + b;
+        return offset + scale * (total > 0 ? a / total : 0.5);
+    }
+
+    /** Gamma(k, 1) con k intero: un solo logaritmo per il prodotto delle uniformi. */
+    private double gamma(int k) {
+        double product = 1.0;
+        for (int j = 0; j < k; j++) {
+            product *= stream.nextUniform();
+        }
+        return -Math.log(product);
+    }
+
+    @Override
+    public BigDecimal getSample() {
+        return BigDecimal.valueOf(nextInterarrival());
+    }
+}
@@ -0,0 +1,194 @@
+package myPackage;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * Scelta automatica dell'ordine BPH: per ogni ordine candidato stima i pesi della miscela di
+ * Bernstein sugli stessi inter-arrivi normalizzati in [0, 1] e tiene il migliore secondo il
+ * criterio scelto. Gli ordini sono indipendenti e vengono stimati in parallelo su un
+ * {@link ForkJoinPool}.
+ *
+ * Le componenti Beta(i+1, n-i) sono fisse, quindi la stima dei pesi a massima verosimiglianza
+ * è un EM sulle sole proporzioni della miscela (monotono, nessun passo da regolare).
+ */
+public class BphOrderSelector {
+
+    public enum Criterion {
+        AIC, BIC, KS;
+
+        public static Criterion of(String name) {
+            if (name == null) return BIC;
+            return switch (name.toLowerCase()) {
+                case "aic" -> AIC;
+                case "bic" -> BIC;
+                case "ks" -> KS;
+                default -> throw new IllegalArgumentException("Criterio sconosciuto: " + name);
+            };
+        }
+    }
+
+    /** Risultato della stima per un ordine. */
+    public static class Fit {
+        public final int order;
+        public final double[] weights;
+        public final double logLikelihood;
+        public final double aic;
+        public final double bic;
+        public final double ks;
+        public final int iterations;
+
+        Fit(int order, double[] weights, double logLikelihood, int samples, double ks, int iterations) {
+            this.order = order;
+            this.weights = weights;
+            this.logLikelihood = logLikelihood;
+            int parameters = order - 1;
+            this.aic = 2 * parameters - 2 * logLikelihood;
+            this.bic = parameters * Math.log(samples) - 2 * logLikelihood;
+            this.ks = ks;
+            this.iterations = iterations;
+        }
+
+        public double score(Criterion criterion) {
+            return switch (criterion) {
+                case AIC -> aic;
+                case BIC -> bic;
+                case KS -> ks;
+            };
+        }
+
+        /**
+         * Pesi come BigDecimal (6 cifre, come il resto dell'aggiornamento dei pesi). Nessun peso
+         * scende sotto {@link SimulationSetup#MIN_WEIGHT}: un peso arrotondato a 0 sull'ultima fase
+         * la lascerebbe senza uscite.
+         */
+        public List<BigDecimal> weightList() {
+            List<BigDecimal> list = new ArrayList<>(weights.length);
+            for (double w : weights) {
+                list.add(BigDecimal.valueOf(w).setScale(6, RoundingMode.HALF_UP).max(SimulationSetup.MIN_WEIGHT));
+            }
+            return list;
+        }
+    }
+
+    private static final int MAX_ITERATIONS = 500;
+    private static final double TOLERANCE = 1e-7;
+
+    private final int minOrder;
+    private final int maxOrder;
+    private final Criterion criterion;
+    private final ForkJoinPool pool;
+    private List<Fit> fits = List.of();
+
+    public BphOrderSelector(int minOrder, int maxOrder, Criterion criterion, ForkJoinPool pool) {
+        if (minOrder < 1 || maxOrder < minOrder) {
+            throw new IllegalArgumentException("Intervallo di ordini non valido: " + minOrder + ".." + maxOrder);
+        }
+        this.minOrder = minOrder;
+        this.maxOrder = maxOrder;
+        this.criterion = criterion;
+        this.pool = pool;
+    }
+
+    public BphOrderSelector(int minOrder, int maxOrder, Criterion criterion) {
+        this(minOrder, maxOrder, criterion, ForkJoinPool.commonPool());
+    }
+
+    /** Stima tutti gli ordini sul campione (già normalizzato in [0, 1]) e restituisce il migliore. */
+    public Fit select(EmpiricalDistribution sample) {
+        if (sample.size() < 2) {
+            throw new IllegalArgumentException("Servono almeno due inter-arrivi per scegliere l'ordine");
+        }
+        List<ForkJoinTask<Fit>> tasks = new ArrayList<>();
+        for (int order = minOrder; order <= maxOrder; order++) {
+            int n = order;
+            tasks.add(pool.submit(() -> fit(sample, n)));
+        }
+        List<Fit> results = new ArrayList<>(tasks.size());
+        for (ForkJoinTask<Fit> task : tasks) {
+            results.add(task.join());
+        }
+        fits = results;
+
+        Fit best = results.get(0);
+        for (Fit f : results) {
+            if (f.score(criterion) < best.score(criterion)) best = f;
+        }
+        return best;
+    }
+
+    /** Stime dell'ultima {@link #select}, in ordine crescente. */
+    public List<Fit> getFits() {
+        return fits;
+    }
+
+    public Criterion getCriterion() {
+        return criterion;
+    }
+
+    /** EM sui pesi della miscela di ordine n, partendo dai pesi uniformi. */
+    static Fit fit(EmpiricalDistribution sample, int n) {
+        int size = sample.size();
+        // densità delle componenti in ogni campione: basis[k * n + i] = n C(n-1, i) x^i (1-x)^(n-1-i)
+        double[] basis = new double[size * n];
+        double[] point = new double[n];
+        for (int k = 0; k < size; k++) {
+            bernsteinBasis(sample.value(k), n, point);
+            System.arraycopy(point, 0, basis, k * n, n);
+        }
+
+        double[] weights = new double[n];
+        Arrays.fill(weights, 1.0 / n);
+        double[] next = new double[n];
+        double logLikelihood = Double.NEGATIVE_INFINITY;
+        int iteration = 0;
+        while (iteration < MAX_ITERATIONS) {
+            iteration++;
+            Arrays.fill(next, 0.0);
+            double ll = 0.0;
+            for (int k = 0; k < size; k++) {
+                int offset = k * n;
+                double mixture = 0.0;
+                for (int i = 0; i < n; i++) mixture += weights[i] * basis[offset + i];
+                if (mixture <= 0) continue;
+                ll += Math.log(mixture);
+                for (int i = 0; i < n; i++) next[i] += weights[i] * basis[offset + i] / mixture;
+            }
+            for (int i = 0; i < n; i++) weights[i] = next[i] / size;
+            boolean converged = ll - logLikelihood < TOLERANCE * size;
+            logLikelihood = ll;
+            if (converged) break;
+        }
+
+        BernsteinDistribution distribution = new BernsteinDistribution(weights);
+        return new Fit(n, weights, logLikelihood, size, sample.kolmogorovSmirnov(distribution::cdf), iteration);
+    }
+
+    private static void bernsteinBasis(double x, int n, double[] out) {
+        int m = n - 1;
+        if (x <= 0 || x >= 1) {
+            Arrays.fill(out, 0.0);
+            out[x <= 0 ? 0 : m] = n;
+            return;
+        }
+        out[0] = n * Math.pow(1 - x, m);
+        double ratio = x / (1 - x);
+        for (int i = 1; i <= m; i++) {
+            out[i] = out[i - 1] * ratio * (m - i + 1) / i;
+        }
+    }
+
+    /** Tabella ordine / log-verosimiglianza / AIC / BIC / KS dell'ultima selezione. */
+    public void report(Fit chosen) {
+        System.out.println("ordine;logL;AIC;BIC;KS;iterazioni");
+        for (Fit f : fits) {
+            System.out.printf("%d;%.3f;%.3f;%.3f;%.4f;%d%s%n", f.order, f.logLikelihood, f.aic, f.bic, f.ks,
+                    f.iterations, f == chosen ? "  <-" : "");
+        }
+    }
+}
@@ -4,7 +4,7 @@ package myPackage;
 import java.math.BigDecimal;
 import java.math.RoundingMode;
 import java.util.ArrayList;
-import java.util.Collections;
+import java.util.Arrays;
 import java.util.List;
 
 public class CDFSampler {
@@ -24,6 +24,17 @@ public class CDFSampler {
         this.verbose      = verbose;
     }
 
+    /**
+     * Tagli per percentili della PDF aggregata, uno per peso: per l'ordine 4 quelli storici
+     * [0, 0.5, 0.7, 0.9, 1], per gli altri ordini tagli equispaziati.
+     */
+    public static double[] percentileCuts(int order) {
+        if (order == 4) return new double[]{0.0, 0.50, 0.70, 0.90, 1.0};
+        double[] cuts = new double[order + 1];
+        for (int j = 0; j <= order; j++) cuts[j] = (double) j / order;
+        return cuts;
+    }
+
     public List<BigDecimal> evaluateAndAdjustWeights(
             List<BigDecimal> interArrivalTimes,
             List<BigDecimal> weights) {
@@ -33,23 +44,19 @@ public class CDFSampler {
         int nW = weights.size();
 
 
-        List<BigDecimal> copy = new ArrayList<>(interArrivalTimes);
-        Collections.sort(copy);
-        List<BigDecimal> cdf = FunctionsCalculator.calculateCDF(copy);
-        List<BigDecimal> pdf = FunctionsCalculator.calculatePDF(cdf);
-
-        if (pdf.size() != nW) {
-            // percentili di cut (es: [0%, 60%, 80%, 90%, 100%])
-            BigDecimal[] percentiles = {
-                    BigDecimal.ZERO,
-                    new BigDecimal("0.50"),
-                    new BigDecimal("0.70"),
-                    new BigDecimal("0.90"),
-                    BigDecimal.ONE
-            };
-            pdf = aggregatePdfByPercentiles(pdf, copy, percentiles);
+        EmpiricalDistribution ecdf = EmpiricalDistribution.of(interArrivalTimes);
+        List<BigDecimal> pdf = new ArrayList<>(nW);
+        if (ecdf.size() == nW) {
+            // un campione per peso: ogni campione ha probabilità 1/n
+            for (int i = 0; i < nW; i++) pdf.add(BigDecimal.ONE.divide(new BigDecimal(nW), 10, RoundingMode.HALF_UP));
+        } else {
+            // percentili di cut (per 4 pesi: [0%, 50%, 70%, 90%, 100%])
+            double[] percentiles = percentileCuts(nW);
+            for (double mass : ecdf.percentileMass(percentiles)) {
+                pdf.add(BigDecimal.valueOf(mass));
+            }
             if (verbose) {
-                System.out.printf("⚠️  PDF aggregata per percentili: %s%n", List.of(percentiles));
+                System.out.printf("⚠️  PDF aggregata per percentili: %s%n", Arrays.toString(percentiles));
             }
         }
 
@@ -73,6 +80,35 @@ public class CDFSampler {
         return weights;
     }
 
+    /**
+     * Come {@link #evaluateAndAdjustWeights(List, List)}, ma con la PDF aggregata per percentili
+     * ricavata dallo sketch degli inter-arrivi: il costo non dipende dal numero di campioni.
+     */
+    public List<BigDecimal> evaluateAndAdjustWeights(QuantileSketch interArrivals, List<BigDecimal> weights) {
+        if (interArrivals.count() == 0)
+            throw new IllegalArgumentException("La lista dei tempi di arrivo è vuota.");
+        int nW = weights.size();
+
+        List<BigDecimal> pdf = new ArrayList<>(nW);
+        if (interArrivals.count() == nW) {
+            // un campione per peso: PDF uniforme, come nella versione a lista
+            for (int i = 0; i < nW; i++) pdf.add(BigDecimal.ONE.divide(new BigDecimal(nW), 10, RoundingMode.HALF_UP));
+        } else {
+            double[] percentiles = percentileCuts(nW);
+            double previous = 0.0;
+            for (int j = 1; j < percentiles.length; j++) {
+                double next = j == percentiles.length - 1
+                        ? 1.0 : interArrivals.cdf(interArrivals.quantile(percentiles[j]));
+                pdf.add(BigDecimal.valueOf(Math.max(0.0, next - previous)));
+                previous = next;
+            }
+            if (verbose) {
+                System.out.printf("⚠️  PDF aggregata per percentili (sketch): %s%n", Arrays.toString(percentiles));
+            }
+        }
+        return updateWithObservedPdf(pdf, weights);
+    }
+
     private List<BigDecimal> estimateWeightsFromPDF(List<BigDecimal> pdf) {
         BigDecimal tot = pdf.stream()
                 .reduce(BigDecimal.ZERO, BigDecimal::add);
@@ -101,41 +137,15 @@ public class CDFSampler {
             for (int i = 0; i < n; i++) theor.set(i, uni);
         } else {
             for (int i = 0; i < n; i++) {
-                theor.set(i, theor.get(i)
-                        .divide(sum, 6, RoundingMode.HALF_UP));
+                BigDecimal normalized = theor.get(i).divide(sum, 6, RoundingMode.HALF_UP);
+                // l'ultima fase della rete esce solo con il suo arrivo: il peso non scende a 0
+                if (i == n - 1) normalized = normalized.max(SimulationSetup.MIN_WEIGHT);
+                theor.set(i, normalized);
             }
         }
         return conv;
     }
 
-    private List<BigDecimal> aggregatePdfByPercentiles(List<BigDecimal> pdf, List<BigDecimal> originalValues, BigDecimal[] percentiles) {
-        int n = percentiles.length - 1;
-        List<BigDecimal> buckets = new ArrayList<>(Collections.nCopies(n, BigDecimal.ZERO));
-
-        List<BigDecimal> sorted = new ArrayList<>(originalValues);
-        Collections.sort(sorted);
-        List<BigDecimal> cutoffs = new ArrayList<>();
-        for (BigDecimal p : percentiles) {
-            int idx = p.multiply(new BigDecimal(sorted.size())).intValue();
-            if (idx >= sorted.size()) idx = sorted.size() - 1;
-            cutoffs.add(sorted.get(idx));
-        }
-
-        for (int i = 0; i < sorted.size(); i++) {
-            BigDecimal value = sorted.get(i);
-            BigDecimal prob = pdf.get(i);
-
-            for (int j = 0; j < n; j++) {
-                if (value.compareTo(cutoffs.get(j)) >= 0 && value.compareTo(cutoffs.get(j + 1)) <= 0) {
-                    buckets.set(j, buckets.get(j).add(prob));
-                    break;
-                }
-            }
-        }
-
-        return buckets;
-    }
-
     public List<BigDecimal> updateWithObservedPdf(
             List<BigDecimal> observedPdf,
             List<BigDecimal> weights) {
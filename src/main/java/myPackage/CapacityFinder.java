@@ -0,0 +1,237 @@
+package myPackage;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Dimensionamento minimo rispetto a uno SLA: il più piccolo poolSize (e la coda) tale che
+ * P(blocco) ≤ {@code maxBlock} e tasso di abbandono ≤ {@code maxAbandon}.
+ *
+ * Entrambe le metriche calano al crescere del pool (il servizio scala con poolSize), quindi per
+ * ogni dimensione della coda il pool minimo si trova con galloping (1, 2, 4, ...) e poi
+ * bisezione. La coda invece non è monotona per lo SLA (meno blocchi ma più abbandoni), perciò
+ * le code da {@code minQueue} a {@code maxQueue} vengono provate tutte e si sceglie la coppia
+ * con pool + coda minimo (a parità, il pool più piccolo).
+ *
+ * Ogni sonda esegue le repliche a blocchi, in parallelo, e si ferma appena il CI al 95% di
+ * entrambe le metriche sta tutto sotto (SLA rispettato) o quello di una metrica tutto sopra
+ * (violato); oltre {@code maxReplications} decide la media. Le repliche usano gli stessi
+ * {@link RandomStreams} in tutte le sonde (numeri casuali comuni).
+ */
+public class CapacityFinder {
+    private static final double CONFIDENCE = 0.95;
+    public static final int DEFAULT_MIN_REPLICATIONS = 4;
+    public static final int DEFAULT_MAX_REPLICATIONS = 32;
+
+    /** Esito di una sonda (pool, coda). */
+    public static class Probe {
+        public int poolSize;
+        public int queueSize;
+        public int replications;
+        public double block;
+        public double blockHalfWidth;
+        public double abandon;
+        public double abandonHalfWidth;
+        public boolean pass;
+        /** false se la decisione è stata presa sulla media, con il CI ancora a cavallo della soglia. */
+        public boolean decided;
+
+        @Override
+        public String toString() {
+            return String.format("pool=%d coda=%d blocco=%.4f±%.4f abbandono=%.4f±%.4f repliche=%d %s%s",
+                    poolSize, queueSize, block, blockHalfWidth, abandon, abandonHalfWidth, replications,
+                    pass ? "OK" : "NO", decided ? "" : " (incerto)");
+        }
+    }
+
+    /** Risultato esportato in {@code output/capacity.json}. */
+    public static class Result {
+        public double maxBlock;
+        public double maxAbandon;
+        /** Null se nessuna coppia entro i limiti rispetta lo SLA. */
+        public Probe best;
+        /** Pool minimo per ogni coda (solo le code per cui esiste). */
+        public List<Probe> frontier = new ArrayList<>();
+        public int probes;
+        public int simulations;
+        public long elapsedMillis;
+    }
+
+    private final SimulationConfig base;
+    private final List<BigDecimal> weights;
+    private final double maxBlock;
+    private final double maxAbandon;
+    private final int maxPool;
+    private final int minQueue;
+    private final int maxQueue;
+    private final int minReplications;
+    private final int maxReplications;
+    private final long seed;
+    private final ForkJoinPool pool;
+    // una sola simulazione per (pool, coda): il calcolo avviene fuori dalla mappa, chi arriva dopo attende il future
+    private final Map<Long, CompletableFuture<Probe>> probes = new ConcurrentHashMap<>();
+    private final AtomicInteger simulations = new AtomicInteger();
+
+    public CapacityFinder(SimulationConfig base, List<BigDecimal> weights, double maxBlock, double maxAbandon,
+                          int maxPool, int minQueue, int maxQueue, int minReplications, int maxReplications,
+                          long seed, ForkJoinPool pool) {
+        if (maxBlock <= 0 || maxAbandon <= 0) {
+            throw new IllegalArgumentException("Soglie SLA non valide: blocco " + maxBlock + ", abbandono " + maxAbandon);
+        }
+        if (maxPool < 1 || minQueue < 1 || maxQueue < minQueue) {
+            throw new IllegalArgumentException("Limiti non validi: pool ≤ " + maxPool + ", coda " + minQueue + ".." + maxQueue);
+        }
+        if (minReplications < 2 || maxReplications < minReplications) {
+            throw new IllegalArgumentException("Repliche non valide: " + minReplications + ".." + maxReplications);
+        }
+        this.base = base.copy();
+        this.base.verbose = false;
+        this.weights = List.copyOf(weights);
+        this.maxBlock = maxBlock;
+        this.maxAbandon = maxAbandon;
+        this.maxPool = maxPool;
+        this.minQueue = minQueue;
+        this.maxQueue = maxQueue;
+        this.minReplications = minReplications;
+        this.maxReplications = maxReplications;
+        this.seed = seed;
+        this.pool = pool;
+    }
+
+    public CapacityFinder(SimulationConfig base, List<BigDecimal> weights, double maxBlock, double maxAbandon,
+                          int maxPool, int maxQueue, long seed) {
+        this(base, weights, maxBlock, maxAbandon, maxPool, 1, maxQueue, DEFAULT_MIN_REPLICATIONS,
+                DEFAULT_MAX_REPLICATIONS, seed, ForkJoinPool.commonPool());
+    }
+
+    public Result find() {
+        long start = System.currentTimeMillis();
+        Result result = new Result();
+        result.maxBlock = maxBlock;
+        result.maxAbandon = maxAbandon;
+        for (int queue = minQueue; queue <= maxQueue; queue++) {
+            Probe min = minimalPool(queue);
+            if (min == null) continue;
+            result.frontier.add(min);
+            if (result.best == null || min.poolSize + min.queueSize < result.best.poolSize + result.best.queueSize) {
+                result.best = min;
+            }
+        }
+        result.probes = probes.size();
+        result.simulations = simulations.get();
+        result.elapsedMillis = System.currentTimeMillis() - start;
+        return result;
+    }
+
+    /** Pool minimo che rispetta lo SLA con questa coda, o null se neanche maxPool basta. */
+    Probe minimalPool(int queue) {
+        // galloping: raddoppia finché lo SLA è rispettato
+        int low = 0;
+        int high = 1;
+        Probe passing = probe(high, queue);
+        while (!passing.pass) {
+            if (high >= maxPool) return null;
+            low = high;
+            high = Math.min(2 * high, maxPool);
+            passing = probe(high, queue);
+        }
+        // bisezione in (low, high]: low viola (o è 0), high rispetta
+        while (high - low > 1) {
+            int mid = (low + high) >>> 1;
+            Probe p = probe(mid, queue);
+            if (p.pass) {
+                high = mid;
+                passing = p;
+            } else {
+                low = mid;
+            }
+        }
+        return passing;
+    }
+
+    /** Simula (pool, coda) a blocchi di repliche finché il CI non decide lo SLA. */
+    Probe probe(int poolSize, int queueSize) {
+        long key = ((long) poolSize << 32) | queueSize;
+        CompletableFuture<Probe> mine = new CompletableFuture<>();
+        CompletableFuture<Probe> existing = probes.putIfAbsent(key, mine);
+        if (existing != null) {
+            return existing.join();
+        }
+        try {
+            Probe p = simulate(poolSize, queueSize);
+            mine.complete(p);
+            return p;
+        } catch (RuntimeException e) {
+            // la sonda fallita non resta in memoria: una nuova richiesta la ripete
+            probes.remove(key, mine);
+            mine.completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    private Probe simulate(int poolSize, int queueSize) {
+        SimulationConfig config = base.copy();
+        config.poolSize = poolSize;
+        config.queueSize = queueSize;
+        List<RunMetrics> runs = new ArrayList<>();
+        int batch = Math.max(minReplications, pool.getParallelism());
+        Probe p = new Probe();
+        p.poolSize = poolSize;
+        p.queueSize = queueSize;
+        while (runs.size() < maxReplications) {
+            int from = runs.size();
+            int to = Math.min(from + batch, maxReplications);
+            List<CompletableFuture<RunMetrics>> futures = new ArrayList<>();
+            for (int r = from; r < to; r++) {
+                RandomStreams streams = new RandomStreams(seed).replication(r);
+                futures.add(CompletableFuture.supplyAsync(() -> SimulationRunner.run(config, weights, streams), pool));
+            }
+            for (CompletableFuture<RunMetrics> f : futures) runs.add(f.join());
+            simulations.addAndGet(to - from);
+            if (evaluate(p, runs)) break;
+        }
+        return p;
+    }
+
+    /** Aggiorna la sonda con le repliche fatte e dice se il CI ha già deciso. */
+    private boolean evaluate(Probe p, List<RunMetrics> runs) {
+        int n = runs.size();
+        double[] block = new double[n];
+        double[] abandon = new double[n];
+        for (int i = 0; i < n; i++) {
+            block[i] = runs.get(i).block;
+            abandon[i] = runs.get(i).abandon;
+        }
+        p.replications = n;
+        p.block = ReplicationStatistics.mean(block);
+        p.abandon = ReplicationStatistics.mean(abandon);
+        p.blockHalfWidth = ConfidenceIntervals.halfWidth(ReplicationStatistics.variance(block), n, CONFIDENCE);
+        p.abandonHalfWidth = ConfidenceIntervals.halfWidth(ReplicationStatistics.variance(abandon), n, CONFIDENCE);
+
+        boolean violated = p.block - p.blockHalfWidth > maxBlock || p.abandon - p.abandonHalfWidth > maxAbandon;
+        boolean met = p.block + p.blockHalfWidth <= maxBlock && p.abandon + p.abandonHalfWidth <= maxAbandon;
+        p.decided = violated || met;
+        p.pass = p.decided ? met : p.block <= maxBlock && p.abandon <= maxAbandon;
+        return p.decided;
+    }
+
+    public int simulations() {
+        return simulations.get();
+    }
+
+    public void report(Result result) {
+        System.out.printf("%nSLA: blocco ≤ %.4f, abbandono ≤ %.4f%n", maxBlock, maxAbandon);
+        System.out.println("Pool minimo per dimensione della coda:");
+        for (Probe p : result.frontier) System.out.println("  " + p);
+        System.out.printf("%d sonde, %d simulazioni, %d ms%n", result.probes, result.simulations, result.elapsedMillis);
+        System.out.println(result.best != null
+                ? "✅ Dimensionamento minimo: " + result.best
+                : "❌ Nessuna configurazione entro pool ≤ " + maxPool + " e coda ≤ " + maxQueue + " rispetta lo SLA");
+    }
+}
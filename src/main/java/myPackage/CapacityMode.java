@@ -0,0 +1,53 @@
+package myPackage;
+
+import java.io.File;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Modalità "capacity": {@code capacity maxBlock=<x> maxAbandon=<y>} con maxPool=, minQueue=,
+ * maxQueue=, minReplications= / maxReplications= (per sonda), seed=, horizon=, engine=,
+ * population=, threads=, order= oppure weights=w1,w2,... Il risultato va in output/capacity.json.
+ */
+public final class CapacityMode {
+    private CapacityMode() {
+    }
+
+    public static CapacityFinder.Result run(String[] args) throws IOException {
+        SimulationConfig config = new SimulationConfig();
+        config.engine = SimulationEngine.of(CliOptions.option(args, "engine"));
+        config.horizon = CliOptions.doubleOption(args, "horizon", 500.0);
+        config.population = CliOptions.intOption(args, "population", config.population);
+
+        List<BigDecimal> weights;
+        String weightsOpt = CliOptions.option(args, "weights");
+        if (weightsOpt != null) {
+            weights = new ArrayList<>();
+            for (String w : weightsOpt.split(",")) weights.add(new BigDecimal(w.trim()));
+        } else {
+            weights = Main.initialWeights(CliOptions.intOption(args, "order", 4));
+        }
+        ForkJoinPool pool = CliOptions.poolOption(args);
+
+        CapacityFinder finder = new CapacityFinder(config, weights,
+                CliOptions.doubleOption(args, "maxBlock", 0.05), CliOptions.doubleOption(args, "maxAbandon", 0.02),
+                CliOptions.intOption(args, "maxPool", 32),
+                CliOptions.intOption(args, "minQueue", 1), CliOptions.intOption(args, "maxQueue", 16),
+                CliOptions.intOption(args, "minReplications", CapacityFinder.DEFAULT_MIN_REPLICATIONS),
+                CliOptions.intOption(args, "maxReplications", CapacityFinder.DEFAULT_MAX_REPLICATIONS),
+                CliOptions.longOption(args, "seed", 1), pool);
+        try {
+            CapacityFinder.Result result = finder.find();
+            finder.report(result);
+            File outDir = new File("output");
+            outDir.mkdirs();
+            Main.writeJson(result, new File(outDir, "capacity.json"));
+            return result;
+        } finally {
+            if (pool != ForkJoinPool.commonPool()) pool.shutdown();
+        }
+    }
+}
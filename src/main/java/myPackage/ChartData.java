@@ -0,0 +1,94 @@
+package myPackage;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.function.DoubleUnaryOperator;
+
+/**
+ * Serie dei grafici di un round, esportate in {@code output/round_N_charts.json} a piena
+ * risoluzione: il client le disegna da sé (dopo la riduzione con {@link #downsample}) invece di
+ * scaricare i PNG.
+ */
+public class ChartData {
+    private static final int FIT_RESOLUTION = 1000;
+
+    /** Una serie: {@code style} dice come disegnarla ("step", "points" o "line"). */
+    public static class Series {
+        public String name;
+        public String style;
+        public double[] x;
+        public double[] y;
+
+        public Series(String name, String style, double[] x, double[] y) {
+            this.name = name;
+            this.style = style;
+            this.x = x;
+            this.y = y;
+        }
+
+        Series downsample(int points) {
+            double[][] reduced = Downsampler.lttb(x, y, points);
+            return new Series(name, style, reduced[0], reduced[1]);
+        }
+    }
+
+    public int round;
+    /** CDF empirica del campione di inter-arrivi: un punto per campione. */
+    public Series cdf;
+    /** Istogramma degli inter-arrivi normalizzati (centro del bucket, frequenza). */
+    public Series histogram;
+    /** PDF aggregata su cui si stimano i pesi e densità BPH con i pesi aggiornati. */
+    public Series pdf;
+    public Series fit;
+
+    /** Copia con ogni serie ridotta ad al più {@code points} punti. */
+    public ChartData downsample(int points) {
+        ChartData reduced = new ChartData();
+        reduced.round = round;
+        reduced.cdf = cdf != null ? cdf.downsample(points) : null;
+        reduced.histogram = histogram != null ? histogram.downsample(points) : null;
+        reduced.pdf = pdf != null ? pdf.downsample(points) : null;
+        reduced.fit = fit != null ? fit.downsample(points) : null;
+        return reduced;
+    }
+
+    static Series cdf(EmpiricalDistribution sample) {
+        int n = sample.size();
+        double[] x = new double[n];
+        double[] y = new double[n];
+        for (int i = 0; i < n; i++) {
+            x[i] = sample.value(i);
+            y[i] = (i + 1) / (double) n;
+        }
+        return new Series("CDF empirica", "step", x, y);
+    }
+
+    static Series histogram(QuantileSketch interArrivals, int buckets) {
+        double[] counts = interArrivals.histogram(buckets);
+        double[] x = new double[buckets];
+        for (int i = 0; i < buckets; i++) x[i] = (i + 0.5) / buckets;
+        return new Series("Distribuzione inter-arrivi", "points", x, counts);
+    }
+
+    static Series pdf(List<BigDecimal> pdfAggregata) {
+        int n = pdfAggregata.size();
+        double[] x = new double[n];
+        double[] y = new double[n];
+        for (int i = 0; i < n; i++) {
+            x[i] = (i + 0.5) / n;
+            y[i] = pdfAggregata.get(i).doubleValue();
+        }
+        return new Series("PDF aggregata", "points", x, y);
+    }
+
+    /** Densità sulla stessa scala della PDF aggregata (quella del grafico PNG). */
+    static Series fit(DoubleUnaryOperator density) {
+        double[] x = new double[FIT_RESOLUTION + 1];
+        double[] y = new double[FIT_RESOLUTION + 1];
+        for (int j = 0; j <= FIT_RESOLUTION; j++) {
+            x[j] = j / (double) FIT_RESOLUTION;
+            y[j] = density.applyAsDouble(x[j]);
+        }
+        return new Series("Bernstein PDF", "line", x, y);
+    }
+}
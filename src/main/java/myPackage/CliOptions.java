@@ -0,0 +1,81 @@
+package myPackage;
+
+import java.util.concurrent.ForkJoinPool;
+
+/** Opzioni {@code key=value} della riga di comando, dopo la modalità. */
+final class CliOptions {
+    private CliOptions() {
+    }
+
+    /** Valore dell'opzione {@code key=value} passata dopo la modalità, o null. */
+    static String option(String[] args, String key) {
+        for (int i = 1; i < args.length; i++) {
+            if (args[i].startsWith(key + "=")) {
+                return args[i].substring(key.length() + 1);
+            }
+        }
+        return null;
+    }
+
+    static double doubleOption(String[] args, String key, double defaultValue) {
+        String value = option(args, key);
+        if (value == null) return defaultValue;
+        try {
+            return Double.parseDouble(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Opzione " + key + "=" + value + ": serve un numero");
+        }
+    }
+
+    /** Opzione intera: "seed=1.5" o "maxPool=1e9" sono errori, non vengono troncati. */
+    static int intOption(String[] args, String key, int defaultValue) {
+        String value = option(args, key);
+        if (value == null) return defaultValue;
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Opzione " + key + "=" + value + ": serve un intero");
+        }
+    }
+
+    static long longOption(String[] args, String key, long defaultValue) {
+        String value = option(args, key);
+        if (value == null) return defaultValue;
+        try {
+            return Long.parseLong(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Opzione " + key + "=" + value + ": serve un intero");
+        }
+    }
+
+    /** Lista {@code key=v1,v2,...} di numeri, o null se l'opzione manca. */
+    static double[] doubleListOption(String[] args, String key) {
+        String value = option(args, key);
+        if (value == null) return null;
+        String[] parts = value.split(",");
+        double[] values = new double[parts.length];
+        try {
+            for (int i = 0; i < parts.length; i++) values[i] = Double.parseDouble(parts[i].trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Opzione " + key + "=" + value + ": serve una lista di numeri");
+        }
+        return values;
+    }
+
+    /** Primo argomento dopo la modalità quando non è una {@code key=value} (es. il numero di round). */
+    static int intArgument(String[] args, String name, int defaultValue) {
+        if (args.length < 2 || args[1].contains("=")) return defaultValue;
+        try {
+            return Integer.parseInt(args[1]);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Argomento " + name + " " + args[1] + ": serve un intero");
+        }
+    }
+
+    /** threads=<n>: pool dedicato (da chiudere a fine modalità), altrimenti il common pool. */
+    static ForkJoinPool poolOption(String[] args) {
+        return option(args, "threads") != null
+                ? new ForkJoinPool(intOption(args, "threads", 0))
+                : ForkJoinPool.commonPool();
+    }
+}
@@ -0,0 +1,66 @@
+package myPackage;
+
+/**
+ * Quantili normale e t di Student per gli intervalli di confidenza delle stime.
+ */
+public final class ConfidenceIntervals {
+
+    private ConfidenceIntervals() {
+    }
+
+    /** Quantile della normale standard (algoritmo di Acklam, errore relativo ~1e-9). */
+    public static double normalQuantile(double p) {
+        if (p <= 0.0 || p >= 1.0) {
+            throw new IllegalArgumentException("p deve essere in (0,1): " + p);
+        }
+        final double[] a = {-3.969683028665376e+01, 2.209460984245205e+02, -2.759285104469687e+02,
+                1.383577518672690e+02, -3.066479806614716e+01, 2.506628277459239e+00};
+        final double[] b = {-5.447609879822406e+01, 1.615858368580409e+02, -1.556989798598866e+02,
+                6.680131188771972e+01, -1.328068155288572e+01};
+        final double[] c = {-7.784894002430293e-03, -3.223964580411365e-01, -2.400758277161838e+00,
+                -2.549732539343734e+00, 4.374664141464968e+00, 2.938163982698783e+00};
+        final double[] d = {7.784695709041462e-03, 3.224671290700398e-01, 2.445134137142996e+00,
+                3.754408661907416e+00};
+        double pLow = 0.02425;
+        if (p < pLow) {
+            double q = Math.sqrt(-2 * Math.log(p));
+            return (((((c[0] * q + c[1]) * q + c[2]) * q + c[3]) * q + c[4]) * q + c[5])
+                    / ((((d[0] * q + d[1]) * q + d[2]) * q + d[3]) * q + 1);
+        }
+        if (p > 1 - pLow) {
+            return -normalQuantile(1 - p);
+        }
+        double q = p - 0.5;
+        double r = q * q;
+        return (((((a[0] * r + a[1]) * r + a[2]) * r + a[3]) * r + a[4]) * r + a[5]) * q
+                / (((((b[0] * r + b[1]) * r + b[2]) * r + b[3]) * r + b[4]) * r + 1);
+    }
+
+    /** Quantile della t di Student con {@code df} gradi di libertà (espansione di Cornish-Fisher). */
+    public static double studentQuantile(double p, int df) {
+        if (df <= 0) {
+            throw new IllegalArgumentException("Gradi di libertà non validi: " + df);
+        }
+        if (df == 1) {
+            return Math.tan(Math.PI * (p - 0.5));
+        }
+        if (df == 2) {
+            double q = 2 * p - 1;
+            return q * Math.sqrt(2.0 / (1 - q * q));
+        }
+        double z = normalQuantile(p);
+        double z2 = z * z;
+        double g1 = (z2 + 1) * z / 4;
+        double g2 = ((5 * z2 + 16) * z2 + 3) * z / 96;
+        double g3 = (((3 * z2 + 19) * z2 + 17) * z2 - 15) * z / 384;
+        double g4 = ((((79 * z2 + 776) * z2 + 1482) * z2 - 1920) * z2 - 945) * z / 92160;
+        return z + g1 / df + g2 / (df * (double) df) + g3 / Math.pow(df, 3) + g4 / Math.pow(df, 4);
+    }
+
+    /** Semiampiezza dell'intervallo bilatero per la media di n osservazioni con varianza campionaria s². */
+    public static double halfWidth(double sampleVariance, int n, double confidence) {
+        if (n < 2) return Double.POSITIVE_INFINITY;
+        double t = studentQuantile(0.5 + confidence / 2, n - 1);
+        return t * Math.sqrt(sampleVariance / n);
+    }
+}
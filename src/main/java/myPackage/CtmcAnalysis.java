@@ -0,0 +1,134 @@
+package myPackage;
+
+import org.oristool.petrinet.Marking;
+import org.oristool.petrinet.PetriNet;
+
+/**
+ * Analisi numerica esatta della rete esponenziale di {@link SimulationSetup}, alternativa alla
+ * simulazione: genera la CTMC, la risolve e valuta le stesse reward dei simulatori
+ * (blocco = bloccati / tentativi, abbandono = abbandoni / arrivi, utilizzo = P(queue ≥ 1)).
+ *
+ * Se la catena ha stati assorbenti (nella rete attuale i token escono con abbandoni e blocchi)
+ * le reward sono rapporti tra totali attesi fino all'assorbimento, calcolati dai tempi di
+ * soggiorno attesi; altrimenti si usa la distribuzione stazionaria.
+ */
+public class CtmcAnalysis {
+
+    public enum Method { SOR, POWER }
+
+    public static class Result {
+        public final boolean absorbing;
+        public final int states;
+        public final int nonZeros;
+        public final int iterations;
+        public final double abandon;
+        public final double block;
+        public final double utilization;
+        public final double meanQueue;
+        /** Tempo atteso all'assorbimento (catena assorbente) o NaN. */
+        public final double expectedLifetime;
+        public final long elapsedMillis;
+
+        Result(boolean absorbing, int states, int nonZeros, int iterations, double abandon, double block,
+               double utilization, double meanQueue, double expectedLifetime, long elapsedMillis) {
+            this.absorbing = absorbing;
+            this.states = states;
+            this.nonZeros = nonZeros;
+            this.iterations = iterations;
+            this.abandon = abandon;
+            this.block = block;
+            this.utilization = utilization;
+            this.meanQueue = meanQueue;
+            this.expectedLifetime = expectedLifetime;
+            this.elapsedMillis = elapsedMillis;
+        }
+    }
+
+    private CtmcAnalysis() {
+    }
+
+    public static Result solve(PetriNet net, Marking initialMarking, Method method, int maxTokens, int maxStates) {
+        long start = System.currentTimeMillis();
+        ExponentialNet exponentialNet = new ExponentialNet(net);
+        CtmcStateSpace space = new CtmcStateSpace(exponentialNet, initialMarking, maxTokens, maxStates);
+        CtmcSolver solver = new CtmcSolver(space, 1e-10, 100_000);
+
+        boolean absorbing = false;
+        for (int i = 0; i < space.stateCount() && !absorbing; i++) {
+            absorbing = space.isAbsorbing(i);
+        }
+        double[] weights;
+        if (absorbing) {
+            weights = solver.expectedSojournTimes();
+        } else if (method == Method.POWER) {
+            weights = solver.stationaryPower();
+        } else {
+            weights = solver.stationarySor(1.2);
+        }
+
+        int queue = exponentialNet.getIndex().placeId("queue");
+        double arrivals = throughput(space, weights, TransitionCategory.ARRIVAL);
+        double blocked = throughput(space, weights, TransitionCategory.BLOCKED);
+        double abandons = throughput(space, weights, TransitionCategory.ABANDON);
+        double total = 0.0;
+        for (double w : weights) total += w;
+
+        return new Result(absorbing, space.stateCount(), space.getRates().nonZeros(), solver.iterations(),
+                arrivals > 0 ? abandons / arrivals : 0.0,
+                arrivals + blocked > 0 ? blocked / (arrivals + blocked) : 0.0,
+                expectation(space, weights, queue, 1) / total,
+                expectation(space, weights, queue, Integer.MAX_VALUE) / total,
+                absorbing ? total : Double.NaN,
+                System.currentTimeMillis() - start);
+    }
+
+    /**
+     * Curve transitorie di blocco, abbandono e utilizzo dalla marcatura iniziale ai tempi
+     * indicati, con uniformizzazione (vedi {@link CtmcTransientSolver}).
+     */
+    public static CtmcTransientSolver.Curves transientCurves(PetriNet net, Marking initialMarking, double[] times,
+                                                             int maxTokens, int maxStates) {
+        CtmcStateSpace space = new CtmcStateSpace(new ExponentialNet(net), initialMarking, maxTokens, maxStates);
+        return new CtmcTransientSolver(space, 1e-10).solve(times);
+    }
+
+    /** Σ_s w_s · Σ_{t ∈ categoria} rate_t(s): throughput (o numero atteso di spari se w = tempi di soggiorno). */
+    public static double throughput(CtmcStateSpace space, double[] weights, TransitionCategory category) {
+        return dot(weights, rateVector(space, category));
+    }
+
+    /** Σ_s w_s · min(tokens_s(place), cap). */
+    public static double expectation(CtmcStateSpace space, double[] weights, int place, int cap) {
+        return dot(weights, placeVector(space, place, cap));
+    }
+
+    /** Per ogni stato, somma dei tassi delle transizioni della categoria. */
+    public static double[] rateVector(CtmcStateSpace space, TransitionCategory category) {
+        SparseMatrix rates = space.getRates();
+        ExponentialNet net = space.getNet();
+        double[] vector = new double[space.stateCount()];
+        for (int i = 0; i < vector.length; i++) {
+            for (int k = rates.rowStart(i); k < rates.rowEnd(i); k++) {
+                if (net.category(rates.tag(k)) == category) vector[i] += rates.value(k);
+            }
+        }
+        return vector;
+    }
+
+    /** Per ogni stato, min(tokens(place), cap). */
+    public static double[] placeVector(CtmcStateSpace space, int place, int cap) {
+        double[] vector = new double[space.stateCount()];
+        for (int i = 0; i < vector.length; i++) {
+            vector[i] = Math.min(space.tokens(i, place), cap);
+        }
+        return vector;
+    }
+
+    private static double dot(double[] weights, double[] vector) {
+        double sum = 0.0;
+        for (int i = 0; i < weights.length; i++) {
+            if (weights[i] != 0.0) sum += weights[i] * vector[i];
+        }
+        return sum;
+    }
+}
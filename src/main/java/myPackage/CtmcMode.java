@@ -0,0 +1,61 @@
+package myPackage;
+
+import org.oristool.petrinet.Marking;
+
+/**
+ * Modalità "ctmc": risolve esattamente la rete esponenziale con i pesi iniziali.
+ * Opzioni: queueSize=<n>, poolSize=<n> (default 8), population=<token in ph1>, method=sor|power,
+ * maxStates=<n>, times=t1,t2,... per le curve transitorie invece dell'analisi fino all'assorbimento.
+ */
+final class CtmcMode {
+    private CtmcMode() {
+    }
+
+    static void run(String[] args) {
+        int queueSize = CliOptions.intOption(args, "queueSize", 8);
+        int poolSize = CliOptions.intOption(args, "poolSize", 8);
+        SimulationSetup setup = new SimulationSetup(Main.initialWeights(), queueSize, poolSize);
+        var sequencer = setup.getSequencer();
+        Marking marking = new Marking(sequencer.getInitialMarking());
+        if (CliOptions.option(args, "population") != null) {
+            marking.setTokens(sequencer.getNet().getPlace("ph1"), CliOptions.intOption(args, "population", 0));
+        }
+        int maxTokens = 0;
+        for (String place : marking.getNonEmptyPlacesNames()) {
+            maxTokens += marking.getTokens(place);
+        }
+        int maxStates = CliOptions.intOption(args, "maxStates", 5_000_000);
+
+        double[] times = CliOptions.doubleListOption(args, "times");
+        if (times != null) {
+            long start = System.currentTimeMillis();
+            CtmcTransientSolver.Curves c = CtmcAnalysis.transientCurves(sequencer.getNet(), marking, times,
+                    maxTokens, maxStates);
+            System.out.println("\n==== ANALISI TRANSITORIA CTMC ====");
+            System.out.printf("Passi di uniformizzazione: %d (Λ = %.3f), tempo: %d ms%n",
+                    c.steps, c.uniformizationRate, System.currentTimeMillis() - start);
+            System.out.println("t;blocco;abbandono;utilizzo;coda_media;arrivi_attesi");
+            for (int i = 0; i < c.times.length; i++) {
+                System.out.printf("%.2f;%.6f;%.6f;%.6f;%.6f;%.3f%n", c.times[i], c.block[i], c.abandon[i],
+                        c.utilization[i], c.meanQueue[i], c.arrivals[i]);
+            }
+            return;
+        }
+
+        CtmcAnalysis.Method method = "power".equalsIgnoreCase(CliOptions.option(args, "method"))
+                ? CtmcAnalysis.Method.POWER : CtmcAnalysis.Method.SOR;
+
+        CtmcAnalysis.Result r = CtmcAnalysis.solve(sequencer.getNet(), marking, method, maxTokens, maxStates);
+
+        System.out.println("\n==== ANALISI CTMC (" + (r.absorbing ? "assorbente" : "stazionaria") + ") ====");
+        System.out.printf("Stati: %d, elementi non nulli: %d, iterazioni: %d, tempo: %d ms%n",
+                r.states, r.nonZeros, r.iterations, r.elapsedMillis);
+        System.out.printf("Abbandono: %.6f%n", r.abandon);
+        System.out.printf("Blocco:    %.6f%n", r.block);
+        System.out.printf("Utilizzo:  %.6f%n", r.utilization);
+        System.out.printf("Coda media: %.6f%n", r.meanQueue);
+        if (r.absorbing) {
+            System.out.printf("Tempo atteso al blocco della rete: %.4f%n", r.expectedLifetime);
+        }
+    }
+}
@@ -0,0 +1,137 @@
+package myPackage;
+
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+/**
+ * Solutori iterativi sul generatore sparso di un {@link CtmcStateSpace}.
+ *
+ * Tutti lavorano sulla trasposta (archi entranti), così ogni componente del vettore si
+ * aggiorna leggendo solo la propria riga: Gauss-Seidel/SOR in sequenza, metodo delle potenze
+ * sulla catena uniformizzata in parallelo.
+ */
+public class CtmcSolver {
+    private final CtmcStateSpace space;
+    private final SparseMatrix incoming;
+    private final double tolerance;
+    private final int maxIterations;
+    private int iterations;
+
+    public CtmcSolver(CtmcStateSpace space, double tolerance, int maxIterations) {
+        this.space = space;
+        this.incoming = space.getRates().transpose();
+        this.tolerance = tolerance;
+        this.maxIterations = maxIterations;
+    }
+
+    /** Iterazioni eseguite dall'ultima chiamata. */
+    public int iterations() {
+        return iterations;
+    }
+
+    /**
+     * Distribuzione stazionaria con Gauss-Seidel / SOR (ω = 1 è Gauss-Seidel).
+     * Richiede una catena senza stati assorbenti.
+     */
+    public double[] stationarySor(double omega) {
+        int n = space.stateCount();
+        double[] pi = new double[n];
+        Arrays.fill(pi, 1.0 / n);
+        for (iterations = 1; iterations <= maxIterations; iterations++) {
+            double maxDelta = 0.0;
+            for (int j = 0; j < n; j++) {
+                double out = space.exitRate(j);
+                if (out == 0.0) {
+                    throw new IllegalStateException("Stato assorbente " + j + ": usare expectedSojournTimes");
+                }
+                double in = 0.0;
+                for (int k = incoming.rowStart(j); k < incoming.rowEnd(j); k++) {
+                    int i = incoming.column(k);
+                    if (i != j) in += pi[i] * incoming.value(k);
+                }
+                double updated = (1 - omega) * pi[j] + omega * in / out;
+                maxDelta = Math.max(maxDelta, Math.abs(updated - pi[j]) / Math.max(updated, 1e-300));
+                pi[j] = updated;
+            }
+            normalize(pi);
+            if (maxDelta < tolerance) break;
+        }
+        return pi;
+    }
+
+    /** Distribuzione stazionaria con il metodo delle potenze sulla catena uniformizzata, in parallelo. */
+    public double[] stationaryPower() {
+        int n = space.stateCount();
+        double lambda = uniformizationRate();
+        double[] pi = new double[n];
+        double[] next = new double[n];
+        Arrays.fill(pi, 1.0 / n);
+        for (iterations = 1; iterations <= maxIterations; iterations++) {
+            uniformizedProduct(pi, next, lambda);
+            normalize(next);
+            double diff = 0.0;
+            for (int j = 0; j < n; j++) diff += Math.abs(next[j] - pi[j]);
+            double[] tmp = pi;
+            pi = next;
+            next = tmp;
+            if (diff < tolerance) break;
+        }
+        return pi;
+    }
+
+    /** out = pi · P con P = I + Q/Λ, righe calcolate in parallelo. */
+    public void uniformizedProduct(double[] pi, double[] out, double lambda) {
+        IntStream.range(0, space.stateCount()).parallel().forEach(j -> out[j] = uniformizedStep(pi, j, lambda));
+    }
+
+    /** (π P)_j con P = I + Q/Λ. */
+    double uniformizedStep(double[] pi, int j, double lambda) {
+        double acc = pi[j] * (1.0 - space.exitRate(j) / lambda);
+        for (int k = incoming.rowStart(j); k < incoming.rowEnd(j); k++) {
+            int i = incoming.column(k);
+            if (i != j) acc += pi[i] * incoming.value(k) / lambda;
+        }
+        return acc;
+    }
+
+    public double uniformizationRate() {
+        double max = 0.0;
+        for (int i = 0; i < space.stateCount(); i++) max = Math.max(max, space.exitRate(i));
+        return max > 0 ? max * 1.02 : 1.0;
+    }
+
+    /**
+     * Tempo atteso trascorso in ciascuno stato transiente prima dell'assorbimento, partendo
+     * dallo stato iniziale: τ_j · out_j = δ_{j,0} + Σ_i τ_i q_ij (Gauss-Seidel). Per gli stati
+     * assorbenti il valore è 0. È l'equivalente esatto di un run che termina quando la rete si blocca.
+     */
+    public double[] expectedSojournTimes() {
+        int n = space.stateCount();
+        double[] tau = new double[n];
+        int start = space.initialState();
+        for (iterations = 1; iterations <= maxIterations; iterations++) {
+            double maxDelta = 0.0;
+            for (int j = 0; j < n; j++) {
+                double out = space.exitRate(j);
+                if (out == 0.0) continue;
+                double in = j == start ? 1.0 : 0.0;
+                for (int k = incoming.rowStart(j); k < incoming.rowEnd(j); k++) {
+                    int i = incoming.column(k);
+                    if (i != j) in += tau[i] * incoming.value(k);
+                }
+                double updated = in / out;
+                maxDelta = Math.max(maxDelta, Math.abs(updated - tau[j]) / Math.max(updated, 1e-300));
+                tau[j] = updated;
+            }
+            if (maxDelta < tolerance) break;
+        }
+        return tau;
+    }
+
+    private static void normalize(double[] v) {
+        double sum = 0.0;
+        for (double x : v) sum += x;
+        if (sum <= 0) return;
+        for (int i = 0; i < v.length; i++) v[i] /= sum;
+    }
+}
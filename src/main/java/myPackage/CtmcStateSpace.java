@@ -0,0 +1,219 @@
+package myPackage;
+
+import org.oristool.petrinet.Marking;
+
+import java.util.Arrays;
+
+/**
+ * Spazio degli stati raggiungibili della CTMC sottostante una {@link ExponentialNet},
+ * con generatore sparso in CSR. Ogni elemento (i, j) del generatore è etichettato con la
+ * transizione che lo produce; gli spari che non cambiano lo stato codificato (self-loop)
+ * restano nella matrice perché servono alle reward di throughput, ma non contano nel tasso d'uscita.
+ *
+ * Sono codificati solo i posti che compaiono in un pre-set o in un arco inibitore: gli altri
+ * sono costanti o pozzi contatori (es. blockedAttempts) che non influenzano la dinamica.
+ * I pozzi non devono comparire nelle espressioni dei tassi. La marcatura è impacchettata in un
+ * long (bit per posto calcolati da {@code maxTokens}) e gli stati sono indicizzati da una
+ * hash map a indirizzamento aperto su long primitivi.
+ */
+public class CtmcStateSpace {
+    private final ExponentialNet net;
+    private final Marking baseMarking;
+    private final int[] encodedPlaces;
+    private final int bitsPerPlace;
+    private final int[] states;          // stateCount × encodedPlaces, flat
+    private final int stateCount;
+    private final SparseMatrix rates;    // righe = stato sorgente, tag = transizione
+    private final double[] exitRate;
+    private final int initialState;
+
+    public CtmcStateSpace(ExponentialNet net, Marking initialMarking, int maxTokens, int maxStates) {
+        this.net = net;
+        this.baseMarking = new Marking(initialMarking);
+        NetIndex index = net.getIndex();
+        int placeCount = index.placeCount();
+
+        boolean[] dynamic = new boolean[placeCount];
+        for (int t = 0; t < net.transitionCount(); t++) {
+            for (int p : net.prePlaces(t)) dynamic[p] = true;
+            for (int p : net.inhibitorPlaces(t)) dynamic[p] = true;
+        }
+        int count = 0;
+        for (boolean d : dynamic) if (d) count++;
+        encodedPlaces = new int[count];
+        for (int p = 0, k = 0; p < placeCount; p++) {
+            if (dynamic[p]) encodedPlaces[k++] = p;
+        }
+        bitsPerPlace = 32 - Integer.numberOfLeadingZeros(Math.max(1, maxTokens));
+        if ((long) bitsPerPlace * encodedPlaces.length > 63) {
+            throw new IllegalArgumentException("Troppi posti o token per la codifica su 64 bit");
+        }
+
+        int[] tokens = index.toTokens(initialMarking);
+        Marking mirror = new Marking(initialMarking);
+        LongIntMap ids = new LongIntMap(1 << 16);
+        int[] flat = new int[1024 * Math.max(1, encodedPlaces.length)];
+        int n = 0;
+
+        flat = store(flat, n, tokens);
+        ids.put(encode(tokens, maxTokens), n++);
+        initialState = 0;
+
+        SparseMatrix.Builder builder = new SparseMatrix.Builder(0);
+        double[] exit = new double[1024];
+        int[] next = new int[placeCount];
+
+        for (int i = 0; i < n; i++) {
+            load(flat, i, tokens);
+            net.syncMarking(mirror, tokens, encodedPlaces);
+            builder.startRow();
+            double out = 0.0;
+            for (int t = 0; t < net.transitionCount(); t++) {
+                double rate = net.rate(t, tokens, mirror);
+                if (rate <= 0) continue;
+                System.arraycopy(tokens, 0, next, 0, placeCount);
+                net.fire(t, next);
+                long code = encode(next, maxTokens);
+                int j = ids.get(code);
+                if (j < 0) {
+                    if (n >= maxStates) {
+                        throw new IllegalStateException("Spazio degli stati oltre il limite di " + maxStates + " stati");
+                    }
+                    j = n++;
+                    ids.put(code, j);
+                    flat = store(flat, j, next);
+                }
+                builder.add(j, rate, t);
+                if (j != i) out += rate;
+            }
+            if (i >= exit.length) exit = Arrays.copyOf(exit, exit.length * 2);
+            exit[i] = out;
+        }
+
+        this.stateCount = n;
+        this.states = Arrays.copyOf(flat, n * encodedPlaces.length);
+        this.rates = builder.build(n);
+        this.exitRate = Arrays.copyOf(exit, n);
+    }
+
+    private long encode(int[] tokens, int maxTokens) {
+        long code = 0;
+        for (int p : encodedPlaces) {
+            int v = tokens[p];
+            if (v < 0 || v > maxTokens) {
+                throw new IllegalStateException("Token fuori dal limite " + maxTokens + " nel posto "
+                        + net.getIndex().place(p).getName() + ": " + v);
+            }
+            code = (code << bitsPerPlace) | v;
+        }
+        return code;
+    }
+
+    private int[] store(int[] flat, int state, int[] tokens) {
+        int e = encodedPlaces.length;
+        if ((state + 1) * e > flat.length) {
+            flat = Arrays.copyOf(flat, Math.max(flat.length * 2, (state + 1) * e));
+        }
+        for (int k = 0; k < e; k++) {
+            flat[state * e + k] = tokens[encodedPlaces[k]];
+        }
+        return flat;
+    }
+
+    private void load(int[] flat, int state, int[] tokens) {
+        int e = encodedPlaces.length;
+        for (int k = 0; k < e; k++) {
+            tokens[encodedPlaces[k]] = flat[state * e + k];
+        }
+    }
+
+    public ExponentialNet getNet() {
+        return net;
+    }
+
+    public int stateCount() {
+        return stateCount;
+    }
+
+    public int initialState() {
+        return initialState;
+    }
+
+    /** Tassi di transizione (CSR per stato sorgente, tag = id transizione). */
+    public SparseMatrix getRates() {
+        return rates;
+    }
+
+    public double exitRate(int state) {
+        return exitRate[state];
+    }
+
+    public boolean isAbsorbing(int state) {
+        return exitRate[state] == 0.0;
+    }
+
+    /** Token del posto nello stato (i posti non codificati hanno il valore iniziale). */
+    public int tokens(int state, int placeId) {
+        for (int k = 0; k < encodedPlaces.length; k++) {
+            if (encodedPlaces[k] == placeId) {
+                return states[state * encodedPlaces.length + k];
+            }
+        }
+        return baseMarking.getTokens(net.getIndex().place(placeId));
+    }
+
+    public int[] tokens(int state) {
+        int[] tokens = net.getIndex().toTokens(baseMarking);
+        load(states, state, tokens);
+        return tokens;
+    }
+
+    /** Hash map long → int a indirizzamento aperto (sonda lineare), senza boxing. */
+    private static final class LongIntMap {
+        private long[] keys;
+        private int[] values;
+        private int size;
+
+        LongIntMap(int capacity) {
+            keys = new long[capacity];
+            values = new int[capacity];
+            Arrays.fill(keys, -1L);
+        }
+
+        int get(long key) {
+            int mask = keys.length - 1;
+            for (int i = slot(key, mask); ; i = (i + 1) & mask) {
+                if (keys[i] == key) return values[i];
+                if (keys[i] == -1L) return -1;
+            }
+        }
+
+        void put(long key, int value) {
+            if (size * 2 >= keys.length) grow();
+            int mask = keys.length - 1;
+            int i = slot(key, mask);
+            while (keys[i] != -1L && keys[i] != key) {
+                i = (i + 1) & mask;
+            }
+            if (keys[i] == -1L) size++;
+            keys[i] = key;
+            values[i] = value;
+        }
+
+        private void grow() {
+            long[] oldKeys = keys;
+            int[] oldValues = values;
+            keys = new long[oldKeys.length * 2];
+            values = new int[oldKeys.length * 2];
+            Arrays.fill(keys, -1L);
+            size = 0;
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldKeys[i] != -1L) put(oldKeys[i], oldValues[i]);
+            }
+        }
+
+        private static int slot(long key, int mask) {
+            return (int) RandomStreams.mix(key) & mask;
+        }
+    }
+}
@@ -0,0 +1,128 @@
+package myPackage;
+
+import java.util.Arrays;
+
+/**
+ * Analisi transiente della CTMC con uniformizzazione: π(t) = Σ_k Poisson(k; Λt) · π₀Pᵏ.
+ *
+ * Le reward sono lineari in π, quindi basta conservare per ogni passo k gli scalari π₀Pᵏ · r
+ * (tassi per categoria, occupazione della coda): un'unica sequenza di prodotti matrice-vettore,
+ * lunga quanto la troncatura destra di Fox-Glynn del tempo più grande, serve tutti i tempi
+ * richiesti. Gli spari attesi in [0, t] usano ∫₀ᵗ π(u) du = (1/Λ) Σ_k P(N_Λt > k) · π₀Pᵏ.
+ */
+public class CtmcTransientSolver {
+    private final CtmcStateSpace space;
+    private final CtmcSolver solver;
+    private final double epsilon;
+    private int steps;
+
+    /** Curve delle reward ai tempi richiesti (stesse definizioni delle reward di simulazione su [0, t]). */
+    public static class Curves {
+        public final double[] times;
+        public final double[] block;
+        public final double[] abandon;
+        /** Media temporale su [0, t] di P(queue ≥ 1). */
+        public final double[] utilization;
+        /** Media temporale su [0, t] dei token in coda. */
+        public final double[] meanQueue;
+        /** Numero atteso di arrivi accettati in [0, t]. */
+        public final double[] arrivals;
+        public final int steps;
+        public final double uniformizationRate;
+
+        Curves(double[] times, int steps, double uniformizationRate) {
+            int n = times.length;
+            this.times = times;
+            this.block = new double[n];
+            this.abandon = new double[n];
+            this.utilization = new double[n];
+            this.meanQueue = new double[n];
+            this.arrivals = new double[n];
+            this.steps = steps;
+            this.uniformizationRate = uniformizationRate;
+        }
+    }
+
+    public CtmcTransientSolver(CtmcStateSpace space, double epsilon) {
+        this.space = space;
+        this.solver = new CtmcSolver(space, epsilon, 0);
+        this.epsilon = epsilon;
+    }
+
+    /** Passi di uniformizzazione dell'ultima chiamata. */
+    public int steps() {
+        return steps;
+    }
+
+    public Curves solve(double[] times) {
+        double[] sorted = times.clone();
+        Arrays.sort(sorted);
+        if (sorted.length > 0 && sorted[0] < 0) {
+            throw new IllegalArgumentException("Tempi negativi non ammessi");
+        }
+        double lambda = solver.uniformizationRate();
+        FoxGlynn[] poisson = new FoxGlynn[sorted.length];
+        int horizon = 0;
+        for (int i = 0; i < sorted.length; i++) {
+            poisson[i] = FoxGlynn.compute(lambda * sorted[i], epsilon);
+            horizon = Math.max(horizon, poisson[i].right);
+        }
+
+        int queue = space.getNet().getIndex().placeId("queue");
+        double[][] reward = {
+                CtmcAnalysis.rateVector(space, TransitionCategory.ARRIVAL),
+                CtmcAnalysis.rateVector(space, TransitionCategory.BLOCKED),
+                CtmcAnalysis.rateVector(space, TransitionCategory.ABANDON),
+                CtmcAnalysis.placeVector(space, queue, 1),
+                CtmcAnalysis.placeVector(space, queue, Integer.MAX_VALUE)
+        };
+        // projected[r][k] = π₀Pᵏ · reward[r]
+        double[][] projected = new double[reward.length][horizon + 1];
+
+        int n = space.stateCount();
+        double[] pi = new double[n];
+        double[] next = new double[n];
+        pi[space.initialState()] = 1.0;
+        for (int k = 0; k <= horizon; k++) {
+            for (int r = 0; r < reward.length; r++) {
+                projected[r][k] = dot(pi, reward[r]);
+            }
+            if (k < horizon) {
+                solver.uniformizedProduct(pi, next, lambda);
+                double[] tmp = pi;
+                pi = next;
+                next = tmp;
+            }
+        }
+        steps = horizon;
+
+        Curves curves = new Curves(sorted, horizon, lambda);
+        for (int i = 0; i < sorted.length; i++) {
+            double[] tail = poisson[i].tail();
+            double[] cumulative = new double[reward.length];
+            for (int r = 0; r < reward.length; r++) {
+                double sum = 0.0;
+                for (int k = 0; k < tail.length; k++) sum += tail[k] * projected[r][k];
+                cumulative[r] = sum / lambda;
+            }
+            double accepted = cumulative[0];
+            double blocked = cumulative[1];
+            double abandons = cumulative[2];
+            double t = sorted[i];
+            curves.arrivals[i] = accepted;
+            curves.block[i] = accepted + blocked > 0 ? blocked / (accepted + blocked) : 0.0;
+            curves.abandon[i] = accepted > 0 ? abandons / accepted : 0.0;
+            curves.utilization[i] = t > 0 ? cumulative[3] / t : projected[3][0];
+            curves.meanQueue[i] = t > 0 ? cumulative[4] / t : projected[4][0];
+        }
+        return curves;
+    }
+
+    private static double dot(double[] a, double[] b) {
+        double sum = 0.0;
+        for (int i = 0; i < a.length; i++) {
+            if (a[i] != 0.0) sum += a[i] * b[i];
+        }
+        return sum;
+    }
+}
@@ -0,0 +1,81 @@
+package myPackage;
+
+import java.util.Arrays;
+
+/**
+ * Coda FIFO di double su array circolare, senza boxing. Cresce raddoppiando solo quando è
+ * piena, quindi la memoria è limitata dalla lunghezza massima raggiunta, non dalla durata del run.
+ */
+public class DoubleRingBuffer {
+    private double[] data;
+    private int head;
+    private int size;
+
+    public DoubleRingBuffer(int initialCapacity) {
+        data = new double[Math.max(2, Integer.highestOneBit(Math.max(1, initialCapacity - 1)) << 1)];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public void clear() {
+        head = 0;
+        size = 0;
+    }
+
+    public void addLast(double value) {
+        if (size == data.length) grow();
+        data[(head + size) & (data.length - 1)] = value;
+        size++;
+    }
+
+    public double peekFirst() {
+        if (size == 0) throw new IllegalStateException("Coda vuota");
+        return data[head];
+    }
+
+    public double removeFirst() {
+        double value = peekFirst();
+        head = (head + 1) & (data.length - 1);
+        size--;
+        return value;
+    }
+
+    /** Elemento in posizione i (0 = il più vecchio). */
+    public double get(int i) {
+        if (i < 0 || i >= size) throw new IndexOutOfBoundsException(i);
+        return data[(head + i) & (data.length - 1)];
+    }
+
+    /** Rimuove l'elemento in posizione i, spostando quelli successivi (O(size - i)). */
+    public double removeAt(int i) {
+        double value = get(i);
+        int mask = data.length - 1;
+        for (int k = i; k < size - 1; k++) {
+            data[(head + k) & mask] = data[(head + k + 1) & mask];
+        }
+        size--;
+        return value;
+    }
+
+    private void grow() {
+        double[] bigger = new double[data.length * 2];
+        for (int k = 0; k < size; k++) {
+            bigger[k] = data[(head + k) & (data.length - 1)];
+        }
+        data = bigger;
+        head = 0;
+    }
+
+    @Override
+    public String toString() {
+        double[] values = new double[size];
+        for (int k = 0; k < size; k++) values[k] = get(k);
+        return Arrays.toString(values);
+    }
+}
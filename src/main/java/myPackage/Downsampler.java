@@ -0,0 +1,73 @@
+package myPackage;
+
+/**
+ * Riduzione di una serie (x crescente) a un numero massimo di punti con Largest-Triangle-Three-Buckets:
+ * primo e ultimo punto restano, gli altri sono divisi in {@code threshold - 2} bucket e da ognuno si
+ * tiene il punto che forma il triangolo più grande con il punto scelto nel bucket precedente e la
+ * media del bucket successivo. Picchi e salti restano visibili, a differenza di una media o di un
+ * campionamento a passo fisso.
+ */
+public final class Downsampler {
+
+    private Downsampler() {
+    }
+
+    /** {x, y} con al più {@code threshold} punti (la serie stessa se è già abbastanza corta). */
+    public static double[][] lttb(double[] x, double[] y, int threshold) {
+        if (x.length != y.length) {
+            throw new IllegalArgumentException("Serie con lunghezze diverse: " + x.length + " e " + y.length);
+        }
+        if (threshold < 3) {
+            throw new IllegalArgumentException("Servono almeno 3 punti: " + threshold);
+        }
+        int n = x.length;
+        if (n <= threshold) {
+            return new double[][]{x.clone(), y.clone()};
+        }
+
+        double[] outX = new double[threshold];
+        double[] outY = new double[threshold];
+        outX[0] = x[0];
+        outY[0] = y[0];
+        double every = (double) (n - 2) / (threshold - 2);
+        int a = 0;
+        for (int i = 0; i < threshold - 2; i++) {
+            // media del bucket successivo (per l'ultimo bucket: l'ultimo punto)
+            int nextStart = (int) Math.floor((i + 1) * every) + 1;
+            int nextEnd = Math.min((int) Math.floor((i + 2) * every) + 1, n);
+            double avgX = 0.0;
+            double avgY = 0.0;
+            for (int j = nextStart; j < nextEnd; j++) {
+                avgX += x[j];
+                avgY += y[j];
+            }
+            int nextCount = nextEnd - nextStart;
+            if (nextCount > 0) {
+                avgX /= nextCount;
+                avgY /= nextCount;
+            } else {
+                avgX = x[n - 1];
+                avgY = y[n - 1];
+            }
+
+            int start = (int) Math.floor(i * every) + 1;
+            int end = (int) Math.floor((i + 1) * every) + 1;
+            double maxArea = -1.0;
+            int chosen = start;
+            for (int j = start; j < end; j++) {
+                // doppia area del triangolo (a, j, media del bucket successivo)
+                double area = Math.abs((x[a] - avgX) * (y[j] - y[a]) - (x[a] - x[j]) * (avgY - y[a]));
+                if (area > maxArea) {
+                    maxArea = area;
+                    chosen = j;
+                }
+            }
+            outX[i + 1] = x[chosen];
+            outY[i + 1] = y[chosen];
+            a = chosen;
+        }
+        outX[threshold - 1] = x[n - 1];
+        outY[threshold - 1] = y[n - 1];
+        return new double[][]{outX, outY};
+    }
+}
@@ -9,14 +9,6 @@ import java.util.*;
  * Ora aggiorna automaticamente i pesi ogni N inter-arrivi (N=10).
  */
 public class DynamicCDFSampler {
-    private static final BigDecimal[] DEFAULT_PERCENTILES = {
-            BigDecimal.ZERO,
-            new BigDecimal("0.50"),
-            new BigDecimal("0.70"),
-            new BigDecimal("0.90"),
-            BigDecimal.ONE
-    };
-
     private final CDFSampler sampler;
     private final int windowSize;
     private final int updateFrequency;
@@ -69,27 +61,25 @@ public class DynamicCDFSampler {
             throw new IllegalStateException("Nessun dato disponibile per l'aggiornamento.");
         }
 
-        List<BigDecimal> sorted = new ArrayList<>(recentInterArrivals);
-        Collections.sort(sorted);
+        EmpiricalDistribution window = EmpiricalDistribution.of(recentInterArrivals);
 
         if (verbose) {
             System.out.println("📊 Inter-arrival times (sorted):");
-            for (BigDecimal val : sorted) {
-                System.out.print(val + " ");
+            for (int i = 0; i < window.size(); i++) {
+                System.out.print(window.value(i) + " ");
             }
             System.out.println();
         }
-        List<BigDecimal> cdf = FunctionsCalculator.calculateCDF(sorted);
-        List<BigDecimal> pdf = FunctionsCalculator.calculatePDF(cdf);
-
-        List<BigDecimal> aggregated = aggregatePdfByPercentiles(pdf, sorted);
+        double[] cuts = CDFSampler.percentileCuts(weights.size());
+        List<BigDecimal> aggregated = new ArrayList<>();
+        for (double mass : window.percentileMass(cuts)) {
+            aggregated.add(BigDecimal.valueOf(mass));
+        }
 
         if (verbose) {
             System.out.println("📈 PDF aggregata per percentili:");
             for (int i = 0; i < aggregated.size(); i++) {
-                BigDecimal percStart = DEFAULT_PERCENTILES[i].multiply(new BigDecimal("100"));
-                BigDecimal percEnd = DEFAULT_PERCENTILES[i + 1].multiply(new BigDecimal("100"));
-                System.out.printf("  [%s%% - %s%%]: %s%n", percStart, percEnd, aggregated.get(i));
+                System.out.printf("  [%.0f%% - %.0f%%]: %s%n", cuts[i] * 100, cuts[i + 1] * 100, aggregated.get(i));
             }
         }
 
@@ -103,35 +93,4 @@ public class DynamicCDFSampler {
     public boolean shouldUpdateWeights() {
         return arrivalsSinceLastUpdate >= updateFrequency;
     }
-
-    /** Aggrega la PDF in bucket secondo i percentili */
-    private List<BigDecimal> aggregatePdfByPercentiles(List<BigDecimal> pdf,
-                                                       List<BigDecimal> originalValues) {
-        int n = DEFAULT_PERCENTILES.length - 1;
-        List<BigDecimal> buckets = new ArrayList<>(Collections.nCopies(n, BigDecimal.ZERO));
-
-        List<BigDecimal> sorted = new ArrayList<>(originalValues);
-        Collections.sort(sorted);
-        List<BigDecimal> cutoffs = new ArrayList<>();
-        for (BigDecimal p : DEFAULT_PERCENTILES) {
-            int idx = p.multiply(new BigDecimal(sorted.size())).intValue();
-            if (idx >= sorted.size()) idx = sorted.size() - 1;
-            cutoffs.add(sorted.get(idx));
-        }
-
-        for (int i = 0; i < sorted.size(); i++) {
-            BigDecimal value = sorted.get(i);
-            BigDecimal prob = pdf.get(i);
-
-            for (int j = 0; j < n; j++) {
-                if (value.compareTo(cutoffs.get(j)) >= 0 &&
-                        value.compareTo(cutoffs.get(j + 1)) <= 0) {
-                    buckets.set(j, buckets.get(j).add(prob));
-                    break;
-                }
-            }
-        }
-
-        return buckets;
-    }
-}
\ No newline at end of file
+}
@@ -0,0 +1,162 @@
+package myPackage;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.function.DoubleUnaryOperator;
+
+/**
+ * Distribuzione empirica su un {@code double[]} ordinato (copia dei campioni, l'input non viene
+ * toccato). La CDF è una ricerca binaria: {@code cdf(x)} = #{campioni ≤ x} / n, quindi i
+ * valori ripetuti contano tutti insieme nel salto in quel punto.
+ *
+ * Sostituisce il vecchio calcolo CDF / PDF in BigDecimal (che produceva solo i/n e 1/n) e
+ * misura la bontà del fit rispetto a una CDF teorica con Kolmogorov-Smirnov e Anderson-Darling.
+ */
+public final class EmpiricalDistribution {
+    private final double[] sorted;
+
+    private EmpiricalDistribution(double[] sorted) {
+        this.sorted = sorted;
+    }
+
+    public static EmpiricalDistribution of(double[] samples, int count) {
+        double[] copy = Arrays.copyOf(samples, count);
+        Arrays.parallelSort(copy);
+        return new EmpiricalDistribution(copy);
+    }
+
+    public static EmpiricalDistribution of(double[] samples) {
+        return of(samples, samples.length);
+    }
+
+    public static EmpiricalDistribution of(Collection<BigDecimal> samples) {
+        return of(samples.stream().mapToDouble(BigDecimal::doubleValue).toArray());
+    }
+
+    public int size() {
+        return sorted.length;
+    }
+
+    public boolean isEmpty() {
+        return sorted.length == 0;
+    }
+
+    public double min() {
+        return sorted[0];
+    }
+
+    public double max() {
+        return sorted[sorted.length - 1];
+    }
+
+    /** i-esimo campione in ordine crescente. */
+    public double value(int i) {
+        return sorted[i];
+    }
+
+    /** Numero di campioni ≤ x. */
+    public int countAtMost(double x) {
+        int lo = 0, hi = sorted.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (sorted[mid] <= x) lo = mid + 1; else hi = mid;
+        }
+        return lo;
+    }
+
+    public double cdf(double x) {
+        return (double) countAtMost(x) / sorted.length;
+    }
+
+    /** Campione in posizione floor(p·n) (l'ultimo per p = 1), come i tagli per percentili dei sampler. */
+    public double percentileCut(double p) {
+        int idx = (int) (p * sorted.length);
+        return sorted[Math.min(Math.max(idx, 0), sorted.length - 1)];
+    }
+
+    /**
+     * Probabilità empirica di ogni intervallo tra tagli consecutivi: il primo è [cut0, cut1],
+     * i successivi (cut_j, cut_j+1]. Un valore uguale a un taglio va nell'intervallo precedente.
+     */
+    public double[] percentileMass(double[] percentiles) {
+        double[] mass = new double[percentiles.length - 1];
+        int previous = countAtMost(percentileCut(percentiles[0])) - countEqual(percentileCut(percentiles[0]));
+        for (int j = 1; j < percentiles.length; j++) {
+            int upTo = countAtMost(percentileCut(percentiles[j]));
+            mass[j - 1] = (double) Math.max(0, upTo - previous) / sorted.length;
+            previous = Math.max(previous, upTo);
+        }
+        return mass;
+    }
+
+    private int countEqual(double x) {
+        int lo = 0, hi = sorted.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (sorted[mid] < x) lo = mid + 1; else hi = mid;
+        }
+        return countAtMost(x) - lo;
+    }
+
+    /** Campioni riscalati in [0, 1] con (x - min) / (max - min), come nell'istogramma e nel grafico BPH. */
+    public EmpiricalDistribution normalized() {
+        double min = min();
+        double range = max() - min;
+        if (range == 0) range = 1.0;
+        double[] scaled = new double[sorted.length];
+        for (int i = 0; i < sorted.length; i++) {
+            scaled[i] = (sorted[i] - min) / range;
+        }
+        return new EmpiricalDistribution(scaled);
+    }
+
+    /**
+     * Statistica di Kolmogorov-Smirnov sup |F_n(x) - F(x)|, valutata a sinistra e a destra di
+     * ogni valore distinto (con i ripetuti la CDF empirica salta di k/n in un colpo solo).
+     */
+    public double kolmogorovSmirnov(DoubleUnaryOperator cdf) {
+        int n = sorted.length;
+        double d = 0.0;
+        int i = 0;
+        while (i < n) {
+            int j = i;
+            while (j < n && sorted[j] == sorted[i]) j++;
+            double f = cdf.applyAsDouble(sorted[i]);
+            d = Math.max(d, Math.max(Math.abs(f - (double) i / n), Math.abs((double) j / n - f)));
+            i = j;
+        }
+        return d;
+    }
+
+    /** p-value asintotico di KS (serie di Kolmogorov con la correzione di Stephens per n finito). */
+    public double kolmogorovSmirnovPValue(double d) {
+        double sqrtN = Math.sqrt(sorted.length);
+        double lambda = (sqrtN + 0.12 + 0.11 / sqrtN) * d;
+        if (lambda < 0.2) return 1.0;
+        double sum = 0.0;
+        for (int k = 1; k <= 100; k++) {
+            double term = Math.exp(-2 * k * k * lambda * lambda);
+            sum += (k % 2 == 1 ? term : -term);
+            if (term < 1e-12) break;
+        }
+        return Math.min(1.0, Math.max(0.0, 2 * sum));
+    }
+
+    /**
+     * Statistica di Anderson-Darling A² = -n - (1/n) Σ (2i-1) [ln F(x_i) + ln(1 - F(x_{n+1-i}))],
+     * più sensibile di KS alle code. F è limitata a [1e-12, 1 - 1e-12] per non avere logaritmi infiniti.
+     */
+    public double andersonDarling(DoubleUnaryOperator cdf) {
+        int n = sorted.length;
+        double[] f = new double[n];
+        for (int i = 0; i < n; i++) {
+            f[i] = Math.min(1 - 1e-12, Math.max(1e-12, cdf.applyAsDouble(sorted[i])));
+        }
+        double s = 0.0;
+        for (int i = 0; i < n; i++) {
+            s += (2.0 * i + 1) * (Math.log(f[i]) + Math.log1p(-f[n - 1 - i]));
+        }
+        return -n - s / n;
+    }
+}
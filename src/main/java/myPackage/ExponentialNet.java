@@ -0,0 +1,296 @@
+package myPackage;
+
+import org.oristool.math.function.EXP;
+import org.oristool.models.stpn.MarkingExpr;
+import org.oristool.models.stpn.trees.StochasticTransitionFeature;
+import org.oristool.petrinet.InhibitorArc;
+import org.oristool.petrinet.Marking;
+import org.oristool.petrinet.PetriNet;
+import org.oristool.petrinet.Postcondition;
+import org.oristool.petrinet.Precondition;
+import org.oristool.petrinet.Transition;
+
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Vista compilata di una rete con sole transizioni esponenziali: archi e tassi base in array
+ * indicizzati per id, marcatura come {@code int[]} indicizzato per posto.
+ *
+ * Il tasso effettivo di t è λ_t · clockRate_t(m). Quando possibile il clockRate è compilato in
+ * una {@link RateExpression} valutata direttamente su {@code tokens}; altrimenti resta la
+ * {@link MarkingExpr} di oris, valutata su una {@link Marking} allineata a {@code tokens}.
+ *
+ * Per i simulatori è precalcolato anche il grafo delle dipendenze: il tasso di t dipende dai
+ * posti del pre-set, degli archi inibitori e da quelli letti dal clockRate (ricavati dal testo
+ * dell'espressione; se non è leggibile si assume che dipenda da tutti i posti).
+ */
+public class ExponentialNet {
+    private static final Pattern IDENTIFIER = Pattern.compile("[A-Za-z_][A-Za-z0-9_]*");
+
+    private final NetIndex index;
+    private final int[][] prePlaces;
+    private final int[][] preMultiplicity;
+    private final int[][] inhibitorPlaces;
+    private final int[][] inhibitorMultiplicity;
+    private final int[][] changedPlaces;
+    private final int[][] changeAmount;
+    private final double[] baseRate;
+    private final MarkingExpr[] clockRate;
+    private final TransitionCategory[] category;
+    private final boolean[] constantClock;
+    private final double[] constantRate;
+    private final int[][] clockPlaces;
+    private final RateExpression[] compiledClock;
+    private final int[][] affected;
+
+    public ExponentialNet(PetriNet net) {
+        this(new NetIndex(net));
+    }
+
+    public ExponentialNet(NetIndex index) {
+        this.index = index;
+        PetriNet net = index.getNet();
+        int transitions = index.transitionCount();
+        prePlaces = new int[transitions][];
+        preMultiplicity = new int[transitions][];
+        inhibitorPlaces = new int[transitions][];
+        inhibitorMultiplicity = new int[transitions][];
+        changedPlaces = new int[transitions][];
+        changeAmount = new int[transitions][];
+        baseRate = new double[transitions];
+        clockRate = new MarkingExpr[transitions];
+        category = new TransitionCategory[transitions];
+        constantClock = new boolean[transitions];
+        constantRate = new double[transitions];
+        clockPlaces = new int[transitions][];
+        compiledClock = new RateExpression[transitions];
+
+        for (int t = 0; t < transitions; t++) {
+            Transition tr = index.transition(t);
+            if (!tr.hasFeature(StochasticTransitionFeature.class)
+                    || !(tr.getFeature(StochasticTransitionFeature.class).density() instanceof EXP)) {
+                throw new IllegalArgumentException("Transizione non esponenziale: " + tr.getName());
+            }
+            var s = tr.getFeature(StochasticTransitionFeature.class);
+            baseRate[t] = ((EXP) s.density()).getLambda().doubleValue();
+            clockRate[t] = s.clockRate();
+            String text = expressionText(clockRate[t]);
+            compiledClock[t] = text != null ? RateExpression.compile(text, index) : null;
+            clockPlaces[t] = compiledClock[t] != null ? compiledClock[t].places() : expressionPlaces(clockRate[t], text);
+            constantClock[t] = clockPlaces[t] != null && clockPlaces[t].length == 0;
+            if (constantClock[t]) constantRate[t] = baseRate[t] * clockRate[t].evaluate(new Marking());
+            category[t] = TransitionCategory.of(tr.getName());
+
+            Collection<Precondition> pre = net.getPreconditions(tr);
+            prePlaces[t] = new int[pre.size()];
+            preMultiplicity[t] = new int[pre.size()];
+            Map<Integer, Integer> delta = new LinkedHashMap<>();
+            int k = 0;
+            for (Precondition p : pre) {
+                int id = index.placeId(p.getPlace().getName());
+                prePlaces[t][k] = id;
+                preMultiplicity[t][k++] = p.getMultiplicity();
+                delta.merge(id, -p.getMultiplicity(), Integer::sum);
+            }
+            for (Postcondition p : net.getPostconditions(tr)) {
+                delta.merge(index.placeId(p.getPlace().getName()), p.getMultiplicity(), Integer::sum);
+            }
+            Collection<InhibitorArc> inhibitors = net.getInhibitorArcs(tr);
+            inhibitorPlaces[t] = new int[inhibitors.size()];
+            inhibitorMultiplicity[t] = new int[inhibitors.size()];
+            k = 0;
+            for (InhibitorArc a : inhibitors) {
+                inhibitorPlaces[t][k] = index.placeId(a.getPlace().getName());
+                inhibitorMultiplicity[t][k++] = a.getMultiplicity();
+            }
+
+            delta.values().removeIf(v -> v == 0);
+            changedPlaces[t] = new int[delta.size()];
+            changeAmount[t] = new int[delta.size()];
+            k = 0;
+            for (var e : delta.entrySet()) {
+                changedPlaces[t][k] = e.getKey();
+                changeAmount[t][k++] = e.getValue();
+            }
+        }
+        affected = dependencyGraph();
+    }
+
+    /** Testo di un'espressione testuale di oris, o null (costanti e altre implementazioni). */
+    private static String expressionText(MarkingExpr expr) {
+        String text = expr.toString();
+        if (!text.startsWith("MarkingExpr{format=") || !text.endsWith("}")) {
+            return null;
+        }
+        return text.substring("MarkingExpr{format=".length(), text.length() - 1);
+    }
+
+    /** Posti letti dall'espressione, o null se l'espressione non è riconosciuta. */
+    private int[] expressionPlaces(MarkingExpr expr, String text) {
+        if (expr.toString().startsWith("ConsExpr")) {
+            return new int[0];
+        }
+        if (text == null) {
+            return null;
+        }
+        BitSet places = new BitSet();
+        Matcher m = IDENTIFIER.matcher(text);
+        while (m.find()) {
+            if (index.hasPlace(m.group())) places.set(index.placeId(m.group()));
+        }
+        return places.stream().toArray();
+    }
+
+    /** affected[t] = transizioni il cui tasso può cambiare quando t spara (t compresa se serve). */
+    private int[][] dependencyGraph() {
+        int transitions = baseRate.length;
+        int places = index.placeCount();
+        BitSet[] readers = new BitSet[places];
+        for (int p = 0; p < places; p++) readers[p] = new BitSet();
+        BitSet global = new BitSet();
+        for (int t = 0; t < transitions; t++) {
+            for (int p : prePlaces[t]) readers[p].set(t);
+            for (int p : inhibitorPlaces[t]) readers[p].set(t);
+            if (clockPlaces[t] == null) {
+                global.set(t);
+            } else {
+                for (int p : clockPlaces[t]) readers[p].set(t);
+            }
+        }
+        int[][] graph = new int[transitions][];
+        for (int t = 0; t < transitions; t++) {
+            BitSet dependents = (BitSet) global.clone();
+            for (int p : changedPlaces[t]) dependents.or(readers[p]);
+            graph[t] = dependents.stream().toArray();
+        }
+        return graph;
+    }
+
+    public NetIndex getIndex() {
+        return index;
+    }
+
+    public int transitionCount() {
+        return baseRate.length;
+    }
+
+    public int placeCount() {
+        return index.placeCount();
+    }
+
+    public TransitionCategory category(int t) {
+        return category[t];
+    }
+
+    public double baseRate(int t) {
+        return baseRate[t];
+    }
+
+    public boolean isEnabled(int t, int[] tokens) {
+        int[] places = prePlaces[t];
+        int[] mult = preMultiplicity[t];
+        for (int k = 0; k < places.length; k++) {
+            if (tokens[places[k]] < mult[k]) return false;
+        }
+        places = inhibitorPlaces[t];
+        mult = inhibitorMultiplicity[t];
+        for (int k = 0; k < places.length; k++) {
+            if (tokens[places[k]] >= mult[k]) return false;
+        }
+        return true;
+    }
+
+    /** Fattore clockRate(m); {@code marking} deve corrispondere a {@code tokens}. */
+    public double clockRate(int t, Marking marking) {
+        return clockRate[t].evaluate(marking);
+    }
+
+    /** Tasso effettivo in {@code tokens} (0 se non abilitata). */
+    public double rate(int t, int[] tokens, Marking marking) {
+        if (!isEnabled(t, tokens)) return 0.0;
+        if (constantClock[t]) return constantRate[t];
+        if (compiledClock[t] != null) return baseRate[t] * compiledClock[t].evaluate(tokens);
+        return baseRate[t] * clockRate[t].evaluate(marking);
+    }
+
+    /** True se l'abilitazione di t dipende da qualcosa oltre al pre-set (clockRate o inibitori). */
+    public boolean hasGuard(int t) {
+        return !constantClock[t] || inhibitorPlaces[t].length > 0;
+    }
+
+    /** Archi inibitori soddisfatti e clockRate positivo (il pre-set non è considerato). */
+    public boolean guardOpen(int t, int[] tokens, Marking marking) {
+        int[] places = inhibitorPlaces[t];
+        int[] mult = inhibitorMultiplicity[t];
+        for (int k = 0; k < places.length; k++) {
+            if (tokens[places[k]] >= mult[k]) return false;
+        }
+        if (constantClock[t]) return constantRate[t] > 0;
+        if (compiledClock[t] != null) return compiledClock[t].evaluate(tokens) > 0;
+        return clockRate[t].evaluate(marking) > 0;
+    }
+
+    /** Transizioni da ricalcolare dopo lo sparo di t. */
+    public int[] affectedBy(int t) {
+        return affected[t];
+    }
+
+    /** Posti letti dal clockRate di t (null = tutti). */
+    public int[] clockPlaces(int t) {
+        return clockPlaces[t];
+    }
+
+    public void fire(int t, int[] tokens) {
+        fire(t, tokens, 1);
+    }
+
+    /** Applica {@code times} spari consecutivi di t (usato anche dal tau-leaping). */
+    public void fire(int t, int[] tokens, int times) {
+        int[] places = changedPlaces[t];
+        int[] amount = changeAmount[t];
+        for (int k = 0; k < places.length; k++) {
+            tokens[places[k]] += amount[k] * times;
+        }
+    }
+
+    /** Posti il cui numero di token cambia quando t spara. */
+    public int[] changedPlaces(int t) {
+        return changedPlaces[t];
+    }
+
+    public int[] changeAmounts(int t) {
+        return changeAmount[t];
+    }
+
+    public int[] prePlaces(int t) {
+        return prePlaces[t];
+    }
+
+    public int[] preMultiplicities(int t) {
+        return preMultiplicity[t];
+    }
+
+    public int[] inhibitorPlaces(int t) {
+        return inhibitorPlaces[t];
+    }
+
+    /** Allinea la Marking di oris ai token dei posti indicati. */
+    public void syncMarking(Marking marking, int[] tokens, int[] places) {
+        for (int p : places) {
+            marking.setTokens(index.place(p), tokens[p]);
+        }
+    }
+
+    public Marking toMarking(int[] tokens) {
+        Marking marking = new Marking();
+        for (int p = 0; p < tokens.length; p++) {
+            marking.setTokens(index.place(p), tokens[p]);
+        }
+        return marking;
+    }
+}
@@ -0,0 +1,116 @@
+package myPackage;
+
+import org.oristool.petrinet.Marking;
+
+/**
+ * Simulatore specializzato per reti con sole transizioni esponenziali (metodo diretto di
+ * Gillespie con albero di Fenwick). Alternativa al {@link org.oristool.simulator.Sequencer}
+ * per la rete di {@link SimulationSetup}: niente tempi residui né BigDecimal, ogni firing
+ * ricalcola solo i tassi delle transizioni che dipendono dai posti modificati
+ * ({@link ExponentialNet#affectedBy(int)}) e sceglie la successiva in O(log T).
+ *
+ * Le reward sono le stesse del Sequencer: il simulatore pilota una {@link FusedRewardPipeline}
+ * non registrata con beginRun / recordFiring / observe, fino allo stop della pipeline.
+ */
+public class ExponentialNetSimulator {
+    private final ExponentialNet net;
+    private final Marking initialMarking;
+    private final RandomStreams.Stream random;
+    private long steps;
+
+    public ExponentialNetSimulator(ExponentialNet net, Marking initialMarking, RandomStreams.Stream random) {
+        this.net = net;
+        this.initialMarking = new Marking(initialMarking);
+        this.random = random;
+    }
+
+    public ExponentialNet getNet() {
+        return net;
+    }
+
+    /** Firing eseguiti nell'ultimo run. */
+    public long steps() {
+        return steps;
+    }
+
+    /**
+     * Stato di un run: token, tassi e tempo corrente. Le transizioni sono senza memoria, quindi
+     * una copia riparte esattamente da dove era l'originale (usato dallo splitting).
+     */
+    public final class State {
+        private final int[] tokens;
+        private final Marking mirror;
+        private final FenwickTree rates;
+        private double time;
+
+        private State(int[] tokens, double time) {
+            this.tokens = tokens;
+            this.mirror = net.toMarking(tokens);
+            this.rates = new FenwickTree(net.transitionCount());
+            this.time = time;
+            for (int t = 0; t < net.transitionCount(); t++) {
+                rates.set(t, net.rate(t, tokens, mirror));
+            }
+            rates.rebuild();
+        }
+
+        public State copy() {
+            return new State(tokens.clone(), time);
+        }
+
+        public int tokens(int place) {
+            return tokens[place];
+        }
+
+        /** Token indicizzati per posto, in sola lettura. */
+        public int[] tokens() {
+            return tokens;
+        }
+
+        public double time() {
+            return time;
+        }
+    }
+
+    public State initialState() {
+        return new State(net.getIndex().toTokens(initialMarking), 0.0);
+    }
+
+    /** Esegue un firing e restituisce la transizione sparata, o -1 se nessuna è abilitata. */
+    public int step(State state) {
+        double total = state.rates.total();
+        if (total <= 0.0) return -1;
+        state.time += random.nextExponential(total);
+        int fired = state.rates.find((1.0 - random.nextUniform()) * total);
+        if (fired < 0) return -1;
+
+        net.fire(fired, state.tokens);
+        net.syncMarking(state.mirror, state.tokens, net.changedPlaces(fired));
+        for (int t : net.affectedBy(fired)) {
+            state.rates.set(t, net.rate(t, state.tokens, state.mirror));
+        }
+        return fired;
+    }
+
+    /**
+     * Esegue un run fino a quando la pipeline si ferma (orizzonte o precisione a regime)
+     * o nessuna transizione è più abilitata.
+     */
+    public void simulate(FusedRewardPipeline rewards) {
+        State state = initialState();
+        rewards.beginRun(initialMarking);
+        steps = 0;
+        while (!rewards.isStopped()) {
+            int fired = step(state);
+            if (fired < 0) {
+                rewards.endRun();
+                break;
+            }
+            steps++;
+
+            rewards.recordFiring(fired, state.time);
+            rewards.getOccupancy().observe(state.tokens);
+            rewards.checkHorizon();
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package myPackage;
+
+/**
+ * Albero di Fenwick su pesi non negativi: aggiornamento, somma totale e ricerca per somma
+ * cumulata in O(log n). Usato per scegliere la transizione che spara in proporzione al tasso.
+ *
+ * Gli aggiornamenti per differenza accumulano errore di arrotondamento: ogni
+ * {@link #REBUILD_INTERVAL} modifiche l'albero viene ricostruito dai valori esatti.
+ */
+public class FenwickTree {
+    private static final int REBUILD_INTERVAL = 1 << 20;
+
+    private final double[] values;
+    private final double[] tree;
+    private final int highestBit;
+    private int updates;
+
+    public FenwickTree(int size) {
+        values = new double[size];
+        tree = new double[size + 1];
+        highestBit = size == 0 ? 0 : Integer.highestOneBit(size);
+    }
+
+    public int size() {
+        return values.length;
+    }
+
+    public double get(int i) {
+        return values[i];
+    }
+
+    public void set(int i, double value) {
+        double delta = value - values[i];
+        if (delta == 0.0) return;
+        values[i] = value;
+        if (++updates >= REBUILD_INTERVAL) {
+            rebuild();
+            return;
+        }
+        for (int k = i + 1; k < tree.length; k += k & -k) {
+            tree[k] += delta;
+        }
+    }
+
+    public double total() {
+        double sum = 0.0;
+        for (int k = values.length; k > 0; k -= k & -k) {
+            sum += tree[k];
+        }
+        return Math.max(sum, 0.0);
+    }
+
+    /**
+     * Indice i con somma(0..i-1) ≤ target < somma(0..i). Salta gli elementi a peso nullo
+     * anche quando l'errore di arrotondamento porta target oltre il totale.
+     */
+    public int find(double target) {
+        int pos = 0;
+        for (int step = highestBit; step > 0; step >>= 1) {
+            int next = pos + step;
+            if (next < tree.length && tree[next] <= target) {
+                pos = next;
+                target -= tree[next];
+            }
+        }
+        // pos è il numero di elementi con somma cumulata ≤ target
+        if (pos >= values.length || values[pos] == 0.0) {
+            for (int i = Math.min(pos, values.length - 1); i >= 0; i--) {
+                if (values[i] > 0.0) return i;
+            }
+            return -1;
+        }
+        return pos;
+    }
+
+    public void rebuild() {
+        updates = 0;
+        for (int k = 1; k < tree.length; k++) {
+            tree[k] = values[k - 1];
+        }
+        for (int k = 1; k < tree.length; k++) {
+            int parent = k + (k & -k);
+            if (parent < tree.length) tree[parent] += tree[k];
+        }
+    }
+}
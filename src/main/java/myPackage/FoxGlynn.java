@@ -0,0 +1,83 @@
+package myPackage;
+
+import java.util.Arrays;
+
+/**
+ * Pesi di Poisson troncati per l'uniformizzazione (Fox-Glynn): calcolati a partire dalla moda
+ * con la ricorrenza w(k+1) = w(k)·λ/(k+1), senza fattoriali, e troncati a sinistra e a destra
+ * quando la coda residua (maggiorata geometricamente) scende sotto ε/2.
+ */
+public class FoxGlynn {
+    /** Primo e ultimo indice conservati. */
+    public final int left;
+    public final int right;
+    /** weights[k - left] = P(N = k), normalizzati sulla finestra [left, right]. */
+    public final double[] weights;
+
+    private FoxGlynn(int left, int right, double[] weights) {
+        this.left = left;
+        this.right = right;
+        this.weights = weights;
+    }
+
+    public static FoxGlynn compute(double lambda, double epsilon) {
+        if (lambda < 0) {
+            throw new IllegalArgumentException("Parametro di Poisson negativo: " + lambda);
+        }
+        if (lambda == 0.0) {
+            return new FoxGlynn(0, 0, new double[]{1.0});
+        }
+        int mode = (int) Math.floor(lambda);
+        double total = 1.0;
+
+        // Coda destra
+        int right = mode;
+        double w = 1.0;
+        double[] up = new double[16];
+        up[0] = 1.0;
+        while (true) {
+            double ratio = lambda / (right + 1);
+            if (ratio < 1 && w * ratio / (1 - ratio) < epsilon / 2 * total) break;
+            w *= ratio;
+            right++;
+            if (right - mode >= up.length) up = Arrays.copyOf(up, up.length * 2);
+            up[right - mode] = w;
+            total += w;
+        }
+
+        // Coda sinistra
+        int left = mode;
+        w = 1.0;
+        double[] down = new double[16];
+        while (left > 0) {
+            double ratio = left / lambda;
+            if (ratio < 1 && w * ratio / (1 - ratio) < epsilon / 2 * total) break;
+            w *= ratio;
+            left--;
+            if (mode - left >= down.length) down = Arrays.copyOf(down, down.length * 2);
+            down[mode - left] = w;
+            total += w;
+        }
+
+        double[] weights = new double[right - left + 1];
+        for (int k = left; k < mode; k++) weights[k - left] = down[mode - k] / total;
+        for (int k = mode; k <= right; k++) weights[k - left] = up[k - mode] / total;
+        return new FoxGlynn(left, right, weights);
+    }
+
+    /** P(N = k). */
+    public double weight(int k) {
+        return k < left || k > right ? 0.0 : weights[k - left];
+    }
+
+    /** P(N > k) per ogni k in [0, right], da usare per gli integrali ∫₀ᵗ π(u) du. */
+    public double[] tail() {
+        double[] tail = new double[right + 1];
+        double cumulative = 0.0;
+        for (int k = 0; k <= right; k++) {
+            cumulative += weight(k);
+            tail[k] = Math.max(0.0, 1.0 - cumulative);
+        }
+        return tail;
+    }
+}
@@ -0,0 +1,362 @@
+package myPackage;
+
+import org.oristool.models.pn.PetriStateFeature;
+import org.oristool.petrinet.Marking;
+import org.oristool.petrinet.Transition;
+import org.oristool.simulator.Sequencer;
+import org.oristool.simulator.rewards.DiscreteRewardTime;
+import org.oristool.simulator.rewards.Reward;
+import org.oristool.simulator.rewards.RewardObserver;
+import org.oristool.simulator.rewards.RewardTime;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.IntStream;
+
+/**
+ * Pipeline di reward fusa: un unico observer legge il firing una volta sola
+ * (successione, tempo trascorso) e aggiorna tutti i contatori, tenuti in array primitivi
+ * indicizzati per transizione e per categoria. Le metriche (abbandono, blocco, utilizzo, ...)
+ * sono viste in sola lettura, quindi il costo di dispatch non cresce con il numero di metriche.
+ *
+ * Raggiunto {@code maxTime} la pipeline si deregistra e il run termina. Se la rete si blocca prima
+ * (nessuna transizione può sparare) la marcatura resta quella fino all'orizzonte e il run termina
+ * lo stesso: il Sequencer non riparte con un nuovo run che azzererebbe i contatori.
+ */
+public class FusedRewardPipeline implements Reward {
+
+    /** Callback per i consumatori che devono vedere i singoli firing di una categoria. */
+    public interface FiringListener {
+        void onFiring(int transition, double time);
+    }
+
+    /** Callback all'inizio di ogni run, con la marcatura iniziale. */
+    public interface RunListener {
+        void onRunStart(Marking initialMarking);
+    }
+
+    private static final TransitionCategory[] CATEGORIES = TransitionCategory.values();
+
+    private final Sequencer sequencer;
+    private final NetIndex index;
+    private final TimeWeightedReward occupancy;
+    private final List<RewardObserver> observers = new ArrayList<>();
+
+    // contatori struct-of-arrays
+    private final int[] categoryOf;
+    // transizioni di ogni categoria: il replay di un salto non scorre tutta la rete
+    private final int[][] transitionsOf = new int[CATEGORIES.length][];
+    private final long[] firings;
+    private final long[] categoryCounts = new long[CATEGORIES.length];
+    private final List<List<FiringListener>> listeners = new ArrayList<>();
+    private final List<RunListener> runListeners = new ArrayList<>();
+
+    private double currentTime = 0.0;
+    private int lastFired = -1;
+    private double maxTime = Double.POSITIVE_INFINITY;
+    private boolean stopped = false;
+    private SteadyStateMonitor steadyState;
+
+    /** Pipeline registrata sul sequencer (sia per gli eventi globali che per i firing). */
+    public FusedRewardPipeline(Sequencer sequencer) {
+        this(sequencer, new NetIndex(sequencer.getNet()));
+        this.sequencer.addObserver(this);
+        this.sequencer.addCurrentRunObserver(this);
+    }
+
+    /** Pipeline non registrata, pilotata da un altro motore tramite beginRun/recordFiring. */
+    public FusedRewardPipeline(NetIndex index) {
+        this(null, index);
+    }
+
+    private FusedRewardPipeline(Sequencer sequencer, NetIndex index) {
+        this.sequencer = sequencer;
+        this.index = index;
+        this.occupancy = new TimeWeightedReward(index, sequencer);
+        this.categoryOf = new int[index.transitionCount()];
+        this.firings = new long[index.transitionCount()];
+        for (int t = 0; t < categoryOf.length; t++) {
+            categoryOf[t] = TransitionCategory.of(index.transition(t).getName()).ordinal();
+        }
+        for (int c = 0; c < CATEGORIES.length; c++) {
+            listeners.add(new ArrayList<>());
+            int category = c;
+            transitionsOf[c] = IntStream.range(0, categoryOf.length)
+                    .filter(t -> categoryOf[t] == category).toArray();
+        }
+    }
+
+    public void setMaxTime(double maxTime) {
+        this.maxTime = maxTime;
+    }
+
+    public double getMaxTime() {
+        return maxTime;
+    }
+
+    /**
+     * Abilita la stima a regime: il run si ferma appena blocco, abbandono e tutte le metriche
+     * pesate sul tempo hanno semiampiezza relativa ≤ {@code relativePrecision} (blocchi e
+     * abbandoni osservati almeno {@link SteadyStateMonitor#MIN_EVENTS} volte).
+     */
+    public void enableSteadyState(double sliceLength, double relativePrecision, double confidence) {
+        steadyState = new SteadyStateMonitor(sliceLength, relativePrecision, confidence);
+        steadyState.track("blocco",
+                () -> count(TransitionCategory.BLOCKED),
+                () -> count(TransitionCategory.BLOCKED) + count(TransitionCategory.ARRIVAL),
+                SteadyStateMonitor.MIN_EVENTS);
+        steadyState.track("abbandono",
+                () -> count(TransitionCategory.ABANDON),
+                () -> count(TransitionCategory.ARRIVAL),
+                SteadyStateMonitor.MIN_EVENTS);
+    }
+
+    public SteadyStateMonitor getSteadyState() {
+        return steadyState;
+    }
+
+    public void addFiringListener(TransitionCategory category, FiringListener listener) {
+        listeners.get(category.ordinal()).add(listener);
+    }
+
+    public void addRunListener(RunListener listener) {
+        runListeners.add(listener);
+    }
+
+    @Override
+    public void update(Sequencer.SequencerEvent event) {
+        if (event == Sequencer.SequencerEvent.RUN_START) {
+            beginRun(sequencer.getInitialMarking());
+            return;
+        }
+        if (event == Sequencer.SequencerEvent.RUN_END) {
+            // arriva solo se il run è finito senza stop(): la rete non ha più transizioni abilitate
+            endRun();
+            return;
+        }
+        if (event == Sequencer.SequencerEvent.FIRING_EXECUTED) {
+            Transition fired = sequencer.getLastFiredTransition();
+            if (fired == null) return;
+            recordFiring(index.transitionId(fired), sequencer.getCurrentRunElapsedTimeAsDouble());
+            if (sequencer.isCompactState()) {
+                occupancy.observe(sequencer.getCurrentTokens());
+            } else {
+                occupancy.observe(sequencer.getLastSuccession().getChild().getFeature(PetriStateFeature.class).getMarking());
+            }
+            checkHorizon();
+        }
+    }
+
+    public void beginRun(Marking initialMarking) {
+        Arrays.fill(firings, 0L);
+        Arrays.fill(categoryCounts, 0L);
+        currentTime = 0.0;
+        lastFired = -1;
+        stopped = false;
+        occupancy.reset(initialMarking, 0.0);
+        if (steadyState != null) {
+            for (int m = 0; m < occupancy.metricCount(); m++) {
+                int metric = m;
+                steadyState.track(occupancy.metricName(m), () -> occupancy.integral(metric), occupancy::observedTime);
+            }
+            steadyState.reset(0.0);
+        }
+        for (RunListener l : runListeners) {
+            l.onRunStart(initialMarking);
+        }
+    }
+
+    /**
+     * Registra un firing al tempo {@code time}. Il chiamante aggiorna poi la marcatura
+     * con {@code getOccupancy().observe(...)}: l'intervallo appena chiuso resta attribuito
+     * alla marcatura precedente.
+     */
+    public void recordFiring(int transition, double time) {
+        if (steadyState != null) {
+            steadyState.advance(time, occupancy::advanceTo);
+        }
+        occupancy.advanceTo(time);
+        currentTime = time;
+        lastFired = transition;
+        if (transition < 0) return;
+        firings[transition]++;
+        int category = categoryOf[transition];
+        categoryCounts[category]++;
+        List<FiringListener> interested = listeners.get(category);
+        for (int i = 0, n = interested.size(); i < n; i++) {
+            interested.get(i).onFiring(transition, time);
+        }
+    }
+
+    /**
+     * Registra un salto di tau-leaping: {@code counts[t]} firing di ogni transizione in (from, to].
+     * L'occupazione usa la marcatura precedente fino a metà intervallo e {@code tokensAfter} dopo;
+     * i listener ricevono i firing a tempi equispaziati, con le transizioni della stessa categoria
+     * interlacciate in proporzione ai conteggi.
+     */
+    public void recordLeap(long[] counts, double from, double to, int[] tokensAfter) {
+        double middle = (from + to) / 2;
+        if (steadyState != null) {
+            steadyState.advance(middle, occupancy::advanceTo);
+        }
+        occupancy.advanceTo(middle);
+        occupancy.observe(tokensAfter);
+        for (int t = 0; t < counts.length; t++) {
+            if (counts[t] == 0) continue;
+            firings[t] += counts[t];
+            categoryCounts[categoryOf[t]] += counts[t];
+            lastFired = t;
+        }
+        if (steadyState != null) {
+            steadyState.advance(to, occupancy::advanceTo);
+        }
+        occupancy.advanceTo(to);
+        currentTime = to;
+
+        for (int c = 0; c < CATEGORIES.length; c++) {
+            if (!listeners.get(c).isEmpty()) dispatchLeap(c, counts, from, to);
+        }
+    }
+
+    /**
+     * Round robin pesato: a ogni passo spara la transizione con più credito residuo. Si scorrono
+     * solo le transizioni della categoria che hanno sparato nel salto (di solito una o due).
+     */
+    private void dispatchLeap(int category, long[] counts, double from, double to) {
+        int[] candidates = transitionsOf[category];
+        int[] active = new int[candidates.length];
+        int size = 0;
+        long total = 0;
+        for (int t : candidates) {
+            if (counts[t] == 0) continue;
+            active[size++] = t;
+            total += counts[t];
+        }
+        if (total == 0) return;
+        List<FiringListener> interested = listeners.get(category);
+        double step = (to - from) / total;
+        if (size == 1) {
+            int only = active[0];
+            for (long i = 0; i < total; i++) {
+                double time = from + (i + 0.5) * step;
+                for (int l = 0, n = interested.size(); l < n; l++) {
+                    interested.get(l).onFiring(only, time);
+                }
+            }
+            return;
+        }
+        long[] credit = new long[size];
+        for (long i = 0; i < total; i++) {
+            int chosen = 0;
+            for (int k = 0; k < size; k++) {
+                credit[k] += counts[active[k]];
+                if (credit[k] > credit[chosen]) chosen = k;
+            }
+            credit[chosen] -= total;
+            double time = from + (i + 0.5) * step;
+            for (int l = 0, n = interested.size(); l < n; l++) {
+                interested.get(l).onFiring(active[chosen], time);
+            }
+        }
+    }
+
+    /** Ferma il run se è stato raggiunto l'orizzonte massimo o la precisione a regime. */
+    public void checkHorizon() {
+        if (currentTime >= maxTime || (steadyState != null && steadyState.isSatisfied())) {
+            stop();
+        }
+    }
+
+    /**
+     * Rete bloccata (nessuna transizione abilitata): la marcatura corrente resta in vigore fino
+     * all'orizzonte, se è finito, e il run termina come se l'avesse raggiunto.
+     */
+    public void endRun() {
+        if (stopped) return;
+        if (Double.isFinite(maxTime) && currentTime < maxTime) {
+            if (steadyState != null) {
+                steadyState.advance(maxTime, occupancy::advanceTo);
+            }
+            occupancy.advanceTo(maxTime);
+            currentTime = maxTime;
+        }
+        stop();
+    }
+
+    public void stop() {
+        if (stopped) return;
+        stopped = true;
+        if (sequencer != null) {
+            sequencer.removeCurrentRunObserver(this);
+            sequencer.removeObserver(this);
+        }
+        notifyObservers();
+    }
+
+    public boolean isStopped() {
+        return stopped;
+    }
+
+    public NetIndex getIndex() {
+        return index;
+    }
+
+    public TimeWeightedReward getOccupancy() {
+        return occupancy;
+    }
+
+    public long count(TransitionCategory category) {
+        return categoryCounts[category.ordinal()];
+    }
+
+    public long firings(int transition) {
+        return firings[transition];
+    }
+
+    public int getLastFired() {
+        return lastFired;
+    }
+
+    public double getCurrentTime() {
+        return currentTime;
+    }
+
+    /** Restituisce i conteggi per categoria. */
+    @Override
+    public Object evaluate() {
+        Map<String, Long> counts = new LinkedHashMap<>();
+        for (TransitionCategory c : CATEGORIES) {
+            counts.put(c.name(), categoryCounts[c.ordinal()]);
+        }
+        return counts;
+    }
+
+    @Override
+    public Sequencer getSequencer() {
+        return sequencer;
+    }
+
+    @Override
+    public RewardTime getRewardTime() {
+        return new DiscreteRewardTime();
+    }
+
+    @Override
+    public void addObserver(RewardObserver observer) {
+        observers.add(observer);
+    }
+
+    @Override
+    public void removeObserver(RewardObserver observer) {
+        observers.remove(observer);
+    }
+
+    private void notifyObservers() {
+        for (RewardObserver o : observers) {
+            o.update(RewardEvent.RUN_END);
+        }
+    }
+}
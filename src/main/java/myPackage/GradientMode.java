@@ -0,0 +1,97 @@
+package myPackage;
+
+import java.io.File;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Modalità "gradient": {@code gradient <repliche>} con seed=, horizon=, order=, pool=, queue=,
+ * engine= (sequencer|exp). Ogni replica stima in un solo run le derivate di blocco e abbandono
+ * rispetto a service, abandon e ai λ_i; il risultato va in output/gradient.json.
+ */
+final class GradientMode {
+    private GradientMode() {
+    }
+
+    static void run(String[] args) throws IOException {
+        int replications = CliOptions.intArgument(args, "repliche", 8);
+        SimulationConfig config = new SimulationConfig();
+        config.engine = SimulationEngine.of(CliOptions.option(args, "engine"));
+        if (config.engine == SimulationEngine.TAU_LEAPING) {
+            throw new IllegalArgumentException("Il likelihood ratio richiede i tempi esatti dei firing: niente tau-leaping");
+        }
+        config.horizon = CliOptions.doubleOption(args, "horizon", 200.0);
+        config.poolSize = CliOptions.intOption(args, "pool", config.poolSize);
+        config.queueSize = CliOptions.intOption(args, "queue", config.queueSize);
+        config.verbose = false;
+        long seed = CliOptions.longOption(args, "seed", 1);
+        List<BigDecimal> weights = Main.initialWeights(CliOptions.intOption(args, "order", 4));
+
+        long start = System.currentTimeMillis();
+        // repliche indipendenti in parallelo, registrate poi in ordine
+        List<Map<String, Double>> runs = java.util.stream.IntStream.range(0, replications).parallel()
+                .mapToObj(r -> gradientRun(config, weights, new RandomStreams(seed).replication(r)))
+                .toList();
+        ReplicationStatistics perRun = new ReplicationStatistics();
+        for (Map<String, Double> run : runs) {
+            run.forEach(perRun::record);
+        }
+        // derivate: (R_i − R̄) · score_i, con la media delle repliche come baseline
+        ReplicationStatistics statistics = new ReplicationStatistics();
+        List<String> parameters = new ArrayList<>();
+        for (String metric : perRun.metrics()) {
+            if (!metric.startsWith("score/")) {
+                for (double v : perRun.values(metric)) statistics.record(metric, v);
+                continue;
+            }
+            String parameter = metric.substring("score/".length());
+            parameters.add(parameter);
+            double[] scores = perRun.values(metric);
+            for (String reward : List.of("blocco", "abbandono")) {
+                String name = "d" + Character.toUpperCase(reward.charAt(0)) + reward.substring(1) + "/d" + parameter;
+                for (double v : LikelihoodRatioGradient.baselineCorrected(perRun.values(reward), scores)) {
+                    statistics.record(name, v);
+                }
+            }
+        }
+        statistics.report();
+        System.out.printf("%d run in %d ms (alle differenze finite centrate sarebbero stati %d)%n",
+                replications, System.currentTimeMillis() - start, replications * 2 * parameters.size());
+
+        Map<String, Object> json = new LinkedHashMap<>();
+        for (String metric : statistics.metrics()) {
+            Map<String, Double> entry = new LinkedHashMap<>();
+            entry.put("mean", statistics.mean(metric));
+            double hw = statistics.halfWidth(metric, 0.95);
+            if (Double.isFinite(hw)) entry.put("halfWidth", hw);
+            json.put(metric, entry);
+        }
+        File outDir = new File("output");
+        outDir.mkdirs();
+        Main.writeJson(json, new File(outDir, "gradient.json"));
+    }
+
+    /** Un run con il {@link LikelihoodRatioGradient}: blocco, abbandono e lo score di ogni parametro. */
+    private static Map<String, Double> gradientRun(SimulationConfig config, List<BigDecimal> weights, RandomStreams streams) {
+        SimulationSetup setup = new SimulationSetup(weights, config, streams);
+        var sequencer = setup.getSequencer();
+        FusedRewardPipeline rewards = SimulationRunner.newPipeline(config.engine, sequencer);
+        var blockReward = new BlockProbabilityReward(rewards);
+        var abandonReward = new AbandonRateReward(rewards);
+        LikelihoodRatioGradient gradient = LikelihoodRatioGradient.forSimulationSetup(rewards);
+        rewards.setMaxTime(config.horizon);
+        SimulationRunner.simulate(config, sequencer, rewards, streams);
+
+        Map<String, Double> values = new LinkedHashMap<>();
+        values.put("blocco", (double) blockReward.evaluate());
+        values.put("abbandono", (double) abandonReward.evaluate());
+        for (int p = 0; p < gradient.parameters().size(); p++) {
+            values.put("score/" + gradient.parameters().get(p), gradient.score(p));
+        }
+        return values;
+    }
+}
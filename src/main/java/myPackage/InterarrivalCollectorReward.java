@@ -1,6 +1,5 @@
 package myPackage;
 
-import org.oristool.analyzer.Succession;
 import org.oristool.simulator.Sequencer;
 import org.oristool.simulator.rewards.DiscreteRewardTime;
 import org.oristool.simulator.rewards.Reward;
@@ -14,29 +13,75 @@ import org.jfree.data.xy.XYSeriesCollection;
 
 import java.io.File;
 import java.math.BigDecimal;
-import java.math.RoundingMode;
 import java.util.*;
+import java.util.function.Consumer;
 
 public class InterarrivalCollectorReward implements Reward {
+    private static final int CDF_POINTS = 200;
+    private static final int RESERVOIR_SIZE = 10_000;
+    private static final long RESERVOIR_SEED = 0x5EEDL;
+
     private final Sequencer sequencer;
-    private final List<BigDecimal> arrivalTimes = new ArrayList<>();
     private final List<RewardObserver> observers = new ArrayList<>();
-    private final Map<String, List<BigDecimal>> arrivalTimesByType = new HashMap<>();
-    private final Map<String, Integer> arrivalCount = new HashMap<>();
+    // inter-arrivi in uno sketch a memoria limitata: CDF, istogramma e fit non dipendono dal numero di arrivi
+    private final QuantileSketch interArrivals = new QuantileSketch();
+    // campione uniforme (reservoir) di dimensione fissa per i test di bontà del fit
+    private final double[] reservoir = new double[RESERVOIR_SIZE];
+    private final SplittableRandom reservoirRandom = new SplittableRandom(RESERVOIR_SEED);
+    private long interArrivalCount;
+    private final Map<String, TypeStats> arrivalsByType = new HashMap<>();
+    // istante dell'ultimo arrivo, NaN prima del primo: tutto il percorso per firing è su double
+    private double lastArrival = Double.NaN;
+    private long arrivalTotal;
+
+    /** Per tipo di arrivo bastano conteggio, primo e ultimo istante: la media degli intertempi è telescopica. */
+    private static final class TypeStats {
+        long count;
+        double first;
+        double last;
+    }
 
     //  per aggiornare i pesi ogni 10 inter-arrivi
     private final DynamicCDFSampler dynamicSampler;
+    // in alternativa: stima dei pesi su un altro thread, qui si pubblicano solo gli inter-arrivi
+    private final AsyncWeightEstimator asyncEstimator;
     // REFERENZA alla lista dei pesi passata dal Main (aggiornata IN-PLACE)
     private final List<BigDecimal> weights;
+    // chi applica i nuovi pesi durante il run (es. ricollegando i tassi degli arrivi), sul thread di simulazione
+    private Consumer<List<BigDecimal>> weightsListener;
+    private long appliedUpdates;
 
-    public InterarrivalCollectorReward(Sequencer sequencer,
+    /**
+     * Alimentata dalla {@link FusedRewardPipeline}: non si registra sul sequencer, riceve solo i
+     * firing di categoria ARRIVAL. {@code weights} è la lista di Main, aggiornata sul posto.
+     */
+    public InterarrivalCollectorReward(FusedRewardPipeline pipeline,
                                        DynamicCDFSampler dynamicSampler,
                                        List<BigDecimal> weights) {
-        this.sequencer = sequencer;
+        this(pipeline, dynamicSampler, null, weights);
+    }
+
+    /**
+     * Variante per la modalità dinamica asincrona: gli inter-arrivi vanno all'estimatore, che
+     * aggiorna i pesi su un altro thread; {@code weights} non viene toccata durante il run.
+     */
+    public InterarrivalCollectorReward(FusedRewardPipeline pipeline,
+                                       AsyncWeightEstimator asyncEstimator,
+                                       List<BigDecimal> weights) {
+        this(pipeline, null, Objects.requireNonNull(asyncEstimator, "asyncEstimator cannot be null"), weights);
+    }
+
+    private InterarrivalCollectorReward(FusedRewardPipeline pipeline,
+                                        DynamicCDFSampler dynamicSampler,
+                                        AsyncWeightEstimator asyncEstimator,
+                                        List<BigDecimal> weights) {
+        this.sequencer = pipeline.getSequencer();
         this.dynamicSampler = dynamicSampler;
-        // NON creare una nuova lista: teniamo la stessa referenza che Main ha passato
+        this.asyncEstimator = asyncEstimator;
         this.weights = Objects.requireNonNull(weights, "weights cannot be null");
-        this.sequencer.addCurrentRunObserver(this);
+        NetIndex index = pipeline.getIndex();
+        pipeline.addFiringListener(TransitionCategory.ARRIVAL, (transition, time) ->
+                recordArrival(index.transition(transition).getName(), time));
     }
 
     @Override
@@ -64,71 +109,85 @@ public class InterarrivalCollectorReward implements Reward {
         observers.remove(observer);
     }
 
-    private void notifyObservers() {
-        for (var o : observers) {
-            o.update(RewardEvent.RUN_END);
-        }
-    }
-
     @Override
     public void update(Sequencer.SequencerEvent event) {
-        if (event == Sequencer.SequencerEvent.FIRING_EXECUTED) {
-            Succession last = sequencer.getLastSuccession();
-            if (last != null && last.getEvent().getName().startsWith("arrival")) {
-                String name = last.getEvent().getName();
-                BigDecimal time = sequencer.getCurrentRunElapsedTime();
-
-                arrivalTimes.add(time);
-                arrivalTimesByType.putIfAbsent(name, new ArrayList<>());
-                arrivalTimesByType.get(name).add(time);
-
-                arrivalCount.put(name, arrivalCount.getOrDefault(name, 0) + 1);
-
-                // Gestione aggiornamento dinamico
-                if (dynamicSampler != null) {
-                    if (arrivalTimes.size() >= 2) {
-                        int n = arrivalTimes.size();
-                        BigDecimal delta = arrivalTimes.get(n - 1).subtract(arrivalTimes.get(n - 2));
-                        // Aggiunge alla finestra interna del dynamicSampler
-                        dynamicSampler.addInterArrivalTime(delta);
-
-                        if (dynamicSampler.shouldUpdateWeights()) {
-                            // Chiediamo l'aggiornamento; dynamicSampler usa la sua finestra per calcolare i pesi
-                            List<BigDecimal> newWeights = dynamicSampler.updateWeights(new ArrayList<>(weights));
-                            // AGGIORNIAMO IN-PLACE la lista che Main possiede:
-                            synchronized (weights) {
-                                weights.clear();
-                                weights.addAll(newWeights);
-                            }
-                            System.out.println("Nuovi pesi: " + weights);
-                        }
-                    }
+        // gli arrivi arrivano dalla pipeline
+    }
+
+    private void recordArrival(String name, double time) {
+        arrivalTotal++;
+        TypeStats stats = arrivalsByType.computeIfAbsent(name, k -> new TypeStats());
+        if (stats.count == 0) stats.first = time;
+        stats.last = time;
+        stats.count++;
+
+        double previous = lastArrival;
+        lastArrival = time;
+        if (Double.isNaN(previous)) return;
+        double delta = time - previous;
+        interArrivals.add(delta);
+        sampleInterArrival(delta);
+
+        if (asyncEstimator != null) {
+            asyncEstimator.publish(delta);
+            // pesi nuovi dall'altro thread: si applicano qui, tra un firing e l'altro
+            long updates = asyncEstimator.updates();
+            if (weightsListener != null && updates != appliedUpdates) {
+                appliedUpdates = updates;
+                weightsListener.accept(asyncEstimator.latestWeights());
+            }
+            return;
+        }
+
+        // Gestione aggiornamento dinamico
+        if (dynamicSampler != null) {
+            // Aggiunge alla finestra interna del dynamicSampler (l'unico punto ancora in BigDecimal)
+            dynamicSampler.addInterArrivalTime(BigDecimal.valueOf(delta));
+
+            if (dynamicSampler.shouldUpdateWeights()) {
+                // Chiediamo l'aggiornamento; dynamicSampler usa la sua finestra per calcolare i pesi
+                List<BigDecimal> newWeights = dynamicSampler.updateWeights(new ArrayList<>(weights));
+                // AGGIORNIAMO IN-PLACE la lista che Main possiede:
+                synchronized (weights) {
+                    weights.clear();
+                    weights.addAll(newWeights);
                 }
+                System.out.println("Nuovi pesi: " + weights);
+                if (weightsListener != null) weightsListener.accept(newWeights);
             }
         }
-        notifyObservers();
     }
 
-    /**  Per salvare il grafico della CDF */
+    /**
+     * Chiamato sul thread di simulazione con i pesi appena stimati (modalità dinamica), così il run
+     * in corso può usarli subito invece che dal round successivo.
+     */
+    public void setWeightsListener(Consumer<List<BigDecimal>> weightsListener) {
+        this.weightsListener = weightsListener;
+    }
+
+    /** Algoritmo R: ogni inter-arrivo resta nel campione con probabilità RESERVOIR_SIZE / visti. */
+    private void sampleInterArrival(double value) {
+        interArrivalCount++;
+        if (interArrivalCount <= RESERVOIR_SIZE) {
+            reservoir[(int) interArrivalCount - 1] = value;
+        } else {
+            long slot = reservoirRandom.nextLong(interArrivalCount);
+            if (slot < RESERVOIR_SIZE) reservoir[(int) slot] = value;
+        }
+    }
+
+    /**  Per salvare il grafico della CDF (CDF_POINTS quantili dello sketch, non un punto per arrivo) */
     public void reportCDF(String outputPngPath) {
-        if (arrivalTimes.size() < 2) {
+        if (interArrivals.count() < 1) {
             System.out.println("⚠️  Pochi arrivi per calcolare inter-arrival.");
             return;
         }
 
-        List<BigDecimal> inters = new ArrayList<>();
-        for (int i = 1; i < arrivalTimes.size(); i++) {
-            inters.add(arrivalTimes.get(i).subtract(arrivalTimes.get(i - 1)));
-        }
-
-        List<BigDecimal> cdf = FunctionsCalculator.calculateCDF(inters);
-
         XYSeries series = new XYSeries("Empirical CDF");
-        for (int i = 0; i < inters.size(); i++) {
-            series.add(
-                    inters.get(i).doubleValue(),
-                    cdf.get(i).doubleValue()
-            );
+        for (int i = 0; i <= CDF_POINTS; i++) {
+            double p = (double) i / CDF_POINTS;
+            series.add(interArrivals.quantile(p), p);
         }
         var dataset = new XYSeriesCollection(series);
 
@@ -153,26 +212,20 @@ public class InterarrivalCollectorReward implements Reward {
 
     /** Per stampare statistiche di arrivo */
     public void reportArrivalStats() {
-        int totalArrivals = arrivalCount.values().stream().mapToInt(i -> i).sum();
-
         System.out.println("\n==== ARRIVAL STATS ====");
-        for (var entry : arrivalTimesByType.entrySet()) {
+        for (var entry : arrivalsByType.entrySet()) {
             String label = entry.getKey();
-            List<BigDecimal> times = entry.getValue();
-            if (times.size() < 2) continue;
-
-            List<BigDecimal> inters = new ArrayList<>();
-            for (int i = 1; i < times.size(); i++) {
-                inters.add(times.get(i).subtract(times.get(i - 1)));
-            }
-
-            BigDecimal sum = inters.stream().reduce(BigDecimal.ZERO, BigDecimal::add);
-            BigDecimal avg = sum.divide(BigDecimal.valueOf(inters.size()), 6, RoundingMode.HALF_UP);
+            TypeStats stats = entry.getValue();
+            if (stats.count < 2) continue;
 
-            double perc = 100.0 * arrivalCount.get(label) / (double) totalArrivals;
+            double avg = (stats.last - stats.first) / (stats.count - 1);
+            double perc = 100.0 * stats.count / (double) arrivalTotal;
 
             System.out.printf("%s: count=%d (%.2f%%), avg interarrival = %.4f%n",
-                    label, arrivalCount.get(label), perc, avg.doubleValue());
+                    label, stats.count, perc, avg);
+        }
+        if (interArrivals.count() > 0) {
+            System.out.println("Inter-arrivi: " + interArrivals.summary());
         }
     }
 
@@ -188,9 +241,18 @@ public class InterarrivalCollectorReward implements Reward {
     }
 
     /**
-     * Ritorna i tempi di arrivo (utile se Main vuole leggerli).
+     * Sketch degli inter-arrivi (utile se Main vuole fare istogrammi, fit o fonderlo con altri run).
      */
-    public List<BigDecimal> getArrivalTimes() {
-        return new ArrayList<>(arrivalTimes);
+    public QuantileSketch getInterArrivals() {
+        return interArrivals;
+    }
+
+    /** Distribuzione empirica del campione di inter-arrivi (tutti, se sono al più 10000). */
+    public EmpiricalDistribution getInterArrivalSample() {
+        return EmpiricalDistribution.of(reservoir, (int) Math.min(interArrivalCount, RESERVOIR_SIZE));
+    }
+
+    public long getArrivalCount() {
+        return arrivalTotal;
     }
 }
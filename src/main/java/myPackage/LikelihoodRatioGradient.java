@@ -0,0 +1,240 @@
+package myPackage;
+
+import org.oristool.petrinet.Marking;
+import org.oristool.simulator.Sequencer;
+import org.oristool.simulator.rewards.DiscreteRewardTime;
+import org.oristool.simulator.rewards.Reward;
+import org.oristool.simulator.rewards.RewardObserver;
+import org.oristool.simulator.rewards.RewardTime;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Derivate di blocco e abbandono rispetto ai tassi delle transizioni esponenziali, stimate nello
+ * stesso run con il metodo likelihood ratio (score function), invece di 2 run per parametro alle
+ * differenze finite.
+ *
+ * Un parametro θ è un gruppo di transizioni con tasso θ·g_t(m) (es. arrival_i e blocked_i per
+ * λ_i). Il suo score relativo al tempo s è S(s) = N(s) − ∫₀ˢ Σ_t θ·g_t(m(u)) du, con N il numero
+ * di firing del gruppo: è θ·∂/∂θ del logaritmo della verosimiglianza del cammino della CTMC.
+ *
+ * Per i conteggi di una categoria si accumula D_c = Σ_j S(τ_j) sui firing j della categoria,
+ * score letto subito dopo il firing (forma causale): D_c / θ stima senza distorsione dE[N_c]/dθ.
+ * Blocco e abbandono del run sono invece rapporti di conteggi: la regola del quoziente applicata
+ * ai conteggi del singolo run è distorta (D_c e i conteggi sono correlati), quindi per loro si usa
+ * R · S(T) / θ, che stima dE[R]/dθ. Con più repliche conviene sottrarre a R la sua media
+ * ({@link #baselineCorrected}): E[S(T)] = 0, la media non cambia e la varianza cala molto.
+ *
+ * La marcatura è ricostruita dai firing a partire da quella iniziale, quindi la classe funziona
+ * con qualunque motore che alimenta la {@link FusedRewardPipeline}; con il tau-leaping i tempi
+ * dei firing sono approssimati e lo stimatore non è più corretto. La varianza cresce con
+ * l'orizzonte: conviene mediare su più repliche.
+ */
+public class LikelihoodRatioGradient implements Reward {
+    private static final TransitionCategory[] CATEGORIES = TransitionCategory.values();
+
+    private final FusedRewardPipeline pipeline;
+    private final ExponentialNet net;
+    private final List<RewardObserver> observers = new ArrayList<>();
+
+    // parametri: nome, θ (tasso base della prima transizione), transizione -> parametro
+    private final List<String> names = new ArrayList<>();
+    private double[] theta = new double[0];
+    private final int[] parameterOf;
+
+    // stato del run
+    private final int[] tokens;
+    private Marking marking = new Marking();
+    private final double[] rate;
+    private double[] groupRate = new double[0];
+    private double[] score = new double[0];
+    private double[][] countDerivative = new double[0][];
+    private double lastTime = 0.0;
+
+    public LikelihoodRatioGradient(FusedRewardPipeline pipeline) {
+        this.pipeline = pipeline;
+        this.net = new ExponentialNet(pipeline.getIndex());
+        this.parameterOf = new int[net.transitionCount()];
+        Arrays.fill(parameterOf, -1);
+        this.rate = new double[net.transitionCount()];
+        this.tokens = new int[net.placeCount()];
+        pipeline.addRunListener(this::beginRun);
+        for (TransitionCategory c : CATEGORIES) {
+            pipeline.addFiringListener(c, this::onFiring);
+        }
+    }
+
+    /** Parametri della rete di {@link SimulationSetup}: service, abandon e λ_i (arrival_i + blocked_i). */
+    public static LikelihoodRatioGradient forSimulationSetup(FusedRewardPipeline pipeline) {
+        LikelihoodRatioGradient gradient = new LikelihoodRatioGradient(pipeline);
+        NetIndex index = pipeline.getIndex();
+        gradient.addParameter("service", "service");
+        gradient.addParameter("abandon", "abandon");
+        // le fasi con peso nullo non hanno transizioni: si scorrono tutti gli indici possibili
+        for (int i = 1; i <= index.transitionCount(); i++) {
+            if (!index.hasTransition("arrival" + i)) continue;
+            if (index.hasTransition("blocked" + i)) {
+                gradient.addParameter("lambda" + i, "arrival" + i, "blocked" + i);
+            } else {
+                gradient.addParameter("lambda" + i, "arrival" + i);
+            }
+        }
+        return gradient;
+    }
+
+    /**
+     * Aggiunge un parametro che scala i tassi delle transizioni indicate; la derivata è rispetto
+     * al tasso base della prima. Va chiamato prima del run.
+     */
+    public int addParameter(String name, String... transitions) {
+        if (transitions.length == 0) {
+            throw new IllegalArgumentException("Parametro senza transizioni: " + name);
+        }
+        int id = names.size();
+        for (String transition : transitions) {
+            int t = pipeline.getIndex().transitionId(transition);
+            if (parameterOf[t] >= 0) {
+                throw new IllegalArgumentException("Transizione già assegnata a " + names.get(parameterOf[t]) + ": " + transition);
+            }
+            parameterOf[t] = id;
+        }
+        names.add(name);
+        theta = Arrays.copyOf(theta, id + 1);
+        theta[id] = net.baseRate(pipeline.getIndex().transitionId(transitions[0]));
+        groupRate = new double[id + 1];
+        score = new double[id + 1];
+        countDerivative = new double[id + 1][CATEGORIES.length];
+        return id;
+    }
+
+    private void beginRun(Marking initialMarking) {
+        marking = new Marking(initialMarking);
+        for (int p = 0; p < tokens.length; p++) {
+            tokens[p] = initialMarking.getTokens(pipeline.getIndex().place(p));
+        }
+        Arrays.fill(groupRate, 0.0);
+        Arrays.fill(score, 0.0);
+        for (double[] d : countDerivative) Arrays.fill(d, 0.0);
+        lastTime = 0.0;
+        for (int t = 0; t < rate.length; t++) {
+            if (parameterOf[t] < 0) continue;
+            rate[t] = net.rate(t, tokens, marking);
+            groupRate[parameterOf[t]] += rate[t];
+        }
+    }
+
+    private void onFiring(int transition, double time) {
+        double dt = time - lastTime;
+        for (int p = 0; p < score.length; p++) {
+            score[p] -= groupRate[p] * dt;
+        }
+        lastTime = time;
+        if (parameterOf[transition] >= 0) score[parameterOf[transition]] += 1.0;
+        int category = net.category(transition).ordinal();
+        for (int p = 0; p < score.length; p++) {
+            countDerivative[p][category] += score[p];
+        }
+
+        net.fire(transition, tokens);
+        net.syncMarking(marking, tokens, net.changedPlaces(transition));
+        for (int t : net.affectedBy(transition)) {
+            int p = parameterOf[t];
+            if (p < 0) continue;
+            double updated = net.rate(t, tokens, marking);
+            groupRate[p] += updated - rate[t];
+            rate[t] = updated;
+        }
+    }
+
+    public List<String> parameters() {
+        return names;
+    }
+
+    /** Stima di dE[N_c]/dθ: derivata del numero di firing della categoria. */
+    public double countDerivative(int parameter, TransitionCategory category) {
+        return countDerivative[parameter][category.ordinal()] / theta[parameter];
+    }
+
+    /** Score del run (diviso per θ): ∂/∂θ del logaritmo della verosimiglianza del cammino. */
+    public double score(int parameter) {
+        return score[parameter] / theta[parameter];
+    }
+
+    /** Stima di dE[P(blocco)]/dθ dal solo run: P(blocco) · score. */
+    public double blockDerivative(int parameter) {
+        return blockProbability() * score(parameter);
+    }
+
+    /** Stima di dE[abbandoni / arrivi]/dθ dal solo run. */
+    public double abandonDerivative(int parameter) {
+        long arrivals = pipeline.count(TransitionCategory.ARRIVAL);
+        double abandonRate = arrivals > 0 ? (double) pipeline.count(TransitionCategory.ABANDON) / arrivals : 0.0;
+        return abandonRate * score(parameter);
+    }
+
+    private double blockProbability() {
+        long blocked = pipeline.count(TransitionCategory.BLOCKED);
+        long attempts = blocked + pipeline.count(TransitionCategory.ARRIVAL);
+        return attempts > 0 ? (double) blocked / attempts : 0.0;
+    }
+
+    /**
+     * Stime per replica di dE[R]/dθ con la media delle repliche come baseline: (R_i − R̄) · S_i.
+     * La loro media e il suo CI valgono come per le repliche indipendenti.
+     */
+    public static double[] baselineCorrected(double[] rewards, double[] scores) {
+        if (rewards.length != scores.length) {
+            throw new IllegalArgumentException("Reward e score con lunghezze diverse: " + rewards.length + " e " + scores.length);
+        }
+        double mean = ReplicationStatistics.mean(rewards);
+        double[] corrected = new double[rewards.length];
+        for (int i = 0; i < rewards.length; i++) {
+            corrected[i] = (rewards[i] - mean) * scores[i];
+        }
+        return corrected;
+    }
+
+    /** Tasso base rispetto a cui è calcolata la derivata del parametro. */
+    public double theta(int parameter) {
+        return theta[parameter];
+    }
+
+    /** Derivate della probabilità di blocco, per parametro. */
+    @Override
+    public Object evaluate() {
+        Map<String, Double> derivatives = new LinkedHashMap<>();
+        for (int p = 0; p < names.size(); p++) {
+            derivatives.put(names.get(p), blockDerivative(p));
+        }
+        return derivatives;
+    }
+
+    @Override
+    public Sequencer getSequencer() {
+        return pipeline.getSequencer();
+    }
+
+    @Override
+    public RewardTime getRewardTime() {
+        return new DiscreteRewardTime();
+    }
+
+    @Override
+    public void update(Sequencer.SequencerEvent event) {
+        // alimentata dalla pipeline (run listener e firing listener)
+    }
+
+    @Override
+    public void addObserver(RewardObserver observer) {
+        observers.add(observer);
+    }
+
+    @Override
+    public void removeObserver(RewardObserver observer) {
+        observers.remove(observer);
+    }
+}
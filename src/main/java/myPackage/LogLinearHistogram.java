@@ -0,0 +1,121 @@
+package myPackage;
+
+import java.util.Arrays;
+
+/**
+ * Istogramma log-lineare in stile HDR per valori positivi (tempi): ogni potenza di 2 è divisa
+ * in 2^{@code subBucketBits} sotto-intervalli uguali, quindi l'errore relativo dei quantili è
+ * al più 2^-subBucketBits indipendentemente dalla scala. La memoria è fissa (un long per
+ * bucket) e due istogrammi con la stessa configurazione si sommano con {@link #merge}.
+ *
+ * I valori sotto 2^minExponent finiscono nel primo bucket, quelli oltre 2^(maxExponent+1)
+ * nell'ultimo; media, minimo e massimo sono invece esatti.
+ */
+public class LogLinearHistogram {
+    private final int minExponent;
+    private final int maxExponent;
+    private final int subBucketBits;
+    private final long[] counts;
+    private long total;
+    private double sum;
+    private double min = Double.POSITIVE_INFINITY;
+    private double max = Double.NEGATIVE_INFINITY;
+
+    /** Da ~1e-6 a ~1e6 con errore relativo ≤ 1/128. */
+    public LogLinearHistogram() {
+        this(-20, 20, 7);
+    }
+
+    public LogLinearHistogram(int minExponent, int maxExponent, int subBucketBits) {
+        if (minExponent > maxExponent || subBucketBits < 0 || subBucketBits > 16) {
+            throw new IllegalArgumentException("Configurazione dell'istogramma non valida");
+        }
+        this.minExponent = minExponent;
+        this.maxExponent = maxExponent;
+        this.subBucketBits = subBucketBits;
+        this.counts = new long[(maxExponent - minExponent + 1) << subBucketBits];
+    }
+
+    public void record(double value) {
+        counts[bucket(value)]++;
+        total++;
+        sum += value;
+        min = Math.min(min, value);
+        max = Math.max(max, value);
+    }
+
+    private int bucket(double value) {
+        if (!(value > 0)) return 0;
+        int exponent = Math.getExponent(value);
+        if (exponent < minExponent) return 0;
+        if (exponent > maxExponent) return counts.length - 1;
+        long mantissa = Double.doubleToRawLongBits(value) & 0x000FFFFFFFFFFFFFL;
+        int sub = (int) (mantissa >>> (52 - subBucketBits));
+        return ((exponent - minExponent) << subBucketBits) | sub;
+    }
+
+    /** Punto medio del bucket. */
+    private double bucketValue(int bucket) {
+        int exponent = (bucket >>> subBucketBits) + minExponent;
+        int sub = bucket & ((1 << subBucketBits) - 1);
+        return Math.scalb(1.0 + (sub + 0.5) / (1 << subBucketBits), exponent);
+    }
+
+    public void merge(LogLinearHistogram other) {
+        if (other.minExponent != minExponent || other.maxExponent != maxExponent
+                || other.subBucketBits != subBucketBits) {
+            throw new IllegalArgumentException("Istogrammi con configurazioni diverse");
+        }
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] += other.counts[i];
+        }
+        total += other.total;
+        sum += other.sum;
+        min = Math.min(min, other.min);
+        max = Math.max(max, other.max);
+    }
+
+    public void reset() {
+        Arrays.fill(counts, 0L);
+        total = 0;
+        sum = 0.0;
+        min = Double.POSITIVE_INFINITY;
+        max = Double.NEGATIVE_INFINITY;
+    }
+
+    public long count() {
+        return total;
+    }
+
+    public double mean() {
+        return total > 0 ? sum / total : Double.NaN;
+    }
+
+    public double min() {
+        return total > 0 ? min : Double.NaN;
+    }
+
+    public double max() {
+        return total > 0 ? max : Double.NaN;
+    }
+
+    /** Quantile q ∈ [0, 1], limitato a [min, max]. */
+    public double quantile(double q) {
+        if (total == 0) return Double.NaN;
+        long rank = Math.max(1, (long) Math.ceil(q * total));
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return Math.min(max, Math.max(min, bucketValue(i)));
+            }
+        }
+        return max;
+    }
+
+    /** Riga riassuntiva con p50 / p99 / p999. */
+    public String summary() {
+        return String.format("n=%d media=%.4f p50=%.4f p99=%.4f p999=%.4f max=%.4f",
+                total, mean(), quantile(0.50), quantile(0.99), quantile(0.999), max());
+    }
+}
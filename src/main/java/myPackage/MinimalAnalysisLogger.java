@@ -4,6 +4,20 @@ import org.oristool.analyzer.log.AnalysisLogger;
 
 
 public class MinimalAnalysisLogger implements AnalysisLogger {
+    // false per i run senza console (repliche, ottimizzazione): il debug stampa una riga per firing
+    private final boolean debug;
+
+    public MinimalAnalysisLogger() {
+        this(true);
+    }
+
+    public MinimalAnalysisLogger(boolean debug) {
+        this.debug = debug;
+    }
+
+    public boolean isDebug() {
+        return debug;
+    }
 
     @Override
     public void log(String message) {
@@ -14,7 +28,7 @@ public class MinimalAnalysisLogger implements AnalysisLogger {
     @Override
     public void debug(String message) {
         // Stampa solo i messaggi di debug su console
-        System.out.println("[DEBUG] " + message);
+        if (debug) System.out.println("[DEBUG] " + message);
     }
 
     public void info(String message) {
@@ -0,0 +1,101 @@
+package myPackage;
+
+import org.oristool.petrinet.Marking;
+import org.oristool.petrinet.PetriNet;
+import org.oristool.petrinet.Place;
+import org.oristool.petrinet.Transition;
+
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/**
+ * Indici interi di posti e transizioni di una PetriNet, risolti una sola volta al setup.
+ * Le reward lavorano sugli id invece di cercare i posti per nome ad ogni firing.
+ */
+public class NetIndex {
+    private final PetriNet net;
+    private final Place[] places;
+    private final Transition[] transitions;
+    private final Map<String, Integer> placeIds = new HashMap<>();
+    private final Map<String, Integer> transitionIds = new HashMap<>();
+    private final Map<Object, Integer> transitionIdsByRef = new IdentityHashMap<>();
+
+    public NetIndex(PetriNet net) {
+        this.net = net;
+        this.places = net.getPlaces().toArray(new Place[0]);
+        this.transitions = net.getTransitions().toArray(new Transition[0]);
+        for (int i = 0; i < places.length; i++) {
+            placeIds.put(places[i].getName(), i);
+        }
+        for (int i = 0; i < transitions.length; i++) {
+            transitionIds.put(transitions[i].getName(), i);
+            transitionIdsByRef.put(transitions[i], i);
+        }
+    }
+
+    public PetriNet getNet() {
+        return net;
+    }
+
+    public int placeCount() {
+        return places.length;
+    }
+
+    public int transitionCount() {
+        return transitions.length;
+    }
+
+    public Place place(int id) {
+        return places[id];
+    }
+
+    public Transition transition(int id) {
+        return transitions[id];
+    }
+
+    public int placeId(String name) {
+        Integer id = placeIds.get(name);
+        if (id == null) {
+            throw new IllegalArgumentException("Posto inesistente nella rete: " + name);
+        }
+        return id;
+    }
+
+    public boolean hasPlace(String name) {
+        return placeIds.containsKey(name);
+    }
+
+    public boolean hasTransition(String name) {
+        return transitionIds.containsKey(name);
+    }
+
+    public int transitionId(String name) {
+        Integer id = transitionIds.get(name);
+        if (id == null) {
+            throw new IllegalArgumentException("Transizione inesistente nella rete: " + name);
+        }
+        return id;
+    }
+
+    /** Id della transizione (per riferimento) o -1 se l'evento non appartiene alla rete. */
+    public int transitionId(Object event) {
+        Integer id = transitionIdsByRef.get(event);
+        return id != null ? id : -1;
+    }
+
+    /** Copia nel vettore {@code into} i token dei posti indicati. */
+    public void readTokens(Marking marking, int[] placeIds, int[] into) {
+        for (int id : placeIds) {
+            into[id] = marking.getTokens(places[id]);
+        }
+    }
+
+    public int[] toTokens(Marking marking) {
+        int[] tokens = new int[places.length];
+        for (int i = 0; i < places.length; i++) {
+            tokens[i] = marking.getTokens(places[i]);
+        }
+        return tokens;
+    }
+}
@@ -0,0 +1,60 @@
+package myPackage;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Modalità "optimize": {@code optimize <iterazioni>} con candidates=<per iterazione>,
+ * replications=<repliche CRN per candidato>, seed=, order=, maxPool=, maxQueue=,
+ * costBlock= / costAbandon= / costIdle= (pesi del costo), horizon=, engine=, threads=.
+ * Il risultato va in output/optimization.json.
+ */
+final class OptimizeMode {
+    private OptimizeMode() {
+    }
+
+    static void run(String[] args) throws IOException {
+        int iterations = CliOptions.intArgument(args, "iterazioni", 20);
+        SimulationConfig config = new SimulationConfig();
+        config.engine = SimulationEngine.of(CliOptions.option(args, "engine"));
+        config.horizon = CliOptions.doubleOption(args, "horizon", 500.0);
+        config.population = CliOptions.intOption(args, "population", config.population);
+
+        int order = CliOptions.intOption(args, "order", 4);
+        WeightOptimizer.Cost cost = new WeightOptimizer.Cost(
+                CliOptions.doubleOption(args, "costBlock", 1.0),
+                CliOptions.doubleOption(args, "costAbandon", 1.0),
+                CliOptions.doubleOption(args, "costIdle", 0.5));
+        ForkJoinPool pool = CliOptions.poolOption(args);
+
+        WeightOptimizer optimizer = new WeightOptimizer(config, cost, order,
+                CliOptions.intOption(args, "maxPool", 16), CliOptions.intOption(args, "maxQueue", 16),
+                CliOptions.intOption(args, "candidates", 24), CliOptions.intOption(args, "replications", 4),
+                CliOptions.longOption(args, "seed", 1), pool);
+
+        System.out.printf("Ottimizzazione: %d iterazioni, orizzonte %.0f, %d thread%n",
+                iterations, config.horizon, pool.getParallelism());
+        long start = System.currentTimeMillis();
+        WeightOptimizer.Evaluation best = optimizer.optimize(Main.initialWeights(order), iterations);
+        long elapsed = System.currentTimeMillis() - start;
+
+        optimizer.report();
+        System.out.println("\n==== CONFIGURAZIONE MIGLIORE ====");
+        System.out.println(best);
+        System.out.printf("Tempo: %d ms%n", elapsed);
+
+        File outDir = new File("output");
+        outDir.mkdirs();
+        Map<String, Object> json = new LinkedHashMap<>();
+        json.put("best", best);
+        json.put("history", optimizer.getHistory());
+        json.put("simulations", optimizer.simulations());
+        json.put("cacheHits", optimizer.cacheHits());
+        json.put("elapsedMillis", elapsed);
+        Main.writeJson(json, new File(outDir, "optimization.json"));
+        if (pool != ForkJoinPool.commonPool()) pool.shutdown();
+    }
+}
@@ -0,0 +1,72 @@
+package myPackage;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Scrittura dei file di output di un round (grafici PNG e JSON). Sul thread corrente, oppure
+ * (in pipeline) su un thread a parte, in ordine, mentre il round successivo sta già simulando.
+ * I task non devono toccare oggetti che la simulazione continua a modificare.
+ */
+public class OutputPipeline implements AutoCloseable {
+
+    @FunctionalInterface
+    public interface Task {
+        void run() throws IOException;
+    }
+
+    private final ExecutorService executor;
+    private final List<Future<?>> pending = new ArrayList<>();
+
+    public OutputPipeline(boolean background) {
+        this.executor = background
+                ? Executors.newSingleThreadExecutor(r -> {
+                    Thread t = new Thread(r, "output-round");
+                    t.setDaemon(true);
+                    return t;
+                })
+                : null;
+    }
+
+    public boolean isBackground() {
+        return executor != null;
+    }
+
+    public void submit(Task task) throws IOException {
+        if (executor == null) {
+            task.run();
+            return;
+        }
+        pending.add(executor.submit(() -> {
+            task.run();
+            return null;
+        }));
+    }
+
+    /** Aspetta tutti i task in coda e rilancia il primo errore. */
+    @Override
+    public void close() throws IOException {
+        if (executor == null) return;
+        executor.shutdown();
+        IOException failure = null;
+        for (Future<?> f : pending) {
+            try {
+                f.get();
+            } catch (ExecutionException e) {
+                if (failure == null) {
+                    failure = e.getCause() instanceof IOException io ? io : new IOException(e.getCause());
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrotto in attesa dei file di output", e);
+            }
+        }
+        pending.clear();
+        if (failure != null) throw failure;
+    }
+}
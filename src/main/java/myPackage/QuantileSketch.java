@@ -0,0 +1,226 @@
+package myPackage;
+
+import java.util.Arrays;
+
+/**
+ * Sketch dei quantili in memoria limitata (t-digest "merging" con funzione di scala k2).
+ *
+ * I valori arrivano in un buffer; quando è pieno vengono ordinati e fusi con i centroidi
+ * esistenti, e ogni centroide può crescere solo finché k(q) avanza al più di 1. Il numero di
+ * centroidi resta quindi dell'ordine di compression (cresce appena con log n), e le code
+ * (q vicino a 0 o 1) restano molto più precise del centro. Due sketch si fondono con
+ * {@link #merge}, ad es. per sommare repliche eseguite in parallelo.
+ *
+ * Da qui si ricavano quantili, CDF e istogrammi senza tenere i campioni.
+ */
+public class QuantileSketch {
+    public static final double DEFAULT_COMPRESSION = 200;
+
+    private final double compression;
+    private double[] means;
+    private double[] weights;
+    private double[] spareMeans;
+    private double[] spareWeights;
+    private int centroids;
+
+    private final double[] buffer;
+    private final double[] unitWeights;
+    private int buffered;
+
+    private double totalWeight;
+    private double sum;
+    private double min = Double.POSITIVE_INFINITY;
+    private double max = Double.NEGATIVE_INFINITY;
+
+    public QuantileSketch() {
+        this(DEFAULT_COMPRESSION);
+    }
+
+    public QuantileSketch(double compression) {
+        if (compression < 10) {
+            throw new IllegalArgumentException("Compressione troppo bassa: " + compression);
+        }
+        this.compression = compression;
+        int capacity = (int) Math.ceil(compression) * 2 + 10;
+        this.means = new double[capacity];
+        this.weights = new double[capacity];
+        this.spareMeans = new double[capacity];
+        this.spareWeights = new double[capacity];
+        this.buffer = new double[(int) Math.ceil(compression) * 5];
+        this.unitWeights = new double[buffer.length];
+        Arrays.fill(unitWeights, 1.0);
+    }
+
+    public void add(double value) {
+        if (Double.isNaN(value)) return;
+        buffer[buffered++] = value;
+        totalWeight++;
+        sum += value;
+        if (value < min) min = value;
+        if (value > max) max = value;
+        if (buffered == buffer.length) flush();
+    }
+
+    /** Somma a questo sketch i campioni di {@code other} (che resta invariato). */
+    public void merge(QuantileSketch other) {
+        other.flush();
+        flush();
+        if (other.centroids == 0) return;
+        totalWeight += other.totalWeight;
+        sum += other.sum;
+        min = Math.min(min, other.min);
+        max = Math.max(max, other.max);
+        compress(other.means, other.weights, other.centroids);
+    }
+
+    public long count() {
+        return (long) totalWeight;
+    }
+
+    public double mean() {
+        return totalWeight > 0 ? sum / totalWeight : Double.NaN;
+    }
+
+    public double min() {
+        return totalWeight > 0 ? min : Double.NaN;
+    }
+
+    public double max() {
+        return totalWeight > 0 ? max : Double.NaN;
+    }
+
+    /** Centroidi attuali (dà un'idea della memoria usata). */
+    public int size() {
+        flush();
+        return centroids;
+    }
+
+    private void flush() {
+        if (buffered == 0) return;
+        Arrays.sort(buffer, 0, buffered);
+        int n = buffered;
+        buffered = 0;
+        compress(buffer, unitWeights, n);
+    }
+
+    /** Fonde i centroidi attuali con quelli (ordinati) passati, rispettando il limite di k2. */
+    private void compress(double[] inMeans, double[] inWeights, int inCount) {
+        double[] outMeans = spareMeans;
+        double[] outWeights = spareWeights;
+        int out = 0;
+
+        int i = 0, j = 0;
+        double before = 0.0;
+        double limit = 0.0;
+        double curMean = 0.0, curWeight = 0.0;
+        while (i < centroids || j < inCount) {
+            double m, w;
+            if (j >= inCount || (i < centroids && means[i] <= inMeans[j])) {
+                m = means[i];
+                w = weights[i++];
+            } else {
+                m = inMeans[j];
+                w = inWeights[j++];
+            }
+            if (curWeight > 0.0 && before + curWeight + w <= limit) {
+                curWeight += w;
+                curMean += (m - curMean) * w / curWeight;
+                continue;
+            }
+            if (curWeight > 0.0) {
+                outMeans[out] = curMean;
+                outWeights[out++] = curWeight;
+                before += curWeight;
+            }
+            curMean = m;
+            curWeight = w;
+            // peso cumulato massimo per il nuovo centroide: k(q) può avanzare al più di 1
+            limit = totalWeight * upperQuantile(before / totalWeight);
+        }
+        if (curWeight > 0.0) {
+            outMeans[out] = curMean;
+            outWeights[out++] = curWeight;
+        }
+        spareMeans = means;
+        spareWeights = weights;
+        means = outMeans;
+        weights = outWeights;
+        centroids = out;
+    }
+
+    /**
+     * q' tale che k2(q') = k2(q) + 1, con k2(q) = compression / Z · ln(q / (1 - q)) e
+     * Z = 4 ln(n / compression) + 24: i centroidi si restringono in modo logaritmico verso
+     * entrambe le code, quindi p99 / p999 restano precisi anche con milioni di campioni.
+     */
+    private double upperQuantile(double q) {
+        if (q <= 0.0) return 0.0;
+        if (q >= 1.0) return 1.0;
+        double normalizer = 4 * Math.log(Math.max(1.0, totalWeight / compression)) + 24;
+        double k = Math.log(q / (1 - q)) + normalizer / compression;
+        return 1 / (1 + Math.exp(-k));
+    }
+
+    /** Quantile q ∈ [0, 1], interpolando linearmente tra i centri dei centroidi. */
+    public double quantile(double q) {
+        flush();
+        if (centroids == 0) return Double.NaN;
+        if (centroids == 1) return means[0];
+        double index = Math.min(1.0, Math.max(0.0, q)) * totalWeight;
+        if (index < weights[0] / 2) {
+            return min + (means[0] - min) * index / (weights[0] / 2);
+        }
+        double cumulative = weights[0] / 2;
+        for (int i = 0; i < centroids - 1; i++) {
+            double step = (weights[i] + weights[i + 1]) / 2;
+            if (index < cumulative + step) {
+                return means[i] + (means[i + 1] - means[i]) * (index - cumulative) / step;
+            }
+            cumulative += step;
+        }
+        double last = weights[centroids - 1] / 2;
+        return means[centroids - 1] + (max - means[centroids - 1]) * Math.min(1.0, (index - cumulative) / last);
+    }
+
+    /** Frazione dei campioni ≤ x. */
+    public double cdf(double x) {
+        flush();
+        if (centroids == 0) return Double.NaN;
+        if (x < min) return 0.0;
+        if (x >= max) return 1.0;
+        if (centroids == 1) return (x - min) / (max - min);
+        if (x < means[0]) {
+            return (x - min) / (means[0] - min) * weights[0] / 2 / totalWeight;
+        }
+        double cumulative = weights[0] / 2;
+        for (int i = 0; i < centroids - 1; i++) {
+            if (x < means[i + 1]) {
+                double gap = means[i + 1] - means[i];
+                double fraction = gap > 0 ? (x - means[i]) / gap : 1.0;
+                return (cumulative + fraction * (weights[i] + weights[i + 1]) / 2) / totalWeight;
+            }
+            cumulative += (weights[i] + weights[i + 1]) / 2;
+        }
+        double last = means[centroids - 1];
+        return (cumulative + (x - last) / (max - last) * weights[centroids - 1] / 2) / totalWeight;
+    }
+
+    /** Conteggi stimati in {@code buckets} intervalli uguali tra min e max. */
+    public double[] histogram(int buckets) {
+        double[] counts = new double[buckets];
+        if (totalWeight == 0) return counts;
+        double range = max > min ? max - min : 1.0;
+        double previous = 0.0;
+        for (int b = 0; b < buckets; b++) {
+            double next = b == buckets - 1 ? 1.0 : cdf(min + range * (b + 1) / buckets);
+            counts[b] = (next - previous) * totalWeight;
+            previous = next;
+        }
+        return counts;
+    }
+
+    public String summary() {
+        return String.format("n=%d media=%.4f p50=%.4f p90=%.4f p99=%.4f (%d centroidi)",
+                count(), mean(), quantile(0.50), quantile(0.90), quantile(0.99), size());
+    }
+}
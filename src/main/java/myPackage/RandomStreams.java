@@ -0,0 +1,154 @@
+package myPackage;
+
+import org.oristool.math.function.EXP;
+import org.oristool.models.stpn.trees.StochasticTransitionFeature;
+import org.oristool.petrinet.PetriNet;
+import org.oristool.petrinet.Transition;
+import org.oristool.simulator.stpn.SamplerFeature;
+
+import java.math.BigDecimal;
+import java.util.Random;
+import java.util.SplittableRandom;
+
+/**
+ * Flussi di numeri casuali indipendenti per transizione, derivati da (seed, replica, nome).
+ *
+ * Con lo stesso seed e la stessa replica ogni transizione riceve la stessa sequenza di
+ * uniformi anche se i tassi cambiano (numeri casuali comuni tra configurazioni di pesi diverse);
+ * con {@link #antithetic()} ogni uniforme u diventa 1 - u (variabili antitetiche).
+ */
+public class RandomStreams {
+    private final long seed;
+    private final long replication;
+    private final boolean antithetic;
+
+    public RandomStreams(long seed, long replication, boolean antithetic) {
+        this.seed = seed;
+        this.replication = replication;
+        this.antithetic = antithetic;
+    }
+
+    public RandomStreams(long seed) {
+        this(seed, 0, false);
+    }
+
+    /** Stessi flussi, uniformi complementari: la replica antitetica di questa. */
+    public RandomStreams antithetic() {
+        return new RandomStreams(seed, replication, !antithetic);
+    }
+
+    /** Flussi indipendenti per un'altra replica. */
+    public RandomStreams replication(long replication) {
+        return new RandomStreams(seed, replication, antithetic);
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    public long getReplication() {
+        return replication;
+    }
+
+    public boolean isAntithetic() {
+        return antithetic;
+    }
+
+    public Stream stream(String name) {
+        return new Stream(mix(mix(seed ^ 0x9E3779B97F4A7C15L * (replication + 1)) ^ name.hashCode()), antithetic);
+    }
+
+    /** Random per le scelte del sequencer tra transizioni con lo stesso tempo di sparo. */
+    public Random tieBreaker() {
+        return new Random(mix(seed + 31 * replication));
+    }
+
+    /**
+     * Installa su ogni transizione esponenziale un sampler che usa il proprio flusso.
+     * Il Sequencer non sovrascrive i SamplerFeature già presenti.
+     */
+    public void install(PetriNet net) {
+        for (Transition t : net.getTransitions()) {
+            if (t.hasFeature(SamplerFeature.class) || !t.hasFeature(StochasticTransitionFeature.class)) {
+                continue;
+            }
+            var s = t.getFeature(StochasticTransitionFeature.class);
+            if (s.density() instanceof EXP) {
+                BigDecimal lambda = ((EXP) s.density()).getLambda();
+                t.addFeature(new SamplerFeature(new StreamExponentialSampler(lambda.doubleValue(), stream(t.getName()))));
+            }
+        }
+    }
+
+    /** Finalizzatore di SplitMix64. */
+    static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    /** Flusso di uniformi in (0,1], eventualmente antitetico. */
+    public static class Stream {
+        private final SplittableRandom random;
+        private final boolean antithetic;
+
+        Stream(long seed, boolean antithetic) {
+            this.random = new SplittableRandom(seed);
+            this.antithetic = antithetic;
+        }
+
+        public double nextUniform() {
+            double u = random.nextDouble();
+            // nextDouble è in [0,1): restituiamo valori in (0,1] per poter usare log(u)
+            return antithetic ? u == 0.0 ? Double.MIN_VALUE : u : 1.0 - u;
+        }
+
+        public double nextExponential(double rate) {
+            return -Math.log(nextUniform()) / rate;
+        }
+
+        /** Poisson(mean): inversione per medie piccole, PTRS (Hörmann) altrimenti. */
+        public long nextPoisson(double mean) {
+            if (mean <= 0.0) return 0;
+            if (mean < 10.0) {
+                double limit = Math.exp(-mean);
+                double product = nextUniform();
+                long k = 0;
+                while (product > limit) {
+                    product *= nextUniform();
+                    k++;
+                }
+                return k;
+            }
+            double sqrtMean = Math.sqrt(mean);
+            double logMean = Math.log(mean);
+            double b = 0.931 + 2.53 * sqrtMean;
+            double a = -0.059 + 0.02483 * b;
+            double invAlpha = 1.1239 + 1.1328 / (b - 3.4);
+            double vr = 0.9277 - 3.6224 / (b - 2);
+            while (true) {
+                double u = nextUniform() - 0.5;
+                double v = nextUniform();
+                double us = 0.5 - Math.abs(u);
+                long k = (long) Math.floor((2 * a / us + b) * u + mean + 0.43);
+                if (us >= 0.07 && v <= vr) return k;
+                if (k < 0 || (us < 0.013 && v > us)) continue;
+                if (Math.log(v) + Math.log(invAlpha) - Math.log(a / (us * us) + b)
+                        <= -mean + k * logMean - logFactorial(k)) {
+                    return k;
+                }
+            }
+        }
+    }
+
+    /** ln(k!) con la serie di Stirling (esatta per k piccoli). */
+    static double logFactorial(long k) {
+        if (k < 16) {
+            double f = 1.0;
+            for (long i = 2; i <= k; i++) f *= i;
+            return Math.log(f);
+        }
+        double n = k + 1.0;
+        return (n - 0.5) * Math.log(n) - n + 0.5 * Math.log(2 * Math.PI) + 1.0 / (12 * n) - 1.0 / (360 * n * n * n);
+    }
+}
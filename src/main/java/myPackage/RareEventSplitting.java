@@ -0,0 +1,264 @@
+package myPackage;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Probabilità di blocco molto piccole con lo splitting a sforzo fisso sul livello di {@code queue}.
+ *
+ * I blocchi avvengono solo a coda piena (queue ≥ queueSize = L). Con livelli l_1 < ... < l_k = L,
+ * lo stadio i parte da {@code effort} traiettorie, ognuna clonata da uno stato d'ingresso dello
+ * stadio precedente scelto a caso (al primo stadio la marcatura iniziale), e le fa avanzare finché
+ * la coda arriva a l_i (lo stato viene salvato come ingresso del prossimo stadio) o il tempo supera
+ * l'orizzonte. p_i è la frazione di successi; dagli ingressi a livello L l'ultimo stadio conta i
+ * blocchi fino all'orizzonte. E[bloccati nel run] = Π p_i · media dei bloccati dell'ultimo stadio:
+ * lo stimatore a sforzo fisso è non distorto e non ha mai bisogno di un run che veda il blocco
+ * per caso.
+ *
+ * Gli arrivi (bloccati compresi) non sono rari e vengono dalla simulazione diretta. La stima è il
+ * rapporto E[bloccati] / E[tentativi], con errore relativo dalle ripetizioni indipendenti dello
+ * splitting e dai run diretti. Solo per la rete esponenziale (sotto-rete delle fasi).
+ */
+public class RareEventSplitting {
+    private static final double CONFIDENCE = 0.95;
+
+    /** Risultato esportato in {@code output/splitting.json}. */
+    public static class Result {
+        public int queueSize;
+        public double horizon;
+        public int[] levels;
+        /** Media sulle ripetizioni di p_i = P(arrivare a l_i | arrivati a l_(i-1)). */
+        public double[] levelProbabilities;
+        /** P(la coda arriva a queueSize entro l'orizzonte). */
+        public double hitProbability;
+        public double blockedPerRun;
+        public double blockedPerRunHalfWidth;
+        public double attemptsPerRun;
+        public double attemptsPerRunHalfWidth;
+        public double blockProbability;
+        public double halfWidth;
+        public double relativeError;
+        /** Stima diretta dagli stessi run usati per i tentativi (di solito 0). */
+        public double crudeBlockProbability;
+        public int repetitions;
+        public int effort;
+        public long firings;
+        public long elapsedMillis;
+
+        @Override
+        public String toString() {
+            return String.format("P(blocco)=%.4e ± %.2e (errore relativo %.1f%%), P(coda piena)=%.4e",
+                    blockProbability, halfWidth, 100 * relativeError, hitProbability);
+        }
+    }
+
+    private final SimulationConfig config;
+    private final List<BigDecimal> weights;
+    private final int[] levels;
+    private final int effort;
+    private final int repetitions;
+    private final int directRuns;
+    private final long seed;
+    private final ForkJoinPool pool;
+
+    /**
+     * @param step        distanza tra i livelli di coda (l'ultimo è sempre queueSize)
+     * @param effort      traiettorie per stadio
+     * @param repetitions ripetizioni indipendenti dello splitting, per l'errore relativo
+     * @param directRuns  run diretti per il numero di tentativi
+     */
+    public RareEventSplitting(SimulationConfig config, List<BigDecimal> weights, int step, int effort,
+                              int repetitions, int directRuns, long seed, ForkJoinPool pool) {
+        if (config.directArrivals()) {
+            throw new IllegalArgumentException("Lo splitting richiede la rete esponenziale (sotto-rete delle fasi)");
+        }
+        if (step < 1 || effort < 1 || repetitions < 2 || directRuns < 2) {
+            throw new IllegalArgumentException("Parametri dello splitting non validi: step=" + step + ", effort=" + effort
+                    + ", repetitions=" + repetitions + ", directRuns=" + directRuns);
+        }
+        this.config = config.copy();
+        this.config.verbose = false;
+        this.weights = List.copyOf(weights);
+        this.levels = levels(config.queueSize, step);
+        this.effort = effort;
+        this.repetitions = repetitions;
+        this.directRuns = directRuns;
+        this.seed = seed;
+        this.pool = pool;
+    }
+
+    /** step, 2·step, ... e infine queueSize. */
+    static int[] levels(int queueSize, int step) {
+        if (queueSize < 1) {
+            throw new IllegalArgumentException("Dimensione della coda non valida: " + queueSize);
+        }
+        List<Integer> list = new ArrayList<>();
+        for (int l = step; l < queueSize; l += step) list.add(l);
+        list.add(queueSize);
+        return list.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    /** Esito di una ripetizione: bloccati stimati, p_i e firing simulati. */
+    private static final class Repetition {
+        double blocked;
+        double[] levelProbabilities;
+        long firings;
+    }
+
+    /** Esito dei run diretti: tentativi e bloccati per run. */
+    private static final class Direct {
+        double[] attempts;
+        double[] blocked;
+        long firings;
+    }
+
+    public Result estimate() {
+        long start = System.currentTimeMillis();
+        List<CompletableFuture<Repetition>> futures = new ArrayList<>();
+        for (int r = 0; r < repetitions; r++) {
+            RandomStreams streams = new RandomStreams(seed).replication(r);
+            futures.add(CompletableFuture.supplyAsync(() -> split(streams.stream("splitting")), pool));
+        }
+        Direct direct = direct(new RandomStreams(seed).replication(repetitions).stream("direct"));
+
+        Result result = new Result();
+        result.queueSize = config.queueSize;
+        result.horizon = config.horizon;
+        result.levels = levels.clone();
+        result.levelProbabilities = new double[levels.length];
+        result.repetitions = repetitions;
+        result.effort = effort;
+        double[] blocked = new double[repetitions];
+        for (int r = 0; r < repetitions; r++) {
+            Repetition rep = futures.get(r).join();
+            blocked[r] = rep.blocked;
+            for (int i = 0; i < levels.length; i++) {
+                result.levelProbabilities[i] += rep.levelProbabilities[i] / repetitions;
+            }
+            result.firings += rep.firings;
+        }
+        result.firings += direct.firings;
+        result.hitProbability = 1.0;
+        for (double p : result.levelProbabilities) result.hitProbability *= p;
+
+        result.blockedPerRun = ReplicationStatistics.mean(blocked);
+        result.blockedPerRunHalfWidth = ConfidenceIntervals.halfWidth(ReplicationStatistics.variance(blocked),
+                repetitions, CONFIDENCE);
+        result.attemptsPerRun = ReplicationStatistics.mean(direct.attempts);
+        result.attemptsPerRunHalfWidth = ConfidenceIntervals.halfWidth(ReplicationStatistics.variance(direct.attempts),
+                directRuns, CONFIDENCE);
+        result.blockProbability = result.attemptsPerRun > 0 ? result.blockedPerRun / result.attemptsPerRun : 0.0;
+        // numeratore e denominatore indipendenti: gli errori relativi si sommano in quadratura
+        double numerator = result.blockedPerRun > 0 ? result.blockedPerRunHalfWidth / result.blockedPerRun : 0.0;
+        double denominator = result.attemptsPerRun > 0 ? result.attemptsPerRunHalfWidth / result.attemptsPerRun : 0.0;
+        result.relativeError = Math.sqrt(numerator * numerator + denominator * denominator);
+        result.halfWidth = result.blockProbability * result.relativeError;
+        double crudeAttempts = 0.0;
+        double crudeBlocked = 0.0;
+        for (int i = 0; i < directRuns; i++) {
+            crudeAttempts += direct.attempts[i];
+            crudeBlocked += direct.blocked[i];
+        }
+        result.crudeBlockProbability = crudeAttempts > 0 ? crudeBlocked / crudeAttempts : 0.0;
+        result.elapsedMillis = System.currentTimeMillis() - start;
+        return result;
+    }
+
+    /** Una ripetizione dello splitting a sforzo fisso. */
+    private Repetition split(RandomStreams.Stream random) {
+        ExponentialNetSimulator simulator = newSimulator(random);
+        ExponentialNet net = simulator.getNet();
+        int queue = net.getIndex().placeId("queue");
+        Repetition rep = new Repetition();
+        rep.levelProbabilities = new double[levels.length];
+
+        List<ExponentialNetSimulator.State> entrances = List.of(simulator.initialState());
+        for (int i = 0; i < levels.length; i++) {
+            List<ExponentialNetSimulator.State> reached = new ArrayList<>();
+            for (int j = 0; j < effort; j++) {
+                ExponentialNetSimulator.State state = pick(entrances, random).copy();
+                while (state.tokens(queue) < levels[i]) {
+                    if (simulator.step(state) < 0 || state.time() > config.horizon) break;
+                    rep.firings++;
+                }
+                if (state.tokens(queue) >= levels[i] && state.time() <= config.horizon) reached.add(state);
+            }
+            rep.levelProbabilities[i] = (double) reached.size() / effort;
+            if (reached.isEmpty()) {
+                // nessuna traiettoria oltre questo livello: la ripetizione stima 0 bloccati
+                return rep;
+            }
+            entrances = reached;
+        }
+
+        // ultimo stadio: dagli ingressi a coda piena si contano i blocchi fino all'orizzonte
+        long blocked = 0;
+        for (int j = 0; j < effort; j++) {
+            ExponentialNetSimulator.State state = pick(entrances, random).copy();
+            while (true) {
+                int fired = simulator.step(state);
+                if (fired < 0 || state.time() > config.horizon) break;
+                rep.firings++;
+                if (net.category(fired) == TransitionCategory.BLOCKED) blocked++;
+            }
+        }
+        double hit = 1.0;
+        for (double p : rep.levelProbabilities) hit *= p;
+        rep.blocked = hit * blocked / effort;
+        return rep;
+    }
+
+    /** Run diretti fino all'orizzonte: tentativi di arrivo (bloccati compresi) e bloccati. */
+    private Direct direct(RandomStreams.Stream random) {
+        ExponentialNetSimulator simulator = newSimulator(random);
+        ExponentialNet net = simulator.getNet();
+        Direct direct = new Direct();
+        direct.attempts = new double[directRuns];
+        direct.blocked = new double[directRuns];
+        for (int r = 0; r < directRuns; r++) {
+            ExponentialNetSimulator.State state = simulator.initialState();
+            while (true) {
+                int fired = simulator.step(state);
+                if (fired < 0 || state.time() > config.horizon) break;
+                direct.firings++;
+                TransitionCategory category = net.category(fired);
+                if (category == TransitionCategory.ARRIVAL || category == TransitionCategory.BLOCKED) direct.attempts[r]++;
+                if (category == TransitionCategory.BLOCKED) direct.blocked[r]++;
+            }
+        }
+        return direct;
+    }
+
+    private ExponentialNetSimulator newSimulator(RandomStreams.Stream random) {
+        SimulationSetup setup = new SimulationSetup(weights, config, null);
+        var sequencer = setup.getSequencer();
+        return new ExponentialNetSimulator(new ExponentialNet(sequencer.getNet()), sequencer.getInitialMarking(), random);
+    }
+
+    private static ExponentialNetSimulator.State pick(List<ExponentialNetSimulator.State> states,
+                                                     RandomStreams.Stream random) {
+        int i = (int) (random.nextUniform() * states.size());
+        return states.get(Math.min(i, states.size() - 1));
+    }
+
+    public void report(Result result) {
+        System.out.println("\n==== SPLITTING SUL LIVELLO DELLA CODA ====");
+        StringBuilder line = new StringBuilder();
+        for (int i = 0; i < result.levels.length; i++) {
+            line.append(String.format("  l=%d p=%.4f", result.levels[i], result.levelProbabilities[i]));
+            if ((i + 1) % 5 == 0 || i + 1 == result.levels.length) {
+                System.out.println(line);
+                line.setLength(0);
+            }
+        }
+        System.out.printf("Bloccati per run: %.4e ± %.2e, tentativi per run: %.2f ± %.2f%n",
+                result.blockedPerRun, result.blockedPerRunHalfWidth, result.attemptsPerRun, result.attemptsPerRunHalfWidth);
+        System.out.printf("Stima diretta sugli stessi %d run: %.4e%n", directRuns, result.crudeBlockProbability);
+        System.out.printf("%d ripetizioni × %d traiettorie per stadio, %d firing, %d ms%n",
+                result.repetitions, result.effort, result.firings, result.elapsedMillis);
+        System.out.println("✅ " + result);
+    }
+}
@@ -0,0 +1,217 @@
+package myPackage;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * Espressione di tasso compilata una volta sola e valutata direttamente su un vettore di token.
+ *
+ * Le {@code MarkingExpr} testuali di oris reinterpretano l'espressione a ogni valutazione
+ * (le funzioni come {@code If} sono risolte per riflessione), e sono il costo dominante di un
+ * firing. Qui si supporta il sottoinsieme usato dalla rete: numeri, nomi di posti, + - * /,
+ * confronti, && || !, parentesi e le funzioni If, Min, Max. Per il resto
+ * {@link #compile} restituisce null e si continua a usare l'espressione di oris.
+ */
+public final class RateExpression {
+
+    private interface Node {
+        double eval(int[] tokens);
+    }
+
+    private final Node root;
+    private final int[] places;
+
+    private RateExpression(Node root, int[] places) {
+        this.root = root;
+        this.places = places;
+    }
+
+    /** Compila il testo dell'espressione; null se contiene costrutti non supportati. */
+    public static RateExpression compile(String text, NetIndex index) {
+        Parser parser = new Parser(text, index);
+        try {
+            Node root = parser.parseOr();
+            parser.skipSpaces();
+            if (parser.pos != text.length()) return null;
+            return new RateExpression(root, parser.places.stream().toArray());
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    public double evaluate(int[] tokens) {
+        return root.eval(tokens);
+    }
+
+    /** Posti letti dall'espressione. */
+    public int[] places() {
+        return places;
+    }
+
+    private static double bool(boolean b) {
+        return b ? 1.0 : 0.0;
+    }
+
+    /** Parser a discesa ricorsiva; gli errori sono segnalati con IllegalArgumentException. */
+    private static final class Parser {
+        private final String text;
+        private final NetIndex index;
+        private final BitSet places = new BitSet();
+        private int pos;
+
+        Parser(String text, NetIndex index) {
+            this.text = text;
+            this.index = index;
+        }
+
+        Node parseOr() {
+            Node left = parseAnd();
+            while (accept("||")) {
+                Node l = left, r = parseAnd();
+                left = t -> bool(l.eval(t) != 0 || r.eval(t) != 0);
+            }
+            return left;
+        }
+
+        Node parseAnd() {
+            Node left = parseComparison();
+            while (accept("&&")) {
+                Node l = left, r = parseComparison();
+                left = t -> bool(l.eval(t) != 0 && r.eval(t) != 0);
+            }
+            return left;
+        }
+
+        Node parseComparison() {
+            Node l = parseAdditive();
+            if (accept("<=")) { Node r = parseAdditive(); return t -> bool(l.eval(t) <= r.eval(t)); }
+            if (accept(">=")) { Node r = parseAdditive(); return t -> bool(l.eval(t) >= r.eval(t)); }
+            if (accept("==")) { Node r = parseAdditive(); return t -> bool(l.eval(t) == r.eval(t)); }
+            if (accept("!=")) { Node r = parseAdditive(); return t -> bool(l.eval(t) != r.eval(t)); }
+            if (accept("<")) { Node r = parseAdditive(); return t -> bool(l.eval(t) < r.eval(t)); }
+            if (accept(">")) { Node r = parseAdditive(); return t -> bool(l.eval(t) > r.eval(t)); }
+            return l;
+        }
+
+        Node parseAdditive() {
+            Node left = parseMultiplicative();
+            while (true) {
+                Node l = left;
+                if (accept("+")) {
+                    Node r = parseMultiplicative();
+                    left = t -> l.eval(t) + r.eval(t);
+                } else if (accept("-")) {
+                    Node r = parseMultiplicative();
+                    left = t -> l.eval(t) - r.eval(t);
+                } else {
+                    return left;
+                }
+            }
+        }
+
+        Node parseMultiplicative() {
+            Node left = parseUnary();
+            while (true) {
+                Node l = left;
+                if (accept("*")) {
+                    Node r = parseUnary();
+                    left = t -> l.eval(t) * r.eval(t);
+                } else if (accept("/")) {
+                    Node r = parseUnary();
+                    left = t -> l.eval(t) / r.eval(t);
+                } else {
+                    return left;
+                }
+            }
+        }
+
+        Node parseUnary() {
+            if (accept("-")) {
+                Node n = parseUnary();
+                return t -> -n.eval(t);
+            }
+            if (accept("!")) {
+                Node n = parseUnary();
+                return t -> bool(n.eval(t) == 0);
+            }
+            return parsePrimary();
+        }
+
+        Node parsePrimary() {
+            skipSpaces();
+            if (accept("(")) {
+                Node n = parseOr();
+                expect(")");
+                return n;
+            }
+            int start = pos;
+            if (pos < text.length() && (Character.isDigit(text.charAt(pos)) || text.charAt(pos) == '.')) {
+                while (pos < text.length() && (Character.isDigit(text.charAt(pos)) || text.charAt(pos) == '.'
+                        || text.charAt(pos) == 'E' || text.charAt(pos) == 'e')) {
+                    pos++;
+                }
+                double value = Double.parseDouble(text.substring(start, pos));
+                return t -> value;
+            }
+            while (pos < text.length() && (Character.isLetterOrDigit(text.charAt(pos)) || text.charAt(pos) == '_')) {
+                pos++;
+            }
+            if (start == pos) {
+                throw new IllegalArgumentException("Token inatteso in posizione " + pos);
+            }
+            String name = text.substring(start, pos);
+            if (accept("(")) {
+                return function(name);
+            }
+            if (!index.hasPlace(name)) {
+                throw new IllegalArgumentException("Identificatore sconosciuto: " + name);
+            }
+            int place = index.placeId(name);
+            places.set(place);
+            return t -> t[place];
+        }
+
+        private Node function(String name) {
+            List<Node> args = new ArrayList<>();
+            if (!accept(")")) {
+                do {
+                    args.add(parseOr());
+                } while (accept(","));
+                expect(")");
+            }
+            if (name.equals("If") && args.size() == 3) {
+                Node c = args.get(0), a = args.get(1), b = args.get(2);
+                return t -> c.eval(t) != 0 ? a.eval(t) : b.eval(t);
+            }
+            if (name.equals("Min") && args.size() == 2) {
+                Node a = args.get(0), b = args.get(1);
+                return t -> Math.min(a.eval(t), b.eval(t));
+            }
+            if (name.equals("Max") && args.size() == 2) {
+                Node a = args.get(0), b = args.get(1);
+                return t -> Math.max(a.eval(t), b.eval(t));
+            }
+            throw new IllegalArgumentException("Funzione non supportata: " + name);
+        }
+
+        void skipSpaces() {
+            while (pos < text.length() && Character.isWhitespace(text.charAt(pos))) pos++;
+        }
+
+        private boolean accept(String token) {
+            skipSpaces();
+            if (text.startsWith(token, pos)) {
+                pos += token.length();
+                return true;
+            }
+            return false;
+        }
+
+        private void expect(String token) {
+            if (!accept(token)) {
+                throw new IllegalArgumentException("Atteso '" + token + "' in posizione " + pos);
+            }
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package myPackage;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Statistiche sulle repliche (round) per metrica, con stima della riduzione di varianza delle
+ * variabili antitetiche: Var((X + X')/2) confrontata con Var(X)/2, cioè con due repliche
+ * indipendenti. Vale solo se le due repliche della coppia simulano la stessa configurazione.
+ * Una riduzione positiva indica che la tecnica ha diminuito la varianza.
+ */
+public class ReplicationStatistics {
+    private final Map<String, List<double[]>> samples = new LinkedHashMap<>();
+
+    /** Registra il valore di una replica (per le coppie antitetiche usare {@link #recordPair}). */
+    public void record(String metric, double value) {
+        samples.computeIfAbsent(metric, k -> new ArrayList<>()).add(new double[]{value});
+    }
+
+    public void recordPair(String metric, double value, double antitheticValue) {
+        samples.computeIfAbsent(metric, k -> new ArrayList<>()).add(new double[]{value, antitheticValue});
+    }
+
+    /** Metriche registrate, in ordine di prima registrazione. */
+    public Set<String> metrics() {
+        return samples.keySet();
+    }
+
+    public int count(String metric) {
+        return samples.getOrDefault(metric, List.of()).size();
+    }
+
+    /** Valori per replica (media della coppia se antitetica). */
+    public double[] values(String metric) {
+        List<double[]> list = samples.getOrDefault(metric, List.of());
+        double[] out = new double[list.size()];
+        for (int i = 0; i < out.length; i++) {
+            double[] s = list.get(i);
+            out[i] = s.length == 2 ? (s[0] + s[1]) / 2 : s[0];
+        }
+        return out;
+    }
+
+    public double mean(String metric) {
+        return mean(values(metric));
+    }
+
+    public double halfWidth(String metric, double confidence) {
+        double[] v = values(metric);
+        return ConfidenceIntervals.halfWidth(variance(v), v.length, confidence);
+    }
+
+    /** 1 − Var((X + X')/2) / (Var(X)/2), stimata sulle sole coppie; NaN con meno di 2 coppie. */
+    public double antitheticReduction(String metric) {
+        List<double[]> pairs = new ArrayList<>();
+        for (double[] s : samples.getOrDefault(metric, List.of())) {
+            if (s.length == 2) pairs.add(s);
+        }
+        if (pairs.size() < 2) return Double.NaN;
+        double[] single = new double[pairs.size() * 2];
+        double[] averaged = new double[pairs.size()];
+        for (int i = 0; i < pairs.size(); i++) {
+            single[2 * i] = pairs.get(i)[0];
+            single[2 * i + 1] = pairs.get(i)[1];
+            averaged[i] = (pairs.get(i)[0] + pairs.get(i)[1]) / 2;
+        }
+        double var = variance(single);
+        return var > 0 ? 1.0 - variance(averaged) / (var / 2) : Double.NaN;
+    }
+
+    public void report() {
+        System.out.println("\n==== STATISTICHE SULLE REPLICHE ====");
+        for (String metric : samples.keySet()) {
+            System.out.printf("%s: media=%.5f ± %.5f (n=%d)%n",
+                    metric, mean(metric), halfWidth(metric, 0.95), count(metric));
+            double anti = antitheticReduction(metric);
+            if (!Double.isNaN(anti)) {
+                System.out.printf("    riduzione varianza antitetica: %.1f%%%n", 100 * anti);
+            }
+        }
+    }
+
+    static double mean(double[] v) {
+        double s = 0;
+        for (double x : v) s += x;
+        return v.length > 0 ? s / v.length : Double.NaN;
+    }
+
+    static double variance(double[] v) {
+        if (v.length < 2) return 0.0;
+        double m = mean(v);
+        double ss = 0;
+        for (double x : v) ss += (x - m) * (x - m);
+        return ss / (v.length - 1);
+    }
+}
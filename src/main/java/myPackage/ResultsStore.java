@@ -0,0 +1,416 @@
+package myPackage;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Archivio locale dei risultati dei round, append-only e a colonne: un file per colonna sotto
+ * {@code output/store} (valori big-endian a larghezza fissa, stringhe come id di un dizionario
+ * in {@code dictionary.txt}, pesi in un'unica colonna piatta con offset e lunghezza per riga).
+ * Le colonne sono anche tenute in memoria in array primitivi: una query legge solo le colonne
+ * che usa, e gli indici per job e per configurazione evitano la scansione completa.
+ *
+ * Una riga è completa quando tutte le colonne sono state scritte; all'apertura le colonne
+ * vengono troncate al numero di righe complete (es. dopo un'interruzione a metà scrittura).
+ * C'è una sola istanza per cartella nel processo, condivisa tra simulazione ed endpoint.
+ */
+public class ResultsStore {
+    private static final Map<String, ResultsStore> OPEN = new ConcurrentHashMap<>();
+
+    /** Un round da archiviare. */
+    public static class Row {
+        public String job;
+        public String mode;
+        public String config;
+        public int round;
+        public long startedAt;
+        public long timestamp;
+        public double abbandono;
+        public double blocco;
+        public double utilizzo;
+        public double[] weights;
+    }
+
+    /** Filtri (null = nessun filtro) e limite di una query. */
+    public static class Query {
+        public String job;
+        public String config;
+        public String mode;
+        public Integer minRound;
+        public Integer maxRound;
+        public Long from;
+        public Long to;
+        public int limit = 1000;
+    }
+
+    /** Statistiche di una metrica su un gruppo di righe. */
+    public static class Stats {
+        public long count;
+        public double mean;
+        public double min = Double.POSITIVE_INFINITY;
+        public double max = Double.NEGATIVE_INFINITY;
+        public double std;
+        private transient double m2;
+
+        void add(double x) {
+            count++;
+            double delta = x - mean;
+            mean += delta / count;
+            m2 += delta * (x - mean);
+            min = Math.min(min, x);
+            max = Math.max(max, x);
+            std = count > 1 ? Math.sqrt(m2 / (count - 1)) : 0.0;
+        }
+    }
+
+    public static final List<String> METRICS = List.of("abbandono", "blocco", "utilizzo");
+    public static final List<String> GROUP_BY = List.of("job", "config", "mode", "round");
+
+    private final File directory;
+    private final List<String> dictionary = new ArrayList<>();
+    private final Map<String, Integer> dictionaryIds = new HashMap<>();
+    private final Map<Integer, IntList> byJob = new HashMap<>();
+    private final Map<Integer, IntList> byConfig = new HashMap<>();
+
+    // colonne in memoria
+    private int rows;
+    private int[] round = new int[256];
+    private long[] startedAt = new long[256];
+    private long[] timestamp = new long[256];
+    private int[] job = new int[256];
+    private int[] mode = new int[256];
+    private int[] config = new int[256];
+    private double[] abandon = new double[256];
+    private double[] block = new double[256];
+    private double[] utilization = new double[256];
+    private long[] weightsOffset = new long[256];
+    private int[] weightsCount = new int[256];
+    private double[] weights = new double[1024];
+    private int weightsSize;
+
+    private ResultsStore(File directory) throws IOException {
+        this.directory = directory;
+        directory.mkdirs();
+        load();
+    }
+
+    /** Archivio nella cartella, aperto una sola volta per processo. */
+    public static ResultsStore open(File directory) throws IOException {
+        String key = directory.getCanonicalPath();
+        ResultsStore store = OPEN.get(key);
+        if (store != null) return store;
+        synchronized (OPEN) {
+            store = OPEN.get(key);
+            if (store == null) {
+                store = new ResultsStore(directory);
+                OPEN.put(key, store);
+            }
+            return store;
+        }
+    }
+
+    /** SHA-256 esadecimale delle parti, in ordine di nome: identifica una configurazione. */
+    public static String hash(Map<String, ?> parts) {
+        StringBuilder text = new StringBuilder();
+        new TreeMap<>(parts).forEach((name, value) -> text.append(name).append('=').append(value).append('\n'));
+        try {
+            MessageDigest sha = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(sha.digest(text.toString().getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 non disponibile", e);
+        }
+    }
+
+    public synchronized int size() {
+        return rows;
+    }
+
+    public synchronized void append(Row row) throws IOException {
+        if (row.job == null || row.mode == null || row.config == null || row.weights == null) {
+            throw new IllegalArgumentException("Riga incompleta: job, mode, config e weights sono obbligatori");
+        }
+        int jobId = intern(row.job);
+        int modeId = intern(row.mode);
+        int configId = intern(row.config);
+
+        // prima i pesi, poi le colonne fisse: la riga esiste solo quando c'è anche l'ultima colonna
+        try {
+            ByteBuffer w = ByteBuffer.allocate(8 * row.weights.length);
+            for (double x : row.weights) w.putDouble(x);
+            write("weights.f64", w);
+            write("weightsOffset.i64", ByteBuffer.allocate(8).putLong(weightsSize));
+            write("weightsCount.i32", ByteBuffer.allocate(4).putInt(row.weights.length));
+            write("round.i32", ByteBuffer.allocate(4).putInt(row.round));
+            write("startedAt.i64", ByteBuffer.allocate(8).putLong(row.startedAt));
+            write("timestamp.i64", ByteBuffer.allocate(8).putLong(row.timestamp));
+            write("job.i32", ByteBuffer.allocate(4).putInt(jobId));
+            write("mode.i32", ByteBuffer.allocate(4).putInt(modeId));
+            write("config.i32", ByteBuffer.allocate(4).putInt(configId));
+            write("abandon.f64", ByteBuffer.allocate(8).putDouble(row.abbandono));
+            write("block.f64", ByteBuffer.allocate(8).putDouble(row.blocco));
+            write("utilization.f64", ByteBuffer.allocate(8).putDouble(row.utilizzo));
+        } catch (IOException e) {
+            // riga scritta a metà: le colonne tornano allineate alle righe in memoria
+            truncateToRows();
+            throw e;
+        }
+
+        add(row.round, row.startedAt, row.timestamp, jobId, modeId, configId, row.abbandono, row.blocco,
+                row.utilizzo, row.weights);
+    }
+
+    /** Righe che soddisfano i filtri (al più {@code limit}), in ordine di inserimento. */
+    public synchronized Map<String, Object> select(Query query) {
+        List<Map<String, Object>> selected = new ArrayList<>();
+        int matched = 0;
+        for (int r : candidates(query)) {
+            if (!matches(r, query)) continue;
+            matched++;
+            if (selected.size() < query.limit) selected.add(toMap(r));
+        }
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("matched", matched);
+        result.put("rows", selected);
+        return result;
+    }
+
+    /** Statistiche delle metriche per gruppo ({@code groupBy} null = un solo gruppo). */
+    public synchronized Map<String, Object> aggregate(Query query, String groupBy) {
+        if (groupBy != null && !GROUP_BY.contains(groupBy)) {
+            throw new IllegalArgumentException("Raggruppamento non valido: " + groupBy + " (ammessi: " + GROUP_BY + ")");
+        }
+        Map<String, Map<String, Stats>> groups = new TreeMap<>();
+        for (int r : candidates(query)) {
+            if (!matches(r, query)) continue;
+            String key = groupBy == null ? "tutti" : groupKey(r, groupBy);
+            Map<String, Stats> stats = groups.computeIfAbsent(key, k -> {
+                Map<String, Stats> m = new LinkedHashMap<>();
+                for (String metric : METRICS) m.put(metric, new Stats());
+                return m;
+            });
+            stats.get("abbandono").add(abandon[r]);
+            stats.get("blocco").add(block[r]);
+            stats.get("utilizzo").add(utilization[r]);
+        }
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("groupBy", groupBy);
+        result.put("groups", groups);
+        return result;
+    }
+
+    private String groupKey(int r, String groupBy) {
+        return switch (groupBy) {
+            case "job" -> dictionary.get(job[r]);
+            case "config" -> dictionary.get(config[r]);
+            case "mode" -> dictionary.get(mode[r]);
+            default -> String.format("%06d", round[r]);
+        };
+    }
+
+    /** Righe da esaminare: dall'indice se la query fissa job o configurazione, altrimenti tutte. */
+    private int[] candidates(Query query) {
+        IntList list = null;
+        if (query.job != null) {
+            Integer id = dictionaryIds.get(query.job);
+            list = id != null ? byJob.get(id) : null;
+            if (list == null) return new int[0];
+        }
+        if (query.config != null) {
+            Integer id = dictionaryIds.get(query.config);
+            IntList other = id != null ? byConfig.get(id) : null;
+            if (other == null) return new int[0];
+            if (list == null || other.size < list.size) list = other;
+        }
+        if (list != null) return Arrays.copyOf(list.values, list.size);
+        int[] all = new int[rows];
+        for (int r = 0; r < rows; r++) all[r] = r;
+        return all;
+    }
+
+    private boolean matches(int r, Query q) {
+        if (q.job != null && !dictionary.get(job[r]).equals(q.job)) return false;
+        if (q.config != null && !dictionary.get(config[r]).equals(q.config)) return false;
+        if (q.mode != null && !dictionary.get(mode[r]).equalsIgnoreCase(q.mode)) return false;
+        if (q.minRound != null && round[r] < q.minRound) return false;
+        if (q.maxRound != null && round[r] > q.maxRound) return false;
+        if (q.from != null && timestamp[r] < q.from) return false;
+        return q.to == null || timestamp[r] <= q.to;
+    }
+
+    private Map<String, Object> toMap(int r) {
+        Map<String, Object> m = new LinkedHashMap<>();
+        m.put("job", dictionary.get(job[r]));
+        m.put("round", round[r]);
+        m.put("mode", dictionary.get(mode[r]));
+        m.put("config", dictionary.get(config[r]));
+        m.put("startedAt", startedAt[r]);
+        m.put("timestamp", timestamp[r]);
+        m.put("abbandono", abandon[r]);
+        m.put("blocco", block[r]);
+        m.put("utilizzo", utilization[r]);
+        int from = (int) weightsOffset[r];
+        m.put("weights", Arrays.copyOfRange(weights, from, from + weightsCount[r]));
+        return m;
+    }
+
+    private int intern(String value) throws IOException {
+        if (value.indexOf('\n') >= 0) {
+            throw new IllegalArgumentException("Valore non archiviabile (a capo): " + value);
+        }
+        Integer id = dictionaryIds.get(value);
+        if (id != null) return id;
+        write("dictionary.txt", ByteBuffer.wrap((value + "\n").getBytes(StandardCharsets.UTF_8)));
+        dictionary.add(value);
+        dictionaryIds.put(value, dictionary.size() - 1);
+        return dictionary.size() - 1;
+    }
+
+    /** Accoda il buffer (allocato della dimensione esatta) al file della colonna. */
+    private void write(String column, ByteBuffer buffer) throws IOException {
+        buffer.rewind();
+        try (FileChannel channel = FileChannel.open(new File(directory, column).toPath(),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+            while (buffer.hasRemaining()) channel.write(buffer);
+        }
+    }
+
+    private void add(int r, long started, long time, int jobId, int modeId, int configId,
+                     double a, double b, double u, double[] w) {
+        if (rows == round.length) {
+            int size = rows * 2;
+            round = Arrays.copyOf(round, size);
+            startedAt = Arrays.copyOf(startedAt, size);
+            timestamp = Arrays.copyOf(timestamp, size);
+            job = Arrays.copyOf(job, size);
+            mode = Arrays.copyOf(mode, size);
+            config = Arrays.copyOf(config, size);
+            abandon = Arrays.copyOf(abandon, size);
+            block = Arrays.copyOf(block, size);
+            utilization = Arrays.copyOf(utilization, size);
+            weightsOffset = Arrays.copyOf(weightsOffset, size);
+            weightsCount = Arrays.copyOf(weightsCount, size);
+        }
+        if (weightsSize + w.length > weights.length) {
+            weights = Arrays.copyOf(weights, Math.max(weights.length * 2, weightsSize + w.length));
+        }
+        round[rows] = r;
+        startedAt[rows] = started;
+        timestamp[rows] = time;
+        job[rows] = jobId;
+        mode[rows] = modeId;
+        config[rows] = configId;
+        abandon[rows] = a;
+        block[rows] = b;
+        utilization[rows] = u;
+        weightsOffset[rows] = weightsSize;
+        weightsCount[rows] = w.length;
+        System.arraycopy(w, 0, weights, weightsSize, w.length);
+        weightsSize += w.length;
+        byJob.computeIfAbsent(jobId, k -> new IntList()).add(rows);
+        byConfig.computeIfAbsent(configId, k -> new IntList()).add(rows);
+        rows++;
+    }
+
+    /** Legge le colonne dal disco e le tronca all'ultima riga completa. */
+    private void load() throws IOException {
+        File dict = new File(directory, "dictionary.txt");
+        if (dict.isFile()) {
+            for (String line : Files.readAllLines(dict.toPath(), StandardCharsets.UTF_8)) {
+                dictionaryIds.put(line, dictionary.size());
+                dictionary.add(line);
+            }
+        }
+        ByteBuffer rounds = read("round.i32");
+        ByteBuffer starts = read("startedAt.i64");
+        ByteBuffer times = read("timestamp.i64");
+        ByteBuffer jobs = read("job.i32");
+        ByteBuffer modes = read("mode.i32");
+        ByteBuffer configs = read("config.i32");
+        ByteBuffer abandons = read("abandon.f64");
+        ByteBuffer blocks = read("block.f64");
+        ByteBuffer utilizations = read("utilization.f64");
+        ByteBuffer offsets = read("weightsOffset.i64");
+        ByteBuffer counts = read("weightsCount.i32");
+        ByteBuffer flat = read("weights.f64");
+
+        int complete = Integer.MAX_VALUE;
+        for (ByteBuffer b : List.of(rounds, jobs, modes, configs, counts)) complete = Math.min(complete, b.remaining() / 4);
+        for (ByteBuffer b : List.of(starts, times, abandons, blocks, utilizations, offsets)) {
+            complete = Math.min(complete, b.remaining() / 8);
+        }
+        long flatSize = flat.remaining() / 8;
+        for (int r = 0; r < complete; r++) {
+            int jobId = jobs.getInt(4 * r);
+            int modeId = modes.getInt(4 * r);
+            int configId = configs.getInt(4 * r);
+            long offset = offsets.getLong(8 * r);
+            int count = counts.getInt(4 * r);
+            if (offset + count > flatSize || jobId >= dictionary.size() || modeId >= dictionary.size()
+                    || configId >= dictionary.size()) {
+                complete = r;
+                break;
+            }
+            double[] w = new double[count];
+            for (int k = 0; k < count; k++) w[k] = flat.getDouble((int) (8 * (offset + k)));
+            add(rounds.getInt(4 * r), starts.getLong(8 * r), times.getLong(8 * r), jobId, modeId, configId,
+                    abandons.getDouble(8 * r), blocks.getDouble(8 * r), utilizations.getDouble(8 * r), w);
+        }
+        // righe incomplete: via dai file, le prossime append ripartono da qui
+        truncateToRows();
+    }
+
+    private void truncateToRows() throws IOException {
+        truncate("round.i32", 4L * rows);
+        truncate("startedAt.i64", 8L * rows);
+        truncate("timestamp.i64", 8L * rows);
+        truncate("job.i32", 4L * rows);
+        truncate("mode.i32", 4L * rows);
+        truncate("config.i32", 4L * rows);
+        truncate("abandon.f64", 8L * rows);
+        truncate("block.f64", 8L * rows);
+        truncate("utilization.f64", 8L * rows);
+        truncate("weightsOffset.i64", 8L * rows);
+        truncate("weightsCount.i32", 4L * rows);
+        truncate("weights.f64", 8L * weightsSize);
+    }
+
+    private ByteBuffer read(String column) throws IOException {
+        File file = new File(directory, column);
+        return file.isFile() ? ByteBuffer.wrap(Files.readAllBytes(file.toPath())) : ByteBuffer.allocate(0);
+    }
+
+    private void truncate(String column, long size) throws IOException {
+        File file = new File(directory, column);
+        if (!file.isFile() || file.length() <= size) return;
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.WRITE)) {
+            channel.truncate(size);
+        }
+    }
+
+    /** Lista di int crescente (indici di riga). */
+    private static final class IntList {
+        int[] values = new int[8];
+        int size;
+
+        void add(int v) {
+            if (size == values.length) values = Arrays.copyOf(values, size * 2);
+            values[size++] = v;
+        }
+    }
+}
@@ -0,0 +1,196 @@
+package myPackage;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Decide quando smettere di fare round: dopo ogni round confronta i pesi con quelli di partenza
+ * (variazione massima in valore assoluto) e guarda le semiampiezze degli intervalli di confidenza
+ * delle metriche registrate in {@link ReplicationStatistics}. Si ferma quando, dopo almeno
+ * {@code minRounds} round, i pesi sono cambiati meno di {@code weightTolerance} e ogni CI è più
+ * stretto di {@code ciTolerance}; altrimenti al raggiungimento di {@code maxRounds}.
+ *
+ * I CI sono calcolati solo sui round successivi all'ultima variazione dei pesi oltre la
+ * tolleranza: i primi round, con i pesi ancora lontani, misurano un altro sistema.
+ *
+ * Senza convergenza attiva fa solo da contatore fino a {@code maxRounds}, ma il riepilogo
+ * (variazioni dei pesi e CI) viene comunque prodotto.
+ */
+public class RoundController {
+    public static final double DEFAULT_WEIGHT_TOLERANCE = 0.005;
+    public static final double DEFAULT_CI_TOLERANCE = 0.01;
+    public static final int DEFAULT_MIN_ROUNDS = 3;
+    private static final double CONFIDENCE = 0.95;
+
+    public enum StopReason {
+        /** Pesi stabili e CI entro la tolleranza. */
+        CONVERGED,
+        /** Raggiunto il numero massimo di round (senza convergenza, o con la convergenza disattivata). */
+        MAX_ROUNDS
+    }
+
+    /** Riepilogo esportato in {@code rounds_summary.json}. */
+    public static class Summary {
+        public int rounds;
+        public int maxRounds;
+        public boolean convergence;
+        public String stopReason;
+        public String detail;
+        /** Primo round usato per medie e CI. */
+        public int stableFrom;
+        public List<Double> weightDeltas = new ArrayList<>();
+        public Map<String, Double> means = new LinkedHashMap<>();
+        public Map<String, Double> halfWidths = new LinkedHashMap<>();
+    }
+
+    private final int maxRounds;
+    private final boolean convergence;
+    private final double weightTolerance;
+    private final double ciTolerance;
+    private final int minRounds;
+    private final List<Double> weightDeltas = new ArrayList<>();
+    private int rounds;
+    private int lastMoving;
+    private StopReason stopReason;
+    private String detail;
+
+    public RoundController(int maxRounds, boolean convergence, double weightTolerance, double ciTolerance,
+                           int minRounds) {
+        if (maxRounds < 1) {
+            throw new IllegalArgumentException("Numero massimo di round non valido: " + maxRounds);
+        }
+        if (minRounds < 2) {
+            throw new IllegalArgumentException("Servono almeno 2 round per un intervallo di confidenza");
+        }
+        this.maxRounds = maxRounds;
+        this.convergence = convergence;
+        this.weightTolerance = weightTolerance;
+        this.ciTolerance = ciTolerance;
+        this.minRounds = minRounds;
+    }
+
+    /** Numero fisso di round, come prima. */
+    public RoundController(int maxRounds) {
+        this(maxRounds, false, DEFAULT_WEIGHT_TOLERANCE, DEFAULT_CI_TOLERANCE, DEFAULT_MIN_ROUNDS);
+    }
+
+    /**
+     * Registra la fine di un round e dice se farne un altro.
+     *
+     * @param before  pesi all'inizio del round
+     * @param after   pesi per il round successivo
+     * @param metrics statistiche sulle repliche, con il round appena concluso già registrato
+     */
+    public boolean next(List<BigDecimal> before, List<BigDecimal> after, ReplicationStatistics metrics) {
+        rounds++;
+        double delta = weightDelta(before, after);
+        weightDeltas.add(delta);
+        if (!(delta <= weightTolerance)) lastMoving = rounds;
+
+        if (convergence && rounds >= minRounds && delta <= weightTolerance) {
+            String wide = widestInterval(metrics);
+            if (wide == null) {
+                stopReason = StopReason.CONVERGED;
+                detail = String.format("pesi stabili (Δ=%.5f ≤ %.5f) e CI al %.0f%% entro ±%.4f dopo %d round",
+                        delta, weightTolerance, 100 * CONFIDENCE, ciTolerance, rounds);
+                return false;
+            }
+            detail = "pesi stabili, CI ancora largo: " + wide;
+        } else if (convergence) {
+            detail = rounds < minRounds
+                    ? "meno di " + minRounds + " round"
+                    : String.format("pesi ancora in movimento (Δ=%.5f > %.5f)", delta, weightTolerance);
+        }
+        if (rounds >= maxRounds) {
+            stopReason = StopReason.MAX_ROUNDS;
+            detail = convergence
+                    ? "nessuna convergenza entro " + maxRounds + " round (" + detail + ")"
+                    : "round richiesti: " + maxRounds;
+            return false;
+        }
+        return true;
+    }
+
+    /** Variazione massima dei pesi; infinita se è cambiato l'ordine BPH. */
+    static double weightDelta(List<BigDecimal> before, List<BigDecimal> after) {
+        if (before.size() != after.size()) return Double.POSITIVE_INFINITY;
+        double max = 0.0;
+        for (int i = 0; i < before.size(); i++) {
+            max = Math.max(max, Math.abs(after.get(i).doubleValue() - before.get(i).doubleValue()));
+        }
+        return max;
+    }
+
+    /** Prima metrica con CI più largo della tolleranza (con la sua semiampiezza), o null. */
+    private String widestInterval(ReplicationStatistics metrics) {
+        for (String metric : metrics.metrics()) {
+            double hw = halfWidth(metrics, metric);
+            if (!(hw <= ciTolerance)) {
+                return String.format("%s ± %.4f > %.4f", metric, hw, ciTolerance);
+            }
+        }
+        return null;
+    }
+
+    /** Valori della metrica nei round a pesi stabili (tutti se i pesi non si sono mai fermati). */
+    private double[] stableValues(ReplicationStatistics metrics, String metric) {
+        double[] values = metrics.values(metric);
+        return Arrays.copyOfRange(values, Math.min(stableStart(), values.length), values.length);
+    }
+
+    /** Indice (da 0) del primo round a pesi stabili; 0 se l'ultimo round ha ancora mosso i pesi. */
+    private int stableStart() {
+        return lastMoving < rounds ? lastMoving : 0;
+    }
+
+    private double halfWidth(ReplicationStatistics metrics, String metric) {
+        double[] v = stableValues(metrics, metric);
+        return ConfidenceIntervals.halfWidth(ReplicationStatistics.variance(v), v.length, CONFIDENCE);
+    }
+
+    public int getRounds() {
+        return rounds;
+    }
+
+    public StopReason getStopReason() {
+        return stopReason;
+    }
+
+    public String getDetail() {
+        return detail;
+    }
+
+    public Summary summary(ReplicationStatistics metrics) {
+        Summary s = new Summary();
+        s.rounds = rounds;
+        s.maxRounds = maxRounds;
+        s.convergence = convergence;
+        s.stopReason = stopReason != null ? stopReason.name() : null;
+        s.detail = detail;
+        s.stableFrom = stableStart() + 1;
+        // Gson non serializza NaN / infiniti: variazioni e CI non definiti restano fuori (null)
+        for (double d : weightDeltas) s.weightDeltas.add(Double.isFinite(d) ? d : null);
+        for (String metric : metrics.metrics()) {
+            s.means.put(metric, ReplicationStatistics.mean(stableValues(metrics, metric)));
+            double hw = halfWidth(metrics, metric);
+            if (Double.isFinite(hw)) s.halfWidths.put(metric, hw);
+        }
+        return s;
+    }
+
+    public void report() {
+        System.out.println("\n==== ARRESTO DEI ROUND ====");
+        System.out.printf("%d round, motivo: %s – %s%n", rounds, stopReason, detail);
+        System.out.printf("Medie e CI dal round %d%n", stableStart() + 1);
+        StringBuilder deltas = new StringBuilder();
+        for (double d : weightDeltas) {
+            if (deltas.length() > 0) deltas.append(' ');
+            deltas.append(String.format("%.5f", d));
+        }
+        System.out.println("Variazione massima dei pesi per round: " + deltas);
+    }
+}
@@ -0,0 +1,501 @@
+package myPackage;
+
+import org.jfree.chart.ChartFactory;
+import org.jfree.chart.ChartUtils;
+import org.jfree.chart.JFreeChart;
+import org.jfree.chart.plot.PlotOrientation;
+import org.jfree.chart.plot.XYPlot;
+import org.jfree.chart.renderer.xy.XYLineAndShapeRenderer;
+import org.jfree.data.xy.XYSeries;
+import org.jfree.data.xy.XYSeriesCollection;
+
+import java.io.File;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Modalità "static" e "dynamic": round di simulazione con fitting BPH degli inter-arrivi tra un
+ * round e l'altro (in "dynamic" i nuovi pesi entrano già nel run in corso). Grafici e JSON di
+ * ogni round vanno in output/.
+ */
+final class RoundsMode {
+    private static final int HISTOGRAM_BUCKETS = 20;
+
+    private RoundsMode() {
+    }
+
+    static void run(String[] args) throws IOException {
+        // Scegli modalità
+        if (args.length == 0 ||
+                (!args[0].equalsIgnoreCase("static") && !args[0].equalsIgnoreCase("dynamic"))) {
+            System.out.println("❗ Devi specificare 'static' o 'dynamic' come argomento.");
+            return;
+        }
+        boolean useDynamicMode = args[0].equalsIgnoreCase("dynamic");
+        boolean asyncWeights = !"false".equalsIgnoreCase(CliOptions.option(args, "async"));
+        // in modalità dinamica i nuovi pesi cambiano i tassi degli arrivi già durante il run (live=false: dal round dopo)
+        boolean liveRates = !"false".equalsIgnoreCase(CliOptions.option(args, "live"));
+        String mode = useDynamicMode ? "dynamic" : "static";
+
+        // Prepara cartella di output
+        File outDir = new File("output");
+        if (!outDir.exists()) {
+            outDir.mkdirs();
+        }
+
+        // Parametri base
+        int rounds = CliOptions.intArgument(args, "round", 1);
+
+        // converge=true: il numero di round diventa un massimo, ci si ferma quando pesi e CI delle metriche
+        // sono stabili (tolerance=, ciTolerance=, minRounds=); pipeline=true scrive grafici e JSON di un
+        // round su un altro thread mentre simula il successivo
+        boolean converge = "true".equalsIgnoreCase(CliOptions.option(args, "converge"));
+        RoundController controller = new RoundController(rounds, converge,
+                CliOptions.doubleOption(args, "tolerance", RoundController.DEFAULT_WEIGHT_TOLERANCE),
+                CliOptions.doubleOption(args, "ciTolerance", RoundController.DEFAULT_CI_TOLERANCE),
+                CliOptions.intOption(args, "minRounds", RoundController.DEFAULT_MIN_ROUNDS));
+        boolean pipelined = "true".equalsIgnoreCase(CliOptions.option(args, "pipeline"));
+        // png=false: solo le serie in round_N_charts.json, i grafici li disegna il client
+        boolean png = !"false".equalsIgnoreCase(CliOptions.option(args, "png"));
+
+        // Opzioni chiave=valore dopo modalità e round (es. precision=0.05)
+        double precision = CliOptions.doubleOption(args, "precision", 0.0);
+        boolean steadyState = precision > 0;
+        double horizon = CliOptions.doubleOption(args, "horizon", steadyState ? 10_000.0 : 100.0);
+
+        // Dimensioni della rete e motore: engine=exp (metodo diretto esatto) o engine=tau
+        // (tau-leaping, accuratezza regolata da epsilon=) al posto del Sequencer
+        SimulationConfig config = new SimulationConfig();
+        config.horizon = horizon;
+        config.precision = precision;
+        config.engine = SimulationEngine.of(CliOptions.option(args, "engine"));
+        config.queueSize = CliOptions.intOption(args, "queueSize", config.queueSize);
+        config.poolSize = CliOptions.intOption(args, "poolSize", config.poolSize);
+        config.population = CliOptions.intOption(args, "population", config.population);
+        config.tauEpsilon = CliOptions.doubleOption(args, "epsilon", config.tauEpsilon);
+        config.compactState = !"false".equalsIgnoreCase(CliOptions.option(args, "compact"));
+
+        // arrivals=direct: dal secondo round (o subito con arrivalRange=min,max) la sotto-rete delle fasi
+        // è sostituita da un arrivo campionato direttamente dalla BPH stimata, sull'intervallo osservato
+        // sojourn=true|false: attese e soggiorni per cliente (di default non col tau-leaping)
+        String sojournOpt = CliOptions.option(args, "sojourn");
+        boolean sojourn = sojournOpt != null
+                ? Boolean.parseBoolean(sojournOpt)
+                : config.engine != SimulationEngine.TAU_LEAPING;
+        boolean directArrivals = "direct".equalsIgnoreCase(CliOptions.option(args, "arrivals"));
+        double[] arrivalRange = CliOptions.doubleListOption(args, "arrivalRange");
+        if (directArrivals && config.engine != SimulationEngine.SEQUENCER) {
+            System.out.println("❗ arrivals=direct richiede il Sequencer (engine=sequencer).");
+            return;
+        }
+        if (arrivalRange != null && arrivalRange.length != 2) {
+            throw new IllegalArgumentException("Opzione arrivalRange: servono due valori min,max");
+        }
+        if (directArrivals && arrivalRange != null) {
+            config.arrivalMin = arrivalRange[0];
+            config.arrivalMax = arrivalRange[1];
+        }
+
+        // Riduzione di varianza: seed=<n> abilita i flussi per transizione (una replica indipendente
+        // per round, riproducibile), antithetic=true aggiunge a ogni round la replica antitetica
+        boolean seeded = CliOptions.option(args, "seed") != null;
+        boolean antithetic = "true".equalsIgnoreCase(CliOptions.option(args, "antithetic"));
+        if (antithetic && useDynamicMode && liveRates && config.engine == SimulationEngine.SEQUENCER) {
+            // la replica antitetica gira con i pesi di inizio round: non sarebbe la stessa configurazione
+            System.out.println("⚠️  antithetic=true richiede pesi fissi durante il run (live=false): replica antitetica disattivata.");
+            antithetic = false;
+        }
+        RandomStreams baseStreams = null;
+        if (seeded) {
+            baseStreams = new RandomStreams(CliOptions.longOption(args, "seed", 0L));
+        } else if (antithetic) {
+            baseStreams = new RandomStreams(System.nanoTime());
+        }
+        ReplicationStatistics replications = new ReplicationStatistics();
+        SojournTimeReward.Totals customerTimes = new SojournTimeReward.Totals();
+        QuantileSketch allInterArrivals = new QuantileSketch();
+
+        // Ordine BPH: order=<n> fisso (default 4), order=auto lo sceglie a ogni round tra 2 e maxOrder
+        // con criterion=aic|bic|ks (default bic)
+        String orderOpt = CliOptions.option(args, "order");
+        BphOrderSelector orderSelector = null;
+        int order = 4;
+        if ("auto".equalsIgnoreCase(orderOpt)) {
+            orderSelector = new BphOrderSelector(2, CliOptions.intOption(args, "maxOrder", 32),
+                    BphOrderSelector.Criterion.of(CliOptions.option(args, "criterion")));
+        } else if (orderOpt != null) {
+            order = CliOptions.intOption(args, "order", order);
+        }
+
+        // Pesi iniziali normalizzati
+        List<BigDecimal> weights = Main.initialWeights(order);
+
+        // Archivio dei round (store=false per non scrivere): job=<id> o generato, configurazione come hash
+        ResultsStore store = "false".equalsIgnoreCase(CliOptions.option(args, "store")) ? null : ResultsStore.open(new File(outDir, "store"));
+        long startedAt = System.currentTimeMillis();
+        String jobOpt = CliOptions.option(args, "job");
+        String job = jobOpt != null ? jobOpt : mode + "-" + startedAt;
+        String configHash = ResultsStore.hash(configParts(args, mode, weights));
+
+        // Loop principale: il controller decide quando fermarsi
+        OutputPipeline output = new OutputPipeline(pipelined);
+        boolean another = true;
+        for (int round = 1; another; round++) {
+            final int currentRound = round;
+            System.out.println("\n==== ROUND " + round + " (" + mode + ") ====");
+
+            // --- Setup simulazione ---
+            // flussi indipendenti per round: i CI del controller trattano i round come repliche
+            RandomStreams streams = baseStreams != null ? baseStreams.replication(round) : null;
+            List<BigDecimal> roundWeights = new ArrayList<>(weights);
+            SimulationSetup setup = new SimulationSetup(weights, config.queueSize, config.poolSize, streams,
+                    config.population, config.arrivalMin, config.arrivalMax);
+            var sequencer = setup.getSequencer();
+
+            // Rewards: un solo observer fuso, le metriche sono viste sui suoi contatori
+            var rewards = SimulationRunner.newPipeline(config.engine, sequencer);
+            var abandonReward = new AbandonRateReward(rewards);
+            var blockReward = new BlockProbabilityReward(rewards);
+            var occupancy = rewards.getOccupancy();
+            int queueLength = occupancy.addPlaceMetric("queueLength", "queue");
+            occupancy.trackTimeInState("queue");
+            var utilizationReward = new ServiceUtilizationReward(occupancy, "queue", 1);
+            // tempi per cliente: col tau-leaping i firing sono ricostruiti uno a uno, quindi solo su richiesta
+            var sojournReward = sojourn ? new SojournTimeReward(rewards, streams) : null;
+
+            // Crea il sampler e il collector per questo round
+            CDFSampler sampler;
+            DynamicCDFSampler dynamicSampler = null;
+            if (useDynamicMode) {
+                sampler = new CDFSampler(
+                        new BigDecimal("0.2"),
+                        new BigDecimal("0.02"),
+                        true);
+                dynamicSampler = new DynamicCDFSampler(
+                        new BigDecimal("0.2"),
+                        new BigDecimal("0.02"),
+                        30,
+                        true);
+            } else {
+                sampler = new CDFSampler(
+                        new BigDecimal("0.2"),
+                        new BigDecimal("0.02"),
+                        true);
+            }
+
+            // `weights` is passed so the collector can report the weights used for this round
+            // In modalità dinamica i pesi sono stimati su un altro thread (async=false per la stima sincrona)
+            AsyncWeightEstimator weightEstimator = dynamicSampler != null && asyncWeights
+                    ? new AsyncWeightEstimator(dynamicSampler, weights) : null;
+            var arrivalCollector = weightEstimator != null
+                    ? new InterarrivalCollectorReward(rewards, weightEstimator, weights)
+                    : new InterarrivalCollectorReward(rewards, dynamicSampler, weights);
+            if (dynamicSampler != null && liveRates) {
+                if (config.engine == SimulationEngine.SEQUENCER) {
+                    arrivalCollector.setWeightsListener(setup::rebindArrivalRates);
+                } else {
+                    System.out.println("⚠️  Tassi degli arrivi ricollegabili solo con il Sequencer: pesi applicati dal round successivo.");
+                }
+            }
+
+            // Tempo massimo simulazione (in modalità a regime è solo un limite superiore)
+            rewards.setMaxTime(horizon);
+            if (steadyState) {
+                rewards.enableSteadyState(SimulationRunner.STEADY_STATE_SLICE, precision,
+                        SimulationRunner.STEADY_STATE_CONFIDENCE);
+            }
+
+            // Simulazione
+            SimulationRunner.simulate(config, sequencer, rewards, streams);
+            if (weightEstimator != null) {
+                weightEstimator.close();
+                synchronized (weights) {
+                    weights.clear();
+                    weights.addAll(weightEstimator.latestWeights());
+                }
+                System.out.printf("Stima asincrona dei pesi: %d aggiornamenti, %d inter-arrivi scartati%n",
+                        weightEstimator.updates(), weightEstimator.dropped());
+            }
+
+            // Statistiche
+            arrivalCollector.reportArrivalStats();
+            // in modalità a regime: stime troncate dopo il warm-up, non i valori sull'intero run
+            RunMetrics metrics = SimulationRunner.metrics(rewards, abandonReward, blockReward, utilizationReward);
+            double abbandono = metrics.abandon;
+            double blocco = metrics.block;
+            double utilizzo = metrics.utilization;
+
+            if (antithetic) {
+                // Replica antitetica con gli stessi pesi di partenza del round
+                RunMetrics anti = SimulationRunner.run(config, roundWeights, streams.antithetic());
+                replications.recordPair("abbandono", abbandono, anti.abandon);
+                replications.recordPair("blocco", blocco, anti.block);
+                replications.recordPair("utilizzo", utilizzo, anti.utilization);
+                System.out.printf("Replica antitetica: abbandono=%.4f blocco=%.4f utilizzo=%.4f%n",
+                        anti.abandon, anti.block, anti.utilization);
+                abbandono = (abbandono + anti.abandon) / 2;
+                blocco = (blocco + anti.block) / 2;
+                utilizzo = (utilizzo + anti.utilization) / 2;
+            } else {
+                replications.record("abbandono", abbandono);
+                replications.record("blocco", blocco);
+                replications.record("utilizzo", utilizzo);
+            }
+
+            System.out.printf("Abbandono: %.4f%n", abbandono);
+            System.out.printf("Blocco:    %.4f%n", blocco);
+            System.out.printf("Utilizzo:  %.4f%n", utilizzo);
+            if (steadyState) {
+                rewards.getSteadyState().report();
+                System.out.printf("Tempo simulato: %.2f%n", rewards.getCurrentTime());
+            }
+            System.out.printf("Coda:      media=%.4f var=%.4f%n",
+                    occupancy.mean(queueLength), occupancy.variance(queueLength));
+            double[] timeInQueueState = occupancy.getTimeInStateDistribution();
+            for (int k = 0; k < timeInQueueState.length; k++) {
+                System.out.printf("  P(queue=%d) = %.4f%n", k, timeInQueueState[k]);
+            }
+            if (sojournReward != null) {
+                sojournReward.report();
+                customerTimes.merge(sojournReward);
+            }
+
+            // --- Esporta JSON dei risultati ---
+            SimulationResult result = new SimulationResult(
+                    round, mode, abbandono, blocco, utilizzo,
+                    new ArrayList<>(weights),
+                    "cdf_round" + round + ".png",
+                    "interarrival_hist_round" + round + ".png",
+                    "bph_fit_chart_round" + round + ".png"
+            );
+            if (sojournReward != null) result.percentili = sojournReward.percentiles();
+            if (steadyState) result.regime = rewards.getSteadyState().estimates();
+            result.charts = "round_" + round + "_charts.json";
+            if (!png) result.images = null;
+            output.submit(() -> Main.writeJson(result, new File(outDir, "round_" + currentRound + "_results.json")));
+            if (store != null) {
+                ResultsStore.Row row = new ResultsStore.Row();
+                row.job = job;
+                row.mode = mode;
+                row.config = configHash;
+                row.round = round;
+                row.startedAt = startedAt;
+                row.timestamp = System.currentTimeMillis();
+                row.abbandono = abbandono;
+                row.blocco = blocco;
+                row.utilizzo = utilizzo;
+                row.weights = result.weights.stream().mapToDouble(BigDecimal::doubleValue).toArray();
+                output.submit(() -> store.append(row));
+            }
+
+            // merge prima dei grafici: svuota il buffer dello sketch, che da qui in poi è solo letto
+            QuantileSketch interArrivals = arrivalCollector.getInterArrivals();
+            allInterArrivals.merge(interArrivals);
+
+            // Serie dei grafici: il campione si copia qui, il collector continua a riempirlo
+            ChartData charts = new ChartData();
+            charts.round = round;
+            charts.cdf = ChartData.cdf(arrivalCollector.getInterArrivalSample());
+            if (interArrivals.count() > 0) charts.histogram = ChartData.histogram(interArrivals, HISTOGRAM_BUCKETS);
+
+            if (png) {
+                // --- Grafico CDF empirica ---
+                output.submit(() -> arrivalCollector.reportCDF(new File(outDir, "cdf_round" + currentRound + ".png").getPath()));
+
+                // --- Istogramma inter-arrival ---
+                output.submit(() -> plotInterarrivalHistogram(interArrivals, HISTOGRAM_BUCKETS,
+                        new File(outDir, "interarrival_hist_round" + currentRound + ".png").getPath()));
+            }
+
+            // --- Update PESI e grafico BPH ---
+            if (interArrivals.count() == 0) {
+                System.out.println("⚠️ Nessun intertempo per aggiornare i pesi.");
+            } else {
+                // Aggiorna i pesi per il prossimo round
+                if (orderSelector != null && interArrivals.count() >= 2) {
+                    // Ordine scelto sullo stesso campione: i pesi stimati sostituiscono l'aggiornamento del sampler
+                    long start = System.currentTimeMillis();
+                    BphOrderSelector.Fit best = orderSelector.select(arrivalCollector.getInterArrivalSample().normalized());
+                    orderSelector.report(best);
+                    System.out.printf("Ordine BPH scelto (%s): %d, %d ms%n", orderSelector.getCriterion(), best.order,
+                            System.currentTimeMillis() - start);
+                    weights.clear();
+                    weights.addAll(best.weightList());
+                } else if (!useDynamicMode) {
+                    sampler.evaluateAndAdjustWeights(interArrivals, weights);
+                } else {
+                    System.out.println("Modalità dinamica: pesi aggiornati automaticamente durante la simulazione");
+                }
+
+                if (directArrivals) {
+                    EmpiricalDistribution observed = arrivalCollector.getInterArrivalSample();
+                    if (observed.max() > observed.min()) {
+                        config.arrivalMin = observed.min();
+                        config.arrivalMax = observed.max();
+                        System.out.printf("Arrivo diretto BPH su [%.4f, %.4f] dal prossimo round%n",
+                                config.arrivalMin, config.arrivalMax);
+                    }
+                }
+
+                System.out.println("\n==== PESI AGGIORNATI ====");
+                for (int i = 0; i < weights.size(); i++) {
+                    System.out.printf("W%d = %.4f%n", i + 1, weights.get(i));
+                }
+
+                List<BigDecimal> pdfAggregata = sampler.evaluateAndAdjustWeights(interArrivals, new ArrayList<>(weights));
+                List<BigDecimal> fittedWeights = new ArrayList<>(weights);
+                charts.pdf = ChartData.pdf(pdfAggregata);
+                charts.fit = ChartData.fit(x -> bernsteinPDF(x, fittedWeights));
+                if (png) {
+                    output.submit(() -> plotBPH(pdfAggregata, fittedWeights,
+                            new File(outDir, "bph_fit_chart_round" + currentRound + ".png").getPath()));
+                }
+
+                // Bontà del fit: inter-arrivi normalizzati in [0, 1] contro la CDF BPH con i nuovi pesi
+                EmpiricalDistribution sample = arrivalCollector.getInterArrivalSample().normalized();
+                BernsteinDistribution bph = BernsteinDistribution.of(weights);
+                double ks = sample.kolmogorovSmirnov(bph::cdf);
+                System.out.printf("Fit BPH (n=%d): KS=%.4f (p=%.4f) AD=%.4f%n", sample.size(), ks,
+                        sample.kolmogorovSmirnovPValue(ks), sample.andersonDarling(bph::cdf));
+            }
+
+            output.submit(() -> Main.writeJson(charts, new File(outDir, "round_" + currentRound + "_charts.json"), false));
+
+            another = controller.next(roundWeights, weights, replications);
+        }
+        output.close();
+        if (store != null) {
+            System.out.printf("🗄️ Archivio: %d righe, job %s, configurazione %s%n", store.size(), job, configHash.substring(0, 12));
+        }
+
+        controller.report();
+        Main.writeJson(controller.summary(replications), new File(outDir, "rounds_summary.json"));
+        int completed = controller.getRounds();
+        if (completed > 1 || antithetic) {
+            replications.report();
+        }
+        if (completed > 1) {
+            if (sojourn) {
+                System.out.println("\n==== TEMPI PER CLIENTE (tutti i round) ====");
+                customerTimes.report();
+            }
+            System.out.println("Inter-arrivi: " + allInterArrivals.summary());
+        }
+    }
+
+    /** Parti della configurazione per l'hash: modalità, pesi iniziali e tutte le opzioni tranne job e store. */
+    static Map<String, Object> configParts(String[] args, String mode, List<BigDecimal> initialWeights) {
+        Map<String, Object> parts = new LinkedHashMap<>();
+        parts.put("mode", mode);
+        parts.put("initialWeights", initialWeights);
+        for (int i = 1; i < args.length; i++) {
+            int eq = args[i].indexOf('=');
+            if (eq < 0) continue;
+            String key = args[i].substring(0, eq);
+            if (!key.equals("job") && !key.equals("store")) parts.put(key, args[i].substring(eq + 1));
+        }
+        return parts;
+    }
+
+    public static void plotBPH(List<BigDecimal> pdfAggregata, List<BigDecimal> pesiBPH, String filename) throws IOException {
+        XYSeries pdfSeries = new XYSeries("PDF aggregata");
+        int n = pdfAggregata.size();
+        for (int i = 0; i < n; i++) {
+            double x = (i + 0.5) / n;
+            pdfSeries.add(x, pdfAggregata.get(i).doubleValue());
+        }
+
+        XYSeries bphSeries = new XYSeries("Bernstein PDF");
+        int resolution = 200;
+        for (int j = 0; j <= resolution; j++) {
+            double x = j / (double) resolution;
+            double fx = bernsteinPDF(x, pesiBPH);
+            bphSeries.add(x, fx);
+        }
+
+        XYSeriesCollection dataset = new XYSeriesCollection();
+        dataset.addSeries(pdfSeries);
+        dataset.addSeries(bphSeries);
+
+        JFreeChart chart = ChartFactory.createXYLineChart(
+                "BPH Fit",
+                "x (normalizzato)",
+                "f(x)",
+                dataset,
+                PlotOrientation.VERTICAL,
+                true, true, false
+        );
+
+        XYPlot plot = chart.getXYPlot();
+        XYLineAndShapeRenderer renderer = new XYLineAndShapeRenderer();
+        renderer.setSeriesLinesVisible(0, false);
+        renderer.setSeriesShapesVisible(0, true);  // PDF aggregata: solo punti
+
+        renderer.setSeriesLinesVisible(1, true);
+        renderer.setSeriesShapesVisible(1, false); // BPH: solo linea
+
+        plot.setRenderer(renderer);
+        ChartUtils.saveChartAsPNG(new File(filename), chart, 800, 600);
+        System.out.println("✅ Grafico salvato come " + filename);
+    }
+
+    private static double bernsteinPDF(double x, List<BigDecimal> weights) {
+        int n = weights.size();
+        double sum = 0.0;
+        for (int i = 0; i < n; i++) {
+            sum += weights.get(i).doubleValue() * binomial(n - 1, i) *
+                    Math.pow(x, i) * Math.pow(1 - x, n - 1 - i);
+        }
+        return sum;
+    }
+
+    private static long binomial(int n, int k) {
+        if (k < 0 || k > n) return 0;
+        if (k == 0 || k == n) return 1;
+        long res = 1;
+        for (int i = 1; i <= k; i++) {
+            res = res * (n - (k - i)) / i;
+        }
+        return res;
+    }
+
+    public static void plotInterarrivalHistogram(QuantileSketch interArrivals, int buckets, String filename) throws IOException {
+        if (interArrivals.count() == 0) return;
+
+        //  Bucket uguali tra min e max, stimati dallo sketch (x normalizzata in [0, 1])
+        double[] histogram = interArrivals.histogram(buckets);
+
+        //  Costruisci la serie
+        XYSeries histSeries = new XYSeries("Distribuzione inter-arrivi");
+        for (int i = 0; i < buckets; i++) {
+            double x = (i + 0.5) / buckets; // centro del bucket
+            histSeries.add(x, histogram[i]);
+        }
+
+        //  Dataset e grafico
+        XYSeriesCollection dataset = new XYSeriesCollection();
+        dataset.addSeries(histSeries);
+
+        JFreeChart chart = ChartFactory.createXYLineChart(
+                "Istogramma inter-arrivi",
+                "Inter-arrivo normalizzato",
+                "Frequenza",
+                dataset,
+                PlotOrientation.VERTICAL,
+                false, true, false
+        );
+
+        XYPlot plot = chart.getXYPlot();
+        XYLineAndShapeRenderer renderer = new XYLineAndShapeRenderer();
+        renderer.setSeriesLinesVisible(0, false);
+        renderer.setSeriesShapesVisible(0, true); // punti per istogramma
+        plot.setRenderer(renderer);
+
+        ChartUtils.saveChartAsPNG(new File(filename), chart, 800, 600);
+        System.out.println("📊 Istogramma inter-arrivi salvato in " + filename);
+    }
+}
@@ -0,0 +1,27 @@
+package myPackage;
+
+/**
+ * Metriche di un singolo run di simulazione.
+ */
+public class RunMetrics {
+    public final double abandon;
+    public final double block;
+    public final double utilization;
+    public final double simulatedTime;
+
+    public RunMetrics(double abandon, double block, double utilization, double simulatedTime) {
+        this.abandon = abandon;
+        this.block = block;
+        this.utilization = utilization;
+        this.simulatedTime = simulatedTime;
+    }
+
+    /** Media componente per componente di due run (es. coppia antitetica). */
+    public static RunMetrics average(RunMetrics a, RunMetrics b) {
+        return new RunMetrics(
+                (a.abandon + b.abandon) / 2,
+                (a.block + b.block) / 2,
+                (a.utilization + b.utilization) / 2,
+                (a.simulatedTime + b.simulatedTime) / 2);
+    }
+}
@@ -1,40 +1,38 @@
 package myPackage;
 
-import org.oristool.analyzer.Succession;
-import org.oristool.models.pn.PetriStateFeature;
-import org.oristool.petrinet.Marking;
 import org.oristool.simulator.Sequencer;
 import org.oristool.simulator.rewards.DiscreteRewardTime;
 import org.oristool.simulator.rewards.Reward;
 import org.oristool.simulator.rewards.RewardObserver;
 import org.oristool.simulator.rewards.RewardTime;
 
-import java.math.BigDecimal;
 import java.util.HashSet;
+import java.util.Map;
 import java.util.Set;
 
 /**
- * ServiceUtilizationReward CORRETTO: calcola l'utilizzo reale dei server
- * basandosi sui token effettivamente presenti nel place "servers".
- * Logica: utilization = (poolSize - serversLiberi) / poolSize
- * dove serversLiberi = marking.getTokens("servers")
+ * ServiceUtilizationReward: vista in sola lettura su una {@link TimeWeightedReward}.
+ * Utilizzo = E[min(tokens(place), servers)] / servers, pesato sul tempo.
+ *
+ * Nella rete di {@link SimulationSetup} il servizio è un'unica transizione esponenziale
+ * a tasso 0.2·poolSize (server aggregato), quindi è occupato quando queue ≥ 1: si usa servers = 1.
+ * La vecchia versione leggeva un posto "servers" che non esiste e riportava utilizzo ~0.
  */
 public class ServiceUtilizationReward implements Reward {
-    private final Sequencer sequencer;
-    private final int poolSize;
-    private double accumulatedUtilization = 0.0;
-    private BigDecimal lastTime = BigDecimal.ZERO;
+    private final TimeWeightedReward occupancy;
+    private final int metric;
+    private final int servers;
     private final Set<RewardObserver> observers = new HashSet<>();
 
-    public ServiceUtilizationReward(Sequencer sequencer, int poolSize) {
-        this.sequencer = sequencer;
-        this.poolSize = poolSize;
-        this.sequencer.addCurrentRunObserver(this);
+    public ServiceUtilizationReward(TimeWeightedReward occupancy, String place, int servers) {
+        this.occupancy = occupancy;
+        this.servers = servers;
+        this.metric = occupancy.addBusyServersMetric("busyServers", place, servers);
     }
 
     @Override
     public Sequencer getSequencer() {
-        return sequencer;
+        return occupancy.getSequencer();
     }
 
     @Override
@@ -44,60 +42,23 @@ public class ServiceUtilizationReward implements Reward {
 
     @Override
     public Object evaluate() {
-        BigDecimal elapsedTime = sequencer.getCurrentRunElapsedTime();
-        if (elapsedTime.compareTo(BigDecimal.ZERO) <= 0 || poolSize == 0) {
-            return 0.0;
-        }
+        return occupancy.mean(metric) / servers;
+    }
+
+    /** Stima a regime dell'utilizzo (stessa scala di {@link #evaluate()}), null se non disponibile. */
+    public SteadyStateEstimator.Estimate steadyStateEstimate(Map<String, SteadyStateEstimator.Estimate> regime) {
+        SteadyStateEstimator.Estimate busy = regime.get(occupancy.metricName(metric));
+        return busy != null ? busy.scaled(1.0 / servers) : null;
+    }
 
-        // Utilization = (tempo cumulativo server occupati) / (tempo simulazione × poolSize)
-        double maxPossibleUtilization = elapsedTime.doubleValue() * poolSize;
-        return accumulatedUtilization / maxPossibleUtilization;
+    /** Varianza pesata sul tempo del numero di server occupati. */
+    public double busyServersVariance() {
+        return occupancy.variance(metric);
     }
 
     @Override
     public void update(Sequencer.SequencerEvent event) {
-        if (event == Sequencer.SequencerEvent.RUN_START) {
-            // Reset per nuova simulazione
-            accumulatedUtilization = 0.0;
-            lastTime = BigDecimal.ZERO;
-            return;
-        }
-
-        if (event == Sequencer.SequencerEvent.FIRING_EXECUTED) {
-            BigDecimal currentTime = sequencer.getCurrentRunElapsedTime();
-            BigDecimal deltaT = currentTime.subtract(lastTime);
-
-            if (deltaT.compareTo(BigDecimal.ZERO) > 0) {
-                Succession lastSuccession = sequencer.getLastSuccession();
-                if (lastSuccession != null) {
-                    Marking marking = lastSuccession.getChild()
-                            .getFeature(PetriStateFeature.class)
-                            .getMarking();
-                    int serversLiberi = marking.getTokens("servers");
-                    int serversOccupati = poolSize - serversLiberi;
-
-                    // Sanity check
-                    if (serversOccupati < 0) {
-                        System.err.printf("⚠️ Errore: serversOccupati = %d (serversLiberi = %d, poolSize = %d)%n",
-                                serversOccupati, serversLiberi, poolSize);
-                        serversOccupati = 0;
-                    }
-
-                    // Accumula il tempo pesato per l'utilizzo
-                    accumulatedUtilization += serversOccupati * deltaT.doubleValue();
-
-                    // LOG DI DEBUG
-                    double currentUtilization = accumulatedUtilization / (currentTime.doubleValue() * poolSize);
-                    System.out.printf(
-                            "[UTIL DEBUG] t=%.3f, Δt=%.3f, servers(liberi=%d, occupati=%d), acc=%.3f, util=%.3f%n",
-                            currentTime.doubleValue(), deltaT.doubleValue(),
-                            serversLiberi, serversOccupati, accumulatedUtilization, currentUtilization
-                    );
-                }
-                lastTime = currentTime;
-            }
-        }
-        notifyObservers();
+        // vista: gli accumulatori sono aggiornati dalla TimeWeightedReward
     }
 
     @Override
@@ -109,11 +70,4 @@ public class ServiceUtilizationReward implements Reward {
     public void removeObserver(RewardObserver observer) {
         observers.remove(observer);
     }
-
-    private void notifyObservers() {
-        RewardEvent rewardEvent = RewardEvent.RUN_END;
-        for (RewardObserver observer : observers) {
-            observer.update(rewardEvent);
-        }
-    }
-}
\ No newline at end of file
+}
@@ -0,0 +1,47 @@
+package myPackage;
+
+/**
+ * Parametri di un run di simulazione che non dipendono dai pesi.
+ */
+public class SimulationConfig {
+    public int queueSize = 8;
+    public int poolSize = 8;
+    /** Token iniziali in ph1. */
+    public int population = SimulationSetup.DEFAULT_POPULATION;
+    public double horizon = 100.0;
+    /** Precisione relativa della modalità a regime: se > 0 il run si ferma prima e riporta le stime troncate. */
+    public double precision = 0.0;
+    public SimulationEngine engine = SimulationEngine.SEQUENCER;
+    /** Variazione relativa massima dei tassi in un salto del tau-leaping. */
+    public double tauEpsilon = 0.03;
+    /** Stato compatto del Sequencer (marcatura int[], State di oris costruito su richiesta). */
+    public boolean compactState = true;
+    /**
+     * Intervallo degli inter-arrivi per la rete ad arrivo diretto (un firing per arrivo, campionato
+     * dalla BPH): se NaN si usa la sotto-rete delle fasi. Solo con il Sequencer.
+     */
+    public double arrivalMin = Double.NaN;
+    public double arrivalMax = Double.NaN;
+    /** Log di debug del Sequencer (una riga per firing): da spegnere per i run in parallelo. */
+    public boolean verbose = true;
+
+    public boolean directArrivals() {
+        return !Double.isNaN(arrivalMin) && !Double.isNaN(arrivalMax);
+    }
+
+    public SimulationConfig copy() {
+        SimulationConfig c = new SimulationConfig();
+        c.queueSize = queueSize;
+        c.poolSize = poolSize;
+        c.population = population;
+        c.horizon = horizon;
+        c.precision = precision;
+        c.engine = engine;
+        c.tauEpsilon = tauEpsilon;
+        c.compactState = compactState;
+        c.arrivalMin = arrivalMin;
+        c.arrivalMax = arrivalMax;
+        c.verbose = verbose;
+        return c;
+    }
+}
@@ -0,0 +1,21 @@
+package myPackage;
+
+/**
+ * Motore usato per simulare la rete di {@link SimulationSetup}.
+ */
+public enum SimulationEngine {
+    /** Sequencer di oris (generico, anche transizioni non esponenziali). */
+    SEQUENCER,
+    /** Metodo diretto esatto per reti esponenziali ({@link ExponentialNetSimulator}). */
+    EXPONENTIAL,
+    /** Tau-leaping approssimato per popolazioni grandi ({@link TauLeapingSimulator}). */
+    TAU_LEAPING;
+
+    /** Da opzione a riga di comando: null/"sequencer", "exp", "tau". */
+    public static SimulationEngine of(String name) {
+        if (name == null || name.equalsIgnoreCase("sequencer")) return SEQUENCER;
+        if (name.equalsIgnoreCase("exp")) return EXPONENTIAL;
+        if (name.equalsIgnoreCase("tau")) return TAU_LEAPING;
+        throw new IllegalArgumentException("Motore di simulazione sconosciuto: " + name);
+    }
+}
@@ -12,7 +12,14 @@ public class SimulationResult {
     public double blocco;
     public double utilizzo;
     public List<BigDecimal> weights;
+    /** Nomi dei PNG del round (null con png=false). */
     public Map<String, String> images;
+    /** File con le serie dei grafici, servite ridotte da /charts/{round}. */
+    public String charts;
+    /** Percentili dei tempi di attesa e soggiorno (p50 / p99 / p999). */
+    public Map<String, Double> percentili;
+    /** Stime a regime (MSER-5 + batch means) da cui vengono abbandono, blocco e utilizzo; null con orizzonte fisso. */
+    public Map<String, SteadyStateEstimator.Estimate> regime;
 
     public SimulationResult(int round, String mode,
                             double abbandono, double blocco, double utilizzo,
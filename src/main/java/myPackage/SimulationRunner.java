@@ -0,0 +1,99 @@
+package myPackage;
+
+import org.oristool.simulator.Sequencer;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Esegue un run "headless" della rete di {@link SimulationSetup} e restituisce solo le metriche,
+ * senza grafici né aggiornamento dei pesi. Usato per le repliche aggiuntive (es. antitetiche).
+ * Sceglie anche pipeline e simulatore in base al {@link SimulationEngine} configurato.
+ */
+public final class SimulationRunner {
+    /** Durata delle fette e confidenza della modalità a regime. */
+    public static final double STEADY_STATE_SLICE = 1.0;
+    public static final double STEADY_STATE_CONFIDENCE = 0.95;
+
+    private SimulationRunner() {
+    }
+
+    public static RunMetrics run(SimulationConfig config, List<BigDecimal> weights, RandomStreams streams) {
+        SimulationSetup setup = new SimulationSetup(weights, config, streams);
+        var sequencer = setup.getSequencer();
+
+        var rewards = newPipeline(config.engine, sequencer);
+        var abandonReward = new AbandonRateReward(rewards);
+        var blockReward = new BlockProbabilityReward(rewards);
+        var utilizationReward = new ServiceUtilizationReward(rewards.getOccupancy(), "queue", 1);
+        rewards.setMaxTime(config.horizon);
+        if (config.precision > 0) {
+            rewards.enableSteadyState(STEADY_STATE_SLICE, config.precision, STEADY_STATE_CONFIDENCE);
+        }
+
+        simulate(config, sequencer, rewards, streams);
+
+        return metrics(rewards, abandonReward, blockReward, utilizationReward);
+    }
+
+    /**
+     * Metriche del run: in modalità a regime le stime troncate dopo il warm-up (MSER-5), altrimenti
+     * i valori sull'intero run. Una metrica senza stima a regime resta quella sull'intero run.
+     */
+    public static RunMetrics metrics(FusedRewardPipeline rewards, AbandonRateReward abandonReward,
+                                     BlockProbabilityReward blockReward, ServiceUtilizationReward utilizationReward) {
+        double abandon = (double) abandonReward.evaluate();
+        double block = (double) blockReward.evaluate();
+        double utilization = (double) utilizationReward.evaluate();
+        SteadyStateMonitor steadyState = rewards.getSteadyState();
+        if (steadyState != null) {
+            Map<String, SteadyStateEstimator.Estimate> regime = steadyState.estimates();
+            abandon = truncated(regime.get("abbandono"), "abbandono", abandon);
+            block = truncated(regime.get("blocco"), "blocco", block);
+            utilization = truncated(utilizationReward.steadyStateEstimate(regime), "utilizzo", utilization);
+        }
+        return new RunMetrics(abandon, block, utilization, rewards.getCurrentTime());
+    }
+
+    private static double truncated(SteadyStateEstimator.Estimate estimate, String name, double fullRun) {
+        if (estimate != null) return estimate.mean;
+        System.out.printf("⚠️  Stima a regime di %s non disponibile: uso il valore sull'intero run%n", name);
+        return fullRun;
+    }
+
+    /** Pipeline registrata sul Sequencer, o non registrata per i simulatori specializzati. */
+    public static FusedRewardPipeline newPipeline(SimulationEngine engine, Sequencer sequencer) {
+        return engine == SimulationEngine.SEQUENCER
+                ? new FusedRewardPipeline(sequencer)
+                : new FusedRewardPipeline(new NetIndex(sequencer.getNet()));
+    }
+
+    /** Esegue il run con il motore configurato; la pipeline deve venire da {@link #newPipeline}. */
+    public static void simulate(SimulationConfig config, Sequencer sequencer, FusedRewardPipeline rewards,
+                                RandomStreams streams) {
+        if (config.directArrivals() && config.engine != SimulationEngine.SEQUENCER) {
+            throw new IllegalStateException("La rete ad arrivo diretto non è esponenziale: serve il Sequencer");
+        }
+        switch (config.engine) {
+            case SEQUENCER -> {
+                sequencer.setCompactState(config.compactState);
+                sequencer.simulate();
+            }
+            case EXPONENTIAL -> new ExponentialNetSimulator(new ExponentialNet(rewards.getIndex()),
+                    sequencer.getInitialMarking(), directStream(streams)).simulate(rewards);
+            case TAU_LEAPING -> {
+                var simulator = new TauLeapingSimulator(new ExponentialNet(rewards.getIndex()),
+                        sequencer.getInitialMarking(), directStream(streams), config.tauEpsilon);
+                simulator.simulate(rewards);
+                if (config.verbose) System.out.printf("Tau-leaping: %d salti, %d passi esatti, %d salti rifiutati%n",
+                        simulator.leaps(), simulator.exactSteps(), simulator.rejectedLeaps());
+            }
+        }
+    }
+
+    /** Flusso unico dei simulatori specializzati (seed casuale se non ci sono flussi configurati). */
+    static RandomStreams.Stream directStream(RandomStreams streams) {
+        return (streams != null ? streams : new RandomStreams(System.nanoTime())).stream("direct");
+    }
+}
@@ -1,4 +1,5 @@
 package myPackage;
+import lombok.AccessLevel;
 import lombok.Getter;
 import org.oristool.models.stpn.MarkingExpr;
 import org.oristool.models.stpn.trees.StochasticTransitionFeature;
@@ -7,24 +8,96 @@ import org.oristool.petrinet.PetriNet;
 import org.oristool.petrinet.Place;
 import org.oristool.petrinet.Transition;
 import org.oristool.simulator.Sequencer;
+import org.oristool.simulator.stpn.SamplerFeature;
 import org.oristool.simulator.stpn.STPNSimulatorComponentsFactory;
 
 import java.math.BigDecimal;
 import java.math.RoundingMode;
+import java.util.ArrayList;
 import java.util.List;
 
 @Getter
 public class SimulationSetup {
+    /** Token iniziali in ph1. */
+    public static final int DEFAULT_POPULATION = 50;
+    /**
+     * Peso minimo dell'ultima fase (la più piccola cifra dei pesi a 6 decimali): phN esce solo con
+     * arrival_N / blocked_N, con peso 0 diventerebbe un pozzo per i token.
+     */
+    public static final BigDecimal MIN_WEIGHT = new BigDecimal("0.000001");
+
     private final Sequencer sequencer;
 
+    // arrivi ricollegabili durante il run (null dove il peso iniziale era 0)
+    @Getter(AccessLevel.NONE)
+    private final Transition[] arrivalTransitions;
+    @Getter(AccessLevel.NONE)
+    private final Transition[] blockedTransitions;
+    @Getter(AccessLevel.NONE)
+    private final StreamExponentialSampler[] arrivalSamplers;
+    @Getter(AccessLevel.NONE)
+    private final StreamExponentialSampler[] blockedSamplers;
+    @Getter(AccessLevel.NONE)
+    private final List<BphInterarrivalSampler> directSamplers = new ArrayList<>();
+
     public SimulationSetup(List<BigDecimal> weights, int queueSize, int poolSize) {
+        this(weights, queueSize, poolSize, null);
+    }
+
+    public SimulationSetup(List<BigDecimal> weights, int queueSize, int poolSize, RandomStreams streams) {
+        this(weights, queueSize, poolSize, streams, DEFAULT_POPULATION);
+    }
+
+    /**
+     * @param weights    un peso per fase: l'ordine BPH (numero di fasi e di arrivi) è weights.size()
+     * @param streams    se non null, ogni transizione esponenziale campiona dal proprio flusso
+     *                   (numeri casuali comuni / antitetici tra configurazioni diverse)
+     * @param population token iniziali in ph1
+     */
+    public SimulationSetup(List<BigDecimal> weights, int queueSize, int poolSize, RandomStreams streams,
+                           int population) {
+        this(weights, queueSize, poolSize, streams, population, Double.NaN, Double.NaN);
+    }
+
+    /**
+     * Se {@code arrivalMin} / {@code arrivalMax} sono impostati (non NaN) la sotto-rete delle fasi
+     * è sostituita da un'unica transizione "arrival" (e "blocked" a coda piena) che campiona
+     * l'inter-arrivo direttamente dalla BPH dei pesi su [arrivalMin, arrivalMax] con
+     * {@link BphInterarrivalSampler}: ph1 resta il serbatoio dei token e un arrivo è un solo firing.
+     * Le transizioni non sono esponenziali, quindi questa rete gira solo sul Sequencer.
+     */
+    public SimulationSetup(List<BigDecimal> weights, int queueSize, int poolSize, RandomStreams streams,
+                           int population, double arrivalMin, double arrivalMax) {
+        this(weights, queueSize, poolSize, streams, population, arrivalMin, arrivalMax, new MinimalAnalysisLogger());
+    }
+
+    /** Rete descritta da {@code config} (dimensioni, popolazione, arrivo diretto, log). */
+    public SimulationSetup(List<BigDecimal> weights, SimulationConfig config, RandomStreams streams) {
+        this(weights, config.queueSize, config.poolSize, streams, config.population, config.arrivalMin,
+                config.arrivalMax, new MinimalAnalysisLogger(config.verbose));
+    }
+
+    private SimulationSetup(List<BigDecimal> weights, int queueSize, int poolSize, RandomStreams streams,
+                            int population, double arrivalMin, double arrivalMax, MinimalAnalysisLogger logger) {
         PetriNet pn = new PetriNet();
         Marking marking = new Marking();
+        boolean direct = !Double.isNaN(arrivalMin) && !Double.isNaN(arrivalMax);
 
-        Place p1 = pn.addPlace("ph1");
-        Place p2 = pn.addPlace("ph2");
-        Place p3 = pn.addPlace("ph3");
-        Place p4 = pn.addPlace("ph4");
+        // una fase per peso: ph1 -> ph2 -> ... -> phN, la transizione ti esce da ph(i+1) con tasso i+1
+        // (con l'arrivo diretto resta solo ph1: le fasi sono nel campionatore)
+        int order = weights.size();
+        if (order < 1) {
+            throw new IllegalArgumentException("Serve almeno un peso BPH");
+        }
+        arrivalTransitions = new Transition[order];
+        blockedTransitions = new Transition[order];
+        arrivalSamplers = new StreamExponentialSampler[order];
+        blockedSamplers = new StreamExponentialSampler[order];
+        RandomStreams source = streams != null ? streams : new RandomStreams(System.nanoTime());
+        Place[] phases = new Place[direct ? 1 : order];
+        for (int i = 0; i < phases.length; i++) {
+            phases[i] = pn.addPlace("ph" + (i + 1));
+        }
         Place queue = pn.addPlace("queue");
         Place blockedAttempts = pn.addPlace("blockedAttempts");
         Place abandonPlace = pn.addPlace("abandonRate");
@@ -34,83 +107,186 @@ public class SimulationSetup {
         BigDecimal abandonRate = BigDecimal.valueOf(1);
 
         // ✅ più token iniziali per far girare la rete
-        marking.setTokens(p1, 50);
+        marking.setTokens(phases[0], population);
         marking.setTokens(abandonPlace,1);
 
-        Transition t0 = pn.addTransition("t0");
-        Transition t1 = pn.addTransition("t1");
-        Transition t2 = pn.addTransition("t2");
-        t0.addFeature(StochasticTransitionFeature.newExponentialInstance("1"));
-        t1.addFeature(StochasticTransitionFeature.newExponentialInstance("2"));
-        t2.addFeature(StochasticTransitionFeature.newExponentialInstance("3"));
+        String cond = "If(queue < " + queueSize + ", 1, 0)"; // per costruire la guardia boolean->0/1
+        String blockCond = "If(queue >= " + queueSize + ", 1, 0)";
+
+        if (direct) {
+            // ARRIVO DIRETTO: stesso campionatore BPH per i tentativi accettati e per quelli bloccati
+            double[] w = weights.stream().mapToDouble(BigDecimal::doubleValue).toArray();
+            BigDecimal eft = BigDecimal.valueOf(arrivalMin);
+            BigDecimal lft = BigDecimal.valueOf(arrivalMax);
+
+            Transition arrival = pn.addTransition("arrival");
+            arrival.addFeature(StochasticTransitionFeature.newUniformInstance(eft, lft, MarkingExpr.from(cond, pn)));
+            BphInterarrivalSampler arrivalSampler =
+                    new BphInterarrivalSampler(w, arrivalMin, arrivalMax, source.stream("arrival"));
+            directSamplers.add(arrivalSampler);
+            arrival.addFeature(new SamplerFeature(arrivalSampler));
+            pn.addPrecondition(phases[0], arrival);
+            pn.addPostcondition(arrival, queue);
+
+            Transition blocked = pn.addTransition("blocked");
+            blocked.addFeature(StochasticTransitionFeature.newUniformInstance(eft, lft, MarkingExpr.from(blockCond, pn)));
+            BphInterarrivalSampler blockedSampler =
+                    new BphInterarrivalSampler(w, arrivalMin, arrivalMax, source.stream("blocked"));
+            directSamplers.add(blockedSampler);
+            blocked.addFeature(new SamplerFeature(blockedSampler));
+            pn.addPrecondition(phases[0], blocked);
+            pn.addPostcondition(blocked, blockedAttempts);
+        } else {
+            addPhaseArrivals(pn, weights, phases, queue, blockedAttempts, cond, blockCond, source);
+        }
+
+        // SERVIZIO
+        Transition service = pn.addTransition("service");
+        service.addFeature(StochasticTransitionFeature.newExponentialInstance(String.valueOf(serviceRate.multiply(BigDecimal.valueOf(0.01*poolSize)))));
+        pn.addPrecondition(queue, service);
+        pn.addPostcondition(service, phases[0]);
+
+
+        // ABBANDONO
+        Transition abandon = pn.addTransition("abandon");
+        abandon.addFeature(StochasticTransitionFeature.newExponentialInstance(new BigDecimal("1"),
+                MarkingExpr.from("0.01*abandonRate*queue", pn)));
+        pn.addPrecondition(queue, abandon);
+
+
+        if (streams != null) {
+            streams.install(pn);
+        }
+
+        STPNSimulatorComponentsFactory factory = new STPNSimulatorComponentsFactory();
+        this.sequencer = new Sequencer(pn, marking, factory, logger);
+        // marcatura int[] modificata sul posto: la rete non ha funzioni di abilitazione
+        this.sequencer.setCompactState(true);
+        this.sequencer.setDebugFirings(logger.isDebug());
+        if (streams != null) {
+            this.sequencer.setRandom(streams.tieBreaker());
+        }
+    }
 
-        pn.addPrecondition(p1, t0); pn.addPostcondition(t0, p2);
-        pn.addPrecondition(p2, t1); pn.addPostcondition(t1, p3);
-        pn.addPrecondition(p3, t2); pn.addPostcondition(t2, p4);
+    /**
+     * Applica nuovi pesi al run in corso, dal firing successivo: λ_i = w_i · N / Σw come alla
+     * costruzione diventa il tasso dei campionatori di arrival_i e blocked_i, e il residuo già
+     * campionato viene riscalato di λ_vecchio / λ_nuovo (esatto per l'assenza di memoria).
+     * Le fasi con peso 0 (iniziale o nuovo) restano come sono: oris non accetta tassi nulli.
+     * Con l'arrivo diretto cambiano invece i pesi del campionatore BPH, dal prossimo inter-arrivo.
+     *
+     * Va chiamato sul thread di simulazione tra due firing (es. da un observer); vale solo per il
+     * Sequencer, i simulatori specializzati leggono i tassi dalla rete.
+     */
+    public void rebindArrivalRates(List<BigDecimal> weights) {
+        if (weights.size() != arrivalSamplers.length) {
+            throw new IllegalArgumentException("Servono " + arrivalSamplers.length + " pesi, ricevuti " + weights.size());
+        }
+        double[] w = weights.stream().mapToDouble(BigDecimal::doubleValue).toArray();
+        if (!directSamplers.isEmpty()) {
+            for (BphInterarrivalSampler sampler : directSamplers) {
+                sampler.setWeights(w);
+            }
+            return;
+        }
+        double sumW = 0.0;
+        for (double x : w) sumW += x;
+        if (!(sumW > 0)) {
+            throw new IllegalArgumentException("Pesi BPH non validi: " + weights);
+        }
+        double factor = w.length / sumW;
+        for (int i = 0; i < w.length; i++) {
+            double rate = w[i] * factor;
+            if (arrivalSamplers[i] == null || !(rate > 0)) continue;
+            rebind(arrivalTransitions[i], arrivalSamplers[i], rate);
+            rebind(blockedTransitions[i], blockedSamplers[i], rate);
+        }
+    }
 
-        Transition[] arrivals = new Transition[4];
-        arrivals[0] = pn.addTransition("arrival1");
-        arrivals[1] = pn.addTransition("arrival2");
-        arrivals[2] = pn.addTransition("arrival3");
-        arrivals[3] = pn.addTransition("arrival4");
+    private void rebind(Transition transition, StreamExponentialSampler sampler, double rate) {
+        double previous = sampler.getRate();
+        if (previous == rate) return;
+        sampler.setRate(rate);
+        sequencer.rescaleTimeToFire(transition, previous / rate);
+    }
 
-        Place[] phases = new Place[] { p1, p2, p3, p4 };
+    /**
+     * Pesi accettabili per la sotto-rete delle fasi: finiti, non negativi, con somma positiva e
+     * ultimo peso positivo. Le fasi intermedie escono comunque con t_i, l'ultima solo con gli arrivi.
+     */
+    static void checkPhaseWeights(List<BigDecimal> weights) {
+        BigDecimal sum = BigDecimal.ZERO;
+        for (BigDecimal w : weights) {
+            if (w == null || w.signum() < 0) {
+                throw new IllegalArgumentException("Pesi BPH non validi (negativi o mancanti): " + weights);
+            }
+            sum = sum.add(w);
+        }
+        if (sum.signum() == 0) {
+            throw new IllegalArgumentException("Pesi BPH tutti nulli: " + weights);
+        }
+        if (weights.get(weights.size() - 1).signum() == 0) {
+            throw new IllegalArgumentException("Peso dell'ultima fase nullo: ph" + weights.size()
+                    + " resterebbe senza transizioni in uscita " + weights);
+        }
+    }
 
+    /** Sotto-rete delle fasi: catena ph1 -> ... -> phN, arrivo e blocco da ogni fase con tasso proporzionale al peso. */
+    private void addPhaseArrivals(PetriNet pn, List<BigDecimal> weights, Place[] phases, Place queue,
+                                  Place blockedAttempts, String cond, String blockCond, RandomStreams source) {
+        checkPhaseWeights(weights);
+        int order = weights.size();
+        for (int i = 0; i + 1 < order; i++) {
+            Transition step = pn.addTransition("t" + i);
+            step.addFeature(StochasticTransitionFeature.newExponentialInstance(String.valueOf(i + 1)));
+            pn.addPrecondition(phases[i], step);
+            pn.addPostcondition(step, phases[i + 1]);
+        }
 
         // QUEUE ARRIVALS
         BigDecimal sumW = weights.stream()
                 .reduce(BigDecimal.ZERO, BigDecimal::add);
-        BigDecimal factor = new BigDecimal("4.0")
+        BigDecimal factor = BigDecimal.valueOf(order)
                 .divide(sumW, 10, RoundingMode.HALF_UP);
-        String cond = "If(queue < " + queueSize + ", 1, 0)"; // per costruire la guardia boolean->0/1
         MarkingExpr guard = MarkingExpr.from(cond, pn);
 
-        for (int i = 0; i < 4; i++) {
+        for (int i = 0; i < order; i++) {
             BigDecimal lambda_i = weights.get(i).multiply(factor);
+            // peso nullo di una fase intermedia: oris non accetta tassi 0, la transizione non c'è
+            // (la fase esce comunque con t_i; l'ultima ha peso positivo, vedi checkPhaseWeights)
+            if (lambda_i.signum() == 0) continue;
+            Transition arrival = pn.addTransition("arrival" + (i + 1));
             // uso il tasso base = lambda_i con 0/1 a seconda che queue<queueSize o meno
-            arrivals[i].addFeature(
+            arrival.addFeature(
                     StochasticTransitionFeature.newExponentialInstance(lambda_i, guard)
             );
+            // campionatore con tasso modificabile (vedi rebindArrivalRates), sullo stesso flusso di RandomStreams.install
+            arrivalTransitions[i] = arrival;
+            arrivalSamplers[i] = new StreamExponentialSampler(lambda_i.doubleValue(), source.stream(arrival.getName()));
+            arrival.addFeature(new SamplerFeature(arrivalSamplers[i]));
 
-            pn.addPrecondition(phases[i],   arrivals[i]);
-            pn.addPostcondition(arrivals[i], queue);
+            pn.addPrecondition(phases[i],   arrival);
+            pn.addPostcondition(arrival, queue);
         }
 
 
         // BLOCK
-        String blockCond = "If(queue >= " + queueSize + ", 1, 0)";
         MarkingExpr blockGuard = MarkingExpr.from(blockCond, pn);
 
-        for (int i = 0; i < 4; i++) {
-            Transition blocked = pn.addTransition("blocked" + (i + 1));
+        for (int i = 0; i < order; i++) {
             BigDecimal lambda_i = weights.get(i).multiply(factor);
+            if (lambda_i.signum() == 0) continue;
+            Transition blocked = pn.addTransition("blocked" + (i + 1));
 
             blocked.addFeature(
                     StochasticTransitionFeature.newExponentialInstance(lambda_i, blockGuard)
             );
+            blockedTransitions[i] = blocked;
+            blockedSamplers[i] = new StreamExponentialSampler(lambda_i.doubleValue(), source.stream(blocked.getName()));
+            blocked.addFeature(new SamplerFeature(blockedSamplers[i]));
 
             pn.addPrecondition(phases[i], blocked);
             pn.addPostcondition(blocked, blockedAttempts);
         }
-
-
-        // SERVIZIO
-        Transition service = pn.addTransition("service");
-        service.addFeature(StochasticTransitionFeature.newExponentialInstance(String.valueOf(serviceRate.multiply(BigDecimal.valueOf(0.01*poolSize)))));
-        pn.addPrecondition(queue, service);
-        pn.addPostcondition(service, p1);
-
-
-        // ABBANDONO
-        Transition abandon = pn.addTransition("abandon");
-        abandon.addFeature(StochasticTransitionFeature.newExponentialInstance(new BigDecimal("1"),
-                MarkingExpr.from("0.01*abandonRate*queue", pn)));
-        pn.addPrecondition(queue, abandon);
-
-
-        MinimalAnalysisLogger logger = new MinimalAnalysisLogger();
-        STPNSimulatorComponentsFactory factory = new STPNSimulatorComponentsFactory();
-        this.sequencer = new Sequencer(pn, marking, factory, logger);
     }
-
 }
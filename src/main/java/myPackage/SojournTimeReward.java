@@ -0,0 +1,182 @@
+package myPackage;
+
+import org.oristool.petrinet.Marking;
+import org.oristool.simulator.Sequencer;
+import org.oristool.simulator.rewards.DiscreteRewardTime;
+import org.oristool.simulator.rewards.Reward;
+import org.oristool.simulator.rewards.RewardObserver;
+import org.oristool.simulator.rewards.RewardTime;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Tempi per cliente nella coda: ogni token entrato in {@code queue} con un arrivo riceve un
+ * timestamp, conservato in un {@link DoubleRingBuffer} FIFO.
+ *
+ * <ul>
+ *   <li>attesa: dall'arrivo a quando il cliente diventa primo in coda (inizio servizio,
+ *       il servente aggregato serve il primo);</li>
+ *   <li>soggiorno: dall'arrivo al completamento del servizio;</li>
+ *   <li>abbandono: dall'arrivo all'abbandono. Ogni cliente abbandona con lo stesso tasso,
+ *       quindi chi abbandona è scelto uniformemente tra quelli in coda.</li>
+ * </ul>
+ * I tempi vanno in istogrammi {@link LogLinearHistogram} a memoria fissa, che si possono
+ * sommare tra repliche. Non si azzerano a ogni run: {@link #reset()} va chiamato a mano.
+ */
+public class SojournTimeReward implements Reward {
+    private final FusedRewardPipeline pipeline;
+    private final String place;
+    private final RandomStreams.Stream random;
+    private final DoubleRingBuffer arrivals = new DoubleRingBuffer(16);
+    private final LogLinearHistogram waiting = new LogLinearHistogram();
+    private final LogLinearHistogram sojourn = new LogLinearHistogram();
+    private final LogLinearHistogram abandon = new LogLinearHistogram();
+    private final List<RewardObserver> observers = new ArrayList<>();
+
+    public SojournTimeReward(FusedRewardPipeline pipeline, String place, RandomStreams.Stream random) {
+        this.pipeline = pipeline;
+        this.place = place;
+        this.random = random;
+        pipeline.addRunListener(this::onRunStart);
+        pipeline.addFiringListener(TransitionCategory.ARRIVAL, (t, time) -> onArrival(time));
+        pipeline.addFiringListener(TransitionCategory.SERVICE, (t, time) -> onService(time));
+        pipeline.addFiringListener(TransitionCategory.ABANDON, (t, time) -> onAbandon(time));
+    }
+
+    /** Flusso "sojourn" di {@code streams}, o seed casuale se non ci sono flussi configurati. */
+    public SojournTimeReward(FusedRewardPipeline pipeline, RandomStreams streams) {
+        this(pipeline, "queue", (streams != null ? streams : new RandomStreams(System.nanoTime())).stream("sojourn"));
+    }
+
+    private void onRunStart(Marking initialMarking) {
+        arrivals.clear();
+        for (int k = initialMarking.getTokens(place); k > 0; k--) {
+            arrivals.addLast(0.0);
+        }
+        if (!arrivals.isEmpty()) waiting.record(0.0);
+    }
+
+    private void onArrival(double time) {
+        arrivals.addLast(time);
+        if (arrivals.size() == 1) waiting.record(0.0);
+    }
+
+    private void onService(double time) {
+        // con il tau-leaping i firing di categorie diverse nello stesso salto possono non essere ordinati
+        if (arrivals.isEmpty()) return;
+        sojourn.record(time - arrivals.removeFirst());
+        startService(time);
+    }
+
+    private void onAbandon(double time) {
+        if (arrivals.isEmpty()) return;
+        int victim = Math.min(arrivals.size() - 1, (int) (random.nextUniform() * arrivals.size()));
+        abandon.record(time - arrivals.removeAt(victim));
+        if (victim == 0) startService(time);
+    }
+
+    private void startService(double time) {
+        if (!arrivals.isEmpty()) waiting.record(Math.max(0.0, time - arrivals.peekFirst()));
+    }
+
+    public LogLinearHistogram getWaiting() {
+        return waiting;
+    }
+
+    public LogLinearHistogram getSojourn() {
+        return sojourn;
+    }
+
+    public LogLinearHistogram getAbandon() {
+        return abandon;
+    }
+
+    /** Clienti ancora in coda alla fine del run (non compaiono negli istogrammi). */
+    public int getInQueue() {
+        return arrivals.size();
+    }
+
+    public void reset() {
+        waiting.reset();
+        sojourn.reset();
+        abandon.reset();
+    }
+
+    public void report() {
+        report(waiting, sojourn, abandon);
+    }
+
+    private static void report(LogLinearHistogram waiting, LogLinearHistogram sojourn, LogLinearHistogram abandon) {
+        System.out.println("Attesa:     " + waiting.summary());
+        System.out.println("Soggiorno:  " + sojourn.summary());
+        System.out.println("Abbandono:  " + abandon.summary());
+    }
+
+    /** p50 / p99 / p999 di attesa e soggiorno, per nome (vuota se non ci sono campioni: Gson non accetta NaN). */
+    public Map<String, Double> percentiles() {
+        Map<String, Double> percentiles = new LinkedHashMap<>();
+        putPercentiles(percentiles, "attesa", waiting);
+        putPercentiles(percentiles, "soggiorno", sojourn);
+        return percentiles;
+    }
+
+    private static void putPercentiles(Map<String, Double> target, String name, LogLinearHistogram histogram) {
+        if (histogram.count() == 0) return;
+        target.put(name + "_p50", histogram.quantile(0.50));
+        target.put(name + "_p99", histogram.quantile(0.99));
+        target.put(name + "_p999", histogram.quantile(0.999));
+    }
+
+    @Override
+    public Object evaluate() {
+        for (RewardObserver o : observers) {
+            o.update(RewardEvent.RUN_END);
+        }
+        return percentiles();
+    }
+
+    /** Somma degli istogrammi di più run (round o repliche). */
+    public static class Totals {
+        public final LogLinearHistogram waiting = new LogLinearHistogram();
+        public final LogLinearHistogram sojourn = new LogLinearHistogram();
+        public final LogLinearHistogram abandon = new LogLinearHistogram();
+
+        public void merge(SojournTimeReward run) {
+            waiting.merge(run.waiting);
+            sojourn.merge(run.sojourn);
+            abandon.merge(run.abandon);
+        }
+
+        public void report() {
+            SojournTimeReward.report(waiting, sojourn, abandon);
+        }
+    }
+
+    @Override
+    public Sequencer getSequencer() {
+        return pipeline.getSequencer();
+    }
+
+    @Override
+    public RewardTime getRewardTime() {
+        return new DiscreteRewardTime();
+    }
+
+    @Override
+    public void update(Sequencer.SequencerEvent event) {
+        // aggiornata dai listener della pipeline
+    }
+
+    @Override
+    public void addObserver(RewardObserver observer) {
+        observers.add(observer);
+    }
+
+    @Override
+    public void removeObserver(RewardObserver observer) {
+        observers.remove(observer);
+    }
+}
@@ -0,0 +1,135 @@
+package myPackage;
+
+import java.util.Arrays;
+
+/**
+ * Matrice sparsa in formato CSR (righe compresse), immutabile.
+ * Ogni elemento può portare un tag intero (es. l'id della transizione che lo genera).
+ */
+public class SparseMatrix {
+    private final int rows;
+    private final int columns;
+    private final int[] rowStart;
+    private final int[] column;
+    private final double[] value;
+    private final int[] tag;
+
+    public SparseMatrix(int rows, int columns, int[] rowStart, int[] column, double[] value, int[] tag) {
+        if (rowStart.length != rows + 1) {
+            throw new IllegalArgumentException("rowStart deve avere rows + 1 elementi");
+        }
+        this.rows = rows;
+        this.columns = columns;
+        this.rowStart = rowStart;
+        this.column = column;
+        this.value = value;
+        this.tag = tag;
+    }
+
+    public int rows() {
+        return rows;
+    }
+
+    public int columns() {
+        return columns;
+    }
+
+    public int nonZeros() {
+        return rowStart[rows];
+    }
+
+    public int rowStart(int row) {
+        return rowStart[row];
+    }
+
+    public int rowEnd(int row) {
+        return rowStart[row + 1];
+    }
+
+    public int column(int entry) {
+        return column[entry];
+    }
+
+    public double value(int entry) {
+        return value[entry];
+    }
+
+    public int tag(int entry) {
+        return tag != null ? tag[entry] : -1;
+    }
+
+    /** Trasposta (CSR delle colonne), utile per iterare sugli archi entranti. */
+    public SparseMatrix transpose() {
+        int nnz = nonZeros();
+        int[] start = new int[columns + 1];
+        for (int k = 0; k < nnz; k++) {
+            start[column[k] + 1]++;
+        }
+        for (int c = 0; c < columns; c++) {
+            start[c + 1] += start[c];
+        }
+        int[] fill = start.clone();
+        int[] tColumn = new int[nnz];
+        double[] tValue = new double[nnz];
+        int[] tTag = tag != null ? new int[nnz] : null;
+        for (int r = 0; r < rows; r++) {
+            for (int k = rowStart[r]; k < rowStart[r + 1]; k++) {
+                int pos = fill[column[k]]++;
+                tColumn[pos] = r;
+                tValue[pos] = value[k];
+                if (tTag != null) tTag[pos] = tag[k];
+            }
+        }
+        return new SparseMatrix(columns, rows, start, tColumn, tValue, tTag);
+    }
+
+    /** Costruttore incrementale riga per riga. */
+    public static class Builder {
+        private final int columnsHint;
+        private int[] rowStart = new int[1024];
+        private int[] column = new int[4096];
+        private double[] value = new double[4096];
+        private int[] tag = new int[4096];
+        private int rows = 0;
+        private int size = 0;
+        private int maxColumn = -1;
+
+        public Builder(int columnsHint) {
+            this.columnsHint = columnsHint;
+        }
+
+        /** Chiude la riga corrente e ne apre una nuova. */
+        public void startRow() {
+            if (rows + 1 >= rowStart.length) {
+                rowStart = Arrays.copyOf(rowStart, rowStart.length * 2);
+            }
+            rowStart[rows] = size;
+            rows++;
+            rowStart[rows] = size;
+        }
+
+        public void add(int col, double val, int tg) {
+            if (size == column.length) {
+                int n = size * 2;
+                column = Arrays.copyOf(column, n);
+                value = Arrays.copyOf(value, n);
+                tag = Arrays.copyOf(tag, n);
+            }
+            column[size] = col;
+            value[size] = val;
+            tag[size] = tg;
+            size++;
+            rowStart[rows] = size;
+            maxColumn = Math.max(maxColumn, col);
+        }
+
+        public SparseMatrix build(int columns) {
+            int cols = Math.max(Math.max(columns, columnsHint), maxColumn + 1);
+            return new SparseMatrix(rows, cols,
+                    Arrays.copyOf(rowStart, rows + 1),
+                    Arrays.copyOf(column, size),
+                    Arrays.copyOf(value, size),
+                    Arrays.copyOf(tag, size));
+        }
+    }
+}
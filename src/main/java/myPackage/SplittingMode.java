@@ -0,0 +1,41 @@
+package myPackage;
+
+import java.io.File;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Modalità "splitting": queue=, pool=, population=, horizon=, order=, step=<distanza tra i
+ * livelli>, effort=<traiettorie per stadio>, repetitions=, directRuns=, seed=, threads=.
+ * Il risultato va in output/splitting.json.
+ */
+final class SplittingMode {
+    private SplittingMode() {
+    }
+
+    static void run(String[] args) throws IOException {
+        SimulationConfig config = new SimulationConfig();
+        config.queueSize = CliOptions.intOption(args, "queue", 20);
+        config.poolSize = CliOptions.intOption(args, "pool", config.poolSize);
+        config.population = CliOptions.intOption(args, "population", config.population);
+        config.horizon = CliOptions.doubleOption(args, "horizon", 100.0);
+        List<BigDecimal> weights = Main.initialWeights(CliOptions.intOption(args, "order", 4));
+        ForkJoinPool pool = CliOptions.poolOption(args);
+
+        RareEventSplitting splitting = new RareEventSplitting(config, weights,
+                CliOptions.intOption(args, "step", 1), CliOptions.intOption(args, "effort", 1000),
+                CliOptions.intOption(args, "repetitions", 10), CliOptions.intOption(args, "directRuns", 100),
+                CliOptions.longOption(args, "seed", 1), pool);
+        try {
+            RareEventSplitting.Result result = splitting.estimate();
+            splitting.report(result);
+            File outDir = new File("output");
+            outDir.mkdirs();
+            Main.writeJson(result, new File(outDir, "splitting.json"));
+        } finally {
+            if (pool != ForkJoinPool.commonPool()) pool.shutdown();
+        }
+    }
+}
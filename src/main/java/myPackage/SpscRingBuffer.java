@@ -0,0 +1,55 @@
+package myPackage;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.DoubleConsumer;
+
+/**
+ * Coda circolare di double senza lock per un solo produttore e un solo consumatore.
+ * Ognuno dei due indici è scritto da un solo thread e pubblicato con {@code lazySet}
+ * (scrittura con semantica release): il produttore non aspetta mai, se la coda è piena
+ * {@link #offer} restituisce false e il valore è scartato.
+ */
+public final class SpscRingBuffer {
+    private final double[] data;
+    private final int mask;
+    private final AtomicLong head = new AtomicLong(); // prossimo da leggere (consumatore)
+    private final AtomicLong tail = new AtomicLong(); // prossimo da scrivere (produttore)
+    private long cachedHead; // copia locale del produttore, riletta solo quando la coda sembra piena
+
+    public SpscRingBuffer(int capacity) {
+        int size = Integer.highestOneBit(Math.max(2, capacity - 1)) << 1;
+        this.data = new double[size];
+        this.mask = size - 1;
+    }
+
+    public int capacity() {
+        return data.length;
+    }
+
+    /** Solo dal thread produttore. */
+    public boolean offer(double value) {
+        long t = tail.get();
+        if (t - cachedHead >= data.length) {
+            cachedHead = head.get();
+            if (t - cachedHead >= data.length) return false;
+        }
+        data[(int) t & mask] = value;
+        tail.lazySet(t + 1);
+        return true;
+    }
+
+    /** Solo dal thread consumatore: passa a {@code consumer} tutti i valori disponibili. */
+    public int drain(DoubleConsumer consumer) {
+        long h = head.get();
+        long t = tail.get();
+        for (long i = h; i < t; i++) {
+            consumer.accept(data[(int) i & mask]);
+        }
+        head.lazySet(t);
+        return (int) (t - h);
+    }
+
+    public boolean isEmpty() {
+        return head.get() == tail.get();
+    }
+}
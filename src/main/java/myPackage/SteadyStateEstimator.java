@@ -0,0 +1,155 @@
+package myPackage;
+
+import java.util.Arrays;
+
+/**
+ * Stima a regime di una metrica rapporto (Σnum / Σden) osservata a fette di tempo.
+ *
+ * Il warm-up è individuato con MSER-5: le fette sono raggruppate a 5 a 5 e si sceglie il
+ * troncamento d che minimizza la varianza pesata dei gruppi restanti divisa per (peso restante)².
+ * Sulla parte troncata si calcola la media con intervallo di confidenza a batch means.
+ * Con den = durata della fetta si ottengono le metriche pesate sul tempo, con den = tentativi
+ * i rapporti di conteggio (es. blocchi / tentativi).
+ */
+public class SteadyStateEstimator {
+    private static final int GROUP = 5;
+
+    private final int batches;
+    private final double confidence;
+
+    private double[] num = new double[64];
+    private double[] den = new double[64];
+    private int slices = 0;
+
+    public static class Estimate {
+        public final double mean;
+        public final double halfWidth;
+        /** Σnum sulle fette usate: per i rapporti di conteggio è il numero di eventi osservati. */
+        public final double numerator;
+        public final int warmupSlices;
+        public final int usedSlices;
+        public final int batches;
+
+        Estimate(double mean, double halfWidth, double numerator, int warmupSlices, int usedSlices, int batches) {
+            this.mean = mean;
+            this.halfWidth = halfWidth;
+            this.numerator = numerator;
+            this.warmupSlices = warmupSlices;
+            this.usedSlices = usedSlices;
+            this.batches = batches;
+        }
+
+        public double relativeHalfWidth() {
+            return mean != 0.0 ? halfWidth / Math.abs(mean) : Double.POSITIVE_INFINITY;
+        }
+
+        /** Stessa stima moltiplicata per una costante (es. da server occupati a utilizzo). */
+        public Estimate scaled(double factor) {
+            return new Estimate(mean * factor, halfWidth * Math.abs(factor), numerator * factor,
+                    warmupSlices, usedSlices, batches);
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%.5f ± %.5f (warm-up %d fette, %d batch)", mean, halfWidth, warmupSlices, batches);
+        }
+    }
+
+    public SteadyStateEstimator(int batches, double confidence) {
+        if (batches < 2) {
+            throw new IllegalArgumentException("Servono almeno 2 batch");
+        }
+        if (confidence <= 0 || confidence >= 1) {
+            throw new IllegalArgumentException("Confidenza deve essere in (0,1)");
+        }
+        this.batches = batches;
+        this.confidence = confidence;
+    }
+
+    public void addSlice(double numerator, double denominator) {
+        if (slices == num.length) {
+            num = Arrays.copyOf(num, slices * 2);
+            den = Arrays.copyOf(den, slices * 2);
+        }
+        num[slices] = numerator;
+        den[slices] = denominator;
+        slices++;
+    }
+
+    public int sliceCount() {
+        return slices;
+    }
+
+    public void clear() {
+        slices = 0;
+    }
+
+    /** Punto di troncamento MSER-5, in numero di fette. */
+    public int truncationPoint() {
+        int groups = slices / GROUP;
+        if (groups < 2) return 0;
+        double[] r = new double[groups];
+        double[] w = new double[groups];
+        for (int g = 0; g < groups; g++) {
+            double n = 0, d = 0;
+            for (int k = g * GROUP; k < (g + 1) * GROUP; k++) {
+                n += num[k];
+                d += den[k];
+            }
+            w[g] = d;
+            r[g] = d > 0 ? n / d : 0.0;
+        }
+        // somme dal fondo: Σw, Σw·r, Σw·r²
+        double sw = 0, swr = 0, swr2 = 0;
+        double best = Double.POSITIVE_INFINITY;
+        int bestGroup = 0;
+        for (int g = groups - 1; g >= 0; g--) {
+            sw += w[g];
+            swr += w[g] * r[g];
+            swr2 += w[g] * r[g] * r[g];
+            if (g > groups / 2 || sw <= 0) continue;
+            double mean = swr / sw;
+            double mser = (swr2 - sw * mean * mean) / (sw * sw);
+            if (mser <= best) {
+                best = mser;
+                bestGroup = g;
+            }
+        }
+        return bestGroup * GROUP;
+    }
+
+    /** Media e semiampiezza a batch means dopo il troncamento; null se i dati non bastano. */
+    public Estimate estimate() {
+        int warmup = truncationPoint();
+        int used = slices - warmup;
+        int batchSize = used / batches;
+        if (batchSize < 1) return null;
+
+        double totalNum = 0, totalDen = 0;
+        double[] batchMeans = new double[batches];
+        int validBatches = 0;
+        for (int b = 0; b < batches; b++) {
+            double n = 0, d = 0;
+            int from = warmup + b * batchSize;
+            for (int k = from; k < from + batchSize; k++) {
+                n += num[k];
+                d += den[k];
+            }
+            totalNum += n;
+            totalDen += d;
+            if (d > 0) {
+                batchMeans[validBatches++] = n / d;
+            }
+        }
+        if (totalDen <= 0 || validBatches < 2) return null;
+
+        double mean = totalNum / totalDen;
+        double ss = 0;
+        for (int b = 0; b < validBatches; b++) {
+            double diff = batchMeans[b] - mean;
+            ss += diff * diff;
+        }
+        double hw = ConfidenceIntervals.halfWidth(ss / (validBatches - 1), validBatches, confidence);
+        return new Estimate(mean, hw, totalNum, warmup, batchSize * batches, validBatches);
+    }
+}
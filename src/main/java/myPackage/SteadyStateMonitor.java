@@ -0,0 +1,135 @@
+package myPackage;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.DoubleConsumer;
+import java.util.function.DoubleSupplier;
+
+/**
+ * Modalità a regime della {@link FusedRewardPipeline}: divide il run in fette di durata fissa,
+ * passa ad un {@link SteadyStateEstimator} per metrica gli incrementi (num, den) di ogni fetta
+ * e segnala quando tutte le metriche hanno raggiunto la precisione relativa richiesta.
+ *
+ * Una media nulla non raggiunge mai la precisione relativa (0 ± 0 dice solo che l'evento non si è
+ * visto), e le metriche di conteggio devono aver osservato almeno {@code minEvents} eventi dopo
+ * il warm-up: un blocco raro non ferma il run dopo le fette minime.
+ */
+public class SteadyStateMonitor {
+    private static final int BATCHES = 20;
+    /** Eventi minimi dopo il warm-up per le metriche di conteggio (blocco, abbandono). */
+    public static final long MIN_EVENTS = 100;
+
+    private final double sliceLength;
+    private final double relativePrecision;
+    private final double confidence;
+    private final int minSlices;
+
+    private final List<String> names = new ArrayList<>();
+    private final List<DoubleSupplier> numerators = new ArrayList<>();
+    private final List<DoubleSupplier> denominators = new ArrayList<>();
+    private final List<Long> minEvents = new ArrayList<>();
+    private final List<SteadyStateEstimator> estimators = new ArrayList<>();
+    private double[] lastNum = new double[0];
+    private double[] lastDen = new double[0];
+
+    private double sliceEnd;
+    private int nextCheck;
+    private boolean satisfied;
+
+    public SteadyStateMonitor(double sliceLength, double relativePrecision, double confidence) {
+        if (sliceLength <= 0 || relativePrecision <= 0) {
+            throw new IllegalArgumentException("Durata della fetta e precisione devono essere > 0");
+        }
+        this.sliceLength = sliceLength;
+        this.relativePrecision = relativePrecision;
+        this.confidence = confidence;
+        this.minSlices = 10 * BATCHES;
+    }
+
+    /** Traccia una metrica definita da due contatori cumulativi (num / den). */
+    public void track(String name, DoubleSupplier cumulativeNumerator, DoubleSupplier cumulativeDenominator) {
+        track(name, cumulativeNumerator, cumulativeDenominator, 0);
+    }
+
+    /** Metrica di conteggio: il numeratore conta eventi, ne servono almeno {@code minEvents} dopo il warm-up. */
+    public void track(String name, DoubleSupplier cumulativeNumerator, DoubleSupplier cumulativeDenominator,
+                      long minEvents) {
+        if (names.contains(name)) return;
+        names.add(name);
+        numerators.add(cumulativeNumerator);
+        denominators.add(cumulativeDenominator);
+        this.minEvents.add(minEvents);
+        estimators.add(new SteadyStateEstimator(BATCHES, confidence));
+        lastNum = new double[names.size()];
+        lastDen = new double[names.size()];
+    }
+
+    public void reset(double startTime) {
+        for (SteadyStateEstimator e : estimators) e.clear();
+        for (int i = 0; i < names.size(); i++) {
+            lastNum[i] = numerators.get(i).getAsDouble();
+            lastDen[i] = denominators.get(i).getAsDouble();
+        }
+        sliceEnd = startTime + sliceLength;
+        nextCheck = minSlices;
+        satisfied = false;
+    }
+
+    /**
+     * Chiude tutte le fette terminate prima di {@code time}. {@code closeAt} porta gli
+     * accumulatori pesati sul tempo fino al bordo della fetta prima della lettura.
+     */
+    public void advance(double time, DoubleConsumer closeAt) {
+        while (time >= sliceEnd) {
+            closeAt.accept(sliceEnd);
+            for (int i = 0; i < names.size(); i++) {
+                double n = numerators.get(i).getAsDouble();
+                double d = denominators.get(i).getAsDouble();
+                estimators.get(i).addSlice(n - lastNum[i], d - lastDen[i]);
+                lastNum[i] = n;
+                lastDen[i] = d;
+            }
+            sliceEnd += sliceLength;
+
+            int slices = estimators.isEmpty() ? 0 : estimators.get(0).sliceCount();
+            if (slices >= nextCheck) {
+                satisfied = checkPrecision();
+                nextCheck = Math.max(slices + 5, (int) (slices * 1.1));
+            }
+        }
+    }
+
+    private boolean checkPrecision() {
+        for (int i = 0; i < estimators.size(); i++) {
+            SteadyStateEstimator.Estimate est = estimators.get(i).estimate();
+            if (est == null || est.mean == 0.0 || est.numerator < minEvents.get(i)) return false;
+            if (est.halfWidth > relativePrecision * Math.abs(est.mean)) return false;
+        }
+        return !estimators.isEmpty();
+    }
+
+    public boolean isSatisfied() {
+        return satisfied;
+    }
+
+    public Map<String, SteadyStateEstimator.Estimate> estimates() {
+        Map<String, SteadyStateEstimator.Estimate> out = new LinkedHashMap<>();
+        for (int i = 0; i < names.size(); i++) {
+            out.put(names.get(i), estimators.get(i).estimate());
+        }
+        return out;
+    }
+
+    public void report() {
+        System.out.println("\n==== STIME A REGIME (MSER-5 + batch means) ====");
+        for (var entry : estimates().entrySet()) {
+            System.out.printf("%s: %s%n", entry.getKey(),
+                    entry.getValue() != null ? entry.getValue() : "dati insufficienti");
+        }
+        System.out.println(satisfied
+                ? "✅ Precisione relativa " + relativePrecision + " raggiunta"
+                : "⚠️  Precisione relativa " + relativePrecision + " non raggiunta entro l'orizzonte");
+    }
+}
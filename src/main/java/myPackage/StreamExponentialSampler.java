@@ -0,0 +1,39 @@
+package myPackage;
+
+import org.oristool.simulator.samplers.Sampler;
+
+import java.math.BigDecimal;
+
+/**
+ * Campionatore esponenziale per inversione che usa un flusso dedicato di {@link RandomStreams}
+ * invece di {@code Math.random()}: a parità di flusso, cambiando il tasso cambia solo la scala.
+ * Il tasso si può cambiare durante il run ({@link #setRate}): vale dal campione successivo.
+ */
+public class StreamExponentialSampler implements Sampler {
+    private double rate;
+    private final RandomStreams.Stream stream;
+
+    public StreamExponentialSampler(double rate, RandomStreams.Stream stream) {
+        if (rate <= 0) {
+            throw new IllegalArgumentException("Il tasso deve essere > 0");
+        }
+        this.rate = rate;
+        this.stream = stream;
+    }
+
+    public double getRate() {
+        return rate;
+    }
+
+    public void setRate(double rate) {
+        if (rate <= 0) {
+            throw new IllegalArgumentException("Il tasso deve essere > 0");
+        }
+        this.rate = rate;
+    }
+
+    @Override
+    public BigDecimal getSample() {
+        return BigDecimal.valueOf(stream.nextExponential(rate));
+    }
+}
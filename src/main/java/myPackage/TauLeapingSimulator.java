@@ -0,0 +1,258 @@
+package myPackage;
+
+import org.oristool.petrinet.Marking;
+
+import java.util.Arrays;
+
+/**
+ * Simulazione approssimata con tau-leaping adattivo (Cao, Gillespie, Petzold) per reti
+ * esponenziali con popolazioni grandi: a ogni passo ogni transizione spara un numero di volte
+ * Poisson(tasso · τ), con τ scelto in modo che i tassi varino al più di {@code epsilon} in
+ * senso relativo. {@code epsilon} regola il compromesso accuratezza / velocità.
+ *
+ * Si torna al metodo esatto quando le popolazioni sono piccole:
+ * <ul>
+ *   <li>le transizioni "critiche" (a meno di {@code criticalFirings} spari dallo svuotare
+ *       un posto del pre-set) non entrano nel salto: al più una di esse spara, esattamente;</li>
+ *   <li>un salto che rende negativo un posto o cambia lo stato di una guardia (es. queue che
+ *       attraversa queueSize) viene rifiutato e τ dimezzato;</li>
+ *   <li>se τ prevede pochi firing in totale (meno di {@value #MIN_LEAP_FIRINGS}) si eseguono
+ *       {@value #EXACT_STEPS} passi esatti.</li>
+ * </ul>
+ */
+public class TauLeapingSimulator {
+    /** Passi esatti eseguiti quando il salto non conviene. */
+    static final int EXACT_STEPS = 100;
+    /** Sotto questo numero di firing attesi il salto non conviene. */
+    static final double MIN_LEAP_FIRINGS = 10.0;
+
+    private final ExponentialNet net;
+    private final Marking initialMarking;
+    private final RandomStreams.Stream random;
+    private final double epsilon;
+    private final int criticalFirings;
+    private long leaps;
+    private long exactSteps;
+    private long rejectedLeaps;
+
+    public TauLeapingSimulator(ExponentialNet net, Marking initialMarking, RandomStreams.Stream random,
+                               double epsilon, int criticalFirings) {
+        if (epsilon <= 0 || epsilon >= 1) {
+            throw new IllegalArgumentException("epsilon deve essere in (0, 1): " + epsilon);
+        }
+        this.net = net;
+        this.initialMarking = new Marking(initialMarking);
+        this.random = random;
+        this.epsilon = epsilon;
+        this.criticalFirings = criticalFirings;
+    }
+
+    public TauLeapingSimulator(ExponentialNet net, Marking initialMarking, RandomStreams.Stream random, double epsilon) {
+        this(net, initialMarking, random, epsilon, 10);
+    }
+
+    public long leaps() {
+        return leaps;
+    }
+
+    public long exactSteps() {
+        return exactSteps;
+    }
+
+    public long rejectedLeaps() {
+        return rejectedLeaps;
+    }
+
+    public void simulate(FusedRewardPipeline rewards) {
+        int transitions = net.transitionCount();
+        int places = net.placeCount();
+        int[] allPlaces = new int[places];
+        for (int p = 0; p < places; p++) allPlaces[p] = p;
+
+        int[] tokens = net.getIndex().toTokens(initialMarking);
+        int[] candidate = new int[places];
+        Marking mirror = new Marking(initialMarking);
+        Marking candidateMirror = new Marking(initialMarking);
+        double[] rates = new double[transitions];
+        boolean[] critical = new boolean[transitions];
+        long[] counts = new long[transitions];
+
+        rewards.beginRun(initialMarking);
+        leaps = exactSteps = rejectedLeaps = 0;
+        double time = 0.0;
+        int exactBudget = 0;
+
+        for (int t = 0; t < transitions; t++) {
+            rates[t] = net.rate(t, tokens, mirror);
+        }
+
+        while (!rewards.isStopped()) {
+            double total = 0.0;
+            for (int t = 0; t < transitions; t++) {
+                total += rates[t];
+            }
+            if (total <= 0.0) {
+                rewards.endRun();
+                break;
+            }
+
+            if (exactBudget > 0) {
+                exactBudget--;
+                time = exactStep(rewards, tokens, mirror, rates, total, time);
+                continue;
+            }
+
+            double criticalTotal = 0.0;
+            for (int t = 0; t < transitions; t++) {
+                critical[t] = rates[t] > 0 && isCritical(t, tokens);
+                if (critical[t]) criticalTotal += rates[t];
+            }
+            double tau = selectTau(tokens, rates, critical);
+            double criticalTau = criticalTotal > 0 ? random.nextExponential(criticalTotal) : Double.POSITIVE_INFINITY;
+            tau = Math.min(tau, rewards.getMaxTime() - time);
+
+            boolean leaped = false;
+            double step = Math.min(tau, criticalTau);
+            while (Double.isFinite(step) && step * total >= MIN_LEAP_FIRINGS) {
+                Arrays.fill(counts, 0L);
+                for (int t = 0; t < transitions; t++) {
+                    if (rates[t] > 0 && !critical[t]) counts[t] = random.nextPoisson(rates[t] * step);
+                }
+                if (criticalTau <= tau) {
+                    counts[pick(rates, critical, criticalTotal)]++;
+                }
+                System.arraycopy(tokens, 0, candidate, 0, places);
+                for (int t = 0; t < transitions; t++) {
+                    if (counts[t] > 0) net.fire(t, candidate, (int) counts[t]);
+                }
+                net.syncMarking(candidateMirror, candidate, allPlaces);
+                if (isAcceptable(tokens, mirror, candidate, candidateMirror)) {
+                    System.arraycopy(candidate, 0, tokens, 0, places);
+                    net.syncMarking(mirror, tokens, allPlaces);
+                    for (int t = 0; t < transitions; t++) {
+                        rates[t] = net.rate(t, tokens, mirror);
+                    }
+                    rewards.recordLeap(counts, time, time + step, tokens);
+                    time += step;
+                    rewards.checkHorizon();
+                    leaps++;
+                    leaped = true;
+                    break;
+                }
+                rejectedLeaps++;
+                net.syncMarking(candidateMirror, tokens, allPlaces);
+                // criticalTau resta valido (assenza di memoria): la critica spara nel nuovo salto sse criticalTau ≤ τ
+                tau = step / 2;
+                step = Math.min(tau, criticalTau);
+            }
+            if (!leaped) {
+                exactBudget = EXACT_STEPS;
+            }
+        }
+    }
+
+    /**
+     * Un passo del metodo diretto: scansione lineare (le transizioni sono poche) e
+     * ricalcolo dei soli tassi dipendenti dai posti modificati.
+     */
+    private double exactStep(FusedRewardPipeline rewards, int[] tokens, Marking mirror, double[] rates,
+                             double total, double time) {
+        time += random.nextExponential(total);
+        double target = (1.0 - random.nextUniform()) * total;
+        int fired = -1;
+        for (int t = 0; t < rates.length; t++) {
+            if (rates[t] <= 0) continue;
+            fired = t;
+            target -= rates[t];
+            if (target < 0) break;
+        }
+        net.fire(fired, tokens);
+        net.syncMarking(mirror, tokens, net.changedPlaces(fired));
+        for (int t : net.affectedBy(fired)) {
+            rates[t] = net.rate(t, tokens, mirror);
+        }
+        exactSteps++;
+        rewards.recordFiring(fired, time);
+        rewards.getOccupancy().observe(tokens);
+        rewards.checkHorizon();
+        return time;
+    }
+
+    /** Critica se può sparare meno di {@code criticalFirings} volte prima di svuotare il pre-set. */
+    private boolean isCritical(int t, int[] tokens) {
+        int[] pre = net.prePlaces(t);
+        int[] mult = net.preMultiplicities(t);
+        for (int k = 0; k < pre.length; k++) {
+            if (tokens[pre[k]] / mult[k] < criticalFirings) return true;
+        }
+        return false;
+    }
+
+    /**
+     * τ = min_i { max(ε·x_i/g_i, 1) / |μ_i|, max(ε·x_i/g_i, 1)² / σ²_i } sui posti letti dalle
+     * transizioni non critiche, con μ_i, σ²_i media e varianza della variazione di x_i per unità di tempo.
+     */
+    private double selectTau(int[] tokens, double[] rates, boolean[] critical) {
+        int places = net.placeCount();
+        double[] mean = new double[places];
+        double[] variance = new double[places];
+        int[] order = new int[places];
+        boolean[] reactant = new boolean[places];
+        for (int t = 0; t < rates.length; t++) {
+            if (rates[t] <= 0 || critical[t]) continue;
+            int[] pre = net.prePlaces(t);
+            int[] mult = net.preMultiplicities(t);
+            for (int k = 0; k < pre.length; k++) {
+                reactant[pre[k]] = true;
+                order[pre[k]] = Math.max(order[pre[k]], mult[k]);
+            }
+            int[] read = net.clockPlaces(t);
+            if (read != null) {
+                for (int p : read) {
+                    reactant[p] = true;
+                    order[p] = Math.max(order[p], 1);
+                }
+            }
+            int[] changed = net.changedPlaces(t);
+            int[] amount = net.changeAmounts(t);
+            for (int k = 0; k < changed.length; k++) {
+                mean[changed[k]] += amount[k] * rates[t];
+                variance[changed[k]] += (double) amount[k] * amount[k] * rates[t];
+            }
+        }
+        double tau = Double.POSITIVE_INFINITY;
+        for (int p = 0; p < places; p++) {
+            if (!reactant[p]) continue;
+            double bound = Math.max(epsilon * tokens[p] / order[p], 1.0);
+            if (mean[p] != 0) tau = Math.min(tau, bound / Math.abs(mean[p]));
+            if (variance[p] > 0) tau = Math.min(tau, bound * bound / variance[p]);
+        }
+        return tau;
+    }
+
+    /** Nessun posto negativo e nessuna guardia che cambia stato durante il salto. */
+    private boolean isAcceptable(int[] before, Marking beforeMarking, int[] after, Marking afterMarking) {
+        for (int v : after) {
+            if (v < 0) return false;
+        }
+        for (int t = 0; t < net.transitionCount(); t++) {
+            if (net.hasGuard(t)
+                    && net.guardOpen(t, before, beforeMarking) != net.guardOpen(t, after, afterMarking)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private int pick(double[] rates, boolean[] critical, double criticalTotal) {
+        double target = (1.0 - random.nextUniform()) * criticalTotal;
+        int chosen = -1;
+        for (int t = 0; t < rates.length; t++) {
+            if (!critical[t]) continue;
+            chosen = t;
+            target -= rates[t];
+            if (target < 0) break;
+        }
+        return chosen;
+    }
+}
@@ -0,0 +1,241 @@
+package myPackage;
+
+import org.oristool.petrinet.Marking;
+import org.oristool.simulator.Sequencer;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Reward generica pesata sul tempo: un solo observer calcola media e varianza di
+ * qualsiasi espressione lineare della marcatura (lunghezza coda, server occupati, ...)
+ * e la distribuzione del tempo trascorso in ciascun livello di un posto.
+ *
+ * I posti vengono risolti in id al setup e gli accumulatori sono double primitivi:
+ * la marcatura in vigore nell'intervallo [t_prev, t] è quella osservata al firing
+ * precedente, quindi il contributo di ogni intervallo è sempre attribuito allo stato corretto.
+ * Non si registra sul sequencer: la pilota la {@link FusedRewardPipeline} tramite
+ * reset/advanceTo/observe.
+ */
+public class TimeWeightedReward {
+    private final NetIndex index;
+    private final Sequencer sequencer;
+
+    // posti letti ad ogni firing (unione dei posti usati dalle metriche)
+    private int[] watchedPlaces = new int[0];
+    private final int[] tokens;
+
+    // metriche in forma struct-of-arrays
+    private int metricCount = 0;
+    private String[] names = new String[4];
+    private int[][] metricPlaces = new int[4][];
+    private double[][] metricCoefficients = new double[4][];
+    private double[] metricConstants = new double[4];
+    private double[] metricCaps = new double[4];
+    private double[] current = new double[4];
+    private double[] integral = new double[4];
+    private double[] integralSquares = new double[4];
+
+    // distribuzione del tempo nello stato per un posto (opzionale)
+    private int statePlace = -1;
+    private double[] timeAtLevel = new double[16];
+
+    private double startTime = 0.0;
+    private double lastTime = 0.0;
+
+    /** {@code sequencer} è quello che alimenta la pipeline, null se la pilota un altro motore. */
+    public TimeWeightedReward(NetIndex index, Sequencer sequencer) {
+        this.index = index;
+        this.sequencer = sequencer;
+        this.tokens = new int[index.placeCount()];
+    }
+
+    public Sequencer getSequencer() {
+        return sequencer;
+    }
+
+    /** Metrica lineare: constant + Σ coeff(p)·tokens(p). */
+    public int addLinearMetric(String name, Map<String, Double> coefficients, double constant) {
+        return addMetric(name, coefficients, constant, Double.POSITIVE_INFINITY);
+    }
+
+    /** Numero di token nel posto (es. lunghezza della coda). */
+    public int addPlaceMetric(String name, String place) {
+        return addMetric(name, Map.of(place, 1.0), 0.0, Double.POSITIVE_INFINITY);
+    }
+
+    /** Server occupati: min(tokens(place), servers). */
+    public int addBusyServersMetric(String name, String place, int servers) {
+        if (servers <= 0) {
+            throw new IllegalArgumentException("Il numero di server deve essere > 0");
+        }
+        return addMetric(name, Map.of(place, 1.0), 0.0, servers);
+    }
+
+    private int addMetric(String name, Map<String, Double> coefficients, double constant, double cap) {
+        if (metricCount == names.length) {
+            int size = names.length * 2;
+            names = Arrays.copyOf(names, size);
+            metricPlaces = Arrays.copyOf(metricPlaces, size);
+            metricCoefficients = Arrays.copyOf(metricCoefficients, size);
+            metricConstants = Arrays.copyOf(metricConstants, size);
+            metricCaps = Arrays.copyOf(metricCaps, size);
+            current = Arrays.copyOf(current, size);
+            integral = Arrays.copyOf(integral, size);
+            integralSquares = Arrays.copyOf(integralSquares, size);
+        }
+        Map<String, Double> ordered = new LinkedHashMap<>(coefficients);
+        int[] ids = new int[ordered.size()];
+        double[] coeffs = new double[ordered.size()];
+        int k = 0;
+        for (var entry : ordered.entrySet()) {
+            ids[k] = index.placeId(entry.getKey());
+            coeffs[k] = entry.getValue();
+            watch(ids[k]);
+            k++;
+        }
+        int id = metricCount++;
+        names[id] = name;
+        metricPlaces[id] = ids;
+        metricCoefficients[id] = coeffs;
+        metricConstants[id] = constant;
+        metricCaps[id] = cap;
+        current[id] = evaluateMetric(id);
+        return id;
+    }
+
+    /** Abilita la distribuzione del tempo trascorso con k token nel posto, per ogni k. */
+    public void trackTimeInState(String place) {
+        statePlace = index.placeId(place);
+        watch(statePlace);
+    }
+
+    private void watch(int placeId) {
+        for (int p : watchedPlaces) {
+            if (p == placeId) return;
+        }
+        watchedPlaces = Arrays.copyOf(watchedPlaces, watchedPlaces.length + 1);
+        watchedPlaces[watchedPlaces.length - 1] = placeId;
+    }
+
+    /** Azzera gli accumulatori e riparte dalla marcatura data al tempo t. */
+    public void reset(Marking marking, double t) {
+        Arrays.fill(integral, 0.0);
+        Arrays.fill(integralSquares, 0.0);
+        Arrays.fill(timeAtLevel, 0.0);
+        startTime = t;
+        lastTime = t;
+        observe(marking);
+    }
+
+    /** Accumula i valori correnti fino al tempo t (la marcatura non cambia). */
+    public void advanceTo(double t) {
+        double dt = t - lastTime;
+        if (dt <= 0) return;
+        for (int i = 0; i < metricCount; i++) {
+            double x = current[i];
+            integral[i] += x * dt;
+            integralSquares[i] += x * x * dt;
+        }
+        if (statePlace >= 0) {
+            int level = tokens[statePlace];
+            if (level >= timeAtLevel.length) {
+                timeAtLevel = Arrays.copyOf(timeAtLevel, Math.max(level + 1, timeAtLevel.length * 2));
+            }
+            timeAtLevel[level] += dt;
+        }
+        lastTime = t;
+    }
+
+    /** Aggiorna i valori correnti dalla nuova marcatura. */
+    public void observe(Marking marking) {
+        index.readTokens(marking, watchedPlaces, tokens);
+        refresh();
+    }
+
+    /** Variante senza Marking: {@code netTokens} è indicizzato per id di posto. */
+    public void observe(int[] netTokens) {
+        for (int p : watchedPlaces) {
+            tokens[p] = netTokens[p];
+        }
+        refresh();
+    }
+
+    private void refresh() {
+        for (int i = 0; i < metricCount; i++) {
+            current[i] = evaluateMetric(i);
+        }
+    }
+
+    private double evaluateMetric(int id) {
+        int[] ids = metricPlaces[id];
+        double[] coeffs = metricCoefficients[id];
+        double value = metricConstants[id];
+        for (int k = 0; k < ids.length; k++) {
+            value += coeffs[k] * tokens[ids[k]];
+        }
+        return Math.min(value, metricCaps[id]);
+    }
+
+    public int metricId(String name) {
+        for (int i = 0; i < metricCount; i++) {
+            if (names[i].equals(name)) return i;
+        }
+        throw new IllegalArgumentException("Metrica inesistente: " + name);
+    }
+
+    public String metricName(int id) {
+        return names[id];
+    }
+
+    public int metricCount() {
+        return metricCount;
+    }
+
+    public double observedTime() {
+        return lastTime - startTime;
+    }
+
+    public double currentValue(int id) {
+        return current[id];
+    }
+
+    /** Integrale ∫ x(s) ds dall'inizio del run (utile per statistiche a finestre). */
+    public double integral(int id) {
+        return integral[id];
+    }
+
+    public double mean(int id) {
+        double t = observedTime();
+        return t > 0 ? integral[id] / t : current[id];
+    }
+
+    public double variance(int id) {
+        double t = observedTime();
+        if (t <= 0) return 0.0;
+        double m = integral[id] / t;
+        return Math.max(0.0, integralSquares[id] / t - m * m);
+    }
+
+    /** Frazione di tempo trascorsa con k token nel posto tracciato (indice = k). */
+    public double[] getTimeInStateDistribution() {
+        double t = observedTime();
+        int last = timeAtLevel.length - 1;
+        while (last > 0 && timeAtLevel[last] == 0.0) last--;
+        double[] dist = new double[last + 1];
+        for (int k = 0; k <= last; k++) {
+            dist[k] = t > 0 ? timeAtLevel[k] / t : 0.0;
+        }
+        return dist;
+    }
+
+    /** Restituisce le medie di tutte le metriche, per nome. */
+    public Map<String, Double> evaluate() {
+        Map<String, Double> means = new LinkedHashMap<>();
+        for (int i = 0; i < metricCount; i++) {
+            means.put(names[i], mean(i));
+        }
+        return means;
+    }
+}
@@ -0,0 +1,21 @@
+package myPackage;
+
+/**
+ * Ruolo di una transizione della rete di {@link SimulationSetup}, ricavato dal nome
+ * una sola volta al setup (arrival1..n, blocked1..n, service, abandon).
+ */
+public enum TransitionCategory {
+    ARRIVAL,
+    BLOCKED,
+    SERVICE,
+    ABANDON,
+    OTHER;
+
+    public static TransitionCategory of(String transitionName) {
+        if (transitionName.startsWith("arrival")) return ARRIVAL;
+        if (transitionName.startsWith("blocked")) return BLOCKED;
+        if (transitionName.equals("service")) return SERVICE;
+        if (transitionName.equals("abandon")) return ABANDON;
+        return OTHER;
+    }
+}
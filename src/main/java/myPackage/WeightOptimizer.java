@@ -0,0 +1,323 @@
+package myPackage;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+import java.util.SplittableRandom;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Ricerca dei pesi BPH e di poolSize / queueSize che minimizzano un costo su blocco, abbandono
+ * e utilizzo, con il metodo cross-entropy: a ogni iterazione si estrae una popolazione di
+ * configurazioni da una gaussiana (sui logaritmi dei pesi, poi normalizzati, e sulle due
+ * dimensioni, poi arrotondate), si simulano tutte in parallelo e media e deviazione standard
+ * vengono spostate (con smorzamento) verso quelle del 20% migliore.
+ *
+ * Ogni configurazione è valutata su {@code replications} repliche con gli stessi
+ * {@link RandomStreams} per tutte (numeri casuali comuni): le differenze di costo tra candidati
+ * dipendono dalla configurazione e molto meno dal rumore. I pesi sono arrotondati a 3 decimali,
+ * quindi i candidati ripetuti (frequenti quando la distribuzione si stringe) vengono dalla cache.
+ */
+public class WeightOptimizer {
+
+    /** Costo di una configurazione: block · P(blocco) + abandon · abbandono + idle · (1 − utilizzo). */
+    public static class Cost {
+        public final double block;
+        public final double abandon;
+        public final double idle;
+
+        public Cost(double block, double abandon, double idle) {
+            this.block = block;
+            this.abandon = abandon;
+            this.idle = idle;
+        }
+
+        public double of(double blockRate, double abandonRate, double utilization) {
+            return block * blockRate + abandon * abandonRate + idle * (1 - utilization);
+        }
+    }
+
+    /** Una configurazione valutata (media sulle repliche). */
+    public static class Evaluation {
+        public final List<BigDecimal> weights;
+        public final int poolSize;
+        public final int queueSize;
+        public final double abandon;
+        public final double block;
+        public final double utilization;
+        public final double cost;
+
+        Evaluation(List<BigDecimal> weights, int poolSize, int queueSize, double abandon, double block,
+                   double utilization, double cost) {
+            this.weights = weights;
+            this.poolSize = poolSize;
+            this.queueSize = queueSize;
+            this.abandon = abandon;
+            this.block = block;
+            this.utilization = utilization;
+            this.cost = cost;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("costo=%.5f blocco=%.4f abbandono=%.4f utilizzo=%.4f pool=%d coda=%d pesi=%s",
+                    cost, block, abandon, utilization, poolSize, queueSize, weights);
+        }
+    }
+
+    /** Configurazione candidata: chiave della cache (pesi già arrotondati). */
+    private static final class Key {
+        final List<BigDecimal> weights;
+        final int poolSize;
+        final int queueSize;
+
+        Key(List<BigDecimal> weights, int poolSize, int queueSize) {
+            this.weights = weights;
+            this.poolSize = poolSize;
+            this.queueSize = queueSize;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Key k && poolSize == k.poolSize && queueSize == k.queueSize && weights.equals(k.weights);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(weights, poolSize, queueSize);
+        }
+    }
+
+    private static final double ELITE_FRACTION = 0.2;
+    private static final double SMOOTHING = 0.7;
+    private static final double MIN_LOG_SIGMA = 0.02;
+    private static final double MIN_SIZE_SIGMA = 0.3;
+
+    private final SimulationConfig base;
+    private final Cost cost;
+    private final int order;
+    private final int minPool, maxPool, minQueue, maxQueue;
+    private final int populationSize;
+    private final int replications;
+    private final long seed;
+    private final ForkJoinPool pool;
+    private final ConcurrentHashMap<Key, CompletableFuture<Evaluation>> cache = new ConcurrentHashMap<>();
+    private final AtomicInteger simulations = new AtomicInteger();
+    private final AtomicInteger cacheHits = new AtomicInteger();
+    private final List<Evaluation> history = new ArrayList<>();
+
+    /**
+     * @param base         configurazione di partenza (orizzonte, motore, popolazione; pool e coda
+     *                     iniziali); i run sono sempre senza log di debug
+     * @param order        numero di pesi BPH
+     * @param maxPool      poolSize massimo (minimo 1)
+     * @param maxQueue     queueSize massimo (minimo 1)
+     */
+    public WeightOptimizer(SimulationConfig base, Cost cost, int order, int maxPool, int maxQueue,
+                           int populationSize, int replications, long seed, ForkJoinPool pool) {
+        if (order < 1 || maxPool < 1 || maxQueue < 1) {
+            throw new IllegalArgumentException("Spazio di ricerca non valido");
+        }
+        if (populationSize < 5 || replications < 1) {
+            throw new IllegalArgumentException("Servono almeno 5 candidati per iterazione e una replica");
+        }
+        this.base = base.copy();
+        this.base.verbose = false;
+        this.cost = Objects.requireNonNull(cost);
+        this.order = order;
+        this.minPool = 1;
+        this.maxPool = maxPool;
+        this.minQueue = 1;
+        this.maxQueue = maxQueue;
+        this.populationSize = populationSize;
+        this.replications = replications;
+        this.seed = seed;
+        this.pool = pool;
+    }
+
+    public WeightOptimizer(SimulationConfig base, Cost cost, int order, int maxPool, int maxQueue,
+                           int populationSize, int replications, long seed) {
+        this(base, cost, order, maxPool, maxQueue, populationSize, replications, seed, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Esegue fino a {@code iterations} iterazioni partendo da {@code initialWeights} e dalle
+     * dimensioni della configurazione base; si ferma prima se la distribuzione si è stretta.
+     */
+    public Evaluation optimize(List<BigDecimal> initialWeights, int iterations) {
+        if (initialWeights.size() != order) {
+            throw new IllegalArgumentException("Servono " + order + " pesi iniziali");
+        }
+        int dims = order + 2;
+        double[] mean = new double[dims];
+        double[] sigma = new double[dims];
+        for (int i = 0; i < order; i++) {
+            mean[i] = Math.log(Math.max(1e-3, initialWeights.get(i).doubleValue()));
+            sigma[i] = 1.0;
+        }
+        mean[order] = clamp(base.poolSize, minPool, maxPool);
+        sigma[order] = (maxPool - minPool) / 4.0 + MIN_SIZE_SIGMA;
+        mean[order + 1] = clamp(base.queueSize, minQueue, maxQueue);
+        sigma[order + 1] = (maxQueue - minQueue) / 4.0 + MIN_SIZE_SIGMA;
+
+        SplittableRandom random = new SplittableRandom(seed);
+        int elite = Math.max(2, (int) Math.ceil(ELITE_FRACTION * populationSize));
+        Evaluation best = null;
+        history.clear();
+
+        for (int it = 0; it < iterations; it++) {
+            List<Key> candidates = new ArrayList<>(populationSize);
+            for (int c = 0; c < populationSize; c++) {
+                candidates.add(sample(mean, sigma, random));
+            }
+            List<CompletableFuture<Evaluation>> futures = new ArrayList<>(candidates.size());
+            for (Key k : candidates) {
+                futures.add(evaluate(k));
+            }
+            List<Evaluation> results = new ArrayList<>(futures.size());
+            for (CompletableFuture<Evaluation> f : futures) {
+                results.add(f.join());
+            }
+            results.sort(Comparator.comparingDouble(e -> e.cost));
+            if (best == null || results.get(0).cost < best.cost) best = results.get(0);
+            history.add(best);
+
+            // media e deviazione delle élite, smorzate rispetto ai valori precedenti
+            List<Evaluation> top = results.subList(0, elite);
+            for (int d = 0; d < dims; d++) {
+                double m = 0.0;
+                for (Evaluation e : top) m += coordinate(e, d);
+                m /= top.size();
+                double v = 0.0;
+                for (Evaluation e : top) v += (coordinate(e, d) - m) * (coordinate(e, d) - m);
+                double s = Math.sqrt(v / top.size());
+                mean[d] = SMOOTHING * m + (1 - SMOOTHING) * mean[d];
+                sigma[d] = SMOOTHING * s + (1 - SMOOTHING) * sigma[d];
+            }
+            if (converged(sigma)) break;
+        }
+        return best;
+    }
+
+    private boolean converged(double[] sigma) {
+        for (int i = 0; i < order; i++) {
+            if (sigma[i] > MIN_LOG_SIGMA) return false;
+        }
+        return sigma[order] < MIN_SIZE_SIGMA && sigma[order + 1] < MIN_SIZE_SIGMA;
+    }
+
+    /** Coordinata d della configurazione nello spazio di ricerca (log-pesi, poi pool e coda). */
+    private double coordinate(Evaluation e, int d) {
+        if (d < order) return Math.log(Math.max(1e-3, e.weights.get(d).doubleValue()));
+        return d == order ? e.poolSize : e.queueSize;
+    }
+
+    private Key sample(double[] mean, double[] sigma, SplittableRandom random) {
+        double[] w = new double[order];
+        double max = Double.NEGATIVE_INFINITY;
+        for (int i = 0; i < order; i++) {
+            w[i] = mean[i] + sigma[i] * gaussian(random);
+            max = Math.max(max, w[i]);
+        }
+        double sum = 0.0;
+        for (int i = 0; i < order; i++) {
+            w[i] = Math.exp(w[i] - max);
+            sum += w[i];
+        }
+        int poolSize = (int) Math.round(clamp(mean[order] + sigma[order] * gaussian(random), minPool, maxPool));
+        int queueSize = (int) Math.round(clamp(mean[order + 1] + sigma[order + 1] * gaussian(random), minQueue, maxQueue));
+        return new Key(roundWeights(w, sum), poolSize, queueSize);
+    }
+
+    /** Pesi normalizzati a 3 decimali (chiave della cache); un peso minimo di 0.001 tiene accese tutte le fasi. */
+    private static List<BigDecimal> roundWeights(double[] w, double sum) {
+        List<BigDecimal> out = new ArrayList<>(w.length);
+        for (double x : w) {
+            out.add(BigDecimal.valueOf(Math.max(0.001, x / sum)).setScale(3, RoundingMode.HALF_UP));
+        }
+        return List.copyOf(out);
+    }
+
+    private CompletableFuture<Evaluation> evaluate(Key key) {
+        CompletableFuture<Evaluation> cached = cache.get(key);
+        if (cached != null) {
+            cacheHits.incrementAndGet();
+            return cached;
+        }
+        CompletableFuture<Evaluation> created = new CompletableFuture<>();
+        CompletableFuture<Evaluation> previous = cache.putIfAbsent(key, created);
+        if (previous != null) {
+            cacheHits.incrementAndGet();
+            return previous;
+        }
+        pool.execute(() -> {
+            try {
+                created.complete(simulate(key));
+            } catch (RuntimeException e) {
+                created.completeExceptionally(e);
+            }
+        });
+        return created;
+    }
+
+    /** Media delle repliche con gli stessi flussi per ogni configurazione (numeri casuali comuni). */
+    private Evaluation simulate(Key key) {
+        SimulationConfig config = base.copy();
+        config.poolSize = key.poolSize;
+        config.queueSize = key.queueSize;
+        RandomStreams streams = new RandomStreams(seed);
+        double abandon = 0.0, block = 0.0, utilization = 0.0;
+        for (int r = 0; r < replications; r++) {
+            RunMetrics m = SimulationRunner.run(config, key.weights, streams.replication(r));
+            abandon += m.abandon;
+            block += m.block;
+            utilization += m.utilization;
+            simulations.incrementAndGet();
+        }
+        abandon /= replications;
+        block /= replications;
+        utilization /= replications;
+        return new Evaluation(key.weights, key.poolSize, key.queueSize, abandon, block, utilization,
+                cost.of(block, abandon, utilization));
+    }
+
+    private static double gaussian(SplittableRandom random) {
+        // Box-Muller: due uniformi, una normale
+        double u = 1.0 - random.nextDouble();
+        return Math.sqrt(-2 * Math.log(u)) * Math.cos(2 * Math.PI * random.nextDouble());
+    }
+
+    private static double clamp(double x, double lo, double hi) {
+        return Math.min(hi, Math.max(lo, x));
+    }
+
+    /** Migliore configurazione dopo ogni iterazione. */
+    public List<Evaluation> getHistory() {
+        return history;
+    }
+
+    public int simulations() {
+        return simulations.get();
+    }
+
+    public int cacheHits() {
+        return cacheHits.get();
+    }
+
+    public void report() {
+        System.out.println("iterazione;costo;blocco;abbandono;utilizzo;pool;coda;pesi");
+        for (int i = 0; i < history.size(); i++) {
+            Evaluation e = history.get(i);
+            System.out.printf("%d;%.5f;%.4f;%.4f;%.4f;%d;%d;%s%n", i + 1, e.cost, e.block, e.abandon,
+                    e.utilization, e.poolSize, e.queueSize, e.weights);
+        }
+        System.out.printf("%d candidati per iterazione, simulazioni: %d, valutazioni dalla cache: %d%n",
+                populationSize, simulations(), cacheHits());
+    }
+}
@@ -1,16 +1,18 @@
 package myPackage.endpoint;
 
+import com.google.gson.Gson;
 import org.springframework.core.io.Resource;
+import myPackage.ResultsStore;
 import myPackage.service.SimulazioneService;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.core.io.InputStreamResource;
+import myPackage.service.ArtifactService;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
-import java.io.File;
-import java.io.FileInputStream;
 import java.io.IOException;
-import java.nio.file.Paths;
+import java.util.Map;
 
 @CrossOrigin(origins = "http://localhost:3000")
 @RestController
@@ -19,32 +21,109 @@ public class SimulazioneEndpoint {
     @Autowired
     private SimulazioneService simService;
 
+    @Autowired
+    private ArtifactService artifactService;
+
+    /** Corpo JSON di errore: il messaggio può contenere virgolette, a capo o backslash. */
+    private static String error(Exception e) {
+        return new Gson().toJson(Map.of("error", String.valueOf(e.getMessage())));
+    }
+
     @GetMapping("/simulate")
-    public String simula(@RequestParam(defaultValue = "static") String mode, @RequestParam int rounds ) {
+    public String simula(@RequestParam(defaultValue = "static") String mode, @RequestParam int rounds,
+                         @RequestParam(defaultValue = "false") boolean converge,
+                         @RequestParam(required = false) Long seed,
+                         @RequestParam(defaultValue = "true") boolean png) {
         try {
-            return simService.run(mode, rounds);
+            return simService.run(mode, rounds, converge, seed, png);
         } catch (Exception e) {
             return "Errore durante la simulazione: " + e.getMessage();
         }
     }
 
-    @GetMapping("/output/{filename:.+}")
-    public ResponseEntity<Resource> serveOutput(@PathVariable String filename) throws IOException {
-        // Usa System.getProperty("user.dir") per ottenere la directory di lavoro corrente
-        // e Paths.get per costruire un percorso compatibile con il sistema operativo
-        File file = Paths.get(System.getProperty("user.dir"), "output", filename).toFile();
+    @GetMapping(value = "/capacity", produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<String> capacity(@RequestParam double maxBlock, @RequestParam double maxAbandon,
+                                           @RequestParam(defaultValue = "32") int maxPool,
+                                           @RequestParam(defaultValue = "16") int maxQueue) {
+        try {
+            return ResponseEntity.ok(simService.capacity(maxBlock, maxAbandon, maxPool, maxQueue));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(error(e));
+        } catch (Exception e) {
+            return ResponseEntity.internalServerError().body(error(e));
+        }
+    }
 
-        System.out.println("🔍 Cerco file: " + file.getAbsolutePath());
+    /** Serie dei grafici di un round (CDF, istogramma, fit BPH) con al più {@code points} punti ciascuna. */
+    @GetMapping(value = "/charts/{round}", produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<String> charts(@PathVariable int round, @RequestParam(defaultValue = "500") int points) {
+        try {
+            String body = simService.charts(round, points);
+            return body != null ? ResponseEntity.ok(body) : ResponseEntity.notFound().build();
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(error(e));
+        } catch (Exception e) {
+            return ResponseEntity.internalServerError().body(error(e));
+        }
+    }
 
-        if (!file.exists()) {
-            return ResponseEntity.notFound().build();
+    /** Round archiviati: filtri per job, configurazione, modalità, round e istante (ms). */
+    @GetMapping(value = "/results", produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<String> results(@RequestParam(required = false) String job,
+                                          @RequestParam(required = false) String config,
+                                          @RequestParam(required = false) String mode,
+                                          @RequestParam(required = false) Integer minRound,
+                                          @RequestParam(required = false) Integer maxRound,
+                                          @RequestParam(required = false) Long from,
+                                          @RequestParam(required = false) Long to,
+                                          @RequestParam(defaultValue = "1000") int limit,
+                                          @RequestParam(defaultValue = "false") boolean aggregate,
+                                          @RequestParam(required = false) String groupBy) {
+        ResultsStore.Query query = new ResultsStore.Query();
+        query.job = job;
+        query.config = config;
+        query.mode = mode;
+        query.minRound = minRound;
+        query.maxRound = maxRound;
+        query.from = from;
+        query.to = to;
+        query.limit = limit;
+        try {
+            return ResponseEntity.ok(simService.results(query, aggregate, groupBy));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(error(e));
+        } catch (Exception e) {
+            return ResponseEntity.internalServerError().body(error(e));
         }
+    }
 
-        String contentType = filename.endsWith(".json") ? "application/json" : "image/png";
-        Resource resource = new InputStreamResource(new FileInputStream(file));
+    /**
+     * File di output/ con ETag e Last-Modified (Spring risponde 304 se la richiesta è condizionale
+     * e 206 alle richieste Range). I JSON vanno in gzip se il client lo accetta e non chiede un
+     * intervallo. I file cambiano a ogni run con lo stesso nome, quindi il browser li riconvalida
+     * sempre (no-cache) ma li riscarica solo se sono cambiati.
+     */
+    @GetMapping("/output/{filename:.+}")
+    public ResponseEntity<Resource> serveOutput(@PathVariable String filename,
+                                                @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding,
+                                                @RequestHeader(value = HttpHeaders.RANGE, required = false) String range) throws IOException {
+        ArtifactService.Artifact artifact = artifactService.find(filename);
+        if (artifact == null) {
+            return ResponseEntity.notFound().build();
+        }
 
-        return ResponseEntity.ok()
-                .contentType(MediaType.parseMediaType(contentType))
-                .body(resource);
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .contentType(artifact.contentType)
+                .lastModified(artifact.lastModified)
+                .cacheControl(CacheControl.noCache());
+        if (artifact.isCompressible()) {
+            response.varyBy(HttpHeaders.ACCEPT_ENCODING);
+            if (range == null && acceptEncoding != null && acceptEncoding.contains("gzip")) {
+                return response.eTag(artifact.gzipEtag())
+                        .header(HttpHeaders.CONTENT_ENCODING, "gzip")
+                        .body(artifact.gzipResource());
+            }
+        }
+        return response.eTag(artifact.etag).body(artifact.resource());
     }
 }
\ No newline at end of file
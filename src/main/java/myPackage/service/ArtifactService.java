@@ -0,0 +1,127 @@
+package myPackage.service;
+
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Service;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * File di output/ serviti dall'endpoint: risolve il nome (senza uscire dalla cartella), calcola
+ * ETag e Last-Modified e tiene in memoria gli artefatti piccoli (JSON e PNG dei round), con la
+ * versione gzip dei JSON. Una voce resta valida finché data di modifica e dimensione del file non
+ * cambiano; oltre {@code HOT_BYTES} in totale si scartano le meno usate.
+ */
+@Service
+public class ArtifactService {
+    private static final long MAX_HOT_FILE = 512 * 1024;
+    private static final long HOT_BYTES = 32L * 1024 * 1024;
+
+    /** Un file pronto da servire. */
+    public static class Artifact {
+        public final String name;
+        public final MediaType contentType;
+        public final long length;
+        public final long lastModified;
+        public final String etag;
+        private final Path path;
+        private final byte[] content;
+        private byte[] gzipped;
+
+        Artifact(String name, Path path, long length, long lastModified, byte[] content) {
+            this.name = name;
+            this.path = path;
+            this.length = length;
+            this.lastModified = lastModified;
+            this.content = content;
+            this.contentType = name.endsWith(".json") ? MediaType.APPLICATION_JSON
+                    : name.endsWith(".png") ? MediaType.IMAGE_PNG
+                    : MediaType.APPLICATION_OCTET_STREAM;
+            this.etag = "\"" + Long.toHexString(length) + "-" + Long.toHexString(lastModified) + "\"";
+        }
+
+        public boolean isCompressible() {
+            return MediaType.APPLICATION_JSON.equals(contentType);
+        }
+
+        /** Corpo non compresso: dalla memoria se l'artefatto è in cache, altrimenti dal file. */
+        public Resource resource() {
+            return content != null ? new ByteArrayResource(content) : new FileSystemResource(path);
+        }
+
+        /** Corpo gzip (calcolato alla prima richiesta e tenuto con la voce in cache). */
+        public synchronized Resource gzipResource() throws IOException {
+            if (gzipped == null) {
+                byte[] raw = content != null ? content : Files.readAllBytes(path);
+                ByteArrayOutputStream out = new ByteArrayOutputStream(raw.length / 4 + 64);
+                try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+                    gzip.write(raw);
+                }
+                gzipped = out.toByteArray();
+            }
+            return new ByteArrayResource(gzipped);
+        }
+
+        /** ETag della rappresentazione gzip: diversa da quella non compressa. */
+        public String gzipEtag() {
+            return etag.substring(0, etag.length() - 1) + "-gzip\"";
+        }
+
+        private long memorySize() {
+            return (content != null ? content.length : 0) + (gzipped != null ? gzipped.length : 0);
+        }
+    }
+
+    private final Path root = Paths.get(System.getProperty("user.dir"), "output").toAbsolutePath().normalize();
+    private final LinkedHashMap<String, Artifact> hot = new LinkedHashMap<>(64, 0.75f, true);
+    private long hotBytes;
+
+    /** Artefatto con questo nome in output/, o null se non esiste (o il nome esce dalla cartella). */
+    public Artifact find(String filename) throws IOException {
+        Path path = root.resolve(filename).normalize();
+        if (!path.startsWith(root) || !Files.isRegularFile(path)) return null;
+        BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+        long length = attributes.size();
+        long lastModified = attributes.lastModifiedTime().toMillis();
+
+        synchronized (hot) {
+            Artifact cached = hot.get(filename);
+            if (cached != null && cached.length == length && cached.lastModified == lastModified) return cached;
+            if (cached != null) {
+                hot.remove(filename);
+                hotBytes -= cached.memorySize();
+            }
+        }
+        if (length > MAX_HOT_FILE) {
+            return new Artifact(filename, path, length, lastModified, null);
+        }
+        byte[] content = Files.readAllBytes(path);
+        if (content.length != length) {
+            // file riscritto durante la lettura: niente cache, lo si rilegge alla prossima richiesta
+            return new Artifact(filename, path, length, lastModified, null);
+        }
+        Artifact artifact = new Artifact(filename, path, length, lastModified, content);
+        if (artifact.isCompressible()) artifact.gzipResource();
+        synchronized (hot) {
+            Artifact previous = hot.put(filename, artifact);
+            if (previous != null) hotBytes -= previous.memorySize();
+            hotBytes += artifact.memorySize();
+            Iterator<Artifact> eldest = hot.values().iterator();
+            while (hotBytes > HOT_BYTES && eldest.hasNext()) {
+                hotBytes -= eldest.next().memorySize();
+                eldest.remove();
+            }
+        }
+        return artifact;
+    }
+}
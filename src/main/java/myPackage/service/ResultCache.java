@@ -0,0 +1,233 @@
+package myPackage.service;
+
+import myPackage.ResultsStore;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Cache dei risultati delle simulazioni, indirizzata per contenuto: la chiave è lo SHA-256 della
+ * configurazione (modalità, round, opzioni, pesi iniziali, seed, versione del motore).
+ *
+ * Due livelli: in memoria un LRU limitato dalla dimensione totale dei file, su disco una cartella
+ * per chiave sotto {@code output/cache}. Le richieste identiche già in corso aspettano lo stesso
+ * calcolo invece di ripeterlo.
+ */
+public class ResultCache {
+    /**
+     * Da incrementare quando cambia l'output della simulazione: invalida tutte le voci su disco.
+     * 2: i run con la rete bloccata prima dell'orizzonte non ripartono più da capo.
+     * 3: ogni round scrive anche round_N_charts.json (e i PNG sono opzionali).
+     * 4: in modalità a regime si esportano le stime troncate dopo il warm-up.
+     * 5: ogni round usa flussi indipendenti (replica = numero del round).
+     * 6: inter-arrivi calcolati in double (ultime cifre diverse nella modalità dinamica).
+     */
+    public static final int ENGINE_VERSION = 6;
+    private static final String MESSAGE_FILE = "message.txt";
+
+    /** Risultato di un run: messaggio di risposta e file scritti in output/ (nome → contenuto). */
+    public static class Entry {
+        public final String message;
+        public final Map<String, byte[]> files;
+        private final long size;
+
+        public Entry(String message, Map<String, byte[]> files) {
+            this.message = message;
+            this.files = Collections.unmodifiableMap(new LinkedHashMap<>(files));
+            long total = message.length();
+            for (byte[] content : files.values()) total += content.length;
+            this.size = total;
+        }
+
+        public long size() {
+            return size;
+        }
+    }
+
+    @FunctionalInterface
+    public interface Loader {
+        Entry load() throws IOException;
+    }
+
+    private final long maxBytes;
+    private final File directory;
+    private final LinkedHashMap<String, Entry> memory = new LinkedHashMap<>(16, 0.75f, true);
+    private final Map<String, CompletableFuture<Entry>> inFlight = new ConcurrentHashMap<>();
+    private long memoryBytes;
+    private long hits;
+    private long misses;
+
+    public ResultCache(long maxBytes, File directory) {
+        if (maxBytes <= 0) {
+            throw new IllegalArgumentException("Dimensione massima della cache non valida: " + maxBytes);
+        }
+        this.maxBytes = maxBytes;
+        this.directory = directory;
+    }
+
+    /** SHA-256 della configurazione (vedi {@link ResultsStore#hash}) più la versione del motore. */
+    public static String key(Map<String, ?> parts) {
+        Map<String, Object> canonical = new TreeMap<>(parts);
+        canonical.put("engineVersion", ENGINE_VERSION);
+        return ResultsStore.hash(canonical);
+    }
+
+    /** Voce in memoria o su disco (poi promossa in memoria), o null. */
+    public Entry get(String key) throws IOException {
+        synchronized (memory) {
+            Entry entry = memory.get(key);
+            if (entry != null) return entry;
+        }
+        Entry entry = readDisk(key);
+        if (entry != null) remember(key, entry);
+        return entry;
+    }
+
+    public void put(String key, Entry entry) throws IOException {
+        remember(key, entry);
+        writeDisk(key, entry);
+    }
+
+    /**
+     * Voce della cache, calcolata con {@code loader} se manca. Una sola esecuzione per chiave:
+     * le richieste concorrenti identiche ricevono lo stesso risultato (o lo stesso errore).
+     */
+    public Entry computeIfAbsent(String key, Loader loader) throws IOException {
+        Entry cached = get(key);
+        if (cached != null) {
+            synchronized (memory) {
+                hits++;
+            }
+            return cached;
+        }
+        CompletableFuture<Entry> mine = new CompletableFuture<>();
+        CompletableFuture<Entry> running = inFlight.putIfAbsent(key, mine);
+        if (running != null) {
+            synchronized (memory) {
+                hits++;
+            }
+            return join(running);
+        }
+        try {
+            // un'altra richiesta può aver completato la voce tra get e putIfAbsent
+            Entry entry = get(key);
+            if (entry == null) {
+                synchronized (memory) {
+                    misses++;
+                }
+                entry = loader.load();
+                put(key, entry);
+            }
+            mine.complete(entry);
+            return entry;
+        } catch (IOException | RuntimeException e) {
+            mine.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, mine);
+        }
+    }
+
+    private static Entry join(CompletableFuture<Entry> future) throws IOException {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof IOException io) throw io;
+            if (e.getCause() instanceof RuntimeException re) throw re;
+            throw e;
+        }
+    }
+
+    private void remember(String key, Entry entry) {
+        // una voce più grande dell'intera cache resta solo su disco
+        if (entry.size() > maxBytes) return;
+        synchronized (memory) {
+            Entry previous = memory.put(key, entry);
+            if (previous != null) memoryBytes -= previous.size();
+            memoryBytes += entry.size();
+            Iterator<Entry> eldest = memory.values().iterator();
+            while (memoryBytes > maxBytes && eldest.hasNext()) {
+                memoryBytes -= eldest.next().size();
+                eldest.remove();
+            }
+        }
+    }
+
+    private Entry readDisk(String key) throws IOException {
+        File dir = new File(directory, key);
+        File message = new File(dir, MESSAGE_FILE);
+        if (!message.isFile()) return null;
+        Map<String, byte[]> files = new TreeMap<>();
+        File[] contents = dir.listFiles();
+        if (contents != null) {
+            for (File f : contents) {
+                if (f.isFile() && !f.getName().equals(MESSAGE_FILE)) files.put(f.getName(), Files.readAllBytes(f.toPath()));
+            }
+        }
+        return new Entry(Files.readString(message.toPath(), StandardCharsets.UTF_8), files);
+    }
+
+    /** Scrive in una cartella temporanea e la rinomina: una voce su disco è sempre completa. */
+    private void writeDisk(String key, Entry entry) throws IOException {
+        File target = new File(directory, key);
+        if (target.isDirectory()) return;
+        directory.mkdirs();
+        File tmp = Files.createTempDirectory(directory.toPath(), key + ".tmp").toFile();
+        try {
+            for (Map.Entry<String, byte[]> f : entry.files.entrySet()) {
+                Files.write(new File(tmp, f.getKey()).toPath(), f.getValue());
+            }
+            Files.writeString(new File(tmp, MESSAGE_FILE).toPath(), entry.message, StandardCharsets.UTF_8);
+            Files.move(tmp.toPath(), target.toPath(), StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            deleteQuietly(tmp);
+            // scritta nel frattempo da un altro processo: va bene lo stesso
+            if (!target.isDirectory()) throw e;
+        }
+    }
+
+    private static void deleteQuietly(File dir) {
+        File[] contents = dir.listFiles();
+        if (contents != null) {
+            for (File f : contents) f.delete();
+        }
+        dir.delete();
+    }
+
+    public long hits() {
+        synchronized (memory) {
+            return hits;
+        }
+    }
+
+    public long misses() {
+        synchronized (memory) {
+            return misses;
+        }
+    }
+
+    public long memoryBytes() {
+        synchronized (memory) {
+            return memoryBytes;
+        }
+    }
+
+    /** Copia i file della voce in {@code outputDir}, come se il run fosse appena finito. */
+    public static void restore(Entry entry, File outputDir) throws IOException {
+        outputDir.mkdirs();
+        for (Map.Entry<String, byte[]> f : entry.files.entrySet()) {
+            Files.write(new File(outputDir, f.getKey()).toPath(), f.getValue());
+        }
+    }
+}
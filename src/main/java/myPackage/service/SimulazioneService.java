@@ -1,13 +1,148 @@
 package myPackage.service;
 
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import myPackage.CapacityFinder;
+import myPackage.CapacityMode;
+import myPackage.ChartData;
 import myPackage.Main;
+import myPackage.ResultsStore;
 import org.springframework.stereotype.Service;
+import java.io.File;
+import java.io.FileReader;
 import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 
 @Service
 public class SimulazioneService {
+    private static final File OUTPUT_DIR = new File("output");
+    private static final long CACHE_BYTES = 256L * 1024 * 1024;
+    private static final int MAX_CHART_POINTS = 10_000;
+
+    private final ResultCache cache = new ResultCache(CACHE_BYTES, new File(OUTPUT_DIR, "cache"));
+    // i run scrivono tutti in output/: uno alla volta, così i file catturati sono solo i loro
+    private final Object runLock = new Object();
+
     public String run(String mode, int rounds) throws IOException {
-        Main.main(new String[]{mode, String.valueOf(rounds)});
-        return "Simulazione [" + mode + "] completata";
+        return run(mode, rounds, false);
+    }
+
+    /** Con {@code converge} il numero di round è un massimo: il riepilogo è in output/rounds_summary.json. */
+    public String run(String mode, int rounds, boolean converge) throws IOException {
+        return run(mode, rounds, converge, null);
+    }
+
+    /**
+     * Esegue la simulazione, o la serve dalla cache se la stessa configurazione con lo stesso seed
+     * è già stata calcolata (i file vengono ricopiati in output/). Senza seed il run è stocastico
+     * e non passa dalla cache: ogni richiesta lo riesegue.
+     */
+    public String run(String mode, int rounds, boolean converge, Long seed) throws IOException {
+        return run(mode, rounds, converge, seed, true);
+    }
+
+    /** Con {@code png} false niente PNG: il client disegna i grafici dalle serie di /charts. */
+    public String run(String mode, int rounds, boolean converge, Long seed, boolean png) throws IOException {
+        List<String> args = new ArrayList<>(List.of(mode, String.valueOf(rounds), "converge=" + converge));
+        if (seed != null) args.add("seed=" + seed);
+        if (!png) args.add("png=false");
+        String message = "Simulazione [" + mode + "] completata";
+        if (seed == null) {
+            return execute(args.toArray(new String[0]), message).message;
+        }
+
+        Map<String, Object> config = new LinkedHashMap<>();
+        config.put("args", args);
+        config.put("initialWeights", Main.initialWeights());
+        config.put("seed", seed);
+
+        boolean[] computed = {false};
+        ResultCache.Entry entry = cache.computeIfAbsent(ResultCache.key(config), () -> {
+            computed[0] = true;
+            return execute(args.toArray(new String[0]), message);
+        });
+        if (computed[0]) {
+            return entry.message;
+        }
+        synchronized (runLock) {
+            ResultCache.restore(entry, OUTPUT_DIR);
+        }
+        return entry.message + " (dalla cache)";
+    }
+
+    /** Esegue Main e cattura i file di output/ creati o modificati dal run. */
+    private ResultCache.Entry execute(String[] args, String message) throws IOException {
+        synchronized (runLock) {
+            Map<String, String> before = snapshot();
+            Main.main(args);
+            Map<String, byte[]> files = new LinkedHashMap<>();
+            for (Map.Entry<String, String> f : snapshot().entrySet()) {
+                if (!f.getValue().equals(before.get(f.getKey()))) {
+                    files.put(f.getKey(), Files.readAllBytes(new File(OUTPUT_DIR, f.getKey()).toPath()));
+                }
+            }
+            return new ResultCache.Entry(message, files);
+        }
+    }
+
+    /** Nome → data di modifica e dimensione dei file in output/ (sottocartelle escluse). */
+    private static Map<String, String> snapshot() {
+        Map<String, String> state = new HashMap<>();
+        File[] files = OUTPUT_DIR.listFiles();
+        if (files != null) {
+            for (File f : files) {
+                if (f.isFile()) state.put(f.getName(), f.lastModified() + ":" + f.length());
+            }
+        }
+        return state;
+    }
+
+    /**
+     * Pool e coda minimi per lo SLA; restituisce il JSON salvato anche in output/capacity.json.
+     * Scrive in output/ come i run, quindi prende lo stesso lock.
+     */
+    public String capacity(double maxBlock, double maxAbandon, int maxPool, int maxQueue) throws IOException {
+        CapacityFinder.Result result;
+        synchronized (runLock) {
+            result = CapacityMode.run(new String[]{"capacity",
+                    "maxBlock=" + maxBlock, "maxAbandon=" + maxAbandon,
+                    "maxPool=" + maxPool, "maxQueue=" + maxQueue});
+        }
+        return new GsonBuilder().setPrettyPrinting().create().toJson(result);
+    }
+
+    /**
+     * Round archiviati in output/store: le righe che soddisfano i filtri o, con {@code aggregate},
+     * media/min/max/deviazione delle metriche raggruppate per {@code groupBy}.
+     */
+    public String results(ResultsStore.Query query, boolean aggregate, String groupBy) throws IOException {
+        if (query.limit < 1) {
+            throw new IllegalArgumentException("Limite non valido: " + query.limit);
+        }
+        ResultsStore store = ResultsStore.open(new File(OUTPUT_DIR, "store"));
+        Object result = aggregate ? store.aggregate(query, groupBy) : store.select(query);
+        return new GsonBuilder().setPrettyPrinting().serializeNulls().create().toJson(result);
+    }
+
+    /**
+     * Serie dei grafici del round ridotte con LTTB ad al più {@code points} punti ciascuna,
+     * o null se il round non ha il file delle serie.
+     */
+    public String charts(int round, int points) throws IOException {
+        if (points < 3 || points > MAX_CHART_POINTS) {
+            throw new IllegalArgumentException("Numero di punti non valido: " + points + " (da 3 a " + MAX_CHART_POINTS + ")");
+        }
+        File file = new File(OUTPUT_DIR, "round_" + round + "_charts.json");
+        if (!file.isFile()) return null;
+        ChartData charts;
+        try (FileReader reader = new FileReader(file)) {
+            charts = new Gson().fromJson(reader, ChartData.class);
+        }
+        return new Gson().toJson(charts.downsample(points));
     }
 }
@@ -4,7 +4,9 @@ package org.oristool.simulator;
 import java.math.BigDecimal;
 import java.math.MathContext;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Random;
 
 import org.oristool.analyzer.Succession;
@@ -17,10 +19,16 @@ import org.oristool.math.function.Function;
 import org.oristool.math.function.PartitionedFunction;
 import org.oristool.models.pn.PetriStateFeature;
 import org.oristool.models.pn.Priority;
+import org.oristool.models.stpn.MarkingExpr;
 import org.oristool.models.stpn.trees.EmpiricalTransitionFeature;
 import org.oristool.models.stpn.trees.StochasticTransitionFeature;
+import org.oristool.petrinet.EnablingFunction;
+import org.oristool.petrinet.InhibitorArc;
 import org.oristool.petrinet.Marking;
 import org.oristool.petrinet.PetriNet;
+import org.oristool.petrinet.Place;
+import org.oristool.petrinet.Postcondition;
+import org.oristool.petrinet.Precondition;
 import org.oristool.petrinet.Transition;
 import org.oristool.simulator.samplers.*;
 import org.oristool.simulator.stpn.SamplerFeature;
@@ -35,7 +43,7 @@ public class Sequencer {
         SIMULATION_END
     }
 
-    private static final Random random = new Random();
+    private Random random = new Random();
 
     private final List<SequencerObserver> observers = new ArrayList<>();
     private final List<SequencerObserver> currentRunObservers = new ArrayList<>();
@@ -53,6 +61,21 @@ public class Sequencer {
     // --- flag di stop globale ---
     private volatile boolean stopRequested = false;
 
+    // false: niente riga "Fired" (né la stringa) a ogni firing
+    private boolean debugFirings = true;
+
+    // --- stato compatto (vedi setCompactState) ---
+    private boolean compactState = false;
+    private CompactNet compactNet;
+    private int[] tokens;
+    private int[] previousTokens;
+    private Marking liveMarking;
+    private double[] timeToFire;
+    private boolean[] enabled;
+    private double elapsed;
+    private int lastFired = -1;
+    private double lastFiredTimeToFire;
+
     /**
      * Chiamalo per interrompere la simulazione
      */
@@ -60,6 +83,37 @@ public class Sequencer {
         this.stopRequested = true;
     }
 
+    /**
+     * Sostituisce il generatore usato per scegliere tra transizioni con lo stesso tempo di sparo
+     * (utile per rendere riproducibili le repliche).
+     */
+    public void setRandom(Random random) {
+        this.random = random;
+    }
+
+    /**
+     * Stato compatto: marcatura in un {@code int[]} indicizzato per posto (ordine di
+     * {@code net.getPlaces()}), modificata sul posto, timer in un {@code double[]} e abilitazione
+     * aggiornata solo per le transizioni che leggono i posti toccati dallo sparo. Lo State di oris
+     * (e la Succession) viene costruito solo se un observer chiama {@link #getLastSuccession()};
+     * gli observer veloci usano {@link #getLastFiredTransition()} e {@link #getCurrentTokens()}.
+     *
+     * La semantica dei timer è quella del successor evaluator di oris. Ignorato (con il percorso
+     * standard) se la rete ha funzioni di abilitazione.
+     */
+    public void setCompactState(boolean compactState) {
+        this.compactState = compactState;
+    }
+
+    /** Con {@code false} il logger non riceve una riga per firing: la stringa non viene nemmeno costruita. */
+    public void setDebugFirings(boolean debugFirings) {
+        this.debugFirings = debugFirings;
+    }
+
+    public boolean isCompactState() {
+        return compactState && compactNet != null;
+    }
+
     public Sequencer(PetriNet net, Marking initialMarking,
                      SimulatorComponentsFactory<PetriNet, Transition> componentsFactory,
                      AnalysisLogger logger) {
@@ -117,6 +171,8 @@ public class Sequencer {
         var successorEvaluator = componentsFactory.getSuccessorEvaluator();
         var firableBuilder   = componentsFactory.getFirableTransitionSetBuilder();
 
+        compactNet = compactState && CompactNet.supports(net) ? new CompactNet(net) : null;
+
         currentRunNumber = 0;
         logger.debug("Simulation started...");
         notifyObservers(SequencerEvent.SIMULATION_START);
@@ -126,6 +182,19 @@ public class Sequencer {
             currentRunElapsedTime = BigDecimal.ZERO;
             currentRunFirings     = 0;
 
+            if (compactNet != null) {
+                logger.debug("Run " + currentRunNumber + " started (compact)...");
+                startCompactRun();
+                notifyObservers(SequencerEvent.RUN_START);
+                while (!stopRequested && !currentRunObservers.isEmpty() && compactStep()) {
+                    notifyCurrentRunObservers();
+                }
+                logger.debug("Run " + currentRunNumber + " ended.");
+                notifyObservers(SequencerEvent.RUN_END);
+                currentRunNumber++;
+                continue;
+            }
+
             State state = componentsFactory.getInitialStateBuilder().build(net, initialMarking);
             logger.debug("Initial state:\n" + state);
 
@@ -215,7 +284,7 @@ public class Sequencer {
                     return;
                 }
 
-                logger.debug("Fired: " + fired);
+                if (debugFirings) logger.debug("Fired: " + fired);
                 currentRunFirings++;
                 currentRunElapsedTime = currentRunElapsedTime.add(
                         state.getFeature(TimedSimulatorStateFeature.class)
@@ -234,6 +303,127 @@ public class Sequencer {
         notifyObservers(SequencerEvent.SIMULATION_END);
     }
 
+    private void startCompactRun() {
+        CompactNet c = compactNet;
+        tokens = new int[c.places.length];
+        previousTokens = new int[c.places.length];
+        for (int p = 0; p < tokens.length; p++) {
+            tokens[p] = initialMarking.getTokens(c.places[p]);
+        }
+        liveMarking = new Marking(initialMarking);
+        timeToFire = new double[c.transitions.length];
+        enabled = new boolean[c.transitions.length];
+        for (int t = 0; t < enabled.length; t++) {
+            enabled[t] = c.isEnabled(t, tokens);
+            if (enabled[t]) timeToFire[t] = sample(t);
+        }
+        elapsed = 0.0;
+        lastFired = -1;
+        lastSuccession = null;
+    }
+
+    /** Un firing sullo stato compatto; false se non ci sono transizioni che possono sparare. */
+    private boolean compactStep() {
+        CompactNet c = compactNet;
+        double[] rates = c.rates;
+        double minTtf = Double.POSITIVE_INFINITY;
+        int ties = 0;
+        for (int t = 0; t < enabled.length; t++) {
+            if (!enabled[t]) continue;
+            rates[t] = c.clockRate[t].evaluate(liveMarking);
+            if (rates[t] == 0.0) continue;
+            double ttf = timeToFire[t] / rates[t];
+            if (ttf < minTtf) {
+                minTtf = ttf;
+                c.best[0] = t;
+                ties = 1;
+            } else if (ttf == minTtf) {
+                c.best[ties++] = t;
+            }
+        }
+        if (ties == 0) {
+            logger.debug("No firable transitions.");
+            return false;
+        }
+        int fired = ties == 1 ? c.best[0] : chooseAmongTies(ties);
+        double firedTtf = timeToFire[fired];
+
+        // Persistenti: abilitate prima, nella marcatura intermedia (senza il pre-set di fired) e dopo.
+        // Si ricontrollano solo le transizioni che leggono posti toccati da fired.
+        System.arraycopy(tokens, 0, previousTokens, 0, tokens.length);
+        int[] pre = c.prePlaces[fired];
+        for (int k = 0; k < pre.length; k++) tokens[pre[k]] -= c.preMultiplicity[fired][k];
+        int[] affected = c.affected[fired];
+        for (int t : affected) c.intermediate[t] = c.isEnabled(t, tokens);
+        int[] post = c.postPlaces[fired];
+        for (int k = 0; k < post.length; k++) tokens[post[k]] += c.postMultiplicity[fired][k];
+        for (int t : affected) {
+            boolean now = c.isEnabled(t, tokens);
+            c.persistent[t] = t != fired && enabled[t] && c.intermediate[t] && now;
+            c.touched[t] = true;
+            enabled[t] = now;
+        }
+        for (int p : c.changedPlaces[fired]) {
+            liveMarking.setTokens(c.places[p], tokens[p]);
+        }
+
+        // Timer come nel successor evaluator di oris: i persistenti consumano rate · rate(fired) · ttf(fired),
+        // i nuovi abilitati vengono campionati
+        double scale = rates[fired] * firedTtf;
+        for (int t = 0; t < enabled.length; t++) {
+            if (c.touched[t]) {
+                c.touched[t] = false;
+                if (c.persistent[t]) {
+                    timeToFire[t] -= rates[t] * scale;
+                } else if (enabled[t]) {
+                    timeToFire[t] = sample(t);
+                }
+            } else if (enabled[t]) {
+                timeToFire[t] -= rates[t] * scale;
+            }
+        }
+
+        lastFired = fired;
+        lastFiredTimeToFire = firedTtf;
+        lastSuccession = null;
+        elapsed += firedTtf;
+        currentRunFirings++;
+        if (debugFirings) logger.debug("Fired: " + c.transitions[fired]);
+        return true;
+    }
+
+    private int chooseAmongTies(int ties) {
+        CompactNet c = compactNet;
+        int maxPrio = -1;
+        for (int i = 0; i < ties; i++) {
+            Transition t = c.transitions[c.best[i]];
+            if (t.hasFeature(Priority.class)) maxPrio = Math.max(maxPrio, t.getFeature(Priority.class).value());
+        }
+        double total = 0.0;
+        int firable = 0;
+        for (int i = 0; i < ties; i++) {
+            Transition t = c.transitions[c.best[i]];
+            boolean keep = t.hasFeature(Priority.class)
+                    ? t.getFeature(Priority.class).value() == maxPrio
+                    : maxPrio == -1;
+            if (keep) {
+                c.best[firable++] = c.best[i];
+                total += c.weight[c.best[i]].evaluate(liveMarking);
+            }
+        }
+        double needle = total * random.nextDouble();
+        double acc = 0.0;
+        for (int i = 0; i < firable; i++) {
+            acc += c.weight[c.best[i]].evaluate(liveMarking);
+            if (needle < acc) return c.best[i];
+        }
+        return c.best[firable - 1];
+    }
+
+    private double sample(int t) {
+        return compactNet.transitions[t].getFeature(SamplerFeature.class).getSample().doubleValue();
+    }
+
     private BigDecimal getWeight(Transition t, PetriNet n, Marking m) {
         return BigDecimal.valueOf(t.getFeature(StochasticTransitionFeature.class)
                 .weight().evaluate(m));
@@ -260,18 +450,232 @@ public class Sequencer {
     }
 
     public BigDecimal getCurrentRunElapsedTime() {
+        if (isCompactState()) {
+            return BigDecimal.valueOf(elapsed);
+        }
         return currentRunElapsedTime;
     }
+
+    /** Tempo trascorso nel run corrente come double (senza allocazioni in modalità compatta). */
+    public double getCurrentRunElapsedTimeAsDouble() {
+        return isCompactState() ? elapsed : currentRunElapsedTime.doubleValue();
+    }
     public long getCurrentRunFirings() {
         return currentRunFirings;
     }
     public long getCurrentRunNumber() {
         return currentRunNumber;
     }
+    /**
+     * Ultima successione. In modalità compatta viene costruita solo qui, su richiesta: il padre
+     * contiene la marcatura e il timer della transizione sparata, il figlio marcatura e timer correnti.
+     */
     public Succession getLastSuccession() {
+        if (lastSuccession == null && isCompactState() && lastFired >= 0) {
+            lastSuccession = materializeLastSuccession();
+        }
         return lastSuccession;
     }
+
+    /** Ultima transizione sparata (null prima del primo firing). */
+    public Transition getLastFiredTransition() {
+        if (isCompactState()) {
+            return lastFired >= 0 ? compactNet.transitions[lastFired] : null;
+        }
+        return lastSuccession != null ? (Transition) lastSuccession.getEvent() : null;
+    }
+
+    /**
+     * Marcatura corrente per id di posto (ordine di {@code net.getPlaces()}), solo in modalità
+     * compatta. L'array è condiviso e modificato a ogni firing: non va conservato né modificato.
+     */
+    public int[] getCurrentTokens() {
+        if (!isCompactState()) {
+            throw new IllegalStateException("Marcatura compatta disponibile solo con setCompactState(true)");
+        }
+        return tokens;
+    }
+
+    /**
+     * Moltiplica per {@code factor} il tempo residuo di t, se è abilitata. Da chiamare tra un firing
+     * e l'altro (es. da un observer) quando cambia il tasso di una transizione esponenziale: per
+     * assenza di memoria il residuo riscalato di λ_vecchio / λ_nuovo è esponenziale di tasso λ_nuovo.
+     */
+    public void rescaleTimeToFire(Transition t, double factor) {
+        if (isCompactState()) {
+            if (timeToFire == null) return;
+            for (int i = 0; i < compactNet.transitions.length; i++) {
+                if (compactNet.transitions[i] == t) {
+                    if (enabled[i]) timeToFire[i] *= factor;
+                    return;
+                }
+            }
+            return;
+        }
+        // stato corrente del run standard: il figlio dell'ultima successione
+        if (lastSuccession == null) return;
+        TimedSimulatorStateFeature timers = lastSuccession.getChild().getFeature(TimedSimulatorStateFeature.class);
+        BigDecimal residual = timers.getTimeToFire(t);
+        if (residual != null) {
+            timers.setTimeToFire(t, residual.multiply(BigDecimal.valueOf(factor), MathContext.DECIMAL128));
+        }
+    }
+
+    private Succession materializeLastSuccession() {
+        CompactNet c = compactNet;
+        State parent = new State();
+        PetriStateFeature parentMarking = new PetriStateFeature();
+        parentMarking.setMarking(c.toMarking(previousTokens));
+        parent.addFeature(parentMarking);
+        TimedSimulatorStateFeature parentTimers = new TimedSimulatorStateFeature();
+        parentTimers.setTimeToFire(c.transitions[lastFired], BigDecimal.valueOf(lastFiredTimeToFire));
+        parent.addFeature(parentTimers);
+
+        State child = new State();
+        PetriStateFeature childMarking = new PetriStateFeature();
+        childMarking.setMarking(c.toMarking(tokens));
+        child.addFeature(childMarking);
+        TimedSimulatorStateFeature childTimers = new TimedSimulatorStateFeature();
+        for (int t = 0; t < enabled.length; t++) {
+            if (enabled[t]) childTimers.setTimeToFire(c.transitions[t], BigDecimal.valueOf(timeToFire[t]));
+        }
+        child.addFeature(childTimers);
+        return new Succession(parent, c.transitions[lastFired], child);
+    }
     public Marking getInitialMarking() {
         return initialMarking;
     }
+    public PetriNet getNet() {
+        return net;
+    }
+
+    /** Struttura della rete in array indicizzati per id, per la modalità compatta. */
+    private static final class CompactNet {
+        final Place[] places;
+        final Transition[] transitions;
+        final int[][] prePlaces;
+        final int[][] preMultiplicity;
+        final int[][] postPlaces;
+        final int[][] postMultiplicity;
+        final int[][] inhibitorPlaces;
+        final int[][] inhibitorMultiplicity;
+        final int[][] changedPlaces;
+        /** affected[t]: transizioni con pre-set o inibitori sui posti toccati da t (t compresa). */
+        final int[][] affected;
+        final MarkingExpr[] clockRate;
+        final MarkingExpr[] weight;
+        // buffer riusati a ogni passo
+        final double[] rates;
+        final int[] best;
+        final boolean[] intermediate;
+        final boolean[] persistent;
+        final boolean[] touched;
+
+        static boolean supports(PetriNet net) {
+            for (Transition t : net.getTransitions()) {
+                if (t.hasFeature(EnablingFunction.class) || !t.hasFeature(StochasticTransitionFeature.class)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        CompactNet(PetriNet net) {
+            places = net.getPlaces().toArray(new Place[0]);
+            transitions = net.getTransitions().toArray(new Transition[0]);
+            Map<Place, Integer> placeId = new LinkedHashMap<>();
+            for (int p = 0; p < places.length; p++) placeId.put(places[p], p);
+            int n = transitions.length;
+            prePlaces = new int[n][];
+            preMultiplicity = new int[n][];
+            postPlaces = new int[n][];
+            postMultiplicity = new int[n][];
+            inhibitorPlaces = new int[n][];
+            inhibitorMultiplicity = new int[n][];
+            changedPlaces = new int[n][];
+            affected = new int[n][];
+            clockRate = new MarkingExpr[n];
+            weight = new MarkingExpr[n];
+            rates = new double[n];
+            best = new int[n];
+            intermediate = new boolean[n];
+            persistent = new boolean[n];
+            touched = new boolean[n];
+
+            List<List<Integer>> readers = new ArrayList<>();
+            for (int p = 0; p < places.length; p++) readers.add(new ArrayList<>());
+            for (int t = 0; t < n; t++) {
+                Transition tr = transitions[t];
+                var stochastic = tr.getFeature(StochasticTransitionFeature.class);
+                clockRate[t] = stochastic.clockRate();
+                weight[t] = stochastic.weight();
+
+                List<Precondition> pre = new ArrayList<>(net.getPreconditions(tr));
+                prePlaces[t] = new int[pre.size()];
+                preMultiplicity[t] = new int[pre.size()];
+                for (int k = 0; k < pre.size(); k++) {
+                    prePlaces[t][k] = placeId.get(pre.get(k).getPlace());
+                    preMultiplicity[t][k] = pre.get(k).getMultiplicity();
+                    readers.get(prePlaces[t][k]).add(t);
+                }
+                List<Postcondition> post = new ArrayList<>(net.getPostconditions(tr));
+                postPlaces[t] = new int[post.size()];
+                postMultiplicity[t] = new int[post.size()];
+                for (int k = 0; k < post.size(); k++) {
+                    postPlaces[t][k] = placeId.get(post.get(k).getPlace());
+                    postMultiplicity[t][k] = post.get(k).getMultiplicity();
+                }
+                List<InhibitorArc> inhibitors = new ArrayList<>(net.getInhibitorArcs(tr));
+                inhibitorPlaces[t] = new int[inhibitors.size()];
+                inhibitorMultiplicity[t] = new int[inhibitors.size()];
+                for (int k = 0; k < inhibitors.size(); k++) {
+                    inhibitorPlaces[t][k] = placeId.get(inhibitors.get(k).getPlace());
+                    inhibitorMultiplicity[t][k] = inhibitors.get(k).getMultiplicity();
+                    readers.get(inhibitorPlaces[t][k]).add(t);
+                }
+            }
+            for (int t = 0; t < n; t++) {
+                int[] delta = new int[places.length];
+                for (int k = 0; k < prePlaces[t].length; k++) delta[prePlaces[t][k]] -= preMultiplicity[t][k];
+                for (int k = 0; k < postPlaces[t].length; k++) delta[postPlaces[t][k]] += postMultiplicity[t][k];
+                boolean[] touchedPlace = new boolean[places.length];
+                for (int p : prePlaces[t]) touchedPlace[p] = true;
+                for (int p : postPlaces[t]) touchedPlace[p] = true;
+                boolean[] dependent = new boolean[n];
+                dependent[t] = true;
+                List<Integer> changed = new ArrayList<>();
+                for (int p = 0; p < places.length; p++) {
+                    if (delta[p] != 0) changed.add(p);
+                    if (touchedPlace[p]) {
+                        for (int u : readers.get(p)) dependent[u] = true;
+                    }
+                }
+                changedPlaces[t] = changed.stream().mapToInt(Integer::intValue).toArray();
+                int count = 0;
+                for (boolean d : dependent) if (d) count++;
+                affected[t] = new int[count];
+                for (int u = 0, k = 0; u < n; u++) {
+                    if (dependent[u]) affected[t][k++] = u;
+                }
+            }
+        }
+
+        boolean isEnabled(int t, int[] tokens) {
+            for (int k = 0; k < prePlaces[t].length; k++) {
+                if (tokens[prePlaces[t][k]] < preMultiplicity[t][k]) return false;
+            }
+            for (int k = 0; k < inhibitorPlaces[t].length; k++) {
+                if (tokens[inhibitorPlaces[t][k]] >= inhibitorMultiplicity[t][k]) return false;
+            }
+            return true;
+        }
+
+        Marking toMarking(int[] tokens) {
+            Marking marking = new Marking();
+            for (int p = 0; p < places.length; p++) {
+                if (tokens[p] != 0) marking.setTokens(places[p], tokens[p]);
+            }
+            return marking;
+        }
+    }
 }
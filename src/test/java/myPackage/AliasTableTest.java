@@ -0,0 +1,48 @@
+package myPackage;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AliasTableTest {
+
+    /** Frequenze su una griglia fitta di uniformi: la tabella le ripartisce in proporzione ai pesi. */
+    private static double[] frequencies(AliasTable table, int points) {
+        double[] counts = new double[table.size()];
+        for (int k = 0; k < points; k++) {
+            counts[table.sample((k + 0.5) / points)]++;
+        }
+        for (int i = 0; i < counts.length; i++) counts[i] /= points;
+        return counts;
+    }
+
+    @Test
+    void samplesFollowTheWeights() {
+        double[] weights = {0.5, 0.0, 2.0, 1.0, 0.5};
+        AliasTable table = new AliasTable(weights);
+        double[] freq = frequencies(table, 1_000_000);
+        for (int i = 0; i < weights.length; i++) {
+            assertEquals(weights[i] / 4.0, freq[i], 1e-5, "indice " + i);
+        }
+    }
+
+    @Test
+    void edgesOfTheUniform() {
+        AliasTable table = new AliasTable(new double[]{1.0, 3.0});
+        int first = table.sample(0.0);
+        int last = table.sample(1.0);
+        assertTrue(first >= 0 && first < 2);
+        assertTrue(last >= 0 && last < 2);
+        assertEquals(0, new AliasTable(new double[]{1.0}).sample(0.7));
+    }
+
+    @Test
+    void rejectsInvalidWeights() {
+        assertThrows(IllegalArgumentException.class, () -> new AliasTable(new double[0]));
+        assertThrows(IllegalArgumentException.class, () -> new AliasTable(new double[]{0.0, 0.0}));
+        assertThrows(IllegalArgumentException.class, () -> new AliasTable(new double[]{1.0, -0.1}));
+        assertThrows(IllegalArgumentException.class, () -> new AliasTable(new double[]{1.0, Double.NaN}));
+    }
+}
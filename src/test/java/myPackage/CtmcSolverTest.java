@@ -0,0 +1,76 @@
+package myPackage;
+
+import org.junit.jupiter.api.Test;
+import org.oristool.models.stpn.trees.StochasticTransitionFeature;
+import org.oristool.petrinet.Marking;
+import org.oristool.petrinet.PetriNet;
+import org.oristool.petrinet.Place;
+import org.oristool.petrinet.Transition;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class CtmcSolverTest {
+    private static final double LAMBDA = 1.0;
+    private static final double MU = 2.0;
+    private static final int CAPACITY = 4;
+
+    /** M/M/1/K: arrivi a tasso λ inibiti a coda piena, servizio a tasso μ. */
+    private static CtmcStateSpace mm1k() {
+        PetriNet pn = new PetriNet();
+        Place queue = pn.addPlace("queue");
+        Transition arrival = pn.addTransition("arrival");
+        Transition service = pn.addTransition("service");
+        pn.addPostcondition(arrival, queue);
+        pn.addInhibitorArc(queue, arrival, CAPACITY);
+        pn.addPrecondition(queue, service);
+        arrival.addFeature(StochasticTransitionFeature.newExponentialInstance(String.valueOf(LAMBDA)));
+        service.addFeature(StochasticTransitionFeature.newExponentialInstance(String.valueOf(MU)));
+        return new CtmcStateSpace(new ExponentialNet(pn), new Marking(), CAPACITY, 1000);
+    }
+
+    private static void assertGeometric(CtmcStateSpace space, double[] pi) {
+        double rho = LAMBDA / MU;
+        double norm = (1 - Math.pow(rho, CAPACITY + 1)) / (1 - rho);
+        int queue = space.getNet().getIndex().placeId("queue");
+        assertEquals(CAPACITY + 1, space.stateCount());
+        for (int s = 0; s < space.stateCount(); s++) {
+            int k = space.tokens(s, queue);
+            assertEquals(Math.pow(rho, k) / norm, pi[s], 1e-8, "P(queue=" + k + ")");
+        }
+    }
+
+    @Test
+    void sorAndPowerMethodGiveTheBirthDeathSolution() {
+        CtmcStateSpace space = mm1k();
+        CtmcSolver solver = new CtmcSolver(space, 1e-12, 100_000);
+        assertGeometric(space, solver.stationarySor(1.0));
+        assertGeometric(space, solver.stationarySor(1.3));
+        assertGeometric(space, solver.stationaryPower());
+    }
+
+    @Test
+    void sojournTimesUntilAbsorption() {
+        // solo servizio: da 3 clienti la rete si blocca a coda vuota, 1/μ in ogni stato
+        PetriNet pn = new PetriNet();
+        Place queue = pn.addPlace("queue");
+        Transition service = pn.addTransition("service");
+        pn.addPrecondition(queue, service);
+        service.addFeature(StochasticTransitionFeature.newExponentialInstance(String.valueOf(MU)));
+        Marking initial = new Marking();
+        initial.setTokens(queue, 3);
+        CtmcStateSpace space = new CtmcStateSpace(new ExponentialNet(pn), initial, 3, 100);
+        CtmcSolver solver = new CtmcSolver(space, 1e-12, 10_000);
+
+        double[] tau = solver.expectedSojournTimes();
+        int place = space.getNet().getIndex().placeId("queue");
+        double lifetime = 0.0;
+        for (int s = 0; s < space.stateCount(); s++) {
+            double expected = space.tokens(s, place) > 0 ? 1 / MU : 0.0;
+            assertEquals(expected, tau[s], 1e-10);
+            lifetime += tau[s];
+        }
+        assertEquals(3 / MU, lifetime, 1e-10);
+        assertThrows(IllegalStateException.class, () -> solver.stationarySor(1.0));
+    }
+}
@@ -0,0 +1,65 @@
+package myPackage;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DownsamplerTest {
+
+    @Test
+    void keepsFirstAndLastPointAndRespectsTheBudget() {
+        int n = 100_000;
+        double[] x = new double[n];
+        double[] y = new double[n];
+        for (int i = 0; i < n; i++) {
+            x[i] = i;
+            y[i] = Math.sin(i / 5000.0);
+        }
+        double[][] reduced = Downsampler.lttb(x, y, 200);
+
+        assertEquals(200, reduced[0].length);
+        assertEquals(200, reduced[1].length);
+        assertEquals(0.0, reduced[0][0]);
+        assertEquals(n - 1, reduced[0][199]);
+        assertEquals(y[n - 1], reduced[1][199]);
+        for (int i = 1; i < 200; i++) {
+            assertTrue(reduced[0][i] > reduced[0][i - 1], "x non crescente in " + i);
+        }
+    }
+
+    @Test
+    void keepsAnIsolatedSpike() {
+        int n = 10_000;
+        double[] x = new double[n];
+        double[] y = new double[n];
+        for (int i = 0; i < n; i++) x[i] = i;
+        y[5432] = 10.0;
+
+        double[][] reduced = Downsampler.lttb(x, y, 50);
+
+        double max = 0.0;
+        for (double v : reduced[1]) max = Math.max(max, v);
+        assertEquals(10.0, max);
+    }
+
+    @Test
+    void shortSeriesIsReturnedAsCopy() {
+        double[] x = {0, 1, 2};
+        double[] y = {3, 4, 5};
+        double[][] reduced = Downsampler.lttb(x, y, 10);
+
+        assertArrayEquals(x, reduced[0]);
+        assertArrayEquals(y, reduced[1]);
+        reduced[0][0] = 42;
+        assertEquals(0, x[0]);
+    }
+
+    @Test
+    void rejectsInvalidArguments() {
+        assertThrows(IllegalArgumentException.class, () -> Downsampler.lttb(new double[3], new double[4], 10));
+        assertThrows(IllegalArgumentException.class, () -> Downsampler.lttb(new double[10], new double[10], 2));
+    }
+}
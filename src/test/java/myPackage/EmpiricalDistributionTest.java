@@ -0,0 +1,71 @@
+package myPackage;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.SplittableRandom;
+import java.util.function.DoubleUnaryOperator;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class EmpiricalDistributionTest {
+    private static final DoubleUnaryOperator UNIFORM = x -> Math.min(1.0, Math.max(0.0, x));
+
+    private static double[] uniform(long seed, int n) {
+        SplittableRandom random = new SplittableRandom(seed);
+        double[] values = new double[n];
+        for (int i = 0; i < n; i++) values[i] = random.nextDouble();
+        return values;
+    }
+
+    @Test
+    void cdfAndPercentileCuts() {
+        EmpiricalDistribution d = EmpiricalDistribution.of(new double[]{3, 1, 2, 2, 5});
+        assertEquals(5, d.size());
+        assertEquals(1.0, d.min(), 0.0);
+        assertEquals(5.0, d.max(), 0.0);
+        assertEquals(0.0, d.cdf(0.5), 0.0);
+        assertEquals(0.6, d.cdf(2.0), 0.0);
+        assertEquals(1.0, d.cdf(5.0), 0.0);
+        assertEquals(1.0, d.percentileCut(0.0), 0.0);
+        assertEquals(2.0, d.percentileCut(0.5), 0.0);
+        assertEquals(5.0, d.percentileCut(1.0), 0.0);
+
+        // il valore ripetuto sul taglio va tutto nell'intervallo precedente
+        double[] mass = d.percentileMass(new double[]{0.0, 0.5, 1.0});
+        assertArrayEquals(new double[]{0.6, 0.4}, mass, 1e-12);
+
+        EmpiricalDistribution scaled = d.normalized();
+        assertEquals(0.0, scaled.min(), 0.0);
+        assertEquals(1.0, scaled.max(), 0.0);
+        assertEquals(0.25, scaled.value(1), 1e-12);
+    }
+
+    @Test
+    void kolmogorovSmirnovOnASmallSample() {
+        EmpiricalDistribution d = EmpiricalDistribution.of(new double[]{0.9, 0.1, 0.5});
+        // massimo tra 1/3 - F(0.1) e F(0.9) - 2/3
+        assertEquals(1.0 / 3 - 0.1, d.kolmogorovSmirnov(UNIFORM), 1e-12);
+
+        // con i ripetuti la CDF empirica salta di 2/n in un colpo solo
+        EmpiricalDistribution ties = EmpiricalDistribution.of(new double[]{0.5, 0.5});
+        assertEquals(0.5, ties.kolmogorovSmirnov(UNIFORM), 1e-12);
+    }
+
+    @Test
+    void fitTestsAcceptTheRightDistributionAndRejectTheWrongOne() {
+        EmpiricalDistribution d = EmpiricalDistribution.of(uniform(9, 2000));
+
+        double ks = d.kolmogorovSmirnov(UNIFORM);
+        assertTrue(d.kolmogorovSmirnovPValue(ks) > 0.01, "p-value " + d.kolmogorovSmirnovPValue(ks));
+        // valore critico di A² al 5%: 2.492
+        assertTrue(d.andersonDarling(UNIFORM) < 2.492, "A² " + d.andersonDarling(UNIFORM));
+
+        DoubleUnaryOperator squared = x -> UNIFORM.applyAsDouble(x) * UNIFORM.applyAsDouble(x);
+        double wrong = d.kolmogorovSmirnov(squared);
+        assertTrue(wrong > 0.2, "D " + wrong);
+        assertTrue(d.kolmogorovSmirnovPValue(wrong) < 1e-6);
+        assertTrue(d.andersonDarling(squared) > 50);
+    }
+}
@@ -0,0 +1,66 @@
+package myPackage;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class FenwickTreeTest {
+
+    @Test
+    void findFollowsTheCumulativeSums() {
+        FenwickTree tree = new FenwickTree(5);
+        double[] weights = {1.0, 0.0, 2.0, 0.5, 1.5};
+        for (int i = 0; i < weights.length; i++) tree.set(i, weights[i]);
+
+        assertEquals(5.0, tree.total(), 1e-12);
+        assertEquals(0, tree.find(0.0));
+        assertEquals(0, tree.find(0.99));
+        // l'elemento a peso nullo non viene mai scelto
+        assertEquals(2, tree.find(1.0));
+        assertEquals(2, tree.find(2.99));
+        assertEquals(3, tree.find(3.0));
+        assertEquals(4, tree.find(3.5));
+        assertEquals(4, tree.find(4.99));
+    }
+
+    @Test
+    void targetBeyondTheTotalPicksTheLastPositiveWeight() {
+        FenwickTree tree = new FenwickTree(4);
+        tree.set(0, 1.0);
+        tree.set(1, 2.0);
+        assertEquals(1, tree.find(3.0 + 1e-12));
+
+        tree.set(0, 0.0);
+        tree.set(1, 0.0);
+        assertEquals(-1, tree.find(0.0));
+    }
+
+    @Test
+    void manyUpdatesMatchTheExactSums() {
+        SplittableRandom random = new SplittableRandom(7);
+        int n = 37;
+        FenwickTree tree = new FenwickTree(n);
+        double[] exact = new double[n];
+        for (int step = 0; step < 50_000; step++) {
+            int i = random.nextInt(n);
+            exact[i] = random.nextDouble() < 0.1 ? 0.0 : random.nextDouble() * 1e3;
+            tree.set(i, exact[i]);
+        }
+        double total = 0.0;
+        for (double w : exact) total += w;
+        assertEquals(total, tree.total(), 1e-9 * total);
+        // la ricostruzione dai valori esatti non cambia le somme
+        double drifted = tree.total();
+        tree.rebuild();
+        assertEquals(drifted, tree.total(), 1e-9 * total);
+
+        double cumulative = 0.0;
+        for (int i = 0; i < n; i++) {
+            assertEquals(exact[i], tree.get(i), 0.0);
+            if (exact[i] > 0) assertEquals(i, tree.find(cumulative + exact[i] / 2));
+            cumulative += exact[i];
+        }
+    }
+}
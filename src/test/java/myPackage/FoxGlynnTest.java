@@ -0,0 +1,59 @@
+package myPackage;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class FoxGlynnTest {
+
+    private static double poisson(double lambda, int k) {
+        double logP = -lambda + k * Math.log(lambda);
+        for (int i = 2; i <= k; i++) logP -= Math.log(i);
+        return Math.exp(logP);
+    }
+
+    @Test
+    void weightsMatchThePoissonDistribution() {
+        for (double lambda : new double[]{0.3, 4.0, 57.5}) {
+            FoxGlynn fg = FoxGlynn.compute(lambda, 1e-10);
+            double sum = 0.0;
+            for (double w : fg.weights) sum += w;
+            assertEquals(1.0, sum, 1e-12);
+            for (int k = fg.left; k <= fg.right; k++) {
+                assertEquals(poisson(lambda, k), fg.weight(k), 1e-9, "λ=" + lambda + " k=" + k);
+            }
+        }
+    }
+
+    @Test
+    void truncationKeepsAllButEpsilonOfTheMass() {
+        double lambda = 1000.0;
+        double epsilon = 1e-8;
+        FoxGlynn fg = FoxGlynn.compute(lambda, epsilon);
+        double kept = 0.0;
+        for (int k = fg.left; k <= fg.right; k++) kept += poisson(lambda, k);
+        assertTrue(1.0 - kept < epsilon, "massa scartata " + (1.0 - kept));
+        assertTrue(fg.left > 0 && fg.right < 2 * lambda);
+        assertEquals(0.0, fg.weight(fg.left - 1), 0.0);
+        assertEquals(0.0, fg.weight(fg.right + 1), 0.0);
+    }
+
+    @Test
+    void tailIsOneMinusTheCumulativeWeights() {
+        FoxGlynn fg = FoxGlynn.compute(3.0, 1e-12);
+        double[] tail = fg.tail();
+        assertEquals(fg.right + 1, tail.length);
+        assertEquals(1.0 - poisson(3.0, 0), tail[0], 1e-10);
+        assertEquals(0.0, tail[fg.right], 1e-12);
+    }
+
+    @Test
+    void degenerateAndInvalidParameters() {
+        FoxGlynn zero = FoxGlynn.compute(0.0, 1e-10);
+        assertEquals(1.0, zero.weight(0), 0.0);
+        assertEquals(0.0, zero.weight(1), 0.0);
+        assertThrows(IllegalArgumentException.class, () -> FoxGlynn.compute(-1.0, 1e-10));
+    }
+}
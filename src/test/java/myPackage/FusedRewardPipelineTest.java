@@ -0,0 +1,106 @@
+package myPackage;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class FusedRewardPipelineTest {
+
+    /**
+     * Con orizzonte lungo gli abbandoni svuotano la popolazione e la rete si blocca prima di
+     * maxTime: il run deve finire lì, con un solo RUN_START, invece di ripartire da capo (e
+     * azzerare i contatori) finché un run non arriva all'orizzonte.
+     */
+    @Test
+    void deadNetEndsTheRunInsteadOfRestarting() {
+        for (SimulationEngine engine : new SimulationEngine[]{SimulationEngine.SEQUENCER, SimulationEngine.EXPONENTIAL}) {
+            SimulationConfig config = new SimulationConfig();
+            config.horizon = 10_000;
+            config.verbose = false;
+            config.engine = engine;
+            RandomStreams streams = new RandomStreams(1);
+            SimulationSetup setup = new SimulationSetup(Main.initialWeights(), config, streams);
+            var sequencer = setup.getSequencer();
+            FusedRewardPipeline pipeline = SimulationRunner.newPipeline(engine, sequencer);
+            pipeline.setMaxTime(config.horizon);
+            int[] runs = {0};
+            pipeline.addRunListener(marking -> runs[0]++);
+
+            SimulationRunner.simulate(config, sequencer, pipeline, streams);
+
+            assertEquals(1, runs[0], engine + ": il run è ripartito");
+            assertTrue(pipeline.isStopped());
+            assertEquals(config.horizon, pipeline.getCurrentTime(), 0.0);
+            assertEquals(config.horizon, pipeline.getOccupancy().observedTime(), 1e-9);
+            // la popolazione si esaurisce: arrivi e abbandoni sono quelli dell'unico run
+            assertTrue(pipeline.count(TransitionCategory.ARRIVAL) > 0);
+            assertTrue(pipeline.count(TransitionCategory.ABANDON) > 0);
+        }
+    }
+
+    @Test
+    void leapReplaysEveryFiringOfTheCategoryInOrder() {
+        SimulationSetup setup = new SimulationSetup(Main.initialWeights(), new SimulationConfig(), new RandomStreams(1));
+        var sequencer = setup.getSequencer();
+        NetIndex index = new NetIndex(sequencer.getNet());
+        FusedRewardPipeline pipeline = new FusedRewardPipeline(index);
+        pipeline.beginRun(sequencer.getInitialMarking());
+        List<Integer> fired = new ArrayList<>();
+        List<Double> times = new ArrayList<>();
+        pipeline.addFiringListener(TransitionCategory.ARRIVAL, (t, time) -> {
+            fired.add(t);
+            times.add(time);
+        });
+
+        long[] counts = new long[index.transitionCount()];
+        int arrival1 = index.transitionId("arrival1");
+        int arrival2 = index.transitionId("arrival2");
+        counts[arrival1] = 3;
+        counts[arrival2] = 1;
+        counts[index.transitionId("service")] = 5;
+        pipeline.recordLeap(counts, 0.0, 4.0, index.toTokens(sequencer.getInitialMarking()));
+
+        assertEquals(4, fired.size());
+        assertEquals(3, fired.stream().filter(t -> t == arrival1).count());
+        assertEquals(1, fired.stream().filter(t -> t == arrival2).count());
+        assertEquals(List.of(0.5, 1.5, 2.5, 3.5), times);
+        assertEquals(4, pipeline.count(TransitionCategory.ARRIVAL));
+        assertEquals(5, pipeline.count(TransitionCategory.SERVICE));
+    }
+
+    @Test
+    void endRunKeepsTheLastMarkingUntilTheHorizon() {
+        SimulationConfig config = new SimulationConfig();
+        config.verbose = false;
+        SimulationSetup setup = new SimulationSetup(Main.initialWeights(), config, new RandomStreams(1));
+        var sequencer = setup.getSequencer();
+        FusedRewardPipeline pipeline = new FusedRewardPipeline(new NetIndex(sequencer.getNet()));
+        int queue = pipeline.getOccupancy().addPlaceMetric("queue", "queue");
+        pipeline.setMaxTime(10.0);
+        pipeline.beginRun(sequencer.getInitialMarking());
+
+        pipeline.endRun();
+
+        assertTrue(pipeline.isStopped());
+        assertEquals(10.0, pipeline.getCurrentTime(), 0.0);
+        assertEquals(10.0, pipeline.getOccupancy().observedTime(), 0.0);
+        assertEquals(pipeline.getOccupancy().currentValue(queue), pipeline.getOccupancy().mean(queue), 0.0);
+    }
+
+    @Test
+    void utilizationViewReportsTheSequencerOfThePipeline() {
+        SimulationSetup setup = new SimulationSetup(Main.initialWeights(), new SimulationConfig(), new RandomStreams(1));
+        var sequencer = setup.getSequencer();
+        FusedRewardPipeline registered = new FusedRewardPipeline(sequencer);
+        assertSame(sequencer, new ServiceUtilizationReward(registered.getOccupancy(), "queue", 1).getSequencer());
+        // pilotata da un altro motore: nessun sequencer
+        FusedRewardPipeline driven = new FusedRewardPipeline(new NetIndex(sequencer.getNet()));
+        assertNull(new ServiceUtilizationReward(driven.getOccupancy(), "queue", 1).getSequencer());
+    }
+}
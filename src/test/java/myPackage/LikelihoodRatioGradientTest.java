@@ -0,0 +1,111 @@
+package myPackage;
+
+import org.junit.jupiter.api.Test;
+import org.oristool.models.stpn.trees.StochasticTransitionFeature;
+import org.oristool.petrinet.Marking;
+import org.oristool.petrinet.PetriNet;
+import org.oristool.petrinet.Place;
+import org.oristool.petrinet.Transition;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LikelihoodRatioGradientTest {
+    private static final double LAMBDA = 1.0;
+    private static final double MU = 2.0;
+    private static final int CAPACITY = 3;
+    private static final double HORIZON = 4.0;
+    private static final int REPLICATIONS = 20_000;
+
+    /** M/M/1/K: arrivi a tasso λ inibiti a coda piena, servizio a tasso μ. */
+    private static PetriNet mm1k(double lambda, double mu) {
+        PetriNet pn = new PetriNet();
+        Place queue = pn.addPlace("queue");
+        Transition arrival = pn.addTransition("arrival1");
+        Transition service = pn.addTransition("service");
+        pn.addPostcondition(arrival, queue);
+        pn.addInhibitorArc(queue, arrival, CAPACITY);
+        pn.addPrecondition(queue, service);
+        arrival.addFeature(StochasticTransitionFeature.newExponentialInstance(String.valueOf(lambda)));
+        service.addFeature(StochasticTransitionFeature.newExponentialInstance(String.valueOf(mu)));
+        return pn;
+    }
+
+    /**
+     * Numero atteso di arrivi contati nel run: quelli in [0, HORIZON] (uniformizzazione della CTMC)
+     * più il firing che supera l'orizzonte, che la pipeline conta prima di fermarsi, se è un arrivo.
+     */
+    private static double expectedArrivals(double lambda, double mu) {
+        double inHorizon = CtmcAnalysis.transientCurves(mm1k(lambda, mu), new Marking(), new double[]{HORIZON},
+                CAPACITY, 1000).arrivals[0];
+        double[] pi = queueDistribution(lambda, mu);
+        double overshoot = 0.0;
+        for (int q = 0; q < CAPACITY; q++) {
+            overshoot += pi[q] * lambda / (lambda + (q > 0 ? mu : 0.0));
+        }
+        return inHorizon + overshoot;
+    }
+
+    /** P(queue = q) a HORIZON partendo da coda vuota: Σ_k Poisson(Λt; k) · π₀Pᵏ. */
+    private static double[] queueDistribution(double lambda, double mu) {
+        double rate = lambda + mu;
+        double[] pi = new double[CAPACITY + 1];
+        double[] result = new double[CAPACITY + 1];
+        pi[0] = 1.0;
+        double weight = Math.exp(-rate * HORIZON);
+        for (int k = 0; k < 200; k++) {
+            for (int q = 0; q <= CAPACITY; q++) result[q] += weight * pi[q];
+            double[] next = new double[CAPACITY + 1];
+            for (int q = 0; q <= CAPACITY; q++) {
+                double up = q < CAPACITY ? lambda / rate : 0.0;
+                double down = q > 0 ? mu / rate : 0.0;
+                if (q < CAPACITY) next[q + 1] += pi[q] * up;
+                if (q > 0) next[q - 1] += pi[q] * down;
+                next[q] += pi[q] * (1 - up - down);
+            }
+            pi = next;
+            weight *= rate * HORIZON / (k + 1);
+        }
+        return result;
+    }
+
+    @Test
+    void countDerivativeMatchesFiniteDifferencesOfTheExactChain() {
+        double h = 1e-4;
+        double[] exact = {
+                (expectedArrivals(LAMBDA + h, MU) - expectedArrivals(LAMBDA - h, MU)) / (2 * h),
+                (expectedArrivals(LAMBDA, MU + h) - expectedArrivals(LAMBDA, MU - h)) / (2 * h)
+        };
+        // più servizio significa meno arrivi respinti a coda piena
+        assertTrue(exact[0] > 0 && exact[1] > 0);
+
+        PetriNet pn = mm1k(LAMBDA, MU);
+        ReplicationStatistics statistics = new ReplicationStatistics();
+        for (int r = 0; r < REPLICATIONS; r++) {
+            FusedRewardPipeline pipeline = new FusedRewardPipeline(new NetIndex(pn));
+            LikelihoodRatioGradient gradient = new LikelihoodRatioGradient(pipeline);
+            int lambda = gradient.addParameter("lambda", "arrival1");
+            int service = gradient.addParameter("service", "service");
+            pipeline.setMaxTime(HORIZON);
+            new ExponentialNetSimulator(new ExponentialNet(pipeline.getIndex()), new Marking(),
+                    new RandomStreams(5).replication(r).stream("direct")).simulate(pipeline);
+
+            assertEquals(LAMBDA, gradient.theta(lambda), 0.0);
+            statistics.record("lambda", gradient.countDerivative(lambda, TransitionCategory.ARRIVAL));
+            statistics.record("service", gradient.countDerivative(service, TransitionCategory.ARRIVAL));
+            statistics.record("score", gradient.score(service));
+        }
+
+        assertEquals(exact[0], statistics.mean("lambda"), 2 * statistics.halfWidth("lambda", 0.95));
+        assertEquals(exact[1], statistics.mean("service"), 2 * statistics.halfWidth("service", 0.95));
+        // lo score ha media nulla: è quello che rende corretta la baseline
+        assertEquals(0.0, statistics.mean("score"), 2 * statistics.halfWidth("score", 0.95));
+    }
+
+    @Test
+    void baselineSubtractsTheMeanReward() {
+        double[] corrected = LikelihoodRatioGradient.baselineCorrected(new double[]{1, 2, 3}, new double[]{2, 0, -1});
+        assertArrayEquals(new double[]{-2, 0, -1}, corrected, 1e-12);
+    }
+}
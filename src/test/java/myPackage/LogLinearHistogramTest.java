@@ -0,0 +1,71 @@
+package myPackage;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LogLinearHistogramTest {
+
+    @Test
+    void quantilesWithinTheRelativeError() {
+        SplittableRandom random = new SplittableRandom(11);
+        double[] values = new double[50_000];
+        LogLinearHistogram histogram = new LogLinearHistogram();
+        for (int i = 0; i < values.length; i++) {
+            // tempi su sei ordini di grandezza
+            values[i] = Math.pow(10, -3 + 6 * random.nextDouble());
+            histogram.record(values[i]);
+        }
+        double[] sorted = values.clone();
+        Arrays.sort(sorted);
+
+        for (double q : new double[]{0.5, 0.9, 0.99, 0.999}) {
+            double exact = sorted[(int) Math.ceil(q * sorted.length) - 1];
+            assertEquals(exact, histogram.quantile(q), exact / 128, "q=" + q);
+        }
+        assertEquals(sorted[0], histogram.min(), 0.0);
+        assertEquals(sorted[sorted.length - 1], histogram.max(), 0.0);
+        assertEquals(Arrays.stream(values).average().orElseThrow(), histogram.mean(), 1e-9);
+    }
+
+    @Test
+    void outOfRangeValuesAreClampedButStatisticsStayExact() {
+        LogLinearHistogram histogram = new LogLinearHistogram(0, 3, 4);
+        histogram.record(0.0);
+        histogram.record(0.01);
+        histogram.record(1000.0);
+
+        assertEquals(3, histogram.count());
+        // sotto 2^0 si finisce nel primo bucket [1, 1 + 1/16): se ne riporta il punto medio
+        assertEquals(1.0 + 0.5 / 16, histogram.quantile(0.0), 0.0);
+        assertEquals(0.0, histogram.min(), 0.0);
+        assertEquals(1000.0, histogram.max(), 0.0);
+        // oltre 2^4 nell'ultimo bucket [15.5, 16): il quantile è limitato dalla configurazione, il massimo no
+        assertEquals(15.75, histogram.quantile(1.0), 0.0);
+        assertEquals(1000.01 / 3, histogram.mean(), 1e-12);
+    }
+
+    @Test
+    void mergeAndReset() {
+        LogLinearHistogram a = new LogLinearHistogram();
+        LogLinearHistogram b = new LogLinearHistogram();
+        for (int i = 1; i <= 100; i++) a.record(i);
+        for (int i = 101; i <= 200; i++) b.record(i);
+        a.merge(b);
+
+        assertEquals(200, a.count());
+        assertEquals(1.0, a.min(), 0.0);
+        assertEquals(200.0, a.max(), 0.0);
+        assertEquals(100.0, a.quantile(0.5), 100.0 / 128);
+
+        a.reset();
+        assertEquals(0, a.count());
+        assertTrue(Double.isNaN(a.quantile(0.5)));
+        assertThrows(IllegalArgumentException.class, () -> a.merge(new LogLinearHistogram(0, 3, 4)));
+    }
+}
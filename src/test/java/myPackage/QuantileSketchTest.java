@@ -0,0 +1,81 @@
+package myPackage;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class QuantileSketchTest {
+
+    private static double[] exponential(long seed, int n) {
+        SplittableRandom random = new SplittableRandom(seed);
+        double[] values = new double[n];
+        for (int i = 0; i < n; i++) values[i] = -Math.log(1 - random.nextDouble());
+        return values;
+    }
+
+    private static double exactQuantile(double[] sorted, double q) {
+        return sorted[(int) Math.min(sorted.length - 1, Math.floor(q * sorted.length))];
+    }
+
+    @Test
+    void quantilesAndCdfFollowTheSample() {
+        double[] values = exponential(3, 100_000);
+        QuantileSketch sketch = new QuantileSketch();
+        for (double v : values) sketch.add(v);
+        double[] sorted = values.clone();
+        Arrays.sort(sorted);
+
+        assertEquals(values.length, sketch.count());
+        assertEquals(sorted[0], sketch.min(), 0.0);
+        assertEquals(sorted[sorted.length - 1], sketch.max(), 0.0);
+        assertEquals(Arrays.stream(values).average().orElseThrow(), sketch.mean(), 1e-9);
+        for (double q : new double[]{0.01, 0.1, 0.5, 0.9, 0.99, 0.999}) {
+            double exact = exactQuantile(sorted, q);
+            // code più precise del centro (funzione di scala k2)
+            double tolerance = q < 0.05 || q > 0.95 ? 0.002 : 0.01;
+            assertEquals(q, sketch.cdf(exact), tolerance, "q=" + q);
+            assertEquals(exact, sketch.quantile(q), tolerance * 10 * Math.max(1, exact), "q=" + q);
+        }
+        assertTrue(sketch.size() < 2 * QuantileSketch.DEFAULT_COMPRESSION, "centroidi: " + sketch.size());
+    }
+
+    @Test
+    void mergeMatchesASingleSketch() {
+        double[] values = exponential(5, 40_000);
+        QuantileSketch whole = new QuantileSketch();
+        QuantileSketch left = new QuantileSketch();
+        QuantileSketch right = new QuantileSketch();
+        for (int i = 0; i < values.length; i++) {
+            whole.add(values[i]);
+            (i % 2 == 0 ? left : right).add(values[i]);
+        }
+        left.merge(right);
+
+        assertEquals(whole.count(), left.count());
+        assertEquals(whole.mean(), left.mean(), 1e-12);
+        assertEquals(whole.max(), left.max(), 0.0);
+        assertEquals(20_000, right.count());
+        for (double q : new double[]{0.1, 0.5, 0.9, 0.99}) {
+            assertEquals(whole.quantile(q), left.quantile(q), 0.02 * whole.quantile(q), "q=" + q);
+        }
+    }
+
+    @Test
+    void histogramCountsAddUpToTheSample() {
+        QuantileSketch sketch = new QuantileSketch();
+        for (int i = 0; i < 1000; i++) sketch.add(i % 10);
+        double[] counts = sketch.histogram(10);
+        assertEquals(1000.0, Arrays.stream(counts).sum(), 1e-6);
+        for (double c : counts) assertTrue(c >= 0);
+
+        QuantileSketch empty = new QuantileSketch();
+        assertTrue(Double.isNaN(empty.quantile(0.5)));
+        assertEquals(0.0, Arrays.stream(empty.histogram(5)).sum(), 0.0);
+        assertThrows(IllegalArgumentException.class, () -> new QuantileSketch(5));
+    }
+}
@@ -0,0 +1,42 @@
+package myPackage;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RareEventSplittingTest {
+
+    @Test
+    void levelsEndAtTheQueueSize() {
+        assertArrayEquals(new int[]{2, 4, 5}, RareEventSplitting.levels(5, 2));
+        assertArrayEquals(new int[]{3}, RareEventSplitting.levels(3, 4));
+        assertThrows(IllegalArgumentException.class, () -> RareEventSplitting.levels(0, 1));
+    }
+
+    /**
+     * Popolazione piccola e coda da 8: P(blocco) ≈ 1%, abbastanza da stimarla bene con 20000 run
+     * diretti, ma la coda piena si raggiunge solo in circa metà dei run, quindi lo splitting lavora davvero.
+     */
+    @Test
+    void agreesWithCrudeSimulationWhenBlockingIsFrequent() {
+        SimulationConfig config = new SimulationConfig();
+        config.queueSize = 8;
+        config.poolSize = 8;
+        config.horizon = 20.0;
+        config.population = 10;
+        RareEventSplitting splitting = new RareEventSplitting(config, Main.initialWeights(), 1, 2000, 10, 20_000, 1,
+                ForkJoinPool.commonPool());
+        RareEventSplitting.Result result = splitting.estimate();
+
+        double product = 1.0;
+        for (double p : result.levelProbabilities) product *= p;
+        assertEquals(product, result.hitProbability, 1e-12);
+        assertTrue(result.hitProbability < 0.9, "P(coda piena)=" + result.hitProbability);
+        assertEquals(result.crudeBlockProbability, result.blockProbability, 3 * result.halfWidth);
+    }
+}
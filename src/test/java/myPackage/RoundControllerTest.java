@@ -0,0 +1,81 @@
+package myPackage;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RoundControllerTest {
+    private static final List<BigDecimal> START = weights("0.5", "0.5");
+    private static final List<BigDecimal> MOVED = weights("0.3", "0.7");
+    private static final List<BigDecimal> SETTLED = weights("0.301", "0.699");
+
+    private static List<BigDecimal> weights(String... values) {
+        return Arrays.stream(values).map(BigDecimal::new).toList();
+    }
+
+    @Test
+    void fixedRoundsStopAtTheMaximum() {
+        RoundController controller = new RoundController(2);
+        ReplicationStatistics metrics = new ReplicationStatistics();
+        metrics.record("blocco", 0.1);
+        assertTrue(controller.next(START, START, metrics));
+        metrics.record("blocco", 0.1);
+        assertFalse(controller.next(START, START, metrics));
+        assertEquals(RoundController.StopReason.MAX_ROUNDS, controller.getStopReason());
+        assertEquals(2, controller.getRounds());
+    }
+
+    @Test
+    void stopsWhenWeightsSettleAndTheIntervalIsNarrow() {
+        RoundController controller = new RoundController(10, true, 0.005, 0.01, 3);
+        ReplicationStatistics metrics = new ReplicationStatistics();
+
+        // round 1: i pesi si muovono, il suo valore non entra nel CI
+        metrics.record("blocco", 0.9);
+        assertTrue(controller.next(START, MOVED, metrics));
+        metrics.record("blocco", 0.1000);
+        assertTrue(controller.next(MOVED, SETTLED, metrics), "meno di minRounds round");
+        metrics.record("blocco", 0.1001);
+        assertFalse(controller.next(SETTLED, SETTLED, metrics));
+
+        assertEquals(RoundController.StopReason.CONVERGED, controller.getStopReason());
+        RoundController.Summary summary = controller.summary(metrics);
+        assertEquals(2, summary.stableFrom);
+        assertEquals(0.10005, summary.means.get("blocco"), 1e-12);
+        assertTrue(summary.halfWidths.get("blocco") < 0.01);
+    }
+
+    @Test
+    void wideIntervalKeepsGoingUntilTheMaximum() {
+        RoundController controller = new RoundController(5, true, 0.005, 0.01, 3);
+        ReplicationStatistics metrics = new ReplicationStatistics();
+        boolean another = true;
+        for (int round = 1; another; round++) {
+            metrics.record("blocco", round % 2 == 0 ? 0.1 : 0.5);
+            another = controller.next(START, START, metrics);
+        }
+        assertEquals(5, controller.getRounds());
+        assertEquals(RoundController.StopReason.MAX_ROUNDS, controller.getStopReason());
+        assertTrue(controller.getDetail().contains("CI ancora largo"), controller.getDetail());
+    }
+
+    @Test
+    void orderChangeCountsAsMovingWeights() {
+        assertEquals(Double.POSITIVE_INFINITY, RoundController.weightDelta(START, weights("0.2", "0.3", "0.5")));
+        RoundController controller = new RoundController(1, true, 0.005, 0.01, 2);
+        ReplicationStatistics metrics = new ReplicationStatistics();
+        metrics.record("blocco", 0.1);
+        assertFalse(controller.next(START, weights("0.2", "0.3", "0.5"), metrics));
+        // Gson non accetta infiniti: la variazione resta null nel riepilogo
+        assertNull(controller.summary(metrics).weightDeltas.get(0));
+        assertThrows(IllegalArgumentException.class, () -> new RoundController(5, true, 0.005, 0.01, 1));
+    }
+}
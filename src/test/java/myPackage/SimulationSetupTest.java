@@ -0,0 +1,56 @@
+package myPackage;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SimulationSetupTest {
+
+    private static List<BigDecimal> weights(String... values) {
+        return Arrays.stream(values).map(BigDecimal::new).toList();
+    }
+
+    @Test
+    void rejectsZeroWeightOnTheLastPhase() {
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class,
+                () -> new SimulationSetup(weights("0.6", "0.4", "0.000000"), 8, 8));
+        assertTrue(e.getMessage().contains("ph3"));
+    }
+
+    @Test
+    void rejectsNegativeOrAllZeroWeights() {
+        assertThrows(IllegalArgumentException.class, () -> new SimulationSetup(weights("0.5", "-0.1", "0.6"), 8, 8));
+        assertThrows(IllegalArgumentException.class, () -> new SimulationSetup(weights("0", "0"), 8, 8));
+    }
+
+    @Test
+    void everyPhaseHasAnOutputTransition() {
+        SimulationSetup setup = new SimulationSetup(weights("0.5", "0", "0.5"), 8, 8);
+        NetIndex index = new NetIndex(setup.getSequencer().getNet());
+        var net = setup.getSequencer().getNet();
+        for (int p = 1; p <= 3; p++) {
+            var place = net.getPlace("ph" + p);
+            boolean hasOutput = net.getTransitions().stream()
+                    .anyMatch(t -> net.getPrecondition(place, t) != null);
+            assertTrue(hasOutput, "ph" + p + " senza uscite");
+        }
+        // la fase intermedia a peso 0 esce solo con t1
+        assertFalse(index.hasTransition("arrival2"));
+        assertTrue(index.hasTransition("arrival3"));
+    }
+
+    @Test
+    void fittedWeightsAreNeverRoundedToZero() {
+        BphOrderSelector.Fit fit = new BphOrderSelector.Fit(3, new double[]{0.6, 0.4, 1e-9}, -10.0, 100, 0.1, 5);
+        List<BigDecimal> list = fit.weightList();
+        assertEquals(0, list.get(2).compareTo(SimulationSetup.MIN_WEIGHT));
+        new SimulationSetup(list, 8, 8);
+    }
+}
@@ -0,0 +1,60 @@
+package myPackage;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SpscRingBufferTest {
+
+    @Test
+    void capacityIsRoundedToAPowerOfTwo() {
+        assertEquals(8, new SpscRingBuffer(5).capacity());
+        assertEquals(8, new SpscRingBuffer(8).capacity());
+        assertEquals(16, new SpscRingBuffer(9).capacity());
+    }
+
+    @Test
+    void fullBufferRejectsAndDrainFreesSpace() {
+        SpscRingBuffer buffer = new SpscRingBuffer(4);
+        assertTrue(buffer.isEmpty());
+        for (int i = 0; i < 4; i++) assertTrue(buffer.offer(i));
+        assertFalse(buffer.offer(99));
+
+        List<Double> drained = new ArrayList<>();
+        assertEquals(4, buffer.drain(drained::add));
+        assertEquals(List.of(0.0, 1.0, 2.0, 3.0), drained);
+        assertTrue(buffer.isEmpty());
+        assertTrue(buffer.offer(4));
+        assertEquals(1, buffer.drain(v -> assertEquals(4.0, v, 0.0)));
+    }
+
+    @Test
+    void producerAndConsumerThreadsKeepTheOrder() throws InterruptedException {
+        int n = 1_000_000;
+        SpscRingBuffer buffer = new SpscRingBuffer(64);
+        Thread producer = new Thread(() -> {
+            for (int i = 0; i < n; i++) {
+                while (!buffer.offer(i)) Thread.onSpinWait();
+            }
+        });
+        producer.start();
+
+        double[] expected = {0};
+        boolean[] ordered = {true};
+        while (expected[0] < n) {
+            buffer.drain(v -> {
+                if (v != expected[0]) ordered[0] = false;
+                expected[0]++;
+            });
+        }
+        producer.join();
+        assertTrue(ordered[0], "valori persi o fuori ordine");
+        assertEquals(n, expected[0], 0.0);
+        assertTrue(buffer.isEmpty());
+    }
+}
@@ -0,0 +1,51 @@
+package myPackage;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SteadyStateMonitorTest {
+
+    private final double[] num = {0};
+    private final double[] den = {0};
+    private int time;
+
+    /** Avanza di {@code slices} fette: ogni fetta aggiunge {@code events} al numeratore e 10 al denominatore. */
+    private void run(SteadyStateMonitor monitor, int slices, double events) {
+        for (int s = 0; s < slices; s++) {
+            num[0] += events;
+            den[0] += 10;
+            monitor.advance(++time, t -> { });
+        }
+    }
+
+    @Test
+    void metricNeverObservedIsNotPrecise() {
+        SteadyStateMonitor monitor = new SteadyStateMonitor(1.0, 0.05, 0.95);
+        monitor.track("blocco", () -> num[0], () -> den[0], SteadyStateMonitor.MIN_EVENTS);
+        monitor.reset(0.0);
+
+        run(monitor, 1000, 0);
+
+        // 0 ± 0: prima si fermava alle fette minime
+        assertEquals(0.0, monitor.estimates().get("blocco").mean, 0.0);
+        assertFalse(monitor.isSatisfied());
+    }
+
+    @Test
+    void rareEventsNeedTheMinimumCount() {
+        SteadyStateMonitor monitor = new SteadyStateMonitor(1.0, 0.5, 0.95);
+        monitor.track("blocco", () -> num[0], () -> den[0], 1000);
+        monitor.reset(0.0);
+
+        // un evento per fetta: media costante (semiampiezza nulla) ma troppo pochi eventi
+        run(monitor, 400, 1);
+        assertFalse(monitor.isSatisfied());
+
+        run(monitor, 1600, 1);
+        assertTrue(monitor.estimates().get("blocco").numerator >= 1000);
+        assertTrue(monitor.isSatisfied());
+    }
+}
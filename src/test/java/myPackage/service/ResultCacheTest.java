@@ -0,0 +1,100 @@
+package myPackage.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class ResultCacheTest {
+
+    @TempDir
+    File tmp;
+
+    private static Map<String, Object> config(long seed, String... args) {
+        Map<String, Object> config = new LinkedHashMap<>();
+        config.put("args", List.of(args));
+        config.put("seed", seed);
+        return config;
+    }
+
+    private static ResultCache.Entry entry(String message, String file, String content) {
+        return new ResultCache.Entry(message, Map.of(file, content.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    @Test
+    void keyDependsOnContentNotOnInsertionOrder() {
+        Map<String, Object> a = new LinkedHashMap<>();
+        a.put("seed", 3L);
+        a.put("args", List.of("static", "2"));
+        Map<String, Object> b = new LinkedHashMap<>();
+        b.put("args", List.of("static", "2"));
+        b.put("seed", 3L);
+
+        assertEquals(ResultCache.key(a), ResultCache.key(b));
+        assertEquals(64, ResultCache.key(a).length());
+        assertNotEquals(ResultCache.key(config(3, "static", "2")), ResultCache.key(config(4, "static", "2")));
+        assertNotEquals(ResultCache.key(config(3, "static", "2")), ResultCache.key(config(3, "static", "3")));
+    }
+
+    @Test
+    void computesOncePerKeyAndServesTheDiskTierAfterRestart() throws IOException {
+        File dir = new File(tmp, "cache");
+        String key = ResultCache.key(config(1, "static", "1"));
+        AtomicInteger loads = new AtomicInteger();
+        ResultCache cache = new ResultCache(1024, dir);
+
+        cache.computeIfAbsent(key, () -> {
+            loads.incrementAndGet();
+            return entry("ok", "round_1_results.json", "{}");
+        });
+        ResultCache.Entry again = cache.computeIfAbsent(key, () -> {
+            loads.incrementAndGet();
+            return entry("di nuovo", "round_1_results.json", "{}");
+        });
+        assertEquals(1, loads.get());
+        assertEquals("ok", again.message);
+        assertEquals(1, cache.hits());
+        assertEquals(1, cache.misses());
+
+        ResultCache restarted = new ResultCache(1024, dir);
+        ResultCache.Entry fromDisk = restarted.get(key);
+        assertNotNull(fromDisk);
+        assertEquals("ok", fromDisk.message);
+        assertArrayEquals("{}".getBytes(StandardCharsets.UTF_8), fromDisk.files.get("round_1_results.json"));
+        assertNull(restarted.get(ResultCache.key(config(2, "static", "1"))));
+    }
+
+    @Test
+    void memoryTierEvictsLeastRecentlyUsedBeyondTheLimit() throws IOException {
+        ResultCache cache = new ResultCache(40, new File(tmp, "cache"));
+        cache.put("a", entry("a", "f", "0123456789"));
+        cache.put("b", entry("b", "f", "0123456789"));
+        cache.put("c", entry("c", "f", "0123456789"));
+        cache.put("d", entry("d", "f", "0123456789"));
+
+        assertEquals(33, cache.memoryBytes());
+        // "a" è uscita dalla memoria ma resta su disco
+        assertNotNull(cache.get("a"));
+    }
+
+    @Test
+    void restoreWritesTheCapturedFiles() throws IOException {
+        File output = new File(tmp, "output");
+        ResultCache.restore(entry("ok", "rounds_summary.json", "{\"rounds\": 1}"), output);
+
+        assertEquals("{\"rounds\": 1}", Files.readString(new File(output, "rounds_summary.json").toPath()));
+    }
+}